@@ -0,0 +1,46 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Triangulating a whole layer of shapes, one group at a time versus in
+ * a parallel batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchTriangulationBenchmark {
+
+    @Param({ "1000" })
+    public int numGroups;
+
+    @Param({ "64", "1024" })
+    public int size;
+
+    private ShapeGroupInt[] groups;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Util.setSeed(71);
+        groups = new ShapeGroupInt[numGroups];
+        for (int i = 0; i < numGroups; i++)
+            groups[i] = new ShapeGroupInt(Util.randStarPolyInt(size));
+    }
+
+    @Benchmark
+    public void oneAtATime(Blackhole bh) {
+        for (ShapeGroupInt g : groups)
+            bh.consume(g.triangulate());
+    }
+
+    @Benchmark
+    public BatchTriangulation batch() {
+        return new BatchTriangulation(groups);
+    }
+
+}
@@ -0,0 +1,83 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Moving shapes around in the dynamic index, versus rebuilding a static
+ * ShapeIndex, plus point lookups in each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DynamicShapeIndexBenchmark {
+
+    private static final int EXTENT = 1000000;
+
+    @Param({ "1000", "200000" })
+    public int numShapes;
+
+    private BoxInt[] boxes;
+    private DynamicShapeIndex index;
+    private int[] out = new int[64];
+    private int size;
+    private Random rand;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rand = new Random(83);
+        boxes = new BoxInt[numShapes];
+        index = new DynamicShapeIndex();
+        size = (int) (2 * EXTENT / Math.sqrt(numShapes));
+        for (int i = 0; i < numShapes; i++) {
+            int x = rand.nextInt(EXTENT);
+            int y = rand.nextInt(EXTENT);
+            boxes[i] = new BoxInt(x, y, x + rand.nextInt(size), y + rand.nextInt(size));
+            index.put(i, boxes[i]);
+        }
+    }
+
+    /**
+     * Nudges one shape by a small amount... usually stays inside its
+     * fat box.
+     */
+    @Benchmark
+    public int smallMove() {
+        int i = rand.nextInt(numShapes);
+        int dx = rand.nextInt(size / 16 + 1) - size / 32;
+        int dy = rand.nextInt(size / 16 + 1) - size / 32;
+        BoxInt b = boxes[i];
+        boxes[i] = new BoxInt(b.left() + dx, b.bottom() + dy, b.right() + dx, b.top() + dy);
+        index.put(i, boxes[i]);
+        return i;
+    }
+
+    /**
+     * Moves one shape to somewhere random, so it always has to be
+     * taken out and put back in.
+     */
+    @Benchmark
+    public int bigMove() {
+        int i = rand.nextInt(numShapes);
+        int x = rand.nextInt(EXTENT);
+        int y = rand.nextInt(EXTENT);
+        boxes[i] = new BoxInt(x, y, x + rand.nextInt(size), y + rand.nextInt(size));
+        index.put(i, boxes[i]);
+        return i;
+    }
+
+    @Benchmark
+    public int searchPoint() {
+        return index.searchPoint(rand.nextInt(EXTENT), rand.nextInt(EXTENT), out);
+    }
+
+    @Benchmark
+    public ShapeIndex rebuildStatic() {
+        return new ShapeIndex(boxes);
+    }
+
+}
@@ -0,0 +1,81 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Loops over all the edges of a large shape-group, using the packed
+ * EdgeBuffer versus the array of LineInt objects.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EdgeBufferBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int numEdges;
+
+    private LineInt[] lines;
+    private EdgeBuffer buffer;
+    private int[] out;
+    private final int[] scratch = new int[EdgeBuffer.BLOCK_SIZE];
+    private double[] lengths;
+    private Random rand;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Util.setSeed(41);
+        int numShapes = Math.max(1, numEdges / 1000);
+        ShapeInt[] shapes = new ShapeInt[numShapes];
+        for (int i = 0; i < numShapes; i++)
+            shapes[i] = new ShapeInt(Util.randStarPolyInt(numEdges / numShapes)
+                                     .translate((i % 10) * 2000, (i / 10) * 2000));
+        ShapeGroupInt group = new ShapeGroupInt(shapes);
+        lines = group.getEdges();
+        buffer = group.edgeBuffer();
+        out = new int[buffer.numEdges()];
+        lengths = new double[buffer.numEdges()];
+        rand = new Random(41);
+    }
+
+    @Benchmark
+    public int intersectingLines() {
+        int x = rand.nextInt(20000);
+        int y = rand.nextInt(20000);
+        int count = 0;
+        for (LineInt ln : lines)
+            if (Geom2DInt.segmentsIntersect(ln.startX(), ln.startY(), ln.endX(), ln.endY(),
+                                            x, y, x + 500, y + 300, true)) count++;
+        return count;
+    }
+
+    @Benchmark
+    public int intersectingBuffer() {
+        int x = rand.nextInt(20000);
+        int y = rand.nextInt(20000);
+        return buffer.intersecting(x, y, x + 500, y + 300, true, out, scratch);
+    }
+
+    /**
+     * LineInt caches its length, so this uses fresh lines each time,
+     * as in ShapeGroupInt.getEdges() of a new group.
+     */
+    @Benchmark
+    public double lengthsLines() {
+        double sum = 0;
+        for (LineInt ln : lines)
+            sum += Geom2D.lineLength(ln.start(), ln.end());
+        return sum;
+    }
+
+    @Benchmark
+    public double[] lengthsBuffer() {
+        buffer.lengths(lengths);
+        return lengths;
+    }
+
+}
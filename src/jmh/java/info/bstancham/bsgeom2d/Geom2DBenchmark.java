@@ -0,0 +1,51 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The trig-based angle functions, over a random set of points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Geom2DBenchmark {
+
+    @Param({ "1000" })
+    public int size;
+
+    private PointInt[] points;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Util.setSeed(41);
+        points = new PointInt[size];
+        for (int i = 0; i < size; i++) {
+            PointInt p = Util.randPointInt();
+            // lineAngle throws on zero-length lines
+            while (i > 0 && p.equals(points[i - 1]))
+                p = Util.randPointInt();
+            points[i] = p;
+        }
+    }
+
+    @Benchmark
+    public double lineAngle() {
+        double sum = 0;
+        for (int i = 1; i < points.length; i++)
+            sum += Geom2D.lineAngle(points[i - 1], points[i]);
+        return sum;
+    }
+
+    @Benchmark
+    public double angleTurned() {
+        double sum = 0;
+        for (int i = 2; i < points.length; i++)
+            sum += Geom2D.angleTurned(points[i - 2], points[i - 1], points[i]);
+        return sum;
+    }
+
+}
@@ -0,0 +1,40 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Segment intersection tests, every line against every other line in a
+ * random set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LineIntBenchmark {
+
+    @Param({ "32", "256" })
+    public int size;
+
+    private LineInt[] lines;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Util.setSeed(29);
+        lines = new LineInt[size];
+        for (int i = 0; i < size; i++)
+            lines[i] = Util.randLineInt();
+    }
+
+    @Benchmark
+    public int intersectsLineSegment() {
+        int count = 0;
+        for (int i = 0; i < lines.length; i++)
+            for (int j = i + 1; j < lines.length; j++)
+                if (lines[i].intersectsLineSegment(lines[j])) count++;
+        return count;
+    }
+
+}
@@ -0,0 +1,76 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Classifies a block of points against a small polygon, with the
+ * scalar and vector PointKernels, and with the slab index that
+ * PolyInt.contains() uses for bigger polygons.
+ *
+ * The vector kernel needs the incubator module... without it, "vector"
+ * measures the scalar kernel again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class PointKernelBenchmark {
+
+    @Param({ "8", "32", "128" })
+    public int size;
+
+    @Param({ "scalar", "vector" })
+    public String kernelName;
+
+    private PointKernel kernel;
+    private int[] xs;
+    private int[] ys;
+    private BoxInt box;
+    private SlabIndex index;
+    private int[] pxs;
+    private int[] pys;
+    private byte[] out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Util.setSeed(19);
+        kernel = (kernelName.equals("scalar") ? PointKernel.scalar() : PointKernel.get());
+        PolyInt poly = Util.randStarPolyInt(size);
+        xs = new int[poly.numVertices()];
+        ys = new int[poly.numVertices()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = poly.x(i);
+            ys[i] = poly.y(i);
+        }
+        box = poly.boundingBox();
+        index = new SlabIndex(xs, ys);
+        pxs = new int[PolyInt.LOCATE_BLOCK_SIZE];
+        pys = new int[PolyInt.LOCATE_BLOCK_SIZE];
+        for (int i = 0; i < pxs.length; i++) {
+            PointInt p = Util.randPointInt();
+            pxs[i] = p.x();
+            pys[i] = p.y();
+        }
+        out = new byte[pxs.length];
+    }
+
+    @Benchmark
+    public byte[] kernel() {
+        kernel.locate(xs, ys, box, pxs, pys, 0, pxs.length, out);
+        return out;
+    }
+
+    /**
+     * Doesn't depend on the kernel, so only needs running once.
+     */
+    @Benchmark
+    public byte[] slabIndex() {
+        for (int i = 0; i < pxs.length; i++)
+            out[i] = (byte) index.locate(pxs[i], pys[i]);
+        return out;
+    }
+
+}
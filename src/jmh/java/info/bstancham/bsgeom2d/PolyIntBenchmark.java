@@ -0,0 +1,124 @@
+package info.bstancham.bsgeom2d;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Point-in-polygon, triangulation, boolean operations and overlap
+ * predicates on random star-shaped polygons (see Util.randStarPolyInt).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PolyIntBenchmark {
+
+    private static final int NUM_POINTS = 1000;
+
+    @Param({ "16", "256", "4096" })
+    public int size;
+
+    private PolyInt poly1;
+    private PolyInt poly2;
+    private int[] xs;
+    private int[] ys;
+    private IntBuffer vertexBuffer;
+    private IntBuffer indexBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Util.setSeed(17);
+        poly1 = Util.randStarPolyInt(size);
+        poly2 = Util.randStarPolyInt(size).translate(300, 200);
+        xs = new int[NUM_POINTS];
+        ys = new int[NUM_POINTS];
+        for (int i = 0; i < NUM_POINTS; i++) {
+            PointInt p = Util.randPointInt();
+            xs[i] = p.x();
+            ys[i] = p.y();
+        }
+        vertexBuffer = IntBuffer.allocate(poly1.numVertices() * 2);
+        indexBuffer = IntBuffer.allocate(poly1.numVertices() * 3);
+    }
+
+    /**
+     * Tests a fixed batch of points, so scores are per batch, not per
+     * point.
+     */
+    @Benchmark
+    public int contains() {
+        int count = 0;
+        for (int i = 0; i < NUM_POINTS; i++)
+            if (poly1.contains(xs[i], ys[i])) count++;
+        return count;
+    }
+
+    /**
+     * Triangulation is cached, so a fresh copy of the polygon is made
+     * each time.
+     */
+    @Benchmark
+    public TriInt[] getTriangulation() {
+        return poly1.translate(0, 0).getTriangulation();
+    }
+
+    /**
+     * Same triangles, written into reused buffers rather than TriInt
+     * objects.
+     */
+    @Benchmark
+    public int triangulateToBuffer() {
+        vertexBuffer.clear();
+        indexBuffer.clear();
+        return poly1.translate(0, 0).triangulate(new IntBufferSink(vertexBuffer, indexBuffer));
+    }
+
+    /**
+     * Winding is cached too, so this also uses a fresh copy.
+     */
+    @Benchmark
+    public PolyInt.WindingOrder windingOrder() {
+        return poly1.translate(0, 0).windingOrder();
+    }
+
+    @Benchmark
+    public double sumOfAngles() {
+        return poly1.translate(0, 0).sumOfAngles();
+    }
+
+    @Benchmark
+    public void booleanTransformation(Blackhole bh) {
+        PolyInt.BooleanTransformation bool = new PolyInt.BooleanTransformation(poly1, poly2);
+        bh.consume(bool.union());
+        bh.consume(bool.intersection());
+        bh.consume(bool.subtraction1());
+        bh.consume(bool.subtraction2());
+    }
+
+    /**
+     * Stops at the first place where the outlines meet.
+     */
+    @Benchmark
+    public boolean intersects() {
+        return poly1.intersects(poly2);
+    }
+
+    /**
+     * Has to classify the whole of both outlines, when they only
+     * touch... here they overlap, so it can stop early too.
+     */
+    @Benchmark
+    public boolean touches() {
+        return poly1.touches(poly2);
+    }
+
+    @Benchmark
+    public boolean containsPoly() {
+        return poly1.contains(poly2);
+    }
+
+}
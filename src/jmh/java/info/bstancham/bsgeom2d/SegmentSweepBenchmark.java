@@ -0,0 +1,185 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The sweep behind EdgeSweep and PolyOverlap, on its own, for the
+ * kinds of input which matter most:
+ *
+ * - stars: two random star polygons (see Util.randStarPolyInt), as in
+ *   PolyIntBenchmark... long edges, with the number of crossings k
+ *   growing as n squared.
+ *
+ * - circles: two big, overlapping, slightly bumpy circles... lots of
+ *   short, jagged edges, whose boxes overlap their neighbours' but
+ *   hardly ever the other circle's, and very few crossings. Both sides
+ *   of each circle stay active all the way across.
+ *
+ * - combs: two interleaved combs, whose long teeth lie side by side,
+ *   each reaching right across the other comb to cross its spine... so
+ *   nearly every edge is active at once, but there are only O(n)
+ *   crossings. Checking each new edge against all of the active edges
+ *   makes this one O(n^2).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentSweepBenchmark {
+
+    /**
+     * Edges of two polygons, ready to sweep.
+     */
+    public abstract static class Edges {
+
+        int n;
+        int[] sx;
+        int[] sy;
+        int[] ex;
+        int[] ey;
+        int[] owner;
+        int[] all;
+
+        void setEdges(PolyInt p, PolyInt q) {
+            PolyInt[] polys = { p, q };
+            n = p.numVertices() + q.numVertices();
+            sx = new int[n];
+            sy = new int[n];
+            ex = new int[n];
+            ey = new int[n];
+            owner = new int[n];
+            int e = 0;
+            for (int r = 0; r < polys.length; r++) {
+                int numV = polys[r].numVertices();
+                for (int i = 0; i < numV; i++, e++) {
+                    int next = (i + 1 < numV ? i + 1 : 0);
+                    sx[e] = polys[r].x(i);
+                    sy[e] = polys[r].y(i);
+                    ex[e] = polys[r].x(next);
+                    ey[e] = polys[r].y(next);
+                    owner[e] = r;
+                }
+            }
+            all = SegmentSweep.allEdges(n);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Stars extends Edges {
+
+        @Param({ "256", "4096" })
+        public int size;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Util.setSeed(17);
+            setEdges(Util.randStarPolyInt(size), Util.randStarPolyInt(size).translate(300, 200));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Circles extends Edges {
+
+        private static final int RADIUS = 1000000;
+
+        @Param({ "4096", "65536" })
+        public int size;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random rand = new Random(5);
+            setEdges(circle(size, rand), circle(size, rand).translate(RADIUS * 7 / 10, RADIUS * 3 / 10));
+        }
+
+        private static PolyInt circle(int n, Random rand) {
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                double angle = 2 * Math.PI * i / n;
+                double r = RADIUS * (1 + 0.02 * rand.nextDouble());
+                xs[i] = (int) Math.round(r * Math.cos(angle));
+                ys[i] = (int) Math.round(r * Math.sin(angle));
+            }
+            return new PolyInt(xs, ys);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Combs extends Edges {
+
+        private static final int LENGTH = 1000000;
+
+        /**
+         * Number of edges in each comb.
+         */
+        @Param({ "5000", "20000" })
+        public int size;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            int teeth = (size - 2) / 4;
+            PolyInt a = comb(teeth);
+            // the other comb, mirrored, in the gaps between the teeth...
+            // each comb's teeth cross the other's spine
+            int n = a.numVertices();
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[n - 1 - i] = LENGTH - 1 - a.x(i);
+                ys[n - 1 - i] = a.y(i) + 4;
+            }
+            setEdges(a, new PolyInt(xs, ys));
+        }
+
+        /**
+         * @return A comb whose spine runs up the y axis, with slightly
+         * tapered teeth reaching out to x = LENGTH.
+         */
+        private static PolyInt comb(int teeth) {
+            int[] xs = new int[4 * teeth + 2];
+            int[] ys = new int[xs.length];
+            int v = 0;
+            for (int i = 0; i < teeth; i++) {
+                int y = 8 * i;
+                xs[v] = 0;      ys[v++] = y;
+                xs[v] = LENGTH; ys[v++] = y + 1;
+                xs[v] = LENGTH; ys[v++] = y + 2;
+                xs[v] = 0;      ys[v++] = y + 3;
+            }
+            xs[v] = -10;
+            ys[v++] = 8 * teeth - 5;
+            xs[v] = -10;
+            ys[v] = 0;
+            return new PolyInt(xs, ys);
+        }
+    }
+
+    private static int sweep(Edges edges) {
+        int[] count = new int[1];
+        SegmentSweep.sweep(edges.sx, edges.sy, edges.ex, edges.ey, edges.owner,
+                           edges.all, edges.n, (f, e) -> {
+                count[0]++;
+                return false;
+            });
+        return count[0];
+    }
+
+    @Benchmark
+    public int stars(Stars edges) {
+        return sweep(edges);
+    }
+
+    @Benchmark
+    public int circles(Circles edges) {
+        return sweep(edges);
+    }
+
+    @Benchmark
+    public int combs(Combs edges) {
+        return sweep(edges);
+    }
+
+}
@@ -0,0 +1,70 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Point-in-shape-group queries, one point at a time versus in bulk, for
+ * a grid of random star-shaped zones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShapeGroupIntBenchmark {
+
+    private static final int GRID = 8;
+    private static final int SPACING = 2000;
+
+    @Param({ "10000", "1000000" })
+    public int numPoints;
+
+    @Param({ "64" })
+    public int zoneVertices;
+
+    private ShapeGroupInt group;
+    private int[] xs;
+    private int[] ys;
+    private boolean[] result;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Util.setSeed(61);
+        ShapeInt[] zones = new ShapeInt[GRID * GRID];
+        for (int i = 0; i < zones.length; i++)
+            zones[i] = new ShapeInt(Util.randStarPolyInt(zoneVertices)
+                                    .translate((i % GRID) * SPACING, (i / GRID) * SPACING));
+        group = new ShapeGroupInt(zones);
+        xs = new int[numPoints];
+        ys = new int[numPoints];
+        for (int i = 0; i < numPoints; i++) {
+            PointInt p = Util.randPointInt();
+            // spread the points over the whole grid
+            xs[i] = p.x() + (i % GRID) * SPACING;
+            ys[i] = p.y() + ((i / GRID) % GRID) * SPACING;
+        }
+        result = new boolean[numPoints];
+    }
+
+    @Benchmark
+    public boolean[] onePointAtATime() {
+        for (int i = 0; i < numPoints; i++)
+            result[i] = group.contains(new PointInt(xs[i], ys[i]));
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] bulk() {
+        group.contains(xs, ys, true, result);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] bulkParallel() {
+        group.containsParallel(xs, ys, true, result);
+        return result;
+    }
+
+}
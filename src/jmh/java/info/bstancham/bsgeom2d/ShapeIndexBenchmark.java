@@ -0,0 +1,67 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Point lookups against a large number of boxes, using the index
+ * versus a linear scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShapeIndexBenchmark {
+
+    private static final int EXTENT = 1000000;
+
+    @Param({ "1000", "200000" })
+    public int numShapes;
+
+    private BoxInt[] boxes;
+    private ShapeIndex index;
+    private int[] out = new int[64];
+    private Random rand;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rand = new Random(83);
+        boxes = new BoxInt[numShapes];
+        int size = (int) (2 * EXTENT / Math.sqrt(numShapes));
+        for (int i = 0; i < numShapes; i++) {
+            int x = rand.nextInt(EXTENT);
+            int y = rand.nextInt(EXTENT);
+            boxes[i] = new BoxInt(x, y, x + rand.nextInt(size), y + rand.nextInt(size));
+        }
+        index = new ShapeIndex(boxes);
+    }
+
+    @Benchmark
+    public int searchPoint() {
+        return index.searchPoint(rand.nextInt(EXTENT), rand.nextInt(EXTENT), out);
+    }
+
+    @Benchmark
+    public int linearScan() {
+        int x = rand.nextInt(EXTENT);
+        int y = rand.nextInt(EXTENT);
+        int count = 0;
+        for (BoxInt b : boxes)
+            if (b.left() <= x && b.right() >= x && b.bottom() <= y && b.top() >= y) count++;
+        return count;
+    }
+
+    @Benchmark
+    public int nearest() {
+        return index.nearest(rand.nextInt(EXTENT), rand.nextInt(EXTENT));
+    }
+
+    @Benchmark
+    public ShapeIndex build() {
+        return new ShapeIndex(boxes);
+    }
+
+}
@@ -0,0 +1,62 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Finding all overlapping pairs among lots of small polygons, scattered
+ * about with a few neighbours each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShapeOverlapsBenchmark {
+
+    private static final int EXTENT = 1000000;
+
+    @Param({ "5000", "50000" })
+    public int numShapes;
+
+    private ShapeGroupInt[] groups;
+    private BoxInt[] boxes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Util.setSeed(31);
+        Random rand = new Random(31);
+        int size = (int) (EXTENT / Math.sqrt(numShapes));
+        groups = new ShapeGroupInt[numShapes];
+        boxes = new BoxInt[numShapes];
+        for (int i = 0; i < numShapes; i++) {
+            PolyInt star = Util.randStarPolyInt(8);
+            // scale the star to about the right size, and move it into place
+            BoxInt b = star.boundingBox();
+            int scale = Math.max(1, size / Math.max(1, b.width() + b.height()));
+            int[] xs = star.getXCoords();
+            int[] ys = star.getYCoords();
+            int x = rand.nextInt(EXTENT);
+            int y = rand.nextInt(EXTENT);
+            for (int k = 0; k < xs.length; k++) {
+                xs[k] = x + xs[k] * scale;
+                ys[k] = y + ys[k] * scale;
+            }
+            groups[i] = new ShapeGroupInt(new PolyInt(xs, ys));
+            boxes[i] = groups[i].boundingBox();
+        }
+    }
+
+    @Benchmark
+    public ShapeOverlaps broadPhase() {
+        return new ShapeOverlaps(boxes);
+    }
+
+    @Benchmark
+    public ShapeOverlaps exact() {
+        return new ShapeOverlaps(groups);
+    }
+
+}
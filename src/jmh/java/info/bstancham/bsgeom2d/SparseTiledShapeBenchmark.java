@@ -0,0 +1,68 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Boolean operations on a big, mostly empty world: islands of tiles
+ * scattered over a square of the given width, and a brush which
+ * overlaps a few of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SparseTiledShapeBenchmark {
+
+    private static final Tile[] TILES = {
+        TiledShape.EMPTY, TiledShape.SQUARE, TiledShape.SQUARE, TiledShape.SQUARE,
+        TiledShape.TOPLEFT, TiledShape.TOPRIGHT, TiledShape.BOTLEFT, TiledShape.BOTRIGHT
+    };
+
+    /**
+     * Width (and height) of the world, in tiles.
+     */
+    @Param({ "4096", "1000000" })
+    public int worldSize;
+
+    private SparseTiledShape world;
+    private SparseTiledShape brush;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rand = new Random(59);
+        TiledShape[] islands = new TiledShape[200];
+        for (int i = 0; i < islands.length; i++)
+            islands[i] = randShape(rand, 24 + rand.nextInt(40))
+                .translate(rand.nextInt(worldSize), rand.nextInt(worldSize));
+        world = new SparseTiledShape(islands);
+        brush = new SparseTiledShape(randShape(rand, 100).translate(islands[0].position().x(),
+                                                                    islands[0].position().y()));
+    }
+
+    private static TiledShape randShape(Random rand, int dim) {
+        Tile[] tiles = new Tile[dim * dim];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = TILES[rand.nextInt(TILES.length)];
+        return new TiledShape(dim, tiles);
+    }
+
+    @Benchmark
+    public SparseTiledShape subtract() {
+        return world.subtract(brush);
+    }
+
+    @Benchmark
+    public SparseTiledShape union() {
+        return world.union(brush);
+    }
+
+    @Benchmark
+    public LineInt[] getLines() {
+        return world.getLines();
+    }
+
+}
@@ -0,0 +1,104 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Edge extraction, triangulation and boolean operations of tiled
+ * shapes, with a random mix of tiles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TiledShapeBenchmark {
+
+    private static final Tile[] TILES = {
+        TiledShape.EMPTY, TiledShape.SQUARE, TiledShape.SQUARE, TiledShape.SQUARE,
+        TiledShape.TOPLEFT, TiledShape.TOPRIGHT, TiledShape.BOTLEFT, TiledShape.BOTRIGHT
+    };
+
+    /**
+     * Width (and height) of the shape, in tiles.
+     */
+    @Param({ "16", "64", "256", "1024" })
+    public int dimension;
+
+    private Tile[] tiles;
+    private PointPool pool;
+    private TiledShape shape;
+    private TiledShape other;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rand = new Random(53);
+        tiles = new Tile[dimension * dimension];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = TILES[rand.nextInt(TILES.length)];
+        pool = new PointPool(4 * (dimension + 1) * (dimension + 1));
+        shape = new TiledShape(dimension, tiles);
+        Tile[] otherTiles = new Tile[tiles.length];
+        for (int i = 0; i < otherTiles.length; i++)
+            otherTiles[i] = TILES[rand.nextInt(TILES.length)];
+        // offset so that the rows don't line up with the words
+        other = new TiledShape(dimension, otherTiles).translate(dimension / 3 + 1, -5);
+    }
+
+    @Benchmark
+    public TiledShape subtract() {
+        return shape.subtract(other);
+    }
+
+    @Benchmark
+    public TiledShape union() {
+        return shape.union(other);
+    }
+
+    @Benchmark
+    public LineInt[] getLines() {
+        return new TiledShape(dimension, tiles).getLines();
+    }
+
+    /**
+     * Cached, like triangulation(), so a fresh shape is made each time.
+     */
+    @Benchmark
+    public ShapeGroupInt outlines() {
+        return new TiledShape(dimension, tiles).outlines();
+    }
+
+    /**
+     * Triangulation is cached, so a fresh shape is made each time.
+     */
+    @Benchmark
+    public TriInt[] triangulation() {
+        return new TiledShape(dimension, tiles).triangulation();
+    }
+
+    /**
+     * Same area as triangulation(), in far fewer triangles... though
+     * with random tiles there are only short runs to merge.
+     */
+    @Benchmark
+    public TriInt[] mergedTriangulation() {
+        return new TiledShape(dimension, tiles).mergedTriangulation();
+    }
+
+    /**
+     * Same, with a PointPool installed, so that the triangles share one
+     * point per lattice point.
+     */
+    @Benchmark
+    public TriInt[] triangulationPooled() {
+        PointPool.setDefault(pool);
+        try {
+            return new TiledShape(dimension, tiles).triangulation();
+        } finally {
+            PointPool.setDefault(null);
+        }
+    }
+
+}
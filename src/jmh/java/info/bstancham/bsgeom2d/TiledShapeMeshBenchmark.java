@@ -0,0 +1,56 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * One tile edit, with the triangles and lines patched in place by
+ * TiledShapeMesh, against making a new TiledShape and working them all
+ * out again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TiledShapeMeshBenchmark {
+
+    private static final Tile[] TILES = {
+        TiledShape.EMPTY, TiledShape.SQUARE, TiledShape.SQUARE, TiledShape.SQUARE,
+        TiledShape.TOPLEFT, TiledShape.TOPRIGHT, TiledShape.BOTLEFT, TiledShape.BOTRIGHT
+    };
+
+    @Param({ "64", "512" })
+    public int dimension;
+
+    private Tile[] tiles;
+    private TiledShapeMesh mesh;
+    private Random rand;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        rand = new Random(61);
+        tiles = new Tile[dimension * dimension];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = TILES[rand.nextInt(TILES.length)];
+        mesh = new TiledShapeMesh(new TiledShape(dimension, tiles));
+    }
+
+    @Benchmark
+    public int editMesh() {
+        mesh.setTile(rand.nextInt(dimension), rand.nextInt(dimension),
+                     TILES[rand.nextInt(TILES.length)]);
+        return mesh.takeDirtyTriangles().cardinality() + mesh.takeDirtyLines().cardinality();
+    }
+
+    @Benchmark
+    public LineInt[] editRebuild() {
+        tiles[rand.nextInt(tiles.length)] = TILES[rand.nextInt(TILES.length)];
+        TiledShape shape = new TiledShape(dimension, tiles);
+        shape.triangulation();
+        return shape.getLines();
+    }
+
+}
@@ -0,0 +1,167 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Triangulates lots of shape-groups at once, sharing the work out over
+ * a fork-join pool.
+ *
+ * Every sub-shape is triangulated separately, so one big group doesn't
+ * hold everything else up. All of the triangles end up packed into a
+ * single flat array of co-ordinates, six per triangle (ax, ay, bx, by,
+ * cx, cy), in the same order as the input groups, and the triangles
+ * from each group are the same as ShapeGroupInt.triangulate() would
+ * give.
+ *
+ * The core library is built for Java 11 (only the optional SIMD kernels
+ * need JDK 16 or later), so this uses a fork-join pool rather than
+ * virtual threads.
+ */
+public final class BatchTriangulation {
+
+    private final int[] coords;
+
+    // triangles for group g are groupStart[g] to groupStart[g + 1] - 1
+    private final int[] groupStart;
+
+    /**
+     * Uses the common fork-join pool.
+     */
+    public BatchTriangulation(ShapeGroupInt[] groups) {
+        this(groups, ForkJoinPool.commonPool());
+    }
+
+    public BatchTriangulation(Collection<ShapeGroupInt> groups) {
+        this(groups.toArray(new ShapeGroupInt[groups.size()]));
+    }
+
+    public BatchTriangulation(Collection<ShapeGroupInt> groups, ForkJoinPool pool) {
+        this(groups.toArray(new ShapeGroupInt[groups.size()]), pool);
+    }
+
+    /**
+     * @param pool The pool to do the work in... e.g. one with a limited
+     * number of threads, to leave some cores free.
+     */
+    public BatchTriangulation(ShapeGroupInt[] groups, ForkJoinPool pool) {
+        if (groups == null || pool == null)
+            throw new NullPointerException("null argument given to constructor");
+
+        // flatten the groups into a single list of shapes
+        int numShapes = 0;
+        for (ShapeGroupInt g : groups)
+            numShapes += g.numSubShapes();
+        ShapeInt[] shapes = new ShapeInt[numShapes];
+        int[] shapeStart = new int[groups.length + 1];
+        int s = 0;
+        for (int g = 0; g < groups.length; g++) {
+            shapeStart[g] = s;
+            for (ShapeInt shape : groups[g])
+                shapes[s++] = shape;
+        }
+        shapeStart[groups.length] = s;
+
+        int[][] parts = new int[numShapes][];
+        pool.invoke(new TriangulateTask(shapes, parts, 0, numShapes));
+
+        // pack the results together, in order
+        groupStart = new int[groups.length + 1];
+        int total = 0;
+        for (int g = 0; g < groups.length; g++) {
+            groupStart[g] = total;
+            for (int i = shapeStart[g]; i < shapeStart[g + 1]; i++)
+                total += parts[i].length / 6;
+        }
+        groupStart[groups.length] = total;
+        coords = new int[total * 6];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, coords, offset, part.length);
+            offset += part.length;
+        }
+    }
+
+    /**
+     * Splits the range of shapes in half until there's only one left,
+     * so that idle threads can steal whatever is left over.
+     */
+    private static class TriangulateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ShapeInt[] shapes;
+        private final int[][] parts;
+        private final int from;
+        private final int to;
+
+        TriangulateTask(ShapeInt[] shapes, int[][] parts, int from, int to) {
+            this.shapes = shapes;
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) parts[from] = shapes[from].triangleCoords();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TriangulateTask(shapes, parts, from, mid),
+                      new TriangulateTask(shapes, parts, mid, to));
+        }
+    }
+
+
+
+    /*--------------------------- ACCESSORS ----------------------------*/
+
+    public int numGroups() { return groupStart.length - 1; }
+
+    public int numTriangles() { return coords.length / 6; }
+
+    /**
+     * @return Index of the first triangle belonging to the given group.
+     */
+    public int groupStart(int group) { return groupStart[group]; }
+
+    /**
+     * @return One past the index of the last triangle belonging to the
+     * given group.
+     */
+    public int groupEnd(int group) { return groupStart[group + 1]; }
+
+    /**
+     * @param corner 0, 1 or 2.
+     */
+    public int x(int triangle, int corner) { return coords[triangle * 6 + corner * 2]; }
+
+    public int y(int triangle, int corner) { return coords[triangle * 6 + corner * 2 + 1]; }
+
+    public TriInt triangle(int index) {
+        int k = index * 6;
+        return new TriInt(coords[k],     coords[k + 1],
+                          coords[k + 2], coords[k + 3],
+                          coords[k + 4], coords[k + 5]);
+    }
+
+    /**
+     * @return All of the triangle co-ordinates, six per triangle (ax, ay,
+     * bx, by, cx, cy). To maintain immutability, a new array is created
+     * each time the method is called.
+     */
+    public int[] getCoords() { return coords.clone(); }
+
+    /**
+     * Copies co-ordinates for triangles from (inclusive) to (exclusive)
+     * into dest, starting at destPos... for filling an output buffer
+     * without making a copy of the whole lot.
+     */
+    public void copyCoords(int from, int to, int[] dest, int destPos) {
+        System.arraycopy(coords, from * 6, dest, destPos, (to - from) * 6);
+    }
+
+}
@@ -0,0 +1,400 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index over the bounding boxes of a changing set of shapes,
+ * keyed by shape id, for when shapes are edited or moved too often to
+ * rebuild a ShapeIndex every time.
+ *
+ * This is a dynamic bounding volume tree: a binary tree where each
+ * leaf holds one shape, and each branch holds the union of its
+ * children's boxes. New leaves go wherever they make the tree's boxes
+ * grow least, and the tree is kept balanced by rotations, as in an AVL
+ * tree.
+ *
+ * Leaves store a 'fat' box, a bit bigger than the shape's own
+ * box. While a shape only moves or changes a little, its new box still
+ * fits inside the fat one, and updating it costs almost nothing...
+ * only when it leaves the fat box is the leaf taken out and put back
+ * in.
+ *
+ * Queries give the same results as for ShapeIndex, based on the
+ * shapes' exact bounding boxes, and create no objects.
+ *
+ * Unlike most classes in this library, this one is mutable, and not
+ * thread-safe.
+ */
+public final class DynamicShapeIndex {
+
+    private static final int NULL = -1;
+
+    /**
+     * Fat boxes are bigger than the real one by this fraction of its
+     * width plus height (plus one unit), on every side.
+     */
+    private static final int FAT_MARGIN_DIVISOR = 8;
+
+    // fat bounds for every node, and exact bounds for leaves, four per
+    // node (left, bottom, right, top)... interleaved, so that a query
+    // visiting a node only touches one cache line for them
+    private int[] fat;
+    private int[] exact;
+
+    // tree structure... children are two per node, and together for
+    // the same reason. Height is zero for leaves, and free nodes are
+    // linked together through their parent
+    private int[] children;
+    private int[] parent;
+    private int[] height;
+    private int[] item;
+    private int root = NULL;
+    private int freeList = NULL;
+
+    // leaf node for each shape id, or NULL
+    private int[] leafOf = new int[0];
+    private int size = 0;
+
+    public DynamicShapeIndex() {
+        allocateArrays(16);
+    }
+
+
+
+    /*---------------------------- UPDATES -----------------------------*/
+
+    public int size() { return size; }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < leafOf.length && leafOf[id] != NULL;
+    }
+
+    /**
+     * Adds the shape to the index, or updates its box if it's already
+     * there. Empty shape-groups are removed from the index.
+     */
+    public void put(int id, ShapeGroupInt shape) {
+        if (shape.isEmpty()) remove(id);
+        else put(id, shape.boundingBox());
+    }
+
+    /**
+     * Adds a box to the index with the given id, or updates it if the
+     * id is already there.
+     *
+     * Ids are used directly as array indices, so they should be small,
+     * and fairly densely packed (e.g. positions in a list of shapes).
+     *
+     * @throws IllegalArgumentException if id is negative.
+     */
+    public void put(int id, BoxInt box) {
+        if (id < 0)
+            throw new IllegalArgumentException("id must not be negative: " + id);
+        if (id >= leafOf.length) {
+            int oldLength = leafOf.length;
+            leafOf = Arrays.copyOf(leafOf, Math.max(id + 1, oldLength * 2));
+            Arrays.fill(leafOf, oldLength, leafOf.length, NULL);
+        }
+        int leaf = leafOf[id];
+        if (leaf == NULL) {
+            leaf = allocateNode();
+            item[leaf] = id;
+            setExact(leaf, box);
+            fatten(leaf);
+            insertLeaf(leaf);
+            leafOf[id] = leaf;
+            size++;
+            return;
+        }
+        setExact(leaf, box);
+        // OPTIMIZATION: small moves stay inside the fat box
+        int k = leaf * 4;
+        if (fat[k] <= box.left() && fat[k + 2] >= box.right() &&
+            fat[k + 1] <= box.bottom() && fat[k + 3] >= box.top()) return;
+        removeLeaf(leaf);
+        fatten(leaf);
+        insertLeaf(leaf);
+    }
+
+    /**
+     * @return True if the id was in the index.
+     */
+    public boolean remove(int id) {
+        if (!contains(id)) return false;
+        int leaf = leafOf[id];
+        removeLeaf(leaf);
+        freeNode(leaf);
+        leafOf[id] = NULL;
+        size--;
+        return true;
+    }
+
+    private void setExact(int leaf, BoxInt box) {
+        exact[leaf * 4]     = box.left();
+        exact[leaf * 4 + 1] = box.bottom();
+        exact[leaf * 4 + 2] = box.right();
+        exact[leaf * 4 + 3] = box.top();
+    }
+
+    private void fatten(int leaf) {
+        int k = leaf * 4;
+        long margin = ((long) exact[k + 2] - exact[k] +
+                       (long) exact[k + 3] - exact[k + 1]) / FAT_MARGIN_DIVISOR + 1;
+        fat[k]     = (int) Math.max((long) exact[k]     - margin, Integer.MIN_VALUE);
+        fat[k + 1] = (int) Math.max((long) exact[k + 1] - margin, Integer.MIN_VALUE);
+        fat[k + 2] = (int) Math.min((long) exact[k + 2] + margin, Integer.MAX_VALUE);
+        fat[k + 3] = (int) Math.min((long) exact[k + 3] + margin, Integer.MAX_VALUE);
+    }
+
+
+
+    /*----------------------------- NODES ------------------------------*/
+
+    private void allocateArrays(int capacity) {
+        int old = (parent == null ? 0 : parent.length);
+        fat      = grow(fat, capacity * 4);
+        exact    = grow(exact, capacity * 4);
+        children = grow(children, capacity * 2);
+        parent   = grow(parent, capacity);
+        height   = grow(height, capacity);
+        item     = grow(item, capacity);
+        // link the new nodes into the free list
+        for (int i = capacity - 1; i >= old; i--) {
+            parent[i] = freeList;
+            freeList = i;
+        }
+    }
+
+    private static int[] grow(int[] a, int capacity) {
+        return (a == null ? new int[capacity] : Arrays.copyOf(a, capacity));
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL)
+            allocateArrays(parent.length * 2);
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        children[node * 2] = NULL;
+        children[node * 2 + 1] = NULL;
+        height[node] = 0;
+        item[node] = NULL;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        freeList = node;
+    }
+
+    private boolean isLeaf(int node) { return children[node * 2] == NULL; }
+
+    private int child1(int node) { return children[node * 2]; }
+    private int child2(int node) { return children[node * 2 + 1]; }
+
+    /**
+     * @return Half the perimeter of the union of two nodes' boxes... used
+     * as the cost of putting them together.
+     */
+    private long unionCost(int a, int b) {
+        int ka = a * 4;
+        int kb = b * 4;
+        return (long) Math.max(fat[ka + 2], fat[kb + 2]) - Math.min(fat[ka], fat[kb])
+            + (long) Math.max(fat[ka + 3], fat[kb + 3]) - Math.min(fat[ka + 1], fat[kb + 1]);
+    }
+
+    private long cost(int a) {
+        int k = a * 4;
+        return (long) fat[k + 2] - fat[k] + (long) fat[k + 3] - fat[k + 1];
+    }
+
+    /**
+     * Sets the node's box and height from its children.
+     */
+    private void refit(int node) {
+        int a = child1(node);
+        int b = child2(node);
+        int k = node * 4;
+        int ka = a * 4;
+        int kb = b * 4;
+        fat[k]     = Math.min(fat[ka],     fat[kb]);
+        fat[k + 1] = Math.min(fat[ka + 1], fat[kb + 1]);
+        fat[k + 2] = Math.max(fat[ka + 2], fat[kb + 2]);
+        fat[k + 3] = Math.max(fat[ka + 3], fat[kb + 3]);
+        height[node] = 1 + Math.max(height[a], height[b]);
+    }
+
+    private void replaceChild(int node, int oldChild, int newChild) {
+        if (node == NULL)
+            root = newChild;
+        else if (children[node * 2] == oldChild)
+            children[node * 2] = newChild;
+        else
+            children[node * 2 + 1] = newChild;
+    }
+
+
+
+    /*------------------------- INSERT/REMOVE --------------------------*/
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+        // go down the tree, choosing the child whose box would grow
+        // least, until it's cheaper to pair up with the current node
+        int node = root;
+        while (!isLeaf(node)) {
+            long combined = unionCost(node, leaf);
+            long here = 2 * combined;
+            // cost of going further down includes growing this node
+            long inherited = 2 * (combined - cost(node));
+            long cost1 = childCost(child1(node), leaf) + inherited;
+            long cost2 = childCost(child2(node), leaf) + inherited;
+            if (here < cost1 && here < cost2) break;
+            node = (cost1 < cost2 ? child1(node) : child2(node));
+        }
+
+        // new branch, in place of the sibling
+        int sibling = node;
+        int oldParent = parent[sibling];
+        int branch = allocateNode();
+        parent[branch] = oldParent;
+        children[branch * 2] = sibling;
+        children[branch * 2 + 1] = leaf;
+        parent[sibling] = branch;
+        parent[leaf] = branch;
+        replaceChild(oldParent, sibling, branch);
+        refitUpwards(branch);
+    }
+
+    private long childCost(int child, int leaf) {
+        long combined = unionCost(child, leaf);
+        return (isLeaf(child) ? combined : combined - cost(child));
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+        int branch = parent[leaf];
+        int grandParent = parent[branch];
+        int sibling = (child1(branch) == leaf ? child2(branch) : child1(branch));
+        replaceChild(grandParent, branch, sibling);
+        parent[sibling] = grandParent;
+        freeNode(branch);
+        if (grandParent != NULL) refitUpwards(grandParent);
+    }
+
+    /**
+     * Fixes boxes and heights from node up to the root, rebalancing on
+     * the way.
+     */
+    private void refitUpwards(int node) {
+        while (node != NULL) {
+            node = balance(node);
+            refit(node);
+            node = parent[node];
+        }
+    }
+
+    /**
+     * If one child of node is more than one level taller than the
+     * other, rotates the taller one up into node's place.
+     *
+     * @return The node now in node's place.
+     */
+    private int balance(int a) {
+        if (isLeaf(a) || height[a] < 2) return a;
+        int b = child1(a);
+        int c = child2(a);
+        int diff = height[c] - height[b];
+        if (diff > 1) return rotateUp(a, c, b, false);
+        if (diff < -1) return rotateUp(a, b, c, true);
+        return a;
+    }
+
+    /**
+     * Rotates child 'up' into a's place. Its taller child stays with
+     * it, and its shorter child goes to a, in place of 'up'.
+     *
+     * @param upIsChild1 True if 'up' is a's first child.
+     */
+    private int rotateUp(int a, int up, int other, boolean upIsChild1) {
+        int f = child1(up);
+        int g = child2(up);
+        // up takes a's place
+        parent[up] = parent[a];
+        replaceChild(parent[a], a, up);
+        parent[a] = up;
+        children[up * 2] = a;
+        // keep the taller grandchild under up, and give the other one to a
+        int keep  = (height[f] > height[g] ? f : g);
+        int moved = (keep == f ? g : f);
+        children[up * 2 + 1] = keep;
+        children[a * 2 + (upIsChild1 ? 0 : 1)] = moved;
+        parent[moved] = a;
+        refit(a);
+        refit(up);
+        return up;
+    }
+
+
+
+    /*---------------------------- QUERIES -----------------------------*/
+
+    /**
+     * Finds all shapes whose bounding box contains the point (x, y),
+     * including on the edge.
+     *
+     * @param out Ids of matching shapes are written here, up to
+     * out.length of them.
+     * @return The total number of matching shapes... if this is more
+     * than out.length, some weren't written, and the query should be
+     * repeated with a bigger array.
+     */
+    public int searchPoint(int x, int y, int[] out) {
+        return searchBox(x, y, x, y, out);
+    }
+
+    /**
+     * Finds all shapes whose bounding box overlaps the given box
+     * (including touching edges). See searchPoint() for how results are
+     * given.
+     */
+    public int searchBox(int l, int b, int r, int t, int[] out) {
+        if (root == NULL) return 0;
+        return searchBox(root, l, b, r, t, out, 0);
+    }
+
+    public int searchBox(BoxInt box, int[] out) {
+        return searchBox(box.left(), box.bottom(), box.right(), box.top(), out);
+    }
+
+    private int searchBox(int node, int l, int b, int r, int t, int[] out, int count) {
+        int k = node * 4;
+        if (fat[k] > r || fat[k + 2] < l || fat[k + 1] > t || fat[k + 3] < b)
+            return count;
+        if (isLeaf(node)) {
+            if (exact[k] <= r && exact[k + 2] >= l &&
+                exact[k + 1] <= t && exact[k + 3] >= b) {
+                if (count < out.length) out[count] = item[node];
+                count++;
+            }
+            return count;
+        }
+        count = searchBox(child1(node), l, b, r, t, out, count);
+        return searchBox(child2(node), l, b, r, t, out, count);
+    }
+
+    /**
+     * @return Height of the tree... zero for a single shape, or -1 if
+     * empty.
+     */
+    int height() { return (root == NULL ? -1 : height[root]); }
+
+}
@@ -0,0 +1,713 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+
+/**
+ * Ear-clipping triangulation over a doubly-linked ring of vertices.
+ *
+ * The ring is held in plain int arrays, so clipping an ear is O(1) and
+ * there is no recursion. Only reflex vertices can stop a vertex being
+ * an ear, and for larger polygons the ear test only looks at reflex
+ * vertices near the ear, using a uniform grid. Candidate ears are kept
+ * in a queue, so that after clipping an ear only its neighbours need
+ * testing again. Together these keep triangulation close to linear for
+ * real-world shapes (e.g. coastlines) rather than O(n^2).
+ *
+ * Orientation tests are exact (see Geom2DInt.ccw()).
+ *
+ * Holes are handled by bridging them into the outline (see
+ * triangulate(int[], int[], int[])).
+ *
+ * Output is an array of vertex indices, three per triangle, in the same
+ * winding order as the input polygon (or outline, if there are holes).
+ */
+final class EarClipper {
+
+    /** Use the grid for the ear test above this many vertices. */
+    private static final int GRID_MIN_VERTICES = 80;
+
+    // vertex co-ordinates
+    private final int[] xs;
+    private final int[] ys;
+
+    // doubly-linked ring of nodes - each node refers to a vertex
+    private final int[] vertex;
+    private final int[] prev;
+    private final int[] next;
+    private int numNodes = 0;
+
+    // uniform grid, with a linked list of entries for each cell. While
+    // joining holes to the outline, the grid holds all nodes, and edges
+    // are recorded against the node at their start, in every cell
+    // overlapped by their bounding box (or in the list of big edges if
+    // that would be too many cells). While clipping ears, it holds
+    // reflex nodes only.
+    private int[] pointHead = null;
+    private int[] edgeHead = null;
+    private int bigEdgeHead;
+    private int[] entryNode;
+    private int[] entryNext;
+    private int numEntries;
+    private int gridSize;
+    private int gridMinX;
+    private int gridMinY;
+    private long gridSpanX;
+    private long gridSpanY;
+
+    // candidate ears, waiting to be tested
+    private int[] queue = new int[16];
+    private int queueHead = 0;
+    private int queueTail = 0;
+
+    // if true, the ring runs the opposite way to the input
+    private boolean reversed = false;
+
+    private int[] out;
+    private int outLen = 0;
+
+    private EarClipper(int[] xs, int[] ys, int capacity) {
+        this.xs = xs;
+        this.ys = ys;
+        vertex = new int[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+    }
+
+    /**
+     * @return Triangles as vertex indices, three per triangle. At most
+     * n - 2 triangles... fewer if collinear or duplicate vertices had to
+     * be dropped.
+     */
+    static int[] triangulate(int[] xs, int[] ys) {
+        return triangulate(xs, ys, new int[0]);
+    }
+
+    /**
+     * Triangulates a polygon with holes. The first ring is the outline,
+     * and runs from vertex zero to the start of the first hole.
+     *
+     * Holes are joined to the outline by 'bridges' - pairs of
+     * coincident edges - turning the shape into a single ring, which
+     * is then triangulated as normal. Each bridge adds two vertices, so
+     * output is at most n + 2h - 2 triangles.
+     *
+     * @param holeStarts Index of the first vertex of each hole, in
+     * ascending order.
+     */
+    static int[] triangulate(int[] xs, int[] ys, int[] holeStarts) {
+        int n = xs.length;
+        int numHoles = holeStarts.length;
+        int outlineEnd = (numHoles > 0 ? holeStarts[0] : n);
+        EarClipper ec = new EarClipper(xs, ys, n + numHoles * 2);
+        ec.out = new int[Math.max(n + numHoles * 2 - 2, 0) * 3];
+        int ring = ec.linkRing(0, outlineEnd, true);
+        ec.reversed = signedArea(xs, ys, 0, outlineEnd) < 0;
+        if (numHoles > 0) ring = ec.eliminateHoles(holeStarts, ring);
+        if (n > GRID_MIN_VERTICES) ec.indexReflex(ring);
+        ec.clipEars(ring);
+        return ec.result();
+    }
+
+    private int[] result() {
+        return (outLen == out.length ? out : Arrays.copyOf(out, outLen));
+    }
+
+
+
+    /*------------------------------ RING ------------------------------*/
+
+    /**
+     * Links vertices from (inclusive) to to (exclusive) into a new
+     * ring, running counter-clockwise if ccw is true, otherwise
+     * clockwise.
+     *
+     * @return A node in the new ring.
+     */
+    private int linkRing(int from, int to, boolean ccw) {
+        boolean forwards = (signedArea(xs, ys, from, to) >= 0) == ccw;
+        int first = numNodes;
+        int count = to - from;
+        for (int i = 0; i < count; i++) {
+            int node = numNodes++;
+            vertex[node] = (forwards ? from + i : to - 1 - i);
+            prev[node] = (i == 0 ? first + count - 1 : node - 1);
+            next[node] = (i == count - 1 ? first : node + 1);
+        }
+        return first;
+    }
+
+    /**
+     * @return Twice the signed area of the given vertices... positive if
+     * they wind counter-clockwise.
+     */
+    static double signedArea(int[] xs, int[] ys, int from, int to) {
+        double sum = 0;
+        for (int i = from, j = to - 1; i < to; j = i++)
+            sum += (double) xs[j] * ys[i] - (double) xs[i] * ys[j];
+        return sum;
+    }
+
+    private void remove(int node) {
+        next[prev[node]] = next[node];
+        prev[next[node]] = prev[node];
+        // previous edge now reaches further
+        if (edgeHead != null) addEdge(prev[node]);
+    }
+
+    private int x(int node) { return xs[vertex[node]]; }
+    private int y(int node) { return ys[vertex[node]]; }
+
+    private int ccw(int a, int b, int c) {
+        return Geom2DInt.ccw(x(a), y(a), x(b), y(b), x(c), y(c));
+    }
+
+    private boolean sameCoords(int a, int b) {
+        return x(a) == x(b) && y(a) == y(b);
+    }
+
+
+
+    /*----------------------------- HOLES ------------------------------*/
+
+    /**
+     * Bridges each hole into the outline ring, working from left to
+     * right, so that each hole can be joined to the outline or to a
+     * hole which has already been joined.
+     *
+     * @return A node in the merged ring.
+     */
+    private int eliminateHoles(int[] holeStarts, int outline) {
+        int numHoles = holeStarts.length;
+        // sort holes by the x co-ordinate of their left-most vertex,
+        // with the node packed into the low bits
+        long[] queue = new long[numHoles];
+        for (int i = 0; i < numHoles; i++) {
+            int end = (i < numHoles - 1 ? holeStarts[i + 1] : xs.length);
+            int left = leftmost(linkRing(holeStarts[i], end, false));
+            queue[i] = ((long) x(left) << 32) | left;
+        }
+        Arrays.sort(queue);
+        buildGrid();
+        addRingToGrid(outline);
+        for (long key : queue)
+            outline = eliminateHole((int) key, outline);
+        return outline;
+    }
+
+    private int eliminateHole(int hole, int outline) {
+        int bridge = findHoleBridge(hole);
+        if (bridge < 0) return outline;
+        addRingToGrid(hole);
+        int bridgeReverse = splitRing(bridge, hole);
+        // new edges from the bridge and its duplicate end points
+        addEdge(bridge);
+        addNode(bridgeReverse);
+        addNode(next[bridgeReverse]);
+        // tidy up any collinear vertices either side of the cut
+        int kept = filterAround(bridgeReverse);
+        return (inRing(bridge) ? filterAround(bridge) : kept);
+    }
+
+    /**
+     * Finds a vertex on the outline (or on a hole which has already
+     * been joined to it) which can be joined to the left-most vertex of
+     * the hole without crossing any edges.
+     *
+     * Follows findHoleBridge() in 'earcut', but uses the grid to look
+     * only at nearby edges and vertices, rather than going all the way
+     * round the ring for every hole.
+     *
+     * @return The node, or -1 if none could be found.
+     */
+    private int findHoleBridge(int hole) {
+        int hx = x(hole);
+        int hy = y(hole);
+
+        // find the nearest edge crossed by a ray cast left from the
+        // hole... the end of it with lesser x is a candidate
+        bridgeCandidate = -1;
+        bridgeCrossing = Double.NEGATIVE_INFINITY;
+        if (rayCast(bigEdgeHead, hole)) return bridgeCandidate;
+        int row = cellRow(hy);
+        for (int col = cellCol(hx); col >= 0; col--) {
+            // nothing further left can be nearer
+            if (cellRight(col) <= bridgeCrossing) break;
+            if (rayCast(edgeHead[row * gridSize + col], hole)) return bridgeCandidate;
+        }
+        int m = bridgeCandidate;
+        double qx = bridgeCrossing;
+        if (m < 0) return -1;
+
+        // any reflex vertices inside the triangle formed by the hole
+        // vertex, the ray crossing and the candidate would block the
+        // bridge... if so, pick the one making the smallest angle with
+        // the ray instead
+        int mx = x(m);
+        int my = y(m);
+        double tanMin = Double.POSITIVE_INFINITY;
+        int lastRow = cellRow(Math.max(hy, my));
+        int lastCol = cellCol(hx);
+        for (int r = cellRow(Math.min(hy, my)); r <= lastRow; r++) {
+            for (int c = cellCol(mx); c <= lastCol; c++) {
+                for (int e = pointHead[r * gridSize + c]; e >= 0; e = entryNext[e]) {
+                    int p = entryNode[e];
+                    if (!inRing(p)) continue;
+                    if (hx >= x(p) && x(p) >= mx && hx != x(p)
+                        && inTriangle(hy < my ? hx : qx, hy, mx, my,
+                                      hy < my ? qx : hx, hy, x(p), y(p))) {
+                        double tan = Math.abs((double) hy - y(p)) / ((double) hx - x(p));
+                        if (locallyInside(p, hole)
+                            && (tan < tanMin
+                                || (tan == tanMin
+                                    && (x(p) > x(m)
+                                        || (x(p) == x(m) && sectorContainsSector(m, p)))))) {
+                            m = p;
+                            tanMin = tan;
+                        }
+                    }
+                }
+            }
+        }
+        return m;
+    }
+
+    // results of rayCast()
+    private int bridgeCandidate;
+    private double bridgeCrossing;
+
+    /**
+     * Checks a list of edges against a ray cast left from the hole
+     * vertex, updating bridgeCandidate and bridgeCrossing.
+     *
+     * @return True if the search can stop straight away, because the
+     * hole touches the outline.
+     */
+    private boolean rayCast(int entry, int hole) {
+        int hx = x(hole);
+        int hy = y(hole);
+        for (int e = entry; e >= 0; e = entryNext[e]) {
+            int p = entryNode[e];
+            if (!inRing(p)) continue;
+            int pn = next[p];
+            if (sameCoords(p, hole)) {
+                bridgeCandidate = p;
+                return true;
+            }
+            if (sameCoords(pn, hole)) {
+                bridgeCandidate = pn;
+                return true;
+            }
+            if (hy <= y(p) && hy >= y(pn) && y(pn) != y(p)) {
+                double ix = x(p) + ((double) hy - y(p)) * ((double) x(pn) - x(p))
+                    / ((double) y(pn) - y(p));
+                if (ix <= hx && ix > bridgeCrossing) {
+                    bridgeCrossing = ix;
+                    bridgeCandidate = (x(p) < x(pn) ? p : pn);
+                    // hole touches the edge
+                    if (ix == hx) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes duplicate and collinear vertices close to a new bridge.
+     * Unlike filterPoints(), doesn't go round the whole ring.
+     *
+     * @return A node which is still in the ring.
+     */
+    private int filterAround(int start) {
+        int p = prev[start];
+        int checked = 0;
+        while (checked < 3 && prev[p] != next[p]) {
+            if (sameCoords(p, next[p]) || ccw(prev[p], p, next[p]) == 0) {
+                // step back, in case the previous vertex is now collinear
+                int before = prev[p];
+                remove(p);
+                p = before;
+                checked = 0;
+            } else {
+                p = next[p];
+                checked++;
+            }
+        }
+        return p;
+    }
+
+    /**
+     * @return False if the node has been removed.
+     */
+    private boolean inRing(int node) { return next[prev[node]] == node; }
+
+
+
+    private int leftmost(int start) {
+        int p = start;
+        int left = start;
+        do {
+            if (x(p) < x(left) || (x(p) == x(left) && y(p) < y(left)))
+                left = p;
+            p = next[p];
+        } while (p != start);
+        return left;
+    }
+
+    /**
+     * @return True if the diagonal a-b starts off inside the polygon
+     * at a.
+     */
+    private boolean locallyInside(int a, int b) {
+        if (ccw(prev[a], a, next[a]) > 0)
+            return ccw(a, b, next[a]) <= 0 && ccw(a, prev[a], b) <= 0;
+        return ccw(a, b, prev[a]) > 0 || ccw(a, next[a], b) > 0;
+    }
+
+    /**
+     * @return True if the wedge of the polygon at m contains the wedge
+     * at p (where both are at the same point).
+     */
+    private boolean sectorContainsSector(int m, int p) {
+        return ccw(prev[m], m, prev[p]) > 0 && ccw(next[p], m, next[m]) > 0;
+    }
+
+    /**
+     * Inclusive point in counter-clockwise triangle test, for the
+     * non-integer ray crossing in findHoleBridge().
+     */
+    private static boolean inTriangle(double ax, double ay, double bx, double by,
+                                      double cx, double cy, double px, double py) {
+        return (cx - px) * (ay - py) >= (ax - px) * (cy - py)
+            && (ax - px) * (by - py) >= (bx - px) * (ay - py)
+            && (bx - px) * (cy - py) >= (cx - px) * (by - py);
+    }
+
+    /**
+     * Joins nodes a and b with a two-way bridge, duplicating both.
+     *
+     * @return The duplicate of b.
+     */
+    private int splitRing(int a, int b) {
+        int a2 = numNodes++;
+        int b2 = numNodes++;
+        vertex[a2] = vertex[a];
+        vertex[b2] = vertex[b];
+        int an = next[a];
+        int bp = prev[b];
+        next[a] = b;
+        prev[b] = a;
+        next[a2] = an;
+        prev[an] = a2;
+        next[b2] = a2;
+        prev[a2] = b2;
+        next[bp] = b2;
+        prev[b2] = bp;
+        return b2;
+    }
+
+
+
+    /*------------------------------ GRID ------------------------------*/
+
+    /**
+     * Sets up a uniform grid over all vertices, with roughly one cell
+     * per vertex, ready for joining holes.
+     */
+    private void buildGrid() {
+        int minX = xs[0];
+        int minY = ys[0];
+        int maxX = xs[0];
+        int maxY = ys[0];
+        for (int i = 1; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        gridMinX = minX;
+        gridMinY = minY;
+        gridSpanX = (long) maxX - minX + 1;
+        gridSpanY = (long) maxY - minY + 1;
+        gridSize = Math.max((int) Math.sqrt(xs.length), 1);
+        edgeHead = new int[gridSize * gridSize];
+        pointHead = new int[gridSize * gridSize];
+        Arrays.fill(edgeHead, -1);
+        Arrays.fill(pointHead, -1);
+        bigEdgeHead = -1;
+        entryNode = new int[xs.length * 4];
+        entryNext = new int[xs.length * 4];
+        numEntries = 0;
+    }
+
+    /**
+     * Refills the grid with just the reflex nodes of the ring, ready for
+     * clipping ears. Edges are no longer needed.
+     */
+    private void indexReflex(int start) {
+        if (pointHead == null) buildGrid();
+        edgeHead = null;
+        Arrays.fill(pointHead, -1);
+        numEntries = 0;
+        int p = start;
+        do {
+            if (ccw(prev[p], p, next[p]) <= 0) {
+                int cell = cellRow(y(p)) * gridSize + cellCol(x(p));
+                pointHead[cell] = addEntry(p, pointHead[cell]);
+            }
+            p = next[p];
+        } while (p != start);
+    }
+
+    private int cellCol(int x) {
+        return (int) (((long) x - gridMinX) * gridSize / gridSpanX);
+    }
+
+    private int cellRow(int y) {
+        return (int) (((long) y - gridMinY) * gridSize / gridSpanY);
+    }
+
+    /**
+     * @return The smallest x co-ordinate which lies to the right of
+     * column col.
+     */
+    private long cellRight(int col) {
+        return gridMinX + ((col + 1) * gridSpanX + gridSize - 1) / gridSize;
+    }
+
+    /**
+     * Records a node's position, and the edge starting at it.
+     */
+    private void addNode(int node) {
+        int cell = cellRow(y(node)) * gridSize + cellCol(x(node));
+        pointHead[cell] = addEntry(node, pointHead[cell]);
+        addEdge(node);
+    }
+
+    /**
+     * Records the edge starting at node in each cell overlapped by its
+     * bounding box... or, for long edges, in the list of big edges.
+     */
+    private void addEdge(int node) {
+        int n = next[node];
+        int col0 = cellCol(Math.min(x(node), x(n)));
+        int col1 = cellCol(Math.max(x(node), x(n)));
+        int row0 = cellRow(Math.min(y(node), y(n)));
+        int row1 = cellRow(Math.max(y(node), y(n)));
+        if ((long) (col1 - col0 + 1) * (row1 - row0 + 1) > gridSize * 2) {
+            bigEdgeHead = addEntry(node, bigEdgeHead);
+            return;
+        }
+        for (int r = row0; r <= row1; r++) {
+            for (int c = col0; c <= col1; c++) {
+                int cell = r * gridSize + c;
+                edgeHead[cell] = addEntry(node, edgeHead[cell]);
+            }
+        }
+    }
+
+    /**
+     * @return Index of new entry, which becomes the head of its list.
+     */
+    private int addEntry(int node, int head) {
+        if (numEntries == entryNode.length) {
+            entryNode = Arrays.copyOf(entryNode, numEntries * 2);
+            entryNext = Arrays.copyOf(entryNext, numEntries * 2);
+        }
+        entryNode[numEntries] = node;
+        entryNext[numEntries] = head;
+        return numEntries++;
+    }
+
+    private void addRingToGrid(int start) {
+        int p = start;
+        do {
+            addNode(p);
+            p = next[p];
+        } while (p != start);
+    }
+
+
+
+    /*------------------------- EAR CLIPPING ---------------------------*/
+
+    /**
+     * Clips ears from a queue of candidates. Removing an ear can only
+     * change the status of the two vertices either side of it, so only
+     * those need testing again... the whole ring is only re-tested if
+     * the queue runs dry.
+     */
+    private void clipEars(int ear) {
+        while (prev[ear] != next[ear]) {
+            if (queueHead == queueTail && !findEars(ear)) {
+                // no ears anywhere... first try getting rid of
+                // collinear and duplicate vertices...
+                ear = filterPoints(ear);
+                if (prev[ear] == next[ear] || findEars(ear)) continue;
+                // ... otherwise the polygon must be invalid - clip a
+                // convex vertex anyway, so that we always finish
+                ear = forceClip(ear);
+                continue;
+            }
+            int node = queue[queueHead++];
+            // may have changed since it was queued
+            if (!inRing(node) || !isEar(node)) continue;
+            int a = prev[node];
+            int c = next[node];
+            emit(a, node, c);
+            remove(node);
+            enqueue(a);
+            enqueue(c);
+            ear = c;
+        }
+    }
+
+    /**
+     * Tests every vertex in the ring, queueing any ears.
+     *
+     * @return True if any ears were found.
+     */
+    private boolean findEars(int start) {
+        queueHead = 0;
+        queueTail = 0;
+        int p = start;
+        do {
+            if (isEar(p)) enqueue(p);
+            p = next[p];
+        } while (p != start);
+        return queueTail > 0;
+    }
+
+    private void enqueue(int node) {
+        if (queueTail == queue.length) {
+            // slide down to the start of the array, or grow it
+            int size = queueTail - queueHead;
+            int[] dest = (size < queue.length / 2 ? queue : new int[queue.length * 2]);
+            System.arraycopy(queue, queueHead, dest, 0, size);
+            queue = dest;
+            queueHead = 0;
+            queueTail = size;
+        }
+        queue[queueTail++] = node;
+    }
+
+    private void emit(int a, int b, int c) {
+        if (reversed) {
+            int temp = a;
+            a = c;
+            c = temp;
+        }
+        out[outLen++] = vertex[a];
+        out[outLen++] = vertex[b];
+        out[outLen++] = vertex[c];
+    }
+
+    private boolean isEar(int ear) {
+        return (pointHead != null ? isEarIndexed(ear) : isEarScan(ear));
+    }
+
+    private boolean isEarScan(int ear) {
+        int a = prev[ear];
+        int c = next[ear];
+        if (ccw(a, ear, c) <= 0) return false;
+        for (int p = next[c]; p != a; p = next[p])
+            if (blocksEar(a, ear, c, p)) return false;
+        return true;
+    }
+
+    private boolean isEarIndexed(int ear) {
+        int a = prev[ear];
+        int c = next[ear];
+        if (ccw(a, ear, c) <= 0) return false;
+        int minX = Math.min(x(a), Math.min(x(ear), x(c)));
+        int minY = Math.min(y(a), Math.min(y(ear), y(c)));
+        int maxX = Math.max(x(a), Math.max(x(ear), x(c)));
+        int maxY = Math.max(y(a), Math.max(y(ear), y(c)));
+        int lastRow = cellRow(maxY);
+        int lastCol = cellCol(maxX);
+        for (int r = cellRow(minY); r <= lastRow; r++) {
+            for (int col = cellCol(minX); col <= lastCol; col++) {
+                int cell = r * gridSize + col;
+                int before = -1;
+                for (int e = pointHead[cell]; e >= 0; e = entryNext[e]) {
+                    int p = entryNode[e];
+                    // a clipped vertex is gone, and a convex vertex can
+                    // never become reflex again... drop either from the
+                    // grid
+                    if (!inRing(p) || ccw(prev[p], p, next[p]) > 0) {
+                        if (before < 0) pointHead[cell] = entryNext[e];
+                        else            entryNext[before] = entryNext[e];
+                        continue;
+                    }
+                    before = e;
+                    if (p != a && p != c
+                        && x(p) >= minX && x(p) <= maxX
+                        && y(p) >= minY && y(p) <= maxY
+                        && blocksEar(a, ear, c, p)) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True if node p is a reflex (or flat) vertex lying inside
+     * (or on the edge of) triangle a-b-c.
+     */
+    private boolean blocksEar(int a, int b, int c, int p) {
+        if (sameCoords(p, a)) return false;
+        if (ccw(a, b, p) < 0 || ccw(b, c, p) < 0 || ccw(c, a, p) < 0) return false;
+        if (ccw(prev[p], p, next[p]) > 0) return false;
+        // SPECIAL CASE: duplicate of a corner, where a hole has been
+        // bridged in... only blocks if one of its edges heads into the
+        // triangle
+        if (sameCoords(p, b))
+            return insideAngle(a, b, c, prev[p]) || insideAngle(a, b, c, next[p]);
+        if (sameCoords(p, c))
+            return insideAngle(b, c, a, prev[p]) || insideAngle(b, c, a, next[p]);
+        return true;
+    }
+
+    /**
+     * @return True if q lies strictly inside the angle at b of
+     * counter-clockwise triangle a-b-c.
+     */
+    private boolean insideAngle(int a, int b, int c, int q) {
+        return ccw(a, b, q) > 0 && ccw(b, c, q) > 0;
+    }
+
+    /**
+     * Removes duplicate and collinear vertices from the ring.
+     *
+     * @return A node which is still in the ring.
+     */
+    private int filterPoints(int start) {
+        int p = start;
+        int end = start;
+        boolean again;
+        do {
+            again = false;
+            if (sameCoords(p, next[p]) || ccw(prev[p], p, next[p]) == 0) {
+                remove(p);
+                p = end = prev[p];
+                if (p == next[p]) break;
+                again = true;
+            } else {
+                p = next[p];
+            }
+        } while (again || p != end);
+        return end;
+    }
+
+    private int forceClip(int start) {
+        int ear = start;
+        do {
+            if (ccw(prev[ear], ear, next[ear]) > 0) break;
+            ear = next[ear];
+        } while (ear != start);
+        int n = next[ear];
+        emit(prev[ear], ear, n);
+        remove(ear);
+        return n;
+    }
+
+}
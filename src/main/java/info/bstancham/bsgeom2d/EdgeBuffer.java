@@ -0,0 +1,329 @@
+package info.bstancham.bsgeom2d;
+
+/**
+ * Immutable, packed copy of all the edges of a polygon, shape or
+ * shape-group, for algorithms which spend most of their time looping
+ * over edges.
+ *
+ * LineInt objects are scattered about the heap, each one with its two
+ * PointInts and its own caches, so looping over thousands of them is
+ * mostly spent waiting for memory. Here, co-ordinates and bounds are
+ * stored as parallel int arrays (structure of arrays), so a loop over
+ * them reads memory in order, and the simple bulk operations below can
+ * be compiled to SIMD instructions by the JIT.
+ *
+ * Edges keep the same order as the edges of the original (see
+ * ShapeInt.edge()), and are grouped into rings, one per polygon, so
+ * that edge i of ring r runs from vertex i to vertex i + 1 of that
+ * polygon.
+ */
+public final class EdgeBuffer {
+
+    // edge i runs from (sx[i], sy[i]) to (ex[i], ey[i])
+    private final int[] sx;
+    private final int[] sy;
+    private final int[] ex;
+    private final int[] ey;
+
+    // precomputed bounds of each edge
+    private final int[] left;
+    private final int[] bottom;
+    private final int[] right;
+    private final int[] top;
+
+    // edges of ring r are ringStart[r] to ringStart[r + 1] - 1
+    private final int[] ringStart;
+
+    // bounding box of all the edges, or null if there are none
+    private final BoxInt bounds;
+
+    public EdgeBuffer(PolyInt poly) {
+        this(new PolyInt[] { poly });
+    }
+
+    public EdgeBuffer(ShapeInt shape) {
+        this(polygons(shape));
+    }
+
+    public EdgeBuffer(ShapeGroupInt group) {
+        this(polygons(group));
+    }
+
+    private EdgeBuffer(PolyInt[] rings) {
+        ringStart = new int[rings.length + 1];
+        for (int r = 0; r < rings.length; r++)
+            ringStart[r + 1] = ringStart[r] + rings[r].numVertices();
+        int n = ringStart[rings.length];
+        sx = new int[n];
+        sy = new int[n];
+        ex = new int[n];
+        ey = new int[n];
+        for (int r = 0; r < rings.length; r++) {
+            PolyInt p = rings[r];
+            int numV = p.numVertices();
+            for (int i = 0; i < numV; i++) {
+                int e = ringStart[r] + i;
+                int next = (i + 1 < numV ? i + 1 : 0);
+                sx[e] = p.x(i);
+                sy[e] = p.y(i);
+                ex[e] = p.x(next);
+                ey[e] = p.y(next);
+            }
+        }
+        left   = new int[n];
+        bottom = new int[n];
+        right  = new int[n];
+        top    = new int[n];
+        for (int e = 0; e < n; e++) {
+            left[e]   = Math.min(sx[e], ex[e]);
+            bottom[e] = Math.min(sy[e], ey[e]);
+            right[e]  = Math.max(sx[e], ex[e]);
+            top[e]    = Math.max(sy[e], ey[e]);
+        }
+        bounds = (n == 0 ? null : boundsOf(left, bottom, right, top));
+    }
+
+    private static BoxInt boundsOf(int[] left, int[] bottom, int[] right, int[] top) {
+        int l = Integer.MAX_VALUE;
+        int b = Integer.MAX_VALUE;
+        int r = Integer.MIN_VALUE;
+        int t = Integer.MIN_VALUE;
+        for (int e = 0; e < left.length; e++) {
+            l = Math.min(l, left[e]);
+            b = Math.min(b, bottom[e]);
+            r = Math.max(r, right[e]);
+            t = Math.max(t, top[e]);
+        }
+        return new BoxInt(l, b, r, t);
+    }
+
+    private static PolyInt[] polygons(ShapeInt shape) {
+        PolyInt[] out = new PolyInt[shape.numHoles() + 1];
+        int i = 0;
+        for (PolyInt p : shape)
+            out[i++] = p;
+        return out;
+    }
+
+    private static PolyInt[] polygons(ShapeGroupInt group) {
+        int n = 0;
+        for (ShapeInt s : group)
+            n += s.numHoles() + 1;
+        PolyInt[] out = new PolyInt[n];
+        int i = 0;
+        for (ShapeInt s : group)
+            for (PolyInt p : s)
+                out[i++] = p;
+        return out;
+    }
+
+
+
+    /*--------------------------- ACCESSORS ----------------------------*/
+
+    public int numEdges() { return sx.length; }
+
+    public int numRings() { return ringStart.length - 1; }
+
+    /**
+     * @return Index of the first edge of the given ring (polygon).
+     */
+    public int ringStart(int ring) { return ringStart[ring]; }
+
+    /**
+     * @return One past the index of the last edge of the given ring.
+     */
+    public int ringEnd(int ring) { return ringStart[ring + 1]; }
+
+    public int startX(int edge) { return sx[edge]; }
+    public int startY(int edge) { return sy[edge]; }
+    public int endX(int edge)   { return ex[edge]; }
+    public int endY(int edge)   { return ey[edge]; }
+
+    public int left(int edge)   { return left[edge]; }
+    public int bottom(int edge) { return bottom[edge]; }
+    public int right(int edge)  { return right[edge]; }
+    public int top(int edge)    { return top[edge]; }
+
+    /**
+     * @return A new LineInt for the given edge.
+     */
+    public LineInt edge(int index) {
+        return new LineInt(sx[index], sy[index], ex[index], ey[index]);
+    }
+
+    /**
+     * @return Bounding box of all the edges, or null if there are none.
+     */
+    public BoxInt boundingBox() { return bounds; }
+
+
+
+    /*------------------------ BULK OPERATIONS -------------------------*/
+
+    /**
+     * Length of every edge.
+     *
+     * @param out Must have room for numEdges() values.
+     */
+    public void lengths(double[] out) {
+        if (out.length < numEdges())
+            throw new IllegalArgumentException("output array too short ---> out.length=" +
+                                               out.length + " num edges=" + numEdges());
+        for (int e = 0; e < numEdges(); e++) {
+            double dx = (double) ex[e] - sx[e];
+            double dy = (double) ey[e] - sy[e];
+            out[e] = Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    public double[] lengths() {
+        double[] out = new double[numEdges()];
+        lengths(out);
+        return out;
+    }
+
+    /**
+     * @return Sum of the lengths of all edges.
+     */
+    public double totalLength() {
+        double sum = 0;
+        for (int e = 0; e < numEdges(); e++) {
+            double dx = (double) ex[e] - sx[e];
+            double dy = (double) ey[e] - sy[e];
+            sum += Math.sqrt(dx * dx + dy * dy);
+        }
+        return sum;
+    }
+
+    /**
+     * Finds all edges whose bounding boxes overlap the given box
+     * (touching counts).
+     *
+     * As with ShapeIndex.searchBox(), indices are written into out, in
+     * order, for as many as will fit.
+     *
+     * @return The total number of edges found, which may be more than
+     * out.length.
+     */
+    public int searchBox(int l, int b, int r, int t, int[] out) {
+        int count = 0;
+        for (int e = 0; e < numEdges(); e++) {
+            if (left[e] <= r && right[e] >= l && bottom[e] <= t && top[e] >= b) {
+                if (count < out.length) out[count] = e;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds all edges which intersect the segment from (x1, y1) to (x2,
+     * y2), using the exact test in Geom2DInt.segmentsIntersect().
+     *
+     * Indices are written into out, in order, for as many as will fit.
+     *
+     * Makes a new scratch array each time... for lots of queries, use
+     * the version which takes one.
+     *
+     * @return The total number of edges found, which may be more than
+     * out.length.
+     */
+    public int intersecting(int x1, int y1, int x2, int y2,
+                            boolean includeVertices, int[] out) {
+        return intersecting(x1, y1, x2, y2, includeVertices, out, newScratch());
+    }
+
+    /**
+     * Same as intersecting(int, int, int, int, boolean, int[]), but
+     * with no allocation.
+     *
+     * @param scratch Working space, which can be reused from one call
+     * to the next... edges are filtered scratch.length at a time, so
+     * anything up to BLOCK_SIZE long is sensible.
+     */
+    public int intersecting(int x1, int y1, int x2, int y2,
+                            boolean includeVertices, int[] out, int[] scratch) {
+        checkScratch(scratch);
+        int count = 0;
+        for (int from = 0; from < numEdges(); from += scratch.length) {
+            int n = boxCandidates(x1, y1, x2, y2, scratch, from,
+                                  Math.min(from + scratch.length, numEdges()));
+            for (int k = 0; k < n; k++) {
+                int e = scratch[k];
+                if (Geom2DInt.segmentsIntersect(sx[e], sy[e], ex[e], ey[e],
+                                                x1, y1, x2, y2, includeVertices)) {
+                    if (count < out.length) out[count] = e;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return True if any edge intersects the segment from (x1, y1) to
+     * (x2, y2). Stops at the first one found.
+     */
+    public boolean intersectsAny(int x1, int y1, int x2, int y2, boolean includeVertices) {
+        return intersectsAny(x1, y1, x2, y2, includeVertices, newScratch());
+    }
+
+    /**
+     * Same as intersectsAny(int, int, int, int, boolean), but with no
+     * allocation (see intersecting() for scratch).
+     */
+    public boolean intersectsAny(int x1, int y1, int x2, int y2, boolean includeVertices,
+                                 int[] scratch) {
+        checkScratch(scratch);
+        for (int from = 0; from < numEdges(); from += scratch.length) {
+            int n = boxCandidates(x1, y1, x2, y2, scratch, from,
+                                  Math.min(from + scratch.length, numEdges()));
+            for (int k = 0; k < n; k++) {
+                int e = scratch[k];
+                if (Geom2DInt.segmentsIntersect(sx[e], sy[e], ex[e], ey[e],
+                                                x1, y1, x2, y2, includeVertices))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] newScratch() {
+        return new int[Math.max(1, Math.min(BLOCK_SIZE, numEdges()))];
+    }
+
+    private static void checkScratch(int[] scratch) {
+        if (scratch.length == 0)
+            throw new IllegalArgumentException("scratch array is empty");
+    }
+
+    /**
+     * Edges are filtered a block at a time, with the cheap bounds test
+     * in a tight loop of its own, before the exact test... this is the
+     * block size used when no scratch array is given.
+     */
+    public static final int BLOCK_SIZE = 256;
+
+    /**
+     * Writes the indices of edges from (inclusive) to (exclusive) whose
+     * bounds overlap the segment's bounds into candidates.
+     *
+     * @return The number of candidates.
+     */
+    private int boxCandidates(int x1, int y1, int x2, int y2,
+                              int[] candidates, int from, int to) {
+        int l = Math.min(x1, x2);
+        int b = Math.min(y1, y2);
+        int r = Math.max(x1, x2);
+        int t = Math.max(y1, y2);
+        int n = 0;
+        // non-short-circuit &, so there's only one (well predicted)
+        // branch per edge
+        for (int e = from; e < to; e++)
+            if (left[e] <= r & right[e] >= l & bottom[e] <= t & top[e] >= b)
+                candidates[n++] = e;
+        return n;
+    }
+
+}
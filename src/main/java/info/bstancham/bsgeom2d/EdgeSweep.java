@@ -0,0 +1,385 @@
+package info.bstancham.bsgeom2d;
+
+import info.bstancham.bsgeom2d.Geom2D.LinesParallelException;
+import java.util.Arrays;
+
+/**
+ * Finds all of the places where the edges of two or more polygons
+ * cross or touch each other, and splits the edges there.
+ *
+ * The edges are swept from left to right, testing each one against the
+ * edges whose bounding boxes overlap its own (see SegmentSweep)...
+ * O((n + b) log^2 n), where b is the number of those pairs, not
+ * O((n + k) log n).
+ *
+ * Only edges from different polygons (or groups of polygons) are
+ * tested against each other... self-intersections are not reported.
+ *
+ * Crossing points are rounded to the nearest integer co-ordinates,
+ * as in LineInt.intersectionInt(). The same rounded point is inserted
+ * into both edges, so the split polygons always meet at exactly the
+ * same vertices.
+ *
+ * Rounding moves the split edges slightly, which on its own can make
+ * them cross something new, or even cross another edge of the same
+ * polygon. So if any point was rounded, the edges are snap rounded:
+ * every vertex and rounded crossing point is a hot pixel (the unit
+ * square centred on it), and every edge, of any polygon, is split at
+ * each hot pixel it passes through. The split edges can then only
+ * meet at shared vertices (or overlap exactly), though an edge may end
+ * up doubling straight back on itself where a thin spike collapses.
+ */
+final class EdgeSweep {
+
+    private final PolyInt[] polys;
+    private final int[] group;
+
+    // edges of all polygons are numbered together... polygon p owns
+    // edges polyStart[p] to polyStart[p + 1] - 1
+    private final int[] polyStart;
+
+    private int numCrossings = 0;
+    private boolean rounded = false;
+
+    // split points, each recorded against a global edge index
+    private int[] splitEdge = new int[16];
+    private int[] splitX = new int[16];
+    private int[] splitY = new int[16];
+    private int numSplits = 0;
+
+    EdgeSweep(PolyInt ... polys) {
+        this(polys, null);
+    }
+
+    /**
+     * @param group Polygons in the same group are not tested against
+     * each other... e.g. the outlines and holes of one shape. If null,
+     * every polygon is in a group of its own.
+     */
+    EdgeSweep(PolyInt[] polys, int[] group) {
+        if (polys == null)
+            throw new NullPointerException("null argument given to constructor");
+        if (group != null && group.length != polys.length)
+            throw new IllegalArgumentException("need one group for each polygon");
+        this.polys = polys.clone();
+        this.group = (group == null ? null : group.clone());
+        polyStart = new int[polys.length + 1];
+        for (int p = 0; p < polys.length; p++)
+            polyStart[p + 1] = polyStart[p] + polys[p].numVertices();
+        sweep();
+    }
+
+    /**
+     * @return The number of pairs of edges which cross or touch.
+     */
+    int numCrossings() { return numCrossings; }
+
+    /**
+     * @return True if any crossing point had to be rounded, in which
+     * case the edges have been snap rounded as well.
+     */
+    boolean isRounded() { return rounded; }
+
+    /**
+     * @return A copy of polygon p, with a new vertex wherever one of
+     * its edges crosses or touches an edge of another polygon.
+     */
+    PolyInt split(int p) {
+        int first = polyStart[p];
+        int numEdges = polyStart[p + 1] - first;
+        PolyInt poly = polys[p];
+
+        // bucket the split points by edge (counting sort)
+        int[] start = new int[numEdges + 1];
+        for (int i = 0; i < numSplits; i++) {
+            int e = splitEdge[i] - first;
+            if (e >= 0 && e < numEdges) start[e + 1]++;
+        }
+        for (int e = 0; e < numEdges; e++)
+            start[e + 1] += start[e];
+        int[] order = new int[start[numEdges]];
+        int[] fill = Arrays.copyOf(start, numEdges);
+        for (int i = 0; i < numSplits; i++) {
+            int e = splitEdge[i] - first;
+            if (e >= 0 && e < numEdges) order[fill[e]++] = i;
+        }
+
+        int[] xs = new int[numEdges + order.length];
+        int[] ys = new int[xs.length];
+        int n = 0;
+        for (int e = 0; e < numEdges; e++) {
+            int sx = poly.x(e);
+            int sy = poly.y(e);
+            int next = (e + 1 < numEdges ? e + 1 : 0);
+            int ex = poly.x(next);
+            int ey = poly.y(next);
+            xs[n] = sx;
+            ys[n++] = sy;
+            sortAlongEdge(order, start[e], start[e + 1], sx, sy, ex, ey);
+            for (int k = start[e]; k < start[e + 1]; k++) {
+                int x = splitX[order[k]];
+                int y = splitY[order[k]];
+                // skip end points and repeated points
+                if ((x == sx && y == sy) || (x == ex && y == ey)) continue;
+                if (x == xs[n - 1] && y == ys[n - 1]) continue;
+                xs[n] = x;
+                ys[n++] = y;
+            }
+        }
+        return new PolyInt(Arrays.copyOf(xs, n), Arrays.copyOf(ys, n));
+    }
+
+
+
+    /*----------------------------- SWEEP ------------------------------*/
+
+    private int numEdges() { return polyStart[polys.length]; }
+
+    private void sweep() {
+        int n = numEdges();
+        int[] sx = new int[n];
+        int[] sy = new int[n];
+        int[] ex = new int[n];
+        int[] ey = new int[n];
+        int[] owner = new int[n];
+        for (int p = 0; p < polys.length; p++) {
+            PolyInt poly = polys[p];
+            int numV = poly.numVertices();
+            for (int i = 0; i < numV; i++) {
+                int e = polyStart[p] + i;
+                int next = (i + 1 < numV ? i + 1 : 0);
+                sx[e] = poly.x(i);
+                sy[e] = poly.y(i);
+                ex[e] = poly.x(next);
+                ey[e] = poly.y(next);
+                owner[e] = (group == null ? p : group[p]);
+            }
+        }
+
+        SegmentSweep.sweep(sx, sy, ex, ey, owner, SegmentSweep.allEdges(n), n, (f, e) -> {
+                addCrossing(f, e, sx, sy, ex, ey);
+                return false;
+            });
+
+        if (rounded) snapToHotPixels(sx, sy, ex, ey);
+    }
+
+    /**
+     * Records the crossing, and the points where the two edges have to
+     * be split.
+     */
+    private void addCrossing(int e, int f, int[] sx, int[] sy, int[] ex, int[] ey) {
+        numCrossings++;
+        LineInt a = new LineInt(sx[e], sy[e], ex[e], ey[e]);
+        LineInt b = new LineInt(sx[f], sy[f], ex[f], ey[f]);
+        try {
+            PointDbl exact = a.intersection(b);
+            PointInt p = exact.toIntRounded();
+            if (p.x() != exact.x() || p.y() != exact.y()) rounded = true;
+            addSplit(e, p.x(), p.y());
+            addSplit(f, p.x(), p.y());
+        } catch (LinesParallelException lpe) {
+            // SPECIAL CASE: collinear edges overlap... each is split at
+            // the end points of the other which lie on it
+            addSplitIfOnEdge(e, a, sx[f], sy[f]);
+            addSplitIfOnEdge(e, a, ex[f], ey[f]);
+            addSplitIfOnEdge(f, b, sx[e], sy[e]);
+            addSplitIfOnEdge(f, b, ex[e], ey[e]);
+        }
+    }
+
+    private void addSplitIfOnEdge(int e, LineInt ln, int x, int y) {
+        if (Geom2DInt.onSegment(ln.startX(), ln.startY(), ln.endX(), ln.endY(), x, y))
+            addSplit(e, x, y);
+    }
+
+    private void addSplit(int e, int x, int y) {
+        if (numSplits == splitEdge.length) {
+            splitEdge = Arrays.copyOf(splitEdge, numSplits * 2);
+            splitX = Arrays.copyOf(splitX, numSplits * 2);
+            splitY = Arrays.copyOf(splitY, numSplits * 2);
+        }
+        splitEdge[numSplits] = e;
+        splitX[numSplits] = x;
+        splitY[numSplits] = y;
+        numSplits++;
+    }
+
+    /**
+     * Insertion sort of split points order[from] to order[to - 1], by
+     * distance from the start of the edge. There are rarely more than a
+     * few per edge.
+     *
+     * The points are ordered along whichever axis the edge is longest
+     * in, and then along the other axis... exact, and still monotonic
+     * after rounding and snapping. Snapping can put two points in the
+     * same column (or row), but then the edge passes them in order of
+     * the other axis.
+     */
+    private void sortAlongEdge(int[] order, int from, int to,
+                               int sx, int sy, int ex, int ey) {
+        boolean useX = Math.abs((long) ex - sx) >= Math.abs((long) ey - sy);
+        int signX = Long.signum((long) ex - sx);
+        int signY = Long.signum((long) ey - sy);
+        for (int i = from + 1; i < to; i++) {
+            int s = order[i];
+            int j = i - 1;
+            while (j >= from && comparePoints(order[j], s, useX, signX, signY) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = s;
+        }
+    }
+
+    private int comparePoints(int s, int t, boolean useX, int signX, int signY) {
+        // sign applied to the result, as negating MIN_VALUE overflows
+        int cx = signX * Integer.compare(splitX[s], splitX[t]);
+        int cy = signY * Integer.compare(splitY[s], splitY[t]);
+        if (useX) return (cx != 0 ? cx : cy);
+        else      return (cy != 0 ? cy : cx);
+    }
+
+
+
+    /*------------------------- SNAP ROUNDING --------------------------*/
+
+    /**
+     * Splits every edge at every hot pixel it passes through, apart from
+     * the ones at its own ends.
+     *
+     * Hot pixels are put in a grid of square cells, about one per cell,
+     * and each edge only visits the cells along it... so the cost is
+     * roughly the number of cells crossed, not edges times pixels.
+     */
+    private void snapToHotPixels(int[] sx, int[] sy, int[] ex, int[] ey) {
+        // hot pixels are all of the vertices and split points, without
+        // repeats
+        int n = numEdges();
+        long[] keys = new long[n + numSplits];
+        for (int e = 0; e < n; e++)
+            keys[e] = pointKey(sx[e], sy[e]);
+        for (int i = 0; i < numSplits; i++)
+            keys[n + i] = pointKey(splitX[i], splitY[i]);
+        Arrays.sort(keys);
+        int numHot = 0;
+        for (int i = 0; i < keys.length; i++)
+            if (i == 0 || keys[i] != keys[i - 1]) keys[numHot++] = keys[i];
+        int[] hx = new int[numHot];
+        int[] hy = new int[numHot];
+        long minX = Long.MAX_VALUE;
+        long minY = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE;
+        long maxY = Long.MIN_VALUE;
+        for (int i = 0; i < numHot; i++) {
+            hx[i] = (int) (keys[i] >> 32);
+            hy[i] = (int) keys[i];
+            minX = Math.min(minX, hx[i]);
+            minY = Math.min(minY, hy[i]);
+            maxX = Math.max(maxX, hx[i]);
+            maxY = Math.max(maxY, hy[i]);
+        }
+
+        // cell size gives about one pixel per cell, but never more cells
+        // across (or up) than there are pixels
+        long width = maxX - minX + 1;
+        long height = maxY - minY + 1;
+        long cell = (long) Math.ceil(Math.sqrt((double) width * height / numHot));
+        cell = Math.max(cell, Math.max((width + numHot - 1) / numHot, (height + numHot - 1) / numHot));
+        cell = Math.max(cell, 1);
+        int cols = (int) ((width + cell - 1) / cell);
+        int rows = (int) ((height + cell - 1) / cell);
+
+        // pixels of each cell, in one array (counting sort)
+        int[] cellStart = new int[cols * rows + 1];
+        int[] cellOf = new int[numHot];
+        for (int i = 0; i < numHot; i++) {
+            int c = (int) ((hy[i] - minY) / cell) * cols + (int) ((hx[i] - minX) / cell);
+            cellOf[i] = c;
+            cellStart[c + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++)
+            cellStart[c + 1] += cellStart[c];
+        int[] cellPixels = new int[numHot];
+        int[] fill = Arrays.copyOf(cellStart, cols * rows);
+        for (int i = 0; i < numHot; i++)
+            cellPixels[fill[cellOf[i]]++] = i;
+
+        for (int e = 0; e < n; e++) {
+            // walk along the edge's longer axis a column (or row) of cells
+            // at a time, visiting the cells the edge passes within half a
+            // unit of... padded by a cell either way, to be safe
+            boolean steep = Math.abs((long) ey[e] - sy[e]) > Math.abs((long) ex[e] - sx[e]);
+            long a1 = (steep ? sy[e] : sx[e]) - (steep ? minY : minX);
+            long b1 = (steep ? sx[e] : sy[e]) - (steep ? minX : minY);
+            long a2 = (steep ? ey[e] : ex[e]) - (steep ? minY : minX);
+            long b2 = (steep ? ex[e] : ey[e]) - (steep ? minX : minY);
+            int majorCells = (steep ? rows : cols);
+            int minorCells = (steep ? cols : rows);
+            long aLo = Math.min(a1, a2);
+            long aHi = Math.max(a1, a2);
+            int kLo = (int) Math.max(Math.floorDiv(aLo, cell) - 1, 0);
+            int kHi = (int) Math.min(Math.floorDiv(aHi, cell) + 1, majorCells - 1);
+            double slope = (a1 == a2 ? 0 : (double) (b2 - b1) / (a2 - a1));
+            for (int k = kLo; k <= kHi; k++) {
+                // part of the edge in this column of cells
+                double from = Math.max(k * cell - 1, aLo);
+                double to = Math.min((k + 1) * cell, aHi);
+                if (from > to) continue;
+                double bFrom = b1 + (from - a1) * slope;
+                double bTo = b1 + (to - a1) * slope;
+                long mLo = Math.max((long) Math.floor(Math.min(bFrom, bTo) / cell) - 1, 0);
+                long mHi = Math.min((long) Math.floor(Math.max(bFrom, bTo) / cell) + 1, minorCells - 1);
+                for (long m = mLo; m <= mHi; m++) {
+                    int c = (int) (steep ? k * cols + m : m * cols + k);
+                    for (int j = cellStart[c]; j < cellStart[c + 1]; j++) {
+                        int h = cellPixels[j];
+                        int x = hx[h];
+                        int y = hy[h];
+                        if ((x == sx[e] && y == sy[e]) || (x == ex[e] && y == ey[e])) continue;
+                        if (passesThrough(sx[e], sy[e], ex[e], ey[e], x, y))
+                            addSplit(e, x, y);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long pointKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return True if the edge passes through the hot pixel centred on
+     * (x, y)... the square from (x - 1/2, y - 1/2) to (x + 1/2, y + 1/2),
+     * including its left and bottom sides but not its right and top, so
+     * that every point is in exactly one pixel. Exact.
+     */
+    static boolean passesThrough(int x1, int y1, int x2, int y2, int x, int y) {
+        // doubled, so that the pixel corners are whole numbers... odd
+        // ones, so an edge (whose ends are even) can never run along a
+        // side, or end on one
+        long ax = 2L * x1;
+        long ay = 2L * y1;
+        long bx = 2L * x2;
+        long by = 2L * y2;
+        long left = 2L * x - 1;
+        long right = 2L * x + 1;
+        long bottom = 2L * y - 1;
+        long top = 2L * y + 1;
+        if (Math.max(ax, bx) < left || Math.min(ax, bx) > right ||
+            Math.max(ay, by) < bottom || Math.min(ay, by) > top) return false;
+        int c1 = Geom2DInt.ccw(ax, ay, bx, by, left,  bottom);
+        int c2 = Geom2DInt.ccw(ax, ay, bx, by, right, bottom);
+        int c3 = Geom2DInt.ccw(ax, ay, bx, by, right, top);
+        int c4 = Geom2DInt.ccw(ax, ay, bx, by, left,  top);
+        // through the inside of the square, if there are corners on both
+        // sides of the line
+        if (Math.max(Math.max(c1, c2), Math.max(c3, c4)) > 0 &&
+            Math.min(Math.min(c1, c2), Math.min(c3, c4)) < 0) return true;
+        // otherwise it can only touch a corner, and the bottom left one
+        // is the only one in the pixel
+        return c1 == 0;
+    }
+
+}
@@ -65,16 +65,26 @@ public final class Geom2D {
     }
 
     public static double angleTurned(PointInt a, PointInt b, PointInt c) {
-        return angleTurned(a.toDouble(), b.toDouble(), c.toDouble());
+        return angleTurned(a.x(), a.y(), b.x(), b.y(), c.x(), c.y());
     }
 
     /**
      * @return The angle of the turn from path of line AB to line BC.
      */
     public static double angleTurned(PointDbl a, PointDbl b, PointDbl c) {
-        double angleAB = lineAngle(a,b);
-        double angleBC = lineAngle(b,c);
-        boolean onLeftSide = onRelativeLeftSide(new LineDbl(a,b), c);
+        return angleTurned(a.x(), a.y(), b.x(), b.y(), c.x(), c.y());
+    }
+
+    /**
+     * Same as angleTurned(PointDbl, PointDbl, PointDbl), but operates
+     * directly on co-ordinates, so no objects are created.
+     */
+    public static double angleTurned(double ax, double ay,
+                                     double bx, double by,
+                                     double cx, double cy) {
+        double angleAB = lineAngle(ax, ay, bx, by);
+        double angleBC = lineAngle(bx, by, cx, cy);
+        boolean onLeftSide = onRelativeLeftSide(ax, ay, bx, by, cx, cy);
         if (onLeftSide && angleAB < angleBC) angleAB += (Math.PI * 2);
         if (!onLeftSide && angleAB > angleBC) angleBC += (Math.PI * 2);
         return angleAB - angleBC;
@@ -106,7 +116,11 @@ public final class Geom2D {
     // }
 
     public static double lineAngle(PointInt start, PointInt end) {
-        return lineAngle(start.toDouble(), end.toDouble());
+        return lineAngle(start.x(), start.y(), end.x(), end.y());
+    }
+
+    public static double lineAngle(PointDbl start, PointDbl end) {
+        return lineAngle(start.x(), start.y(), end.x(), end.y());
     }
 
     /*
@@ -142,12 +156,12 @@ public final class Geom2D {
      *                    y=+
      *
      */
-    public static double lineAngle(PointDbl start, PointDbl end) {
+    public static double lineAngle(double startX, double startY, double endX, double endY) {
 
 	// get line length (using pythagoras)
 	// ... square on the hypotenuse is equal to the squares on the other two sides...
-        double xDist = xDist(start,end);
-        double yDist = yDist(start,end);
+        double xDist = endX - startX;
+        double yDist = endY - startY;
 
 	// TEST FOR DEGENERATE LINE CONDITION
 	if (xDist == 0 && yDist == 0) throw new IllegalArgumentException("degenerate line");
@@ -176,9 +190,6 @@ public final class Geom2D {
 	return angle;
     }
 
-    private static double xDist(PointDbl start, PointDbl end) { return end.x() - start.x(); }
-    private static double yDist(PointDbl start, PointDbl end) { return end.y() - start.y(); }
-
     public static double[] lineEquation(LineInt l) {
         return lineEquation(l.toDouble());
     }
@@ -486,19 +497,37 @@ public final class Geom2D {
     }
 
     public static boolean onRelativeLeftSide(LineDbl line, PointDbl p) {
+        return onRelativeLeftSide(line.startX(), line.startY(),
+                                  line.endX(), line.endY(),
+                                  p.x(), p.y());
+    }
+
+    /**
+     * Same as onRelativeLeftSide(LineDbl, PointDbl), but operates
+     * directly on co-ordinates, so no objects are created.
+     */
+    public static boolean onRelativeLeftSide(double startX, double startY,
+                                             double endX, double endY,
+                                             double px, double py) {
+        boolean degenerate = (startX == endX && startY == endY);
+        boolean vertical   = !degenerate && startX == endX;
+        boolean horizontal = !degenerate && startY == endY;
 	// SPECIAL CASE: point is on line...
-	if (pointIsOnLine(line, p)) return false;
+	if ((vertical && px == startX) || (horizontal && py == startY)) return false;
 	// SPECIAL CASE: vertical line...
-	if (line.isVertical()) {
-	    if (line.startY() < line.endY()) { // pointing upwards
-		return p.x() < line.startX();
+	if (vertical) {
+	    if (startY < endY) { // pointing upwards
+		return px < startX;
 	    } else { // pointing downwards
-		return p.x() > line.startX();
+		return px > startX;
 	    }
 	}
 	// ... ALL OTHER LINES
-	boolean out = p.y() > getPointForXValue(line, p.x()).y();
-	if (line.endX() > line.startX()) return out;
+        double yDist = endY - startY;
+        double slope = (yDist == 0 ? 0 : yDist / (endX - startX + 0.0));
+        double intercept = startY - startX * slope;
+	boolean out = py > (slope * px) + intercept;
+	if (endX > startX) return out;
 	return !out;
     }
 
@@ -139,10 +139,120 @@ public class Geom2DInt {
      * TODO: unit tests
      */
     public static int ccw(PointInt a, PointInt b, PointInt c) {
-        double area2 = ((b.x() - a.x()) * (c.y()-a.y())) - ((b.y() - a.y()) * (c.x() - a.x()));
-        if (area2 < 0) return -1; // clockwise
-        if (area2 > 0) return +1; // counter-clockwise
-        else           return  0; // collinear
+        return ccw(a.x(), a.y(), b.x(), b.y(), c.x(), c.y());
+    }
+
+    /**
+     * Same as ccw(PointInt, PointInt, PointInt), but operates directly
+     * on co-ordinates, so no objects are created.
+     *
+     * The result is exact for any co-ordinates within the range of
+     * int (or long co-ordinates up to +/-2^62)... the cross product
+     * is compared in 128-bit arithmetic whenever the 64-bit products
+     * might overflow.
+     */
+    public static int ccw(long ax, long ay, long bx, long by, long cx, long cy) {
+        // sign of the cross product (b - a) x (c - a)
+        return signOfDifference(bx - ax, cy - ay, by - ay, cx - ax);
+    }
+
+    /**
+     * @return The sign of ((a * b) - (c * d)), calculated exactly.
+     */
+    static int signOfDifference(long a, long b, long c, long d) {
+        long ab = a * b;
+        long cd = c * d;
+        // fast path: all magnitudes below 2^31 means that neither the
+        // products nor their difference can overflow
+        long mag = Math.abs(a) | Math.abs(b) | Math.abs(c) | Math.abs(d);
+        if (mag >>> 31 == 0)
+            return Long.signum(ab - cd);
+        // compare as 128-bit values... high words are signed, low
+        // words unsigned
+        long abHigh = Math.multiplyHigh(a, b);
+        long cdHigh = Math.multiplyHigh(c, d);
+        if (abHigh != cdHigh) return (abHigh < cdHigh ? -1 : 1);
+        return Integer.signum(Long.compareUnsigned(ab, cd));
+    }
+
+    /**
+     * Integer alternative to Geom2D.angleTurned(), for when only the
+     * total amount of turning matters.
+     *
+     * @return The number of quadrant boundaries crossed by the turn
+     * from direction AB to direction BC... positive for left turns,
+     * negative for right turns. A complete reversal counts as a right
+     * half-turn (-2), same as angleTurned().
+     *
+     * Summed around a closed polygon, this always comes to exactly four
+     * times the turning number (see turningNumber()). Exact, and
+     * creates no objects.
+     *
+     * @throws IllegalArgumentException if A equals B, or B equals C.
+     */
+    public static int quarterTurns(long ax, long ay, long bx, long by, long cx, long cy) {
+        long dx1 = bx - ax;
+        long dy1 = by - ay;
+        long dx2 = cx - bx;
+        long dy2 = cy - by;
+        if ((dx1 == 0 && dy1 == 0) || (dx2 == 0 && dy2 == 0))
+            throw new IllegalArgumentException("degenerate line");
+        int steps = (quadrant(dx2, dy2) - quadrant(dx1, dy1)) & 3;
+        int cross = signOfDifference(dx1, dy2, dy1, dx2);
+        // a left turn is less than a half-turn, so it can't reach three
+        // quadrants round... anything else going the other way is a right
+        // turn (or a reversal)
+        if (cross > 0) return steps;
+        return (steps == 0 ? 0 : steps - 4);
+    }
+
+    /**
+     * Quadrants include their anti-clockwise-most boundary only, so that
+     * every non-zero direction is in exactly one of them.
+     */
+    private static int quadrant(long dx, long dy) {
+        if (dx > 0 && dy >= 0) return 0;
+        if (dx <= 0 && dy > 0) return 1;
+        if (dx < 0 && dy <= 0) return 2;
+        return 3;
+    }
+
+    /**
+     * @return The number of complete turns made going once around the
+     * polygon... 1 for a simple counter-clockwise polygon, -1 for a
+     * simple clockwise one. Returns 0 if any two consecutive vertices
+     * are the same.
+     *
+     * Exact, and creates no objects, so it can be used to check the
+     * winding of raw co-ordinates before building a PolyInt.
+     *
+     * @throws IllegalArgumentException if the number of x and y
+     * co-ordinates is not the same.
+     */
+    public static int turningNumber(int[] xs, int[] ys) {
+        if (xs.length != ys.length)
+            throw new IllegalArgumentException("x and y co-ordinate arrays must be the same length");
+        int n = xs.length;
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            int iPrev = (i < 1 ? n - 1 : i - 1);
+            int iNext = (i < n - 1 ? i + 1 : 0);
+            if ((xs[i] == xs[iPrev] && ys[i] == ys[iPrev]) ||
+                (xs[i] == xs[iNext] && ys[i] == ys[iNext])) return 0;
+            sum += quarterTurns(xs[iPrev], ys[iPrev], xs[i], ys[i], xs[iNext], ys[iNext]);
+        }
+        return sum / 4;
+    }
+
+    /**
+     * @return True, if point (px, py) lies on the line segment from
+     * (sx, sy) to (ex, ey), including the end points. Exact, and
+     * creates no objects.
+     */
+    public static boolean onSegment(long sx, long sy, long ex, long ey, long px, long py) {
+        if (px < Math.min(sx, ex) || px > Math.max(sx, ex) ||
+            py < Math.min(sy, ey) || py > Math.max(sy, ey)) return false;
+        return ccw(sx, sy, ex, ey, px, py) == 0;
     }
 
     // /**
@@ -172,22 +282,10 @@ public class Geom2DInt {
     public static boolean onRelativeLeftSide(LineInt line, PointInt p) {
         if (line.isDegenerate())
             throw new IllegalArgumentException("line is degenerate");
-	// SPECIAL CASE: point is on line...
-	// if (pointIsCollinear(line, p)) return false;
-	// SPECIAL CASE: vertical line...
-	if (line.isVertical()) {
-	    if (line.startY() < line.endY()) {
-                // pointing up
-		return p.x() < line.startX();
-	    } else {
-                // pointing down
-		return p.x() > line.startX();
-	    }
-	}
-	// ... ALL OTHER LINES
-	boolean out = p.y() > Geom2D.getPointForXValue(line.toDouble(), p.x()).y();
-	if (line.endX() > line.startX()) return out;
-	return !out;
+        // point on the line counts as neither side
+        return ccw(line.startX(), line.startY(),
+                   line.endX(), line.endY(),
+                   p.x(), p.y()) > 0;
     }
 
     // /**
@@ -232,53 +330,80 @@ public class Geom2DInt {
     }
 
     public static boolean lineSegmentsIntersect(LineInt segment1, LineInt segment2, boolean includeVertices) {
-        PointDbl intersection = null;
-        try {
-            // intersection = Geom2D.lineIntersectionPoint(segment1.toDouble(), segment2.toDouble());
-            intersection = segment1.intersection(segment2);
-        } catch (Geom2D.LinesParallelException e) {
-            return false;
-        }
-        /*
-         * SPECIAL CASE: horiz or vertical AND exclude-touching
-         * Can't use Box2D in this case because the box will have zero area!
-         */
-        // if (!includeVertices) {
-        //     if (segment1.isPerpendicular() ||
-        // 	segment2.isPerpendicular()) {
-
-        //     }
-        // }
-        // //
-        // Box2D box1 = getBoundingBox(segment1);
-        // Box2D box2 = getBoundingBox(segment2);
-        // boolean contains1 = box1.contains(intersection, includeVertices);
-        // boolean contains2 = box2.contains(intersection, includeVertices);
-        // return box1.contains(intersection, includeVertices) &&
-        //     box2.contains(intersection, includeVertices);
-        // boolean contains1 = lineBoundsContains(segment1, intersection, includeVertices);
-        // boolean contains1 = lineBoundsContains(segment2, intersection, includeVertices);
-        // return contains1 && contains2;
-        return lineBoundsContain(segment1, intersection, includeVertices)
-            && lineBoundsContain(segment2, intersection, includeVertices);
+        return segmentsIntersect(segment1.startX(), segment1.startY(),
+                                 segment1.endX(), segment1.endY(),
+                                 segment2.startX(), segment2.startY(),
+                                 segment2.endX(), segment2.endY(),
+                                 includeVertices);
     }
 
-    private static boolean lineBoundsContain(LineInt line, PointDbl p, boolean includeVertices) {
-        BoxInt box = line.boundingBox();
-        boolean contains = box.contains(p, includeVertices);
-        // if (line.isPerpendicular()) {}
-        if (!contains && !includeVertices) {
-            if (line.isPerpendicular()) {
-        	if (box.contains(p, true)) {
-        	    if (line.isHorizontal()) {
-        		if (p.x() > box.left() && p.x() < box.right()) contains = true;
-        	    } else if (line.isVertical()) {
-        		if (p.y() > box.bottom() && p.y() < box.top()) contains = true;
-        	    }
-        	}
-            }
-        }
-        return contains;
+    /**
+     * Exact line segment intersection test, using only orientation
+     * tests (see ccw()). Creates no objects, and never throws for
+     * parallel lines.
+     *
+     * Collinear segments which overlap by more than a single point
+     * always intersect.
+     *
+     * @param includeVertices If false, the segments only count as
+     * intersecting if they share a point which is not an end point of
+     * either segment i.e. segments which merely touch do not intersect.
+     */
+    public static boolean segmentsIntersect(int ax1, int ay1, int ax2, int ay2,
+                                            int bx1, int by1, int bx2, int by2,
+                                            boolean includeVertices) {
+        // OPTIMIZATION: bounding boxes don't overlap
+        if (Math.max(ax1, ax2) < Math.min(bx1, bx2) ||
+            Math.max(bx1, bx2) < Math.min(ax1, ax2) ||
+            Math.max(ay1, ay2) < Math.min(by1, by2) ||
+            Math.max(by1, by2) < Math.min(ay1, ay2)) return false;
+
+        int d1 = ccw(bx1, by1, bx2, by2, ax1, ay1);
+        int d2 = ccw(bx1, by1, bx2, by2, ax2, ay2);
+        int d3 = ccw(ax1, ay1, ax2, ay2, bx1, by1);
+        int d4 = ccw(ax1, ay1, ax2, ay2, bx2, by2);
+
+        // segments cross at a point inside both of them
+        if (d1 * d2 < 0 && d3 * d4 < 0) return true;
+
+        // SPECIAL CASE: all four points collinear
+        if (d1 == 0 && d2 == 0 && d3 == 0 && d4 == 0)
+            return collinearSegmentsOverlap(ax1, ay1, ax2, ay2,
+                                            bx1, by1, bx2, by2,
+                                            includeVertices);
+
+        // ... any other contact must be at an end point of one of the
+        // segments
+        if (!includeVertices) return false;
+        return (d1 == 0 && onSegment(bx1, by1, bx2, by2, ax1, ay1))
+            || (d2 == 0 && onSegment(bx1, by1, bx2, by2, ax2, ay2))
+            || (d3 == 0 && onSegment(ax1, ay1, ax2, ay2, bx1, by1))
+            || (d4 == 0 && onSegment(ax1, ay1, ax2, ay2, bx2, by2));
+    }
+
+    /**
+     * Assumes that all four points are collinear, and that the bounding
+     * boxes of the two segments overlap.
+     */
+    private static boolean collinearSegmentsOverlap(int ax1, int ay1, int ax2, int ay2,
+                                                    int bx1, int by1, int bx2, int by2,
+                                                    boolean includeVertices) {
+        // project onto whichever axis the segments are spread along...
+        // ... for degenerate segments, the bounding box test has
+        // already done all the work
+        boolean useX = (ax1 != ax2 || bx1 != bx2);
+        boolean useY = (ay1 != ay2 || by1 != by2);
+        if (!useX && !useY) return includeVertices;
+        long aMin = (useX ? Math.min(ax1, ax2) : Math.min(ay1, ay2));
+        long aMax = (useX ? Math.max(ax1, ax2) : Math.max(ay1, ay2));
+        long bMin = (useX ? Math.min(bx1, bx2) : Math.min(by1, by2));
+        long bMax = (useX ? Math.max(bx1, bx2) : Math.max(by1, by2));
+        long lo = Math.max(aMin, bMin);
+        long hi = Math.min(aMax, bMax);
+        // overlap of more than one point shares interior points...
+        // ... a single shared point must be an end point of both
+        if (lo < hi) return true;
+        return lo == hi && includeVertices;
     }
 
     // private static boolean anyIntersections(Ln line, Shape shape) {
@@ -0,0 +1,89 @@
+package info.bstancham.bsgeom2d;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * TriangleSink which writes straight into a pair of buffers: one of
+ * vertex co-ordinates (x, y for each vertex) and one of vertex indices
+ * (three for each triangle).
+ *
+ * Nothing is created per triangle, so a whole mesh can go straight into
+ * e.g. a direct ByteBuffer for a rasteriser or an export format... see
+ * of(ByteBuffer, ByteBuffer). Buffers are written from their current
+ * position onwards, and indices count from zero at the first vertex
+ * added to this sink.
+ *
+ * Buffers must be big enough for the whole mesh, otherwise writing
+ * will throw a BufferOverflowException... each triangulate(TriangleSink)
+ * method says how much room it may need.
+ */
+public final class IntBufferSink implements TriangleSink {
+
+    private final IntBuffer vertices;
+    private final IntBuffer indices;
+
+    private int numVertices = 0;
+    private int numTriangles = 0;
+
+    public IntBufferSink(IntBuffer vertices, IntBuffer indices) {
+        if (vertices == null || indices == null)
+            throw new NullPointerException("null argument given to constructor");
+        this.vertices = vertices;
+        this.indices = indices;
+    }
+
+    /**
+     * @return A sink which writes 32-bit ints into the given byte
+     * buffers, in their own byte order, starting at their current
+     * position. The byte buffers' positions are NOT moved on... use
+     * vertexBytes() and indexBytes() to find out how much was written.
+     */
+    public static IntBufferSink of(ByteBuffer vertices, ByteBuffer indices) {
+        return new IntBufferSink(vertices.asIntBuffer(), indices.asIntBuffer());
+    }
+
+    /**
+     * Makes a pair of buffers in the platform's native byte order, with
+     * room for the given number of vertices and triangles, e.g. to
+     * pass to of(ByteBuffer, ByteBuffer).
+     *
+     * @return Vertex buffer, then index buffer.
+     */
+    public static ByteBuffer[] allocateDirect(int maxVertices, int maxTriangles) {
+        return new ByteBuffer[] {
+            ByteBuffer.allocateDirect(maxVertices * 2 * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()),
+            ByteBuffer.allocateDirect(maxTriangles * 3 * Integer.BYTES)
+                .order(ByteOrder.nativeOrder())
+        };
+    }
+
+    @Override
+    public int vertex(int x, int y) {
+        vertices.put(x).put(y);
+        return numVertices++;
+    }
+
+    @Override
+    public void triangle(int a, int b, int c) {
+        indices.put(a).put(b).put(c);
+        numTriangles++;
+    }
+
+    public int numVertices() { return numVertices; }
+
+    public int numTriangles() { return numTriangles; }
+
+    /**
+     * @return Number of bytes written to the vertex buffer so far.
+     */
+    public int vertexBytes() { return numVertices * 2 * Integer.BYTES; }
+
+    /**
+     * @return Number of bytes written to the index buffer so far.
+     */
+    public int indexBytes() { return numTriangles * 3 * Integer.BYTES; }
+
+}
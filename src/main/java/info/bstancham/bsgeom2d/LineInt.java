@@ -21,7 +21,7 @@ public final class LineInt {
     private BoxInt bounds = null;
 
     public LineInt(int sx, int sy, int ex, int ey) {
-        this(new PointInt(sx, sy), new PointInt(ex, ey));
+        this(PointInt.of(sx, sy), PointInt.of(ex, ey));
     }
     public LineInt(PointInt start, PointInt end) {
         this.start = start;
@@ -239,8 +239,15 @@ public final class LineInt {
         return Geom2DInt.ccw(start, end, p) < 0;
     }
 
+    /**
+     * Exact test, using integer cross product of the two direction
+     * vectors. A degenerate line is parallel to every line.
+     */
     public boolean isParallel(LineInt ln) {
-        return this.slope() == ln.slope();
+        return Geom2DInt.signOfDifference((long) this.endX() - this.startX(),
+                                          (long) ln.endY() - ln.startY(),
+                                          (long) this.endY() - this.startY(),
+                                          (long) ln.endX() - ln.startX()) == 0;
     }
 
     /**
@@ -253,39 +260,32 @@ public final class LineInt {
         return intersection(ln).toIntRounded();
     }
 
+    /**
+     * Returns the intersection point of the two (infinite) lines.
+     *
+     * Uses the determinant form of the line equations rather than
+     * slope/intercept, so vertical lines need no special treatment, and
+     * the result is exactly the same whichever order the lines are
+     * given in.
+     *
+     * @throws LinesParallelException if the lines are parallel, or if
+     * either line is degenerate.
+     */
     public PointDbl intersection(LineInt ln) throws LinesParallelException {
         // SPECIAL CASE: lines are parallel
         if (this.isParallel(ln))
             throw new LinesParallelException(this, ln);
 
-        // SPECIAL CASE: one line is vertical
-        if (this.isVertical())
-            return new PointDbl(this.startX(), ln.getYForXValue(this.startX()));
-        if (ln.isVertical())
-            return new PointDbl(ln.startX(), this.getYForXValue(ln.startX()));
-
-        // // SPECIAL CASE: one line is horizontal
-        // if (this.isHorizontal())
-        //     return getPointForYValue(ln, this.startY());
-        // if (ln.isHorizontal())
-        //     return getPointForYValue(this, ln.startY());
-
-        // FIND VALUE OF X
-        // ((slope1 * x) + intercept1) == ((slope2 * x) + intercept2)
-        // ...
-        // reduce intercept to 0 on first side of equation
-        double intercept = ln.intercept() - this.intercept();
-        // reduce slope to 0 on second side
-        double slope = this.slope() - ln.slope();
-        // make slope equal 1.0
-        double divisor = 1.0 / slope;
-        double x = intercept * divisor;
-        // double y = (this.slope() * x) + this.intercept();
-        return new PointDbl(x, getYForXValue(x));
-    }
-
-    private double getYForXValue(double x) {
-        return (slope() * x) + intercept();
+        // cross products of each line's end points... exact in long
+        double a1 = (long) this.startX() * this.endY() - (long) this.startY() * this.endX();
+        double a2 = (long) ln.startX() * ln.endY() - (long) ln.startY() * ln.endX();
+        double dx1 = (long) this.startX() - this.endX();
+        double dy1 = (long) this.startY() - this.endY();
+        double dx2 = (long) ln.startX() - ln.endX();
+        double dy2 = (long) ln.startY() - ln.endY();
+        double denom = (dx1 * dy2) - (dy1 * dx2);
+        return new PointDbl(((a1 * dx2) - (dx1 * a2)) / denom,
+                            ((a1 * dy2) - (dy1 * a2)) / denom);
     }
 
     // /**
@@ -346,15 +346,19 @@ public final class LineInt {
         return intersectsLineSegment(segment, true);
     }
 
+    /**
+     * Exact, and creates no objects. Overlapping collinear segments
+     * count as intersecting.
+     *
+     * @param includeTouching If false, segments which only meet at the
+     * end point of one or both of them do not count as intersecting.
+     */
     public boolean intersectsLineSegment(LineInt segment, boolean includeTouching) {
-        PointDbl intersection = null;
-        try {
-            intersection = intersection(segment);
-        } catch (Geom2D.LinesParallelException e) {
-            return false;
-        }
-        return    this.lineBoundsContain(intersection, includeTouching)
-            && segment.lineBoundsContain(intersection, includeTouching);
+        return Geom2DInt.segmentsIntersect(this.startX(), this.startY(),
+                                           this.endX(), this.endY(),
+                                           segment.startX(), segment.startY(),
+                                           segment.endX(), segment.endY(),
+                                           includeTouching);
     }
 
     private boolean lineBoundsContain(PointDbl p) {
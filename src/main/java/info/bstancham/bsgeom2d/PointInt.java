@@ -16,6 +16,16 @@ public final class PointInt implements Comparable<PointInt> {
         this.y = y;
     }
 
+    /**
+     * @return A point with the given co-ordinates... from the default
+     * PointPool, if one has been set, otherwise a new one. The
+     * transformations below all use this.
+     */
+    public static PointInt of(int x, int y) {
+        PointPool pool = PointPool.getDefault();
+        return (pool == null ? new PointInt(x, y) : pool.get(x, y));
+    }
+
     public int x() { return x; }
     public int y() { return y; }
 
@@ -81,24 +91,24 @@ public final class PointInt implements Comparable<PointInt> {
     }
 
     public PointInt sum(int x, int y) {
-        return new PointInt(this.x + x, this.y + y);
+        return PointInt.of(this.x + x, this.y + y);
     }
 
     public int sumX(PointInt p) { return this.x + p.x; }
     public int sumY(PointInt p) { return this.y + p.y; }
 
-    public PointInt reflectX(int xMid) { return new PointInt(xMid - x, y); }
-    public PointInt reflectY(int yMid) { return new PointInt(x, yMid - y); }
+    public PointInt reflectX(int xMid) { return PointInt.of(xMid - x, y); }
+    public PointInt reflectY(int yMid) { return PointInt.of(x, yMid - y); }
 
-    public PointInt invert() { return new PointInt(-x, -y); }
+    public PointInt invert() { return PointInt.of(-x, -y); }
 
     public PointInt rotate90(PointInt centre) {
-        return new PointInt(centre.x() +  (this.y - centre.y()),
-                            centre.y() + -(this.x - centre.x()));
+        return PointInt.of(centre.x() +  (this.y - centre.y()),
+                           centre.y() + -(this.x - centre.x()));
     }
 
     public PointInt multiply(int x, int y) {
-        return new PointInt(this.x * x, this.y * y);
+        return PointInt.of(this.x * x, this.y * y);
     }
 
 
@@ -0,0 +1,110 @@
+package info.bstancham.bsgeom2d;
+
+/**
+ * Classifies a batch of points against one polygon, using the same
+ * crossing-number rule as SlabIndex.scan(), for the bulk contains()
+ * methods.
+ *
+ * There are two implementations: the plain scalar one below, and
+ * VectorPointKernel (in src/vector), which uses the Java Vector API to
+ * test a whole vector of points against each edge at once. The vector
+ * version lives in its own source set because the API is still an
+ * incubator module... it's only used if the JVM was started with
+ * --add-modules jdk.incubator.vector, otherwise (or if the system
+ * property bsgeom2d.vector is set to false) the scalar one is used.
+ *
+ * Both give exactly the same results.
+ */
+abstract class PointKernel {
+
+    /**
+     * Polygon co-ordinates must be within +/- this for locate() to be
+     * exact... the vector version does the cross products in 64-bit
+     * lanes, with no 128-bit fallback, and below 2^30 neither they nor
+     * their difference can overflow.
+     */
+    static final int MAX_COORD = (1 << 30) - 1;
+
+    private static final PointKernel SCALAR = new Scalar();
+    private static final PointKernel BEST = load();
+
+    /**
+     * @return The vector kernel if it's available, or else the scalar
+     * one.
+     */
+    static PointKernel get() { return BEST; }
+
+    static PointKernel scalar() { return SCALAR; }
+
+    private static PointKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty("bsgeom2d.vector", "true")))
+            return SCALAR;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return SCALAR;
+        try {
+            return (PointKernel) Class.forName("info.bstancham.bsgeom2d.VectorPointKernel")
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // not on the class path (e.g. built with an older JDK)
+            return SCALAR;
+        }
+    }
+
+    /**
+     * @return True if locate() can be used on a polygon with this
+     * bounding box.
+     */
+    static boolean inRange(BoxInt box) {
+        return box.left() >= -MAX_COORD && box.right() <= MAX_COORD
+            && box.bottom() >= -MAX_COORD && box.top() <= MAX_COORD;
+    }
+
+    /**
+     * Classifies points from (inclusive) to (exclusive) against the
+     * polygon with vertices xs, ys, whose bounding box is given, putting
+     * SlabIndex.OUTSIDE, INSIDE or BOUNDARY for point i in out[i - from].
+     *
+     * The polygon must be inRange(), but the points can be anywhere.
+     */
+    abstract void locate(int[] xs, int[] ys, BoxInt box,
+                         int[] pxs, int[] pys, int from, int to, byte[] out);
+
+    /**
+     * @return Short name for benchmarks and messages.
+     */
+    abstract String name();
+
+    /**
+     * Scalar version of locate(), except that the result for point i
+     * goes in out[outStart + i - from].
+     */
+    static void scan(int[] xs, int[] ys, BoxInt box,
+                     int[] pxs, int[] pys, int from, int to, byte[] out, int outStart) {
+        for (int i = from; i < to; i++) {
+            int x = pxs[i];
+            int y = pys[i];
+            int loc = SlabIndex.OUTSIDE;
+            if (x >= box.left() && x <= box.right() &&
+                y >= box.bottom() && y <= box.top())
+                loc = SlabIndex.scan(xs, ys, x, y);
+            out[outStart + i - from] = (byte) loc;
+        }
+    }
+
+
+
+    /*----------------------------- SCALAR -----------------------------*/
+
+    static final class Scalar extends PointKernel {
+
+        @Override
+        void locate(int[] xs, int[] ys, BoxInt box,
+                    int[] pxs, int[] pys, int from, int to, byte[] out) {
+            scan(xs, ys, box, pxs, pys, from, to, out, 0);
+        }
+
+        @Override
+        String name() { return "scalar"; }
+    }
+
+}
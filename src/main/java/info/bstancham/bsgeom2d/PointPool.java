@@ -0,0 +1,148 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+
+/**
+ * Canonicalising pool of PointInts, so that shapes which share lots of
+ * vertices (e.g. the lattice points of a tiled map) can share the
+ * PointInt objects too, rather than each holding its own copies.
+ *
+ * This is a lossy cache rather than a map: a fixed-size open-addressing
+ * table keyed on the co-ordinates, where each point can only go in one
+ * of a few slots near its hash. If they are all taken by other points,
+ * one of them is evicted. So memory use is bounded by the capacity,
+ * and the pool never holds on to more than that many points, but an
+ * evicted point may later be handed out again as a new object... equal
+ * points are NOT guaranteed to be identical, so always compare with
+ * equals().
+ *
+ * Opt-in: nothing uses a pool unless it's asked to. Either call get()
+ * or intern() directly, or install a pool with setDefault(), after
+ * which PointInt.of() and the transformations built on it (e.g.
+ * PointInt.sum(), TriInt.translate(), PolyInt.vertex()) take their
+ * points from it.
+ *
+ * Safe to share between threads without locking: slots only ever hold
+ * complete, immutable points, and a lost race just means a duplicate.
+ */
+public final class PointPool {
+
+    /**
+     * Number of slots a point may go in, starting at its hash.
+     */
+    private static final int MAX_PROBES = 4;
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static volatile PointPool defaultPool = null;
+
+    private final PointInt[] table;
+    private final int mask;
+
+    public PointPool() { this(DEFAULT_CAPACITY); }
+
+    /**
+     * @param capacity Maximum number of points held... rounded up to a
+     * power of two.
+     * @throws IllegalArgumentException if capacity is less than one or
+     * more than 2^30.
+     */
+    public PointPool(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30 ---> " + capacity);
+        int size = Math.max(Integer.highestOneBit(capacity - 1) << 1, MAX_PROBES);
+        table = new PointInt[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return The pool used by PointInt.of(), or null if there isn't
+     * one.
+     */
+    public static PointPool getDefault() { return defaultPool; }
+
+    /**
+     * Sets the pool used by PointInt.of() and the transformations which
+     * create points... pass null to go back to creating a new point
+     * every time.
+     */
+    public static void setDefault(PointPool pool) { defaultPool = pool; }
+
+    public int capacity() { return table.length; }
+
+    /**
+     * @return Number of points currently held... O(capacity).
+     */
+    public int size() {
+        int count = 0;
+        for (PointInt p : table)
+            if (p != null) count++;
+        return count;
+    }
+
+    public void clear() {
+        Arrays.fill(table, null);
+    }
+
+
+
+    /*---------------------------- LOOK-UP -----------------------------*/
+
+    /**
+     * @return A point with the given co-ordinates... the pooled one if
+     * there is one, otherwise a new one, which is added to the pool.
+     */
+    public PointInt get(int x, int y) {
+        PointInt[] t = table;
+        int h = hash(x, y);
+        for (int k = 0; k < MAX_PROBES; k++) {
+            int i = (h + k) & mask;
+            PointInt p = t[i];
+            if (p == null) {
+                p = new PointInt(x, y);
+                t[i] = p;
+                return p;
+            }
+            if (p.x() == x && p.y() == y) return p;
+        }
+        // no room... newest point wins
+        PointInt p = new PointInt(x, y);
+        t[h & mask] = p;
+        return p;
+    }
+
+    /**
+     * @return The pooled point equal to p, if there is one, otherwise p
+     * itself, which is added to the pool.
+     */
+    public PointInt intern(PointInt p) {
+        PointInt[] t = table;
+        int h = hash(p.x(), p.y());
+        for (int k = 0; k < MAX_PROBES; k++) {
+            int i = (h + k) & mask;
+            PointInt q = t[i];
+            if (q == null) {
+                t[i] = p;
+                return p;
+            }
+            if (q.x() == p.x() && q.y() == p.y()) return q;
+        }
+        t[h & mask] = p;
+        return p;
+    }
+
+    /**
+     * Neighbouring points get neighbouring slots (mostly), so walking
+     * across a lattice walks through the table in order, rather than
+     * jumping about and missing the cache every time... with a
+     * scrambling hash, pooling a tiled map's triangulation took three
+     * times as long as plain allocation, with this about the same. The
+     * high bits are folded in, so that co-ordinates
+     * which differ by a multiple of the table size don't all collide.
+     */
+    private static int hash(int x, int y) {
+        int h = x + y * 92821;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,751 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Boolean operations on a pair of regions: union, intersection, and
+ * subtraction both ways round.
+ *
+ * Each region is a set of rings, with the inside of the region on the
+ * left of every ring... i.e. counter-clockwise outlines and clockwise
+ * holes, as in a WELL-FORMED ShapeInt or ShapeGroupInt.
+ *
+ * All four results come from a single pass:
+ * <li>Split both regions wherever their rings cross or touch (see
+ * EdgeSweep), so that they only meet at shared vertices.
+ * <li>Classify every edge of each region as outside the other region,
+ * inside it, or lying on one of its edges (running the same way, or
+ * the opposite way).
+ * <li>Each result is then just a choice of edges, chained together
+ * into rings.
+ *
+ * Classification is exact. The status of an edge can only change at a
+ * shared vertex, so it is worked out there from the directions of the
+ * edges meeting at the vertex, and carried along to the following
+ * edges. Only a ring which doesn't meet the other region at all needs
+ * a point-in-polygon test.
+ *
+ * Results are counter-clockwise outlines and clockwise holes. Where the
+ * outline of a result touches itself at a single point it is split
+ * into separate rings.
+ *
+ * Nothing is ever dropped quietly. If the split edges can't be made
+ * to settle down, or don't join up into rings which make a proper
+ * region (e.g. a hole which isn't inside any outline), an
+ * IllegalStateException is thrown... with well-formed inputs that
+ * would be a bug, not a rounding error to be lived with.
+ */
+final class PolyClipper {
+
+    static final int UNION        = 0;
+    static final int INTERSECTION = 1;
+    static final int SUBTRACTION1 = 2;
+    static final int SUBTRACTION2 = 3;
+
+    /**
+     * Once the edges have been snap rounded (see EdgeSweep), sweeping
+     * them again should only find them meeting at shared vertices, so
+     * the split settles down on the second pass. It is repeated until
+     * nothing more gets rounded... this is just a limit, so that a bug
+     * can't make it go round forever.
+     */
+    private static final int MAX_SPLIT_PASSES = 16;
+
+    // edge status relative to the other region
+    private static final int OUTSIDE  = 0;
+    private static final int INSIDE   = 1;
+    private static final int SAME     = 2;
+    private static final int OPPOSITE = 3;
+
+    // split rings of each region
+    private final PolyInt[] a;
+    private final PolyInt[] b;
+
+    // status of edge i of ring r of a (or b) is statusA[r][i] (or statusB[r][i])
+    private final int[][] statusA;
+    private final int[][] statusB;
+
+    private boolean rounded = false;
+
+    /**
+     * Either polygon may have either winding order.
+     *
+     * @throws IllegalStateException if the split doesn't settle down.
+     */
+    PolyClipper(PolyInt poly1, PolyInt poly2) {
+        this(new PolyInt[] { withWinding(poly1, true) },
+             new PolyInt[] { withWinding(poly2, true) });
+    }
+
+    /**
+     * @param rings1 Counter-clockwise outlines and clockwise holes.
+     * @param rings2 Counter-clockwise outlines and clockwise holes.
+     * @throws IllegalStateException if the split doesn't settle down.
+     */
+    PolyClipper(PolyInt[] rings1, PolyInt[] rings2) {
+        if (rings1 == null || rings2 == null)
+            throw new NullPointerException("null argument given to constructor");
+        int n1 = rings1.length;
+        PolyInt[] all = new PolyInt[n1 + rings2.length];
+        int[] group = new int[all.length];
+        System.arraycopy(rings1, 0, all, 0, n1);
+        System.arraycopy(rings2, 0, all, n1, rings2.length);
+        Arrays.fill(group, n1, all.length, 1);
+        for (int pass = 0; ; pass++) {
+            if (pass == MAX_SPLIT_PASSES)
+                throw new IllegalStateException("split edges still being rounded after "
+                                                + MAX_SPLIT_PASSES + " passes");
+            EdgeSweep sweep = new EdgeSweep(all, group);
+            for (int i = 0; i < all.length; i++)
+                all[i] = sweep.split(i);
+            if (!sweep.isRounded()) break;
+            rounded = true;
+        }
+        a = cleanRings(all, 0, n1);
+        b = cleanRings(all, n1, all.length);
+        statusA = classify(a, b);
+        statusB = classify(b, a);
+    }
+
+    /**
+     * @return True if any crossing point had to be rounded, so that the
+     * edges were snap rounded (see EdgeSweep).
+     */
+    boolean isRounded() { return rounded; }
+
+    /**
+     * @param op UNION, INTERSECTION, SUBTRACTION1 (region 1 - region 2)
+     * or SUBTRACTION2 (region 2 - region 1).
+     * @return Counter-clockwise outlines and clockwise holes.
+     * @throws IllegalStateException if the chosen edges don't join up
+     * into closed rings.
+     */
+    PolyInt[] result(int op) {
+        EdgeChainer chainer = new EdgeChainer();
+        switch (op) {
+        case UNION:
+            addEdges(chainer, a, statusA, OUTSIDE, false);
+            addEdges(chainer, b, statusB, OUTSIDE, false);
+            addEdges(chainer, a, statusA, SAME,    false);
+            break;
+        case INTERSECTION:
+            addEdges(chainer, a, statusA, INSIDE, false);
+            addEdges(chainer, b, statusB, INSIDE, false);
+            addEdges(chainer, a, statusA, SAME,   false);
+            break;
+        case SUBTRACTION1:
+            addEdges(chainer, a, statusA, OUTSIDE,  false);
+            addEdges(chainer, b, statusB, INSIDE,   true);
+            addEdges(chainer, a, statusA, OPPOSITE, false);
+            break;
+        case SUBTRACTION2:
+            addEdges(chainer, b, statusB, OUTSIDE,  false);
+            addEdges(chainer, a, statusA, INSIDE,   true);
+            addEdges(chainer, b, statusB, OPPOSITE, false);
+            break;
+        default:
+            throw new IllegalArgumentException("unknown operation: " + op);
+        }
+        return chainer.chain();
+    }
+
+    /**
+     * Same as result(), but with each hole put into the shape whose
+     * outline contains it.
+     *
+     * @throws IllegalStateException as result(), or if a hole isn't
+     * inside any outline.
+     */
+    ShapeInt[] shapes(int op) {
+        return toShapes(result(op));
+    }
+
+    private static void addEdges(EdgeChainer chainer, PolyInt[] rings, int[][] status,
+                                 int wanted, boolean reverse) {
+        for (int r = 0; r < rings.length; r++) {
+            PolyInt ring = rings[r];
+            int n = ring.numVertices();
+            for (int i = 0; i < n; i++) {
+                if (status[r][i] != wanted) continue;
+                int next = (i + 1 < n ? i + 1 : 0);
+                if (reverse) chainer.add(ring.x(next), ring.y(next), ring.x(i), ring.y(i));
+                else         chainer.add(ring.x(i), ring.y(i), ring.x(next), ring.y(next));
+            }
+        }
+    }
+
+
+
+    /*----------------------------- RINGS ------------------------------*/
+
+    /**
+     * @return Twice the signed area... positive if counter-clockwise.
+     */
+    static double doubleArea(PolyInt poly) {
+        double sum = 0;
+        for (int i = 0, j = poly.numVertices() - 1; i < poly.numVertices(); j = i++)
+            sum += (double) poly.x(j) * poly.y(i) - (double) poly.x(i) * poly.y(j);
+        return sum;
+    }
+
+    /**
+     * @return The polygon, reversed if necessary so that it winds the
+     * given way.
+     */
+    static PolyInt withWinding(PolyInt poly, boolean ccw) {
+        return ((doubleArea(poly) < 0) == ccw ? poly.reverseVertexOrder() : poly);
+    }
+
+    /**
+     * Snapping can collapse a thin part of a region down to nothing, so
+     * that its ring runs out and straight back along the same edges
+     * (e.g. A -> B -> A, or A -> B, round a loop, B -> A), or repeats a
+     * vertex. Edges like that have the region on neither side, and can't
+     * be classified or chained properly, so pairs of edges which run
+     * both ways between the same two points are taken out, along with
+     * any edges of zero length, and what's left is chained back into
+     * rings. The area stays the same.
+     *
+     * @return Rings from to - 1, cleaned up.
+     */
+    private static PolyInt[] cleanRings(PolyInt[] rings, int from, int to) {
+        EdgeChainer chainer = new EdgeChainer();
+        for (int r = from; r < to; r++) {
+            PolyInt ring = rings[r];
+            int n = ring.numVertices();
+            for (int i = 0; i < n; i++) {
+                int next = (i + 1 < n ? i + 1 : 0);
+                if (ring.x(i) != ring.x(next) || ring.y(i) != ring.y(next))
+                    chainer.add(ring.x(i), ring.y(i), ring.x(next), ring.y(next));
+            }
+        }
+        chainer.removeOpposites();
+        return chainer.chain();
+    }
+
+    /**
+     * @return All of the rings of the shapes, with outlines made
+     * counter-clockwise and holes clockwise.
+     */
+    static PolyInt[] rings(List<ShapeInt> shapes) {
+        List<PolyInt> out = new ArrayList<>();
+        for (ShapeInt s : shapes) {
+            out.add(withWinding(s.outline(), true));
+            for (int h = 0; h < s.numHoles(); h++)
+                out.add(withWinding(s.hole(h), false));
+        }
+        return out.toArray(new PolyInt[out.size()]);
+    }
+
+    /**
+     * Puts each hole into the smallest outline which contains it.
+     *
+     * @throws IllegalStateException if a hole isn't inside any outline.
+     */
+    static ShapeInt[] toShapes(PolyInt[] rings) {
+        List<PolyInt> outlines = new ArrayList<>();
+        List<Double> areas = new ArrayList<>();
+        List<PolyInt> holes = new ArrayList<>();
+        for (PolyInt r : rings) {
+            double area = doubleArea(r);
+            if (area > 0) {
+                outlines.add(r);
+                areas.add(area);
+            } else {
+                holes.add(r);
+            }
+        }
+        List<List<PolyInt>> shapeHoles = new ArrayList<>();
+        for (int i = 0; i < outlines.size(); i++)
+            shapeHoles.add(new ArrayList<>());
+        // with lots of both (e.g. a traced tile map), only look at the
+        // outlines whose boxes cover the hole's first vertex
+        ShapeGrid grid = null;
+        if (!holes.isEmpty() && outlines.size() >= GRID_MIN_OUTLINES)
+            grid = outlineGrid(outlines);
+        for (PolyInt h : holes) {
+            int best = -1;
+            if (grid == null) {
+                for (int i = 0; i < outlines.size(); i++) {
+                    if (best >= 0 && areas.get(i) >= areas.get(best)) continue;
+                    if (encloses(outlines.get(i), h)) best = i;
+                }
+            } else {
+                int cell = grid.cell(h.x(0), h.y(0));
+                if (cell >= 0) {
+                    for (int k = grid.start(cell); k < grid.end(cell); k++) {
+                        int i = grid.shapeId(k);
+                        if (best >= 0 && areas.get(i) >= areas.get(best)) continue;
+                        if (encloses(outlines.get(i), h)) best = i;
+                    }
+                }
+            }
+            if (best < 0)
+                throw new IllegalStateException("hole isn't inside any outline ---> "
+                                                + "hole from (" + h.x(0) + ", " + h.y(0)
+                                                + ") with " + h.numVertices() + " vertices");
+            shapeHoles.get(best).add(h);
+        }
+        ShapeInt[] out = new ShapeInt[outlines.size()];
+        for (int i = 0; i < out.length; i++) {
+            List<PolyInt> polys = shapeHoles.get(i);
+            polys.add(0, outlines.get(i));
+            out[i] = new ShapeInt(polys.toArray(new PolyInt[polys.size()]));
+        }
+        return out;
+    }
+
+    private static final int GRID_MIN_OUTLINES = 32;
+
+    private static ShapeGrid outlineGrid(List<PolyInt> outlines) {
+        BoxInt[] boxes = new BoxInt[outlines.size()];
+        int left = Integer.MAX_VALUE;
+        int bottom = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int top = Integer.MIN_VALUE;
+        for (int i = 0; i < boxes.length; i++) {
+            BoxInt b = outlines.get(i).boundingBox();
+            boxes[i] = b;
+            left = Math.min(left, b.left());
+            bottom = Math.min(bottom, b.bottom());
+            right = Math.max(right, b.right());
+            top = Math.max(top, b.top());
+        }
+        return new ShapeGrid(boxes, new BoxInt(left, bottom, right, top));
+    }
+
+    /**
+     * @return True if hole lies inside outline. The hole may touch the
+     * outline at single points, so looks for a vertex which is strictly
+     * inside.
+     */
+    private static boolean encloses(PolyInt outline, PolyInt hole) {
+        BoxInt ob = outline.boundingBox();
+        BoxInt hb = hole.boundingBox();
+        if (hb.left() < ob.left() || hb.right() > ob.right() ||
+            hb.bottom() < ob.bottom() || hb.top() > ob.top()) return false;
+        for (int i = 0; i < hole.numVertices(); i++) {
+            int x = hole.x(i);
+            int y = hole.y(i);
+            if (outline.contains(x, y, false)) return true;
+            if (!outline.contains(x, y, true)) return false;
+        }
+        return false;
+    }
+
+
+
+    /*------------------------- CLASSIFICATION -------------------------*/
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return The status of each edge of each ring, relative to the
+     * region made up of the other rings.
+     */
+    private static int[][] classify(PolyInt[] rings, PolyInt[] other) {
+        VertexIndex otherIndex = new VertexIndex(other);
+        int[][] out = new int[rings.length][];
+        for (int r = 0; r < rings.length; r++)
+            out[r] = classify(rings[r], other, otherIndex);
+        return out;
+    }
+
+    private static int[] classify(PolyInt ring, PolyInt[] other, VertexIndex otherIndex) {
+        int n = ring.numVertices();
+
+        // vertices shared with the other region, and the status of the
+        // edge leaving each one
+        int[] status = new int[n];
+        int anchor = -1;
+        for (int i = 0; i < n; i++) {
+            int shared = otherIndex.first(ring.x(i), ring.y(i));
+            if (shared < 0) {
+                status[i] = -1;
+            } else {
+                int next = (i + 1 < n ? i + 1 : 0);
+                status[i] = statusAtVertex(other, otherIndex, shared,
+                                           ring.x(next), ring.y(next));
+                anchor = i;
+            }
+        }
+
+        // SPECIAL CASE: ring doesn't meet the other region at all
+        if (anchor < 0) {
+            Arrays.fill(status, regionContains(other, ring.x(0), ring.y(0)) ? INSIDE : OUTSIDE);
+            return status;
+        }
+
+        // carry status forward from each shared vertex
+        for (int k = 1; k < n; k++) {
+            int i = (anchor + k) % n;
+            if (status[i] < 0) status[i] = status[i == 0 ? n - 1 : i - 1];
+        }
+        return status;
+    }
+
+    /**
+     * Every vertex of a region, looked up by point. Where rings of the
+     * region touch (or one ring touches itself) several vertices share
+     * a point, so each point has a linked list of them... an
+     * open-addressing table, as in EdgeChainer, so that there's no
+     * boxing.
+     */
+    private static final class VertexIndex {
+
+        private final long[] points;
+        private final int[] heads;
+        private final int mask;
+
+        // ring and vertex index of each entry, and the next entry at the
+        // same point (or -1)
+        private final int[] ringOf;
+        private final int[] vertexOf;
+        private final int[] nextAt;
+
+        VertexIndex(PolyInt[] rings) {
+            int n = 0;
+            for (PolyInt r : rings)
+                n += r.numVertices();
+            int size = Integer.highestOneBit(Math.max(2 * n, 2) - 1) << 1;
+            points = new long[size];
+            heads = new int[size];
+            Arrays.fill(heads, -1);
+            mask = size - 1;
+            ringOf = new int[n];
+            vertexOf = new int[n];
+            nextAt = new int[n];
+            int k = 0;
+            for (int r = 0; r < rings.length; r++) {
+                for (int j = 0; j < rings[r].numVertices(); j++) {
+                    long key = key(rings[r].x(j), rings[r].y(j));
+                    int i = find(key);
+                    points[i] = key;
+                    ringOf[k] = r;
+                    vertexOf[k] = j;
+                    nextAt[k] = heads[i];
+                    heads[i] = k++;
+                }
+            }
+        }
+
+        /**
+         * @return The slot for the point with this key... either the one
+         * it's in, or the empty one where it would go.
+         */
+        private int find(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            int i = (int) (h >>> 32) & mask;
+            while (heads[i] >= 0 && points[i] != key)
+                i = (i + 1) & mask;
+            return i;
+        }
+
+        /** @return The first entry at (x, y), or -1 if there are none. */
+        int first(int x, int y) { return heads[find(key(x, y))]; }
+
+        /** @return The next entry at the same point, or -1. */
+        int next(int k) { return nextAt[k]; }
+
+        int ring(int k) { return ringOf[k]; }
+
+        int vertex(int k) { return vertexOf[k]; }
+    }
+
+    /**
+     * @return The status of an edge running from a shared vertex to
+     * (qx, qy), against all of the other region's edges which meet at
+     * that point (at entry k of otherIndex and the ones after it).
+     *
+     * The region lies on the left of every edge, so turning
+     * counter-clockwise from the edge's direction, if the first edge
+     * reached leaves the vertex, the edge is outside, and if it arrives
+     * at the vertex, the edge is inside. This only depends on the edges
+     * themselves, not on how the rings pair them up into corners... so
+     * it still works where several corners meet at one point, or a
+     * ring touches itself. After cleanRings(), no two edges of a region
+     * run along each other, so there are no ties.
+     */
+    private static int statusAtVertex(PolyInt[] other, VertexIndex otherIndex, int k,
+                                      int qx, int qy) {
+        PolyInt first = other[otherIndex.ring(k)];
+        long vx = first.x(otherIndex.vertex(k));
+        long vy = first.y(otherIndex.vertex(k));
+        long dx = qx - vx;
+        long dy = qy - vy;
+        boolean same = false;
+        boolean opposite = false;
+        // nearest edge counter-clockwise from d, and whether it arrives
+        long bestX = 0;
+        long bestY = 0;
+        boolean bestArrives = false;
+        boolean found = false;
+        for (; k >= 0; k = otherIndex.next(k)) {
+            PolyInt poly = other[otherIndex.ring(k)];
+            int j = otherIndex.vertex(k);
+            int m = poly.numVertices();
+            for (int side = 0; side < 2; side++) {
+                boolean arrives = (side == 1);
+                int w = (arrives ? (j == 0 ? m - 1 : j - 1) : (j + 1 < m ? j + 1 : 0));
+                long ex = poly.x(w) - vx;
+                long ey = poly.y(w) - vy;
+                if (sameDirection(0, 0, ex, ey, dx, dy)) {
+                    if (arrives) opposite = true;
+                    else         same = true;
+                    continue;
+                }
+                if (!found || turnsFirst(dx, dy, ex, ey, bestX, bestY)) {
+                    bestX = ex;
+                    bestY = ey;
+                    bestArrives = arrives;
+                    found = true;
+                }
+            }
+        }
+        if (same) return SAME;
+        if (opposite) return OPPOSITE;
+        return (bestArrives ? INSIDE : OUTSIDE);
+    }
+
+    /**
+     * @return True if direction a is reached before direction b, turning
+     * counter-clockwise from direction d. Neither may point the same way
+     * as d.
+     */
+    private static boolean turnsFirst(long dx, long dy, long ax, long ay, long bx, long by) {
+        // 0 for less than half a turn, 1 for half a turn or more
+        int ha = (Geom2DInt.signOfDifference(dx, ay, dy, ax) > 0 ? 0 : 1);
+        int hb = (Geom2DInt.signOfDifference(dx, by, dy, bx) > 0 ? 0 : 1);
+        if (ha != hb) return ha < hb;
+        return Geom2DInt.signOfDifference(ax, by, ay, bx) > 0;
+    }
+
+    /**
+     * Even-odd rule... works for outlines and holes nested to any
+     * depth. The point must not lie on any of the rings.
+     */
+    private static boolean regionContains(PolyInt[] rings, int x, int y) {
+        boolean inside = false;
+        for (PolyInt r : rings)
+            if (r.contains(x, y, false)) inside = !inside;
+        return inside;
+    }
+
+    /**
+     * @return True if (ax, ay) and (bx, by) lie in the same direction
+     * from (vx, vy).
+     */
+    private static boolean sameDirection(long vx, long vy, long ax, long ay, long bx, long by) {
+        return Geom2DInt.ccw(vx, vy, ax, ay, bx, by) == 0
+            && Long.signum(ax - vx) == Long.signum(bx - vx)
+            && Long.signum(ay - vy) == Long.signum(by - vy);
+    }
+
+
+
+    /*---------------------------- ASSEMBLY ----------------------------*/
+
+    /**
+     * Chains directed edges together into closed polygons. Where more
+     * than one edge leaves a vertex, takes the sharpest left turn, so
+     * that outlines which touch at a single point come out as separate
+     * polygons (and a hole which touches its outline at a single point
+     * comes out as part of the outline).
+     *
+     * The turn is chosen from all of the edges leaving the vertex, not
+     * just the ones which haven't been used yet, so each edge in is
+     * paired with an edge out by their angles alone, and the polygons
+     * don't depend on the order the edges were added in.
+     */
+    static final class EdgeChainer {
+
+        private int[] sx = new int[16];
+        private int[] sy = new int[16];
+        private int[] ex = new int[16];
+        private int[] ey = new int[16];
+        private int numEdges = 0;
+
+        void add(int x1, int y1, int x2, int y2) {
+            if (numEdges == sx.length) {
+                sx = Arrays.copyOf(sx, numEdges * 2);
+                sy = Arrays.copyOf(sy, numEdges * 2);
+                ex = Arrays.copyOf(ex, numEdges * 2);
+                ey = Arrays.copyOf(ey, numEdges * 2);
+            }
+            sx[numEdges] = x1;
+            sy[numEdges] = y1;
+            ex[numEdges] = x2;
+            ey[numEdges] = y2;
+            numEdges++;
+        }
+
+        /**
+         * Takes out pairs of edges which run both ways between the same
+         * two points.
+         */
+        void removeOpposites() {
+            buildTable();
+            boolean[] removed = new boolean[numEdges];
+            for (int e = 0; e < numEdges; e++) {
+                if (removed[e]) continue;
+                for (int c = heads[find(key(ex[e], ey[e]))]; c >= 0; c = nextOut[c]) {
+                    if (!removed[c] && ex[c] == sx[e] && ey[c] == sy[e]) {
+                        removed[e] = true;
+                        removed[c] = true;
+                        break;
+                    }
+                }
+            }
+            int n = 0;
+            for (int e = 0; e < numEdges; e++) {
+                if (removed[e]) continue;
+                sx[n] = sx[e];
+                sy[n] = sy[e];
+                ex[n] = ex[e];
+                ey[n] = ey[e];
+                n++;
+            }
+            numEdges = n;
+        }
+
+        // first edge leaving each point, in an open-addressing table
+        // keyed on the point, so that there's no boxing... a traced tile
+        // map can have millions of edges
+        private long[] points;
+        private int[] heads;
+        private int mask;
+        // ... and the rest of them, as a linked list
+        private int[] nextOut;
+
+        private void buildTable() {
+            int size = Integer.highestOneBit(Math.max(2 * numEdges, 2) - 1) << 1;
+            points = new long[size];
+            heads = new int[size];
+            Arrays.fill(heads, -1);
+            mask = size - 1;
+            nextOut = new int[numEdges];
+            for (int e = 0; e < numEdges; e++) {
+                int slot = find(key(sx[e], sy[e]));
+                points[slot] = key(sx[e], sy[e]);
+                nextOut[e] = heads[slot];
+                heads[slot] = e;
+            }
+        }
+
+        /**
+         * @throws IllegalStateException if the edges don't all join up
+         * into closed polygons... every point must have as many edges
+         * leaving it as arriving.
+         */
+        PolyInt[] chain() {
+            buildTable();
+
+            boolean[] used = new boolean[numEdges];
+            List<PolyInt> out = new ArrayList<>();
+            int[] xs = new int[16];
+            int[] ys = new int[16];
+            for (int first = 0; first < numEdges; first++) {
+                if (used[first]) continue;
+                int len = 0;
+                int e = first;
+                while (e >= 0) {
+                    used[e] = true;
+                    if (len == xs.length) {
+                        xs = Arrays.copyOf(xs, len * 2);
+                        ys = Arrays.copyOf(ys, len * 2);
+                    }
+                    xs[len] = sx[e];
+                    ys[len++] = sy[e];
+                    int head = heads[find(key(ex[e], ey[e]))];
+                    int next = leftmostTurn(e, head, null);
+                    if (next == first) break;
+                    if (next >= 0 && used[next]) {
+                        // edges in and out don't take turns round this
+                        // point, so make do with what's left
+                        if (ex[e] == sx[first] && ey[e] == sy[first]) break;
+                        next = leftmostTurn(e, head, used);
+                    }
+                    e = next;
+                }
+                if (e < 0)
+                    throw new IllegalStateException("edges don't join up into closed polygons ---> "
+                                                    + "chain from (" + sx[first] + ", " + sy[first]
+                                                    + ") stops after " + len + " edges");
+                if (len >= 3)
+                    out.add(new PolyInt(Arrays.copyOf(xs, len), Arrays.copyOf(ys, len)));
+            }
+            return out.toArray(new PolyInt[out.size()]);
+        }
+
+        /**
+         * @return The slot for the point with this key... either the one
+         * it's in, or the empty one where it would go.
+         */
+        private int find(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            int i = (int) (h >>> 32) & mask;
+            while (heads[i] >= 0 && points[i] != key)
+                i = (i + 1) & mask;
+            return i;
+        }
+
+        /**
+         * @return The edge in the list starting at candidate which makes
+         * the sharpest left turn after edge e (skipping any marked in
+         * used, if it isn't null), or -1 if there are none.
+         */
+        private int leftmostTurn(int e, int candidate, boolean[] used) {
+            // direction back along the incoming edge
+            long rx = (long) sx[e] - ex[e];
+            long ry = (long) sy[e] - ey[e];
+            int best = -1;
+            for (int c = candidate; c >= 0; c = nextOut[c]) {
+                if (used != null && used[c]) continue;
+                if (best < 0 || sharperLeft(rx, ry, dirX(best), dirY(best), dirX(c), dirY(c)))
+                    best = c;
+            }
+            return best;
+        }
+
+        private long dirX(int e) { return (long) ex[e] - sx[e]; }
+        private long dirY(int e) { return (long) ey[e] - sy[e]; }
+
+        /**
+         * Turning clockwise from direction r, the sharpest left turn is
+         * reached first.
+         *
+         * @return True if direction d is reached before direction
+         * best. Going straight back along r is reached last.
+         */
+        private static boolean sharperLeft(long rx, long ry, long bx, long by, long dx, long dy) {
+            int hb = half(rx, ry, bx, by);
+            int hd = half(rx, ry, dx, dy);
+            if (hb != hd) return hd < hb;
+            // within the same half, d comes first if it is
+            // counter-clockwise from best
+            return cross(bx, by, dx, dy) > 0;
+        }
+
+        /**
+         * @return 0 if d is less than half a turn clockwise from r, 1 if
+         * at least half a turn, 2 if pointing the same way as r.
+         */
+        private static int half(long rx, long ry, long dx, long dy) {
+            int c = cross(rx, ry, dx, dy);
+            if (c < 0) return 0;
+            if (c > 0) return 1;
+            boolean sameWay = Long.signum(rx) == Long.signum(dx) && Long.signum(ry) == Long.signum(dy);
+            return (sameWay ? 2 : 1);
+        }
+
+        /** @return The sign of the cross product of vectors a and b. */
+        private static int cross(long ax, long ay, long bx, long by) {
+            return Geom2DInt.signOfDifference(ax, by, ay, bx);
+        }
+    }
+
+}
@@ -1,10 +1,7 @@
 package info.bstancham.bsgeom2d;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.function.BiFunction;
 
 /**
  * Immutable data type representing a polygon with integer
@@ -27,7 +24,11 @@ public class PolyInt {
         INVALID,
     }
 
-    private PointInt[] vertices;
+    // vertices are stored packed, as parallel arrays of primitive
+    // co-ordinates... PointInt and LineInt objects are only created on
+    // demand
+    private final int[] xs;
+    private final int[] ys;
 
     // values to be cached after they are calculated
     private LineInt[] edges = null;
@@ -42,25 +43,7 @@ public class PolyInt {
      * specified winding type.
      */
     public PolyInt(PointInt ... vertices) {
-        if (vertices == null)
-            throw new NullPointerException("null argument given to constructor");
-        if (vertices.length < 3)
-            throw new IllegalArgumentException("must have at least 3 vertices - only supplied " + vertices.length);
-        // make defensive copy of input array, to preserve immutability...
-        // ... build bounding box as same time
-        int left   = vertices[0].x();
-        int bottom = vertices[0].y();
-        int right  = vertices[0].x();
-        int top    = vertices[0].y();
-        this.vertices = new PointInt[vertices.length];
-        for (int i = 0; i < vertices.length; i++) {
-            this.vertices[i] = vertices[i];
-            if (vertices[i].x() < left)   left   = vertices[i].x();
-            if (vertices[i].y() < bottom) bottom = vertices[i].y();
-            if (vertices[i].x() > right)  right  = vertices[i].x();
-            if (vertices[i].y() > top)    top    = vertices[i].y();
-        }
-        bounds = new BoxInt(left, bottom, right, top);
+        this(xCoords(vertices), yCoords(vertices), false);
     }
 
     /**
@@ -72,30 +55,70 @@ public class PolyInt {
      * co-ordinates is not the same.
      */
     public PolyInt(int[] xs, int[] ys) {
-        // this(WindingType.COUNTER_CLOCKWISE, buildPoints(xs, ys));
-        this(buildPoints(xs, ys));
+        this(xs, ys, true);
     }
 
-    private static PointInt[] buildPoints(int[] xs, int[] ys) {
+    /**
+     * @param copy If false, the arrays are used directly, so the
+     * caller must not hold on to them or modify them afterwards.
+     */
+    private PolyInt(int[] xs, int[] ys, boolean copy) {
+        if (xs == null || ys == null)
+            throw new NullPointerException("null argument given to constructor");
         if (xs.length != ys.length) {
             String msg = "x and y co-ordinate arrays must be the same length " +
                 "---> xs.length=" + xs.length + " ys.length=" + ys.length;
             throw new IllegalArgumentException(msg);
         }
-        PointInt[] newPoints = new PointInt[xs.length];
-        for (int i = 0; i < xs.length; i++) {
-            newPoints[i] = new PointInt(xs[i], ys[i]);
+        if (xs.length < 3)
+            throw new IllegalArgumentException("must have at least 3 vertices - only supplied " + xs.length);
+        // make defensive copy of input arrays, to preserve immutability...
+        this.xs = (copy ? xs.clone() : xs);
+        this.ys = (copy ? ys.clone() : ys);
+        // ... build bounding box as same time
+        int left   = xs[0];
+        int bottom = ys[0];
+        int right  = xs[0];
+        int top    = ys[0];
+        for (int i = 1; i < xs.length; i++) {
+            if (xs[i] < left)   left   = xs[i];
+            if (ys[i] < bottom) bottom = ys[i];
+            if (xs[i] > right)  right  = xs[i];
+            if (ys[i] > top)    top    = ys[i];
         }
-        return newPoints;
+        bounds = new BoxInt(left, bottom, right, top);
+    }
+
+    private static int[] xCoords(PointInt[] vertices) {
+        if (vertices == null)
+            throw new NullPointerException("null argument given to constructor");
+        int[] out = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++)
+            out[i] = vertices[i].x();
+        return out;
+    }
+
+    private static int[] yCoords(PointInt[] vertices) {
+        int[] out = new int[vertices.length];
+        for (int i = 0; i < vertices.length; i++)
+            out[i] = vertices[i].y();
+        return out;
     }
 
 
 
     /*--------------------------- ACCESSORS ----------------------------*/
 
-    public PointInt vertex(int index) { return vertices[index]; }
+    /**
+     * @return A PointInt for the vertex at the given index (see
+     * PointInt.of()). Use x(int) and y(int) to avoid creating an object.
+     */
+    public PointInt vertex(int index) { return PointInt.of(xs[index], ys[index]); }
+
+    public int x(int index) { return xs[index]; }
+    public int y(int index) { return ys[index]; }
 
-    public int numVertices() { return vertices.length; }
+    public int numVertices() { return xs.length; }
 
     /**
      * @return An array containing all of the vertices in this
@@ -104,12 +127,25 @@ public class PolyInt {
      */
     public PointInt[] getVertices() {
         PointInt[] out = new PointInt[numVertices()];
-        // for (int i = 0; i < numVertices(); i++)
-        //     out[i] = vertex(i);
-        System.arraycopy(vertices, 0, out, 0, numVertices());
+        for (int i = 0; i < numVertices(); i++)
+            out[i] = vertex(i);
         return out;
     }
 
+    /**
+     * @return An array containing the x co-ordinates of all of the
+     * vertices in this polygon. To maintain immutability, a new array
+     * is created each time the method is called.
+     */
+    public int[] getXCoords() { return xs.clone(); }
+
+    /**
+     * @return An array containing the y co-ordinates of all of the
+     * vertices in this polygon. To maintain immutability, a new array
+     * is created each time the method is called.
+     */
+    public int[] getYCoords() { return ys.clone(); }
+
     /**
      * @param The index of the vertex which forms this edge's start
      * point.
@@ -134,9 +170,10 @@ public class PolyInt {
     private LineInt[] fetchEdges() {
         if (edges == null) {
             edges = new LineInt[numVertices()];
-            for (int i = 0; i < numVertices(); i++)
-                edges[i] = new LineInt(vertex(i),
-                                       vertex(wrapIndex(i + 1)));
+            for (int i = 0; i < numVertices(); i++) {
+                int next = wrapIndex(i + 1);
+                edges[i] = new LineInt(xs[i], ys[i], xs[next], ys[next]);
+            }
         }
         return edges;
     }
@@ -187,16 +224,18 @@ public class PolyInt {
         // ... find first matching vertex...
         int n = -1;
         for (int i = 0; i < this.numVertices(); i++) {
-            if (this.vertex(0).equals(that.vertex(i))) {
+            if (this.xs[0] == that.xs[i] && this.ys[0] == that.ys[i]) {
                 n = i;
                 break;
             }
         }
         if (n < 0) return false; // no matching vertex
         // ... compare all vertices in order...
-        for (int i = 0; i < this.numVertices(); i++)
-            if (!this.vertex(i).equals(that.vertex(that.wrapIndex(n + i))))
+        for (int i = 0; i < this.numVertices(); i++) {
+            int ii = that.wrapIndex(n + i);
+            if (this.xs[i] != that.xs[ii] || this.ys[i] != that.ys[ii])
                 return false;
+        }
         // else
         return true;
     }
@@ -207,34 +246,185 @@ public class PolyInt {
      * does not count as an intersection.
      */
     public boolean intersectsExcludeVertices(LineInt ln) {
-        for (LineInt l : getEdges())
-            if (Geom2DInt.lineSegmentsIntersectExcludeVertices(l, ln))
+        for (int i = 0; i < numVertices(); i++) {
+            int next = wrapIndex(i + 1);
+            if (Geom2DInt.segmentsIntersect(xs[i], ys[i], xs[next], ys[next],
+                                            ln.startX(), ln.startY(),
+                                            ln.endX(), ln.endY(),
+                                            false))
                 return true;
+        }
         return false;
     }
 
     public boolean contains(PointInt p) { return contains(p, true); }
 
     public boolean contains(PointInt p, boolean includeEdges) {
-        // check whether point is on any line
-	for (LineInt ln : getEdges())
-	    if (ln.contains(p))
-		return includeEdges;
-        // use JPolygon method
-	return toJPolygon().contains(p.x(), p.y());
+        return contains(p.x(), p.y(), includeEdges);
+    }
+
+    public boolean contains(int x, int y) { return contains(x, y, true); }
+
+    public boolean contains(int x, int y, boolean includeEdges) {
+        // OPTIMIZATION: nothing outside bounding box can be inside
+        BoxInt box = boundingBox();
+        if (x < box.left() || x > box.right() ||
+            y < box.bottom() || y > box.top())
+            return false;
+        int location;
+        if (numVertices() < SLAB_INDEX_MIN_VERTICES)
+            location = SlabIndex.scan(xs, ys, x, y);
+        else
+            location = fetchSlabIndex().locate(x, y);
+        if (location == SlabIndex.BOUNDARY) return includeEdges;
+        return location == SlabIndex.INSIDE;
+    }
+
+    /**
+     * Below this size, a straight scan of the edges beats building the
+     * index.
+     */
+    private static final int SLAB_INDEX_MIN_VERTICES = 16;
+
+    // built on the first query... SlabIndex is immutable, with only
+    // final fields, so a thread which sees it always sees all of it.
+    // Two threads may both build it, but they build the same thing
+    private SlabIndex slabIndex = null;
+
+    private SlabIndex fetchSlabIndex() {
+        SlabIndex index = slabIndex;
+        if (index == null) {
+            index = new SlabIndex(xs, ys);
+            slabIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Builds the point-location index now, rather than on the first
+     * query... e.g. so that query threads don't all build their own
+     * copy at once.
+     */
+    void buildIndex() {
+        if (numVertices() >= SLAB_INDEX_MIN_VERTICES)
+            fetchSlabIndex();
     }
 
-    private java.awt.Polygon jpoly = null;
+    /**
+     * @return An array where element i is true if the point (pxs[i],
+     * pys[i]) is in the polygon, including edges.
+     */
+    public boolean[] contains(int[] pxs, int[] pys) {
+        boolean[] result = new boolean[pxs.length];
+        contains(pxs, pys, true, result);
+        return result;
+    }
+
+    /**
+     * Bulk version of contains(int, int, boolean)... small polygons are
+     * tested against a whole block of points at once, using SIMD
+     * instructions where the Vector API is available (see
+     * PointKernel), and large ones use the point-location index.
+     *
+     * @param result Element i is set to true if the point (pxs[i],
+     * pys[i]) is in the polygon, and false if not. Must be at least as
+     * long as pxs.
+     * @throws IllegalArgumentException if the co-ordinate arrays are not
+     * the same length, or if result is too short.
+     */
+    public void contains(int[] pxs, int[] pys, boolean includeEdges, boolean[] result) {
+        ShapeGroupInt.checkBulkArgs(pxs, pys, result.length);
+        byte[] block = new byte[Math.min(LOCATE_BLOCK_SIZE, pxs.length)];
+        for (int from = 0; from < pxs.length; from += LOCATE_BLOCK_SIZE) {
+            int to = Math.min(from + LOCATE_BLOCK_SIZE, pxs.length);
+            locate(pxs, pys, from, to, block);
+            for (int i = from; i < to; i++)
+                result[i] = isIn(block[i - from], includeEdges);
+        }
+    }
+
+    /**
+     * Bulk contains() methods classify points in blocks of this size.
+     */
+    static final int LOCATE_BLOCK_SIZE = 1024;
 
-    private java.awt.Polygon toJPolygon() {
-        if (jpoly == null) {
-            jpoly = new java.awt.Polygon();
-            for (PointInt v : vertices)
-                jpoly.addPoint(v.x(), v.y());
-	}
-        return jpoly;
+    /**
+     * Below this size, a PointKernel scan beats the point-location
+     * index (measured with the vector kernel... the scalar one crosses
+     * over at about SLAB_INDEX_MIN_VERTICES).
+     */
+    private static final int KERNEL_MAX_VERTICES = 32;
+
+    /**
+     * Classifies points from (inclusive) to (exclusive), putting
+     * SlabIndex.OUTSIDE, INSIDE or BOUNDARY for point i in
+     * out[i - from].
+     */
+    void locate(int[] pxs, int[] pys, int from, int to, byte[] out) {
+        BoxInt box = boundingBox();
+        PointKernel kernel = PointKernel.get();
+        if (kernel != PointKernel.scalar() && !PointKernel.inRange(box))
+            kernel = PointKernel.scalar();
+        int max = (kernel == PointKernel.scalar() ? SLAB_INDEX_MIN_VERTICES : KERNEL_MAX_VERTICES);
+        if (numVertices() < max) {
+            kernel.locate(xs, ys, box, pxs, pys, from, to, out);
+        } else {
+            SlabIndex index = fetchSlabIndex();
+            for (int i = from; i < to; i++) {
+                int x = pxs[i];
+                int y = pys[i];
+                int loc = SlabIndex.OUTSIDE;
+                if (x >= box.left() && x <= box.right() &&
+                    y >= box.bottom() && y <= box.top())
+                    loc = index.locate(x, y);
+                out[i - from] = (byte) loc;
+            }
+        }
+    }
+
+    /**
+     * @return True if a location from locate() counts as in the
+     * polygon.
+     */
+    static boolean isIn(int location, boolean includeEdges) {
+        if (location == SlabIndex.BOUNDARY) return includeEdges;
+        return location == SlabIndex.INSIDE;
     }
 
+    /**
+     * @return True if the polygons share any point at all, including
+     * if they only touch at an edge or a vertex.
+     *
+     * Exact, and much cheaper than a BooleanTransformation... see
+     * PolyOverlap.
+     */
+    public boolean intersects(PolyInt p) {
+        return PolyOverlap.intersects(new PolyInt[] { this }, new PolyInt[] { p });
+    }
+
+    /**
+     * @return True if the polygons meet, but only along their edges
+     * i.e. they share no area.
+     */
+    public boolean touches(PolyInt p) {
+        PolyInt[] a = new PolyInt[] { this };
+        PolyInt[] b = new PolyInt[] { p };
+        return PolyOverlap.intersects(a, b) && !PolyOverlap.interiorsOverlap(a, b);
+    }
+
+    /**
+     * @return True if every point of p is inside this polygon, or on
+     * its edges.
+     */
+    public boolean contains(PolyInt p) {
+        return PolyOverlap.contains(new PolyInt[] { this }, new PolyInt[] { p });
+    }
+
+    /**
+     * @return True if the polygons have no point in common.
+     */
+    public boolean disjoint(PolyInt p) { return !intersects(p); }
+
     /**
      * WARNING!
      *
@@ -367,78 +557,87 @@ public class PolyInt {
     /*------------------------ TRANSFORMATIONS -------------------------*/
 
     public PolyInt translate(int x, int y) {
-        PointInt[] nv = new PointInt[numVertices()];
-        for (int i = 0; i < numVertices(); i++)
-            nv[i] = vertex(i).sum(x, y);
-        return new PolyInt(nv);
+        int[] nxs = new int[numVertices()];
+        int[] nys = new int[numVertices()];
+        for (int i = 0; i < numVertices(); i++) {
+            nxs[i] = xs[i] + x;
+            nys[i] = ys[i] + y;
+        }
+        return new PolyInt(nxs, nys, false);
     }
 
     public PolyInt reverseVertexOrder() {
-        PointInt[] newPoints = new PointInt[numVertices()];
-        for (int i = 0; i < numVertices(); i++)
-            newPoints[numVertices() - 1 - i] = vertex(i);
-        return new PolyInt(newPoints);
+        int[] nxs = new int[numVertices()];
+        int[] nys = new int[numVertices()];
+        for (int i = 0; i < numVertices(); i++) {
+            nxs[numVertices() - 1 - i] = xs[i];
+            nys[numVertices() - 1 - i] = ys[i];
+        }
+        return new PolyInt(nxs, nys, false);
     }
 
     /**
      * Clip the vertex at specified index and return a new polygon.
      */
     public PolyInt clipVertex(int index) {
-        PointInt[] newPoints = new PointInt[numVertices() - 1];
-        for (int i = 0; i < newPoints.length; i++) {
+        int[] nxs = new int[numVertices() - 1];
+        int[] nys = new int[numVertices() - 1];
+        for (int i = 0; i < nxs.length; i++) {
             int ii = (i < index ? i : i + 1);
-            newPoints[i] = vertex(ii);
+            nxs[i] = xs[ii];
+            nys[i] = ys[ii];
         }
-        return new PolyInt(newPoints);
+        return new PolyInt(nxs, nys, false);
     }
 
     public PolyInt addVertexAfter(int index, PointInt p) {
-        PointInt[] newPoints = new PointInt[numVertices() + 1];
-        for (int i = 0; i < newPoints.length; i++) {
+        int[] nxs = new int[numVertices() + 1];
+        int[] nys = new int[numVertices() + 1];
+        for (int i = 0; i < nxs.length; i++) {
             if (i == index + 1) {
                 // insert new vertex
-                newPoints[i] = p;
+                nxs[i] = p.x();
+                nys[i] = p.y();
             } else {
                 // copy existing vertex
                 int ii = (i > index + 1 ? i - 1 : i);
-                newPoints[i] = vertex(ii);
+                nxs[i] = xs[ii];
+                nys[i] = ys[ii];
             }
         }
-        return new PolyInt(newPoints);
+        return new PolyInt(nxs, nys, false);
     }
 
     public PolyInt setVertex(int index, int x, int y) {
-        PointInt[] newPoints = new PointInt[numVertices()];
-        for (int i = 0; i < numVertices(); i++) {
-            if (i == index) {
-                newPoints[i] = new PointInt(x, y);
-            } else {
-                newPoints[i] = vertex(i);
-            }
-        }
-        return new PolyInt(newPoints);
+        int[] nxs = xs.clone();
+        int[] nys = ys.clone();
+        nxs[index] = x;
+        nys[index] = y;
+        return new PolyInt(nxs, nys, false);
     }
 
     public PolyInt reflectX(int xMid) {
-        return reflect(PointInt::reflectX, xMid);
+        int[] nxs = new int[numVertices()];
+        for (int n = 0; n < numVertices(); n++)
+            nxs[n] = xMid - xs[n];
+        return new PolyInt(nxs, ys, false);
     }
 
     public PolyInt reflectY(int yMid) {
-        return reflect(PointInt::reflectY, yMid);
-    }
-
-    private PolyInt reflect(BiFunction<PointInt, Integer, PointInt> func, int mid) {
-        PointInt[] vs = new PointInt[numVertices()];
+        int[] nys = new int[numVertices()];
         for (int n = 0; n < numVertices(); n++)
-            vs[n] = func.apply(vertex(n), mid);
-        return new PolyInt(vs);
+            nys[n] = yMid - ys[n];
+        return new PolyInt(xs, nys, false);
     }
 
     public PolyInt rotate90(PointInt centre) {
-        PointInt[] vs = new PointInt[numVertices()];
-        for (int n = 0; n < numVertices(); n++)
-            vs[n] = vertex(n).rotate90(centre);
-        return new PolyInt(vs);
+        int[] nxs = new int[numVertices()];
+        int[] nys = new int[numVertices()];
+        for (int n = 0; n < numVertices(); n++) {
+            nxs[n] = centre.x() +  (ys[n] - centre.y());
+            nys[n] = centre.y() + -(xs[n] - centre.x());
+        }
+        return new PolyInt(nxs, nys, false);
     }
 
 
@@ -447,11 +646,18 @@ public class PolyInt {
 
     /*---------------------------- GEOMETRY ----------------------------*/
 
+    /**
+     * Uses exact integer arithmetic (see Geom2DInt.turningNumber()), so
+     * no trig is involved. Polygons which wind around more than once, or
+     * not at all (e.g. figure-of-eight shapes), are INVALID, as are any
+     * with repeated consecutive vertices.
+     */
     public WindingOrder windingOrder() {
         if (winding == null) {
-            if (nearlyEquals(sumOfAngles(), Geom2D.FULL_TURN))
+            int turns = Geom2DInt.turningNumber(xs, ys);
+            if (turns == 1)
                 winding = WindingOrder.COUNTER_CLOCKWISE;
-            else if (nearlyEquals(sumOfAngles(), -Geom2D.FULL_TURN))
+            else if (turns == -1)
                 winding = WindingOrder.CLOCKWISE;
             else
                 winding = WindingOrder.INVALID;
@@ -459,39 +665,43 @@ public class PolyInt {
         return winding;
     }
 
-    private boolean nearlyEquals(double a, double b) {
-        double epsilon = 0.0000000001;
-        return a >= b - epsilon &&
-               a <= b + epsilon;
-    }
-
     public boolean windingIsCCW() {
         return windingOrder() == WindingOrder.COUNTER_CLOCKWISE;
     }
 
     /**
-     * @return True, if all angles are convex.
+     * @return True, if all angles are convex (strict left turns), and
+     * the outline goes round exactly once... so a pentagram doesn't
+     * count. Exact, and creates no objects.
      */
     public boolean isConvex() {
         if (convexP == null) {
-            for (int i = 0; i < numVertices(); i++) {
-                int iPrev = (i < 1 ? numVertices() -1 : i - 1);
-                int iNext = (i < numVertices() - 1 ? i + 1 : 0);
-                double angle = Geom2D.angleTurned(vertex(iPrev),
-                                                   vertex(i),
-                                                   vertex(iNext));
-                if (angle <= 0) {
+            int n = numVertices();
+            int quarters = 0;
+            for (int i = 0; i < n; i++) {
+                int iPrev = (i < 1 ? n - 1 : i - 1);
+                int iNext = (i < n - 1 ? i + 1 : 0);
+                // also rules out repeated vertices
+                if (Geom2DInt.ccw(xs[iPrev], ys[iPrev],
+                                  xs[i],     ys[i],
+                                  xs[iNext], ys[iNext]) <= 0) {
                     convexP = false;
                     return convexP;
                 }
+                quarters += Geom2DInt.quarterTurns(xs[iPrev], ys[iPrev],
+                                                   xs[i],     ys[i],
+                                                   xs[iNext], ys[iNext]);
             }
-            convexP = true;
+            convexP = (quarters == 4);
         }
         return convexP;
     }
 
     /**
      * @return The sum of angles, in radians.
+     *
+     * Uses trig for every vertex, so it's slow... windingOrder() and
+     * isConvex() don't depend on it.
      */
     public double sumOfAngles() {
         if (sumAngles == null) {
@@ -499,9 +709,9 @@ public class PolyInt {
             for (int i = 0; i < numVertices(); i++) {
                 int iPrev = (i < 1 ? numVertices() -1 : i - 1);
                 int iNext = (i < numVertices() - 1 ? i + 1 : 0);
-                sum += Geom2D.angleTurned(vertex(iPrev),
-                                          vertex(i),
-                                          vertex(iNext));
+                sum += Geom2D.angleTurned(xs[iPrev], ys[iPrev],
+                                          xs[i],     ys[i],
+                                          xs[iNext], ys[iNext]);
             }
             sumAngles = sum;
         }
@@ -521,54 +731,48 @@ public class PolyInt {
         // System.out.println("... using getTriangulationSimpleConvex()");
         TriInt[] out = new TriInt[numVertices() - 2];
         for (int i = 1; i <= out.length; i++) {
-            out[i - 1] = new TriInt(vertex(0),
-                                    vertex(i),
-                                    vertex(i + 1));
+            out[i - 1] = new TriInt(xs[0],     ys[0],
+                                    xs[i],     ys[i],
+                                    xs[i + 1], ys[i + 1]);
         }
         return out;
     }
 
 
     public TriInt[] getTriangulationEarClipping() {
-        // System.out.println("... using getTriangulationEarClipping()");
-        // System.out.println("... using ear-clipping...");
-        ArrayList<TriInt> triangles = new ArrayList<>();
-        // triangles = nextEarClipping(this, triangles);
-        nextEarClipping(this, triangles);
-        return triangles.toArray(new TriInt[triangles.size()]);
-    }
-
-    // private ArrayList<TriInt> nextEarClipping(PolyInt poly, ArrayList<TriInt> triangles) {
-    private void nextEarClipping(PolyInt poly, ArrayList<TriInt> triangles) {
-        // find a safe ear to clip...
-        int i = 0;
-        for (i = 0; i < poly.numVertices() + 1; i++) {
-            if (!poly.intersectsExcludeVertices(new LineInt(poly.vertex(poly.wrapIndex(i + 1)),
-                                                            poly.vertex(poly.wrapIndex(i - 1))))) {
-                if (Geom2DInt.isCCW(poly.vertex(poly.wrapIndex(i - 1)),
-                                    poly.vertex(poly.wrapIndex(i)),
-                                    poly.vertex(poly.wrapIndex(i + 1)))) {
-
-                    // potential line does not intersect any others...
-                    // ... stick with this index
-                    break;
-                }
-            }
-        }
-        triangles.add(getEar(poly, poly.wrapIndex(i)));
-        //
-        if (poly.numVertices() > 3) {
-            nextEarClipping(poly.clipVertex(poly.wrapIndex(i)), triangles);
+        int[] indices = EarClipper.triangulate(xs, ys);
+        TriInt[] out = new TriInt[indices.length / 3];
+        for (int i = 0; i < out.length; i++) {
+            int a = indices[i * 3];
+            int b = indices[i * 3 + 1];
+            int c = indices[i * 3 + 2];
+            out[i] = new TriInt(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
         }
-        // return triangles;
+        return out;
     }
 
-    private TriInt getEar(PolyInt poly, int index) {
-        // System.out.println("... getEar() at " + poly.vertex(poly.wrapIndex(index)));
-
-        return new TriInt(poly.vertex(poly.wrapIndex(index - 1)),
-                          poly.vertex(poly.wrapIndex(index)),
-                          poly.vertex(poly.wrapIndex(index + 1)));
+    /**
+     * Same triangles as getTriangulation(), but written into sink as an
+     * indexed mesh, so that no objects are created per triangle.
+     *
+     * Adds all numVertices() vertices, in order, then at most
+     * numVertices() - 2 triangles.
+     *
+     * @return The number of triangles added.
+     */
+    public int triangulate(TriangleSink sink) {
+        int base = sink.vertex(xs[0], ys[0]);
+        for (int i = 1; i < numVertices(); i++)
+            sink.vertex(xs[i], ys[i]);
+        if (isConvex()) {
+            for (int i = 1; i < numVertices() - 1; i++)
+                sink.triangle(base, base + i, base + i + 1);
+            return numVertices() - 2;
+        }
+        int[] indices = EarClipper.triangulate(xs, ys);
+        for (int k = 0; k < indices.length; k += 3)
+            sink.triangle(base + indices[k], base + indices[k + 1], base + indices[k + 2]);
+        return indices.length / 3;
     }
 
 
@@ -578,75 +782,22 @@ public class PolyInt {
     /**
      * Subtracts the input polygon from this polygon.
      *
+     * @return Counter-clockwise outlines and clockwise holes (see
+     * PolyClipper).
+     * @throws IllegalStateException if the result can't be assembled
+     * from the split edges (see PolyClipper)... this is the same for
+     * intersection() and union().
      */
     public PolyInt[] subtraction(PolyInt in) {
-
-        // ... split lines at all intersections...
-        List<PointInt> split1 = splitAtAllIntersections(this, in);
-        List<PointInt> split2 = splitAtAllIntersections(in, this);
-
-        // ... make new polygons for next step - integer conversion of
-        // split-points may mean that they don't lie quite on the
-        // original lines...
-        PolyInt splitPoly1 = new PolyInt(split1.toArray(new PointInt[split1.size()]));
-        PolyInt splitPoly2 = new PolyInt(split2.toArray(new PointInt[split2.size()]));
-
-        // LineInt[] splitLines1 = toLines(split1);
-        // LineInt[] splitLines2 = toLines(split2);
-
-        // ... traverse outline, switching at each intersection...
-        LineInt[][] sort1 = sortLinesOutsideOrIn(splitPoly1.getEdges(), splitPoly2);
-        LineInt[][] sort2 = sortLinesOutsideOrIn(splitPoly2.getEdges(), splitPoly1);
-
-        // ... assemble the results...
-        PolyInt[] out1 = assembleLines(sort1[0], sort2[1]);
-        PolyInt[] out2 = assembleLines(sort2[0], sort1[1]);
-        return out1;
-
-
-
-        // ArrayList<LineInt> subLines = new ArrayList<>();
-        // for (LineInt thisLine : getLines()) {
-        //     boolean ok = true;
-        //     for (LineInt thatLine : in.getLines()) {
-        //         if (thisLine.intersectsLineSegment(thatLine, true))
-        //             ok = false;
-        //     }
-        //     if (ok) subLines.add(thisLine);
-        // }
-
-        // PointInt[] subPoints = new PointInt[subLines.size()];
-        // for (int i = 0; i < subLines.size(); i++)
-        //     subPoints[i] = subLines.get(i).start();
-        // return new PolyInt[] { new PolyInt(subPoints) };
+        return new PolyClipper(this, in).result(PolyClipper.SUBTRACTION1);
     }
 
     public PolyInt[] intersection(PolyInt in) {
-        return new PolyInt[] {};
+        return new PolyClipper(this, in).result(PolyClipper.INTERSECTION);
     }
 
     public PolyInt[] union(PolyInt in) {
-        return new PolyInt[] {};
-    }
-
-
-
-
-    private static LineInt[] toLines(List<PointInt> points) {
-        LineInt[] lines = new LineInt[points.size()];
-        for (int i = 0; i < points.size(); i++) {
-            int next = (i < points.size() - 1 ? i + 1 : 0);
-            lines[i] = new LineInt(points.get(i), points.get(next));
-        }
-        return lines;
-    }
-
-    private static List<PointInt> splitAtAllIntersections(PolyInt poly1, PolyInt poly2) {
-        ArrayList<PointInt> splitPoints = new ArrayList<>();
-        for (LineInt ln : poly1.getEdges())
-            for (PointInt p : splitAtAllIntersections(ln, poly2))
-                splitPoints.add(p);
-        return splitPoints;
+        return new PolyClipper(this, in).result(PolyClipper.UNION);
     }
 
     /**
@@ -718,34 +869,6 @@ public class PolyInt {
         return lines;
     }
 
-    private LineInt[][] sortLinesOutsideOrIn(LineInt[] lines, PolyInt poly) {
-        List<LineInt> outside = new ArrayList<>();
-        List<LineInt> inside = new ArrayList<>();
-        for (LineInt l : lines)
-            if (poly.contains(l))
-                inside.add(l.reverse());
-            else
-                outside.add(l);
-        return new LineInt[][] { outside.toArray(new LineInt[outside.size()]),
-                                 inside.toArray(new LineInt[inside.size()]) };
-    }
-
-    private PolyInt[] assembleLines(LineInt[] primary, LineInt[] reversed) {
-        List<LineInt> lines = new ArrayList<>();
-        for (LineInt l : primary) lines.add(l);
-        for (LineInt l : reversed) lines.add(l);
-        List<LineInt> progress = new ArrayList<>();
-        List<PolyInt> polygons = new ArrayList<>();
-
-        // repeat till all lines are used
-        while (lines.size() > 0) {
-            // remove first line and put in progress
-            progress.add(lines.remove(0));
-
-        }
-        return polygons.toArray(new PolyInt[polygons.size()]);
-    }
-
 
 
     /*----------------- BOOLEAN-TRANSFORMATION OBJECT ------------------*/
@@ -759,7 +882,11 @@ public class PolyInt {
      * - subtraction of B from A
      * - subtraction of A from B
      *
-     * WARNING! inputs must be WELL FORMED polygons...
+     * The polygons are only split and classified once, and the results
+     * are all assembled from the same edges (see PolyClipper).
+     *
+     * WARNING! inputs must be WELL FORMED polygons... the constructor
+     * throws IllegalStateException if the results can't be assembled.
      */
     public static class BooleanTransformation {
 
@@ -769,90 +896,11 @@ public class PolyInt {
         private PolyInt[] union = null;
 
         public BooleanTransformation(PolyInt poly1, PolyInt poly2) {
-            ArrayList<LineInt> sub1Lines = new ArrayList<>();
-            ArrayList<LineInt> sub2Lines = new ArrayList<>();
-            ArrayList<LineInt> interLines = new ArrayList<>();
-            ArrayList<LineInt> unionLines = new ArrayList<>();
-
-            // split lines at intersections
-            List<PointInt> split1 = splitAtAllIntersections(poly1, poly2);
-            List<PointInt> split2 = splitAtAllIntersections(poly2, poly1);
-
-            // ... make new polygons for next step - integer conversion of
-            // split-points may mean that they don't lie quite on the
-            // original lines...
-            PolyInt splitPoly1 = new PolyInt(split1.toArray(new PointInt[split1.size()]));
-            PolyInt splitPoly2 = new PolyInt(split2.toArray(new PointInt[split2.size()]));
-
-
-
-
-            Traverser primary   = new Traverser(splitPoly1);
-            Traverser secondary = new Traverser(splitPoly2);
-
-            // ... find an outside point to start on...
-            // TODO: what if no points are outside of secondary shape!
-            for (int i = 0; i < primary.poly.numVertices(); i++) {
-                if (!splitPoly2.contains(primary.vertex()))
-                    break;
-                else
-                    primary.next();
-            }
-
-            // store start point and add first line
-            PointInt startPoint = primary.vertex();
-            sub1Lines.add(primary.line());
-            // primary.next();
-
-            // traverse combined outlines, always turning left...
-            boolean primaryLoop = true;
-            traverseLoop:
-            while (true) {
-
-                // make match
-
-                // is there any vertex in secondary polygon which matches the end of this line?
-                boolean match = (primaryLoop ? secondary.iterateToMatch(primary.line().end())
-                                             : primary.iterateToMatch(secondary.prevLine().start()));
-                if (match) {
-                    // switch to other traverser
-                    primaryLoop = !primaryLoop;
-                }
-
-
-
-                if (primaryLoop) {
-
-                    // add next line
-                    primary.next();
-                    sub1Lines.add(primary.line());
-                    // have we finished
-                    if (startPoint.equals(primary.line().end()))
-                        break traverseLoop;
-
-                } else {
-
-                    // add previous line
-                    secondary.prev();
-                    sub1Lines.add(secondary.line().reverse());
-                    // have we finished
-                    if (startPoint.equals(secondary.line().start()))
-                        break traverseLoop;
-
-                }
-
-            }
-
-
-            PointInt[] sub1Vertices = new PointInt[sub1Lines.size()];
-            for (int i = 0; i < sub1Vertices.length; i++)
-                sub1Vertices[i] = sub1Lines.get(i).start();
-            subtraction1 = new PolyInt[] { new PolyInt(sub1Vertices) };
-
-            // subtraction1 = new PolyInt[] { splitPoly1 };
-            subtraction2 = new PolyInt[] { splitPoly2 };
-            intersection = new PolyInt[] {};
-            union = new PolyInt[] {};
+            PolyClipper clipper = new PolyClipper(poly1, poly2);
+            subtraction1 = clipper.result(PolyClipper.SUBTRACTION1);
+            subtraction2 = clipper.result(PolyClipper.SUBTRACTION2);
+            intersection = clipper.result(PolyClipper.INTERSECTION);
+            union        = clipper.result(PolyClipper.UNION);
         }
 
         public PolyInt[] subtraction1() { return subtraction1; }
@@ -860,41 +908,6 @@ public class PolyInt {
         public PolyInt[] intersection() { return intersection; }
         public PolyInt[] union()        { return union; }
 
-        private class Traverser {
-            PolyInt poly;
-            int index = 0;
-            public Traverser(PolyInt poly) {
-                this.poly = poly;
-            }
-            public PointInt vertex() { return poly.vertex(index); }
-            public LineInt line() { return poly.edge(index); }
-            public LineInt prevLine() { return poly.edge(poly.wrapIndex(index - 1)); }
-            public LineInt nextLine() { return poly.edge(poly.wrapIndex(index + 1)); }
-            public LineInt prev() { incr(-1); return line(); }
-            public LineInt next() { incr(1); return line(); }
-            protected void incr(int amt) {
-                index += amt;
-                validateIndex();
-            }
-            private void validateIndex() {
-                if (index >= poly.numVertices()) index = 0;
-                if (index < 0) index = poly.numVertices() - 1;
-            }
-
-            /**
-             * Iterates through vertices and stops if a match is found.
-             * @return True, if a match was found. False otherwise.
-             */
-            public boolean iterateToMatch(PointInt p) {
-                for (int i = 0; i < poly.numVertices(); i++) {
-                    next();
-                    if (vertex().equals(p))
-                        return true;
-                }
-                return false;
-            }
-        }
-
     }
 
 }
@@ -0,0 +1,495 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+
+/**
+ * Exact tests for how two regions relate to each other (whether they
+ * meet, overlap, or one contains the other), without building the
+ * result of a boolean operation.
+ *
+ * A region is an outline plus any number of holes, as in ShapeInt, and
+ * is treated as a closed set, so its boundary is part of it. Rings may
+ * wind either way. None of them is ever reversed... instead, the side
+ * of each ring the interior lies on is worked out from its winding
+ * order: on the left of a counter-clockwise outline or a clockwise
+ * hole, and on the right of a clockwise outline or a counter-clockwise
+ * hole.
+ *
+ * The cheap tests come first: bounding boxes, then the separating axis
+ * test when both regions are single convex polygons. Otherwise, the
+ * edges which reach into the overlap of the two bounding boxes are
+ * swept from left to right (see SegmentSweep) to find where the two
+ * boundaries meet. Each boundary is then split at the contact points,
+ * and the pieces are classified as inside, outside, or lying along the
+ * other region's boundary. The classification only changes at contact
+ * points, so only a handful of point-in-region tests are needed.
+ *
+ * All arithmetic is exact... nothing is rounded.
+ */
+final class PolyOverlap {
+
+    private static final int OUTSIDE  = SlabIndex.OUTSIDE;
+    private static final int INSIDE   = SlabIndex.INSIDE;
+    private static final int BOUNDARY = SlabIndex.BOUNDARY;
+
+    /**
+     * Below this many pairs of edges, testing every pair beats setting
+     * up the sweep.
+     */
+    private static final int SWEEP_MIN_EDGE_PAIRS = 256;
+
+    private PolyOverlap() {}
+
+    /**
+     * @return True if the regions share at least one point.
+     */
+    static boolean intersects(PolyInt[] a, PolyInt[] b) {
+        if (!boxesOverlap(a[0].boundingBox(), b[0].boundingBox())) return false;
+        if (bothConvex(a, b)) return convexSeparation(a[0], b[0]) >= 0;
+        if (boundariesMeet(a, b)) return true;
+        // boundaries don't meet, so one must be inside the other, or
+        // they are apart
+        return locate(b, 2L * a[0].x(0), 2L * a[0].y(0)) != OUTSIDE
+            || locate(a, 2L * b[0].x(0), 2L * b[0].y(0)) != OUTSIDE;
+    }
+
+    /**
+     * @return True if the interiors of the regions overlap i.e. they
+     * share some area, rather than only touching.
+     */
+    static boolean interiorsOverlap(PolyInt[] a, PolyInt[] b) {
+        if (!boxesOverlapStrictly(a[0].boundingBox(), b[0].boundingBox())) return false;
+        if (bothConvex(a, b)) return convexSeparation(a[0], b[0]) > 0;
+        Contacts c = new Contacts(a, b, false);
+        if (c.properCrossing) return true;
+        return c.anyPiece(true, INSIDE, true) || c.anyPiece(false, INSIDE, true);
+    }
+
+    /**
+     * @return True if every point of region b is also in region a.
+     */
+    static boolean contains(PolyInt[] a, PolyInt[] b) {
+        BoxInt ba = a[0].boundingBox();
+        BoxInt bb = b[0].boundingBox();
+        if (bb.left() < ba.left() || bb.right() > ba.right() ||
+            bb.bottom() < ba.bottom() || bb.top() > ba.top()) return false;
+        if (a.length == 1 && b.length == 1 && a[0].isConvex())
+            return convexContains(a[0], b[0]);
+        Contacts c = new Contacts(a, b, false);
+        if (c.properCrossing) return false;
+        // b mustn't stick out of a, a's holes mustn't be inside b, and
+        // where the boundaries run together, b's interior must be on
+        // the same side as a's
+        return !c.anyPiece(false, OUTSIDE, false)
+            && !c.anyPiece(true, INSIDE, false);
+    }
+
+
+
+    private static boolean boundariesMeet(PolyInt[] a, PolyInt[] b) {
+        if ((long) numVertices(a) * numVertices(b) >= SWEEP_MIN_EDGE_PAIRS)
+            return new Contacts(a, b, true).numContacts > 0;
+        BoxInt ba = a[0].boundingBox();
+        BoxInt bb = b[0].boundingBox();
+        int left   = Math.max(ba.left(), bb.left());
+        int bottom = Math.max(ba.bottom(), bb.bottom());
+        int right  = Math.min(ba.right(), bb.right());
+        int top    = Math.min(ba.top(), bb.top());
+        for (PolyInt p : a) {
+            int n = p.numVertices();
+            for (int i = 0; i < n; i++) {
+                int i2 = (i + 1 == n ? 0 : i + 1);
+                int px1 = p.x(i);
+                int py1 = p.y(i);
+                int px2 = p.x(i2);
+                int py2 = p.y(i2);
+                // OPTIMIZATION: edge doesn't reach where the boxes overlap
+                if (Math.max(px1, px2) < left || Math.min(px1, px2) > right ||
+                    Math.max(py1, py2) < bottom || Math.min(py1, py2) > top) continue;
+                for (PolyInt q : b) {
+                    int m = q.numVertices();
+                    for (int j = 0; j < m; j++) {
+                        int j2 = (j + 1 == m ? 0 : j + 1);
+                        if (Geom2DInt.segmentsIntersect(px1, py1, px2, py2,
+                                                        q.x(j), q.y(j), q.x(j2), q.y(j2),
+                                                        true))
+                            return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int numVertices(PolyInt[] region) {
+        int n = 0;
+        for (PolyInt p : region)
+            n += p.numVertices();
+        return n;
+    }
+
+
+
+    /*--------------------------- CONVEX CASE --------------------------*/
+
+    private static boolean bothConvex(PolyInt[] a, PolyInt[] b) {
+        return a.length == 1 && b.length == 1 && a[0].isConvex() && b[0].isConvex();
+    }
+
+    /**
+     * Separating axis test, for convex polygons (which are always
+     * counter-clockwise, see PolyInt.isConvex())... if two convex
+     * polygons are apart, one of their edges is parallel to a line
+     * which separates them.
+     *
+     * @return Negative if some edge separates the polygons with a gap
+     * in between, zero if the best that any edge can do is to separate
+     * them with them touching, and positive if no edge separates them
+     * i.e. the interiors overlap.
+     */
+    private static int convexSeparation(PolyInt p, PolyInt q) {
+        int sep = edgeSeparation(p, q);
+        if (sep < 0) return sep;
+        return Math.min(sep, edgeSeparation(q, p));
+    }
+
+    /**
+     * @return For the edge of p which does best at separating q from
+     * p: -1 if q is all strictly outside it, 0 if q is outside apart
+     * from touching the line, and 1 if no edge of p has q outside it.
+     */
+    private static int edgeSeparation(PolyInt p, PolyInt q) {
+        int result = 1;
+        int n = p.numVertices();
+        for (int i = 0; i < n; i++) {
+            int i2 = (i + 1 == n ? 0 : i + 1);
+            int side = -1;
+            for (int j = 0; j < q.numVertices() && side < 1; j++)
+                side = Math.max(side, Geom2DInt.ccw(p.x(i), p.y(i), p.x(i2), p.y(i2),
+                                                    q.x(j), q.y(j)));
+            if (side < result) {
+                result = side;
+                // OPTIMIZATION: can't do better than a gap
+                if (result < 0) return result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A convex polygon contains anything whose vertices it contains.
+     */
+    private static boolean convexContains(PolyInt p, PolyInt q) {
+        int n = p.numVertices();
+        for (int i = 0; i < n; i++) {
+            int i2 = (i + 1 == n ? 0 : i + 1);
+            for (int j = 0; j < q.numVertices(); j++)
+                if (Geom2DInt.ccw(p.x(i), p.y(i), p.x(i2), p.y(i2), q.x(j), q.y(j)) < 0)
+                    return false;
+        }
+        return true;
+    }
+
+
+
+    /*---------------------------- CONTACTS ----------------------------*/
+
+    /**
+     * Finds all the places where the boundaries of regions a and b
+     * meet.
+     */
+    private static final class Contacts {
+
+        private final PolyInt[][] regions;
+
+        // edges of both regions, numbered together... a's first, then
+        // b's. Ring r owns edges ringStart[r] to ringStart[r + 1] - 1,
+        // and rings of a come before rings of b
+        private final int numRingsA;
+        private final int[] ringStart;
+        private final int numEdgesA;
+        private final int[] sx;
+        private final int[] sy;
+        private final int[] ex;
+        private final int[] ey;
+
+        // 1 if the region's interior is on the left of the edge, else -1
+        private final int[] ringSide;
+
+        // points where the other region's boundary touches each edge,
+        // as a linked list per edge
+        private int[] contactHead;
+        private int[] contactNext = new int[16];
+        private int[] contactX = new int[16];
+        private int[] contactY = new int[16];
+        private int numContacts = 0;
+
+        private boolean properCrossing = false;
+
+        /**
+         * @param stopAtFirst If true, stop as soon as the boundaries are
+         * found to meet anywhere.
+         */
+        Contacts(PolyInt[] a, PolyInt[] b, boolean stopAtFirst) {
+            regions = new PolyInt[][] { a, b };
+            numRingsA = a.length;
+            int numRings = a.length + b.length;
+            ringStart = new int[numRings + 1];
+            ringSide = new int[numRings];
+            for (int r = 0; r < numRings; r++) {
+                PolyInt ring = ring(r);
+                ringStart[r + 1] = ringStart[r] + ring.numVertices();
+                boolean ccw = ring.windingOrder() != PolyInt.WindingOrder.CLOCKWISE;
+                boolean hole = (r != 0 && r != numRingsA);
+                ringSide[r] = (ccw != hole ? 1 : -1);
+            }
+            numEdgesA = ringStart[numRingsA];
+            int n = ringStart[numRings];
+            sx = new int[n];
+            sy = new int[n];
+            ex = new int[n];
+            ey = new int[n];
+            for (int r = 0; r < numRings; r++) {
+                PolyInt ring = ring(r);
+                int numV = ring.numVertices();
+                for (int i = 0; i < numV; i++) {
+                    int e = ringStart[r] + i;
+                    int next = (i + 1 < numV ? i + 1 : 0);
+                    sx[e] = ring.x(i);
+                    sy[e] = ring.y(i);
+                    ex[e] = ring.x(next);
+                    ey[e] = ring.y(next);
+                }
+            }
+            contactHead = new int[n];
+            Arrays.fill(contactHead, -1);
+            sweep(stopAtFirst);
+        }
+
+        private PolyInt ring(int r) {
+            return (r < numRingsA ? regions[0][r] : regions[1][r - numRingsA]);
+        }
+
+        /**
+         * Only edges reaching into the overlap of the two outlines'
+         * bounding boxes can meet, so the rest aren't swept at all.
+         */
+        private void sweep(boolean stopAtFirst) {
+            BoxInt ba = regions[0][0].boundingBox();
+            BoxInt bb = regions[1][0].boundingBox();
+            int left   = Math.max(ba.left(), bb.left());
+            int bottom = Math.max(ba.bottom(), bb.bottom());
+            int right  = Math.min(ba.right(), bb.right());
+            int top    = Math.min(ba.top(), bb.top());
+
+            int[] edges = new int[sx.length];
+            int numEdges = 0;
+            for (int e = 0; e < sx.length; e++) {
+                if (Math.min(sx[e], ex[e]) > right || Math.max(sx[e], ex[e]) < left ||
+                    Math.min(sy[e], ey[e]) > top || Math.max(sy[e], ey[e]) < bottom) continue;
+                edges[numEdges++] = e;
+            }
+            int[] owner = new int[sx.length];
+            Arrays.fill(owner, numEdgesA, sx.length, 1);
+            SegmentSweep.sweep(sx, sy, ex, ey, owner, edges, numEdges, (f, e) -> {
+                    addContact(e, f);
+                    return stopAtFirst || properCrossing;
+                });
+        }
+
+        /**
+         * Records where edges e and f (which are known to meet) touch...
+         * unless they cross properly, in which case nothing else matters.
+         */
+        private void addContact(int e, int f) {
+            int d1 = Geom2DInt.ccw(sx[f], sy[f], ex[f], ey[f], sx[e], sy[e]);
+            int d2 = Geom2DInt.ccw(sx[f], sy[f], ex[f], ey[f], ex[e], ey[e]);
+            int d3 = Geom2DInt.ccw(sx[e], sy[e], ex[e], ey[e], sx[f], sy[f]);
+            int d4 = Geom2DInt.ccw(sx[e], sy[e], ex[e], ey[e], ex[f], ey[f]);
+            if (d1 * d2 < 0 && d3 * d4 < 0) {
+                properCrossing = true;
+                numContacts++;
+                return;
+            }
+            // any other contact is at an end point of one of the edges...
+            // record it against both, so that both get split there
+            addContactIfOn(e, f, sx[f], sy[f]);
+            addContactIfOn(e, f, ex[f], ey[f]);
+            addContactIfOn(f, e, sx[e], sy[e]);
+            addContactIfOn(f, e, ex[e], ey[e]);
+        }
+
+        /**
+         * If (x, y), which is an end point of edge g, is on edge e.
+         */
+        private void addContactIfOn(int e, int g, int x, int y) {
+            if (!Geom2DInt.onSegment(sx[e], sy[e], ex[e], ey[e], x, y)) return;
+            addContact(e, x, y);
+            addContact(g, x, y);
+        }
+
+        private void addContact(int e, int x, int y) {
+            if (numContacts == contactNext.length) {
+                contactNext = Arrays.copyOf(contactNext, numContacts * 2);
+                contactX = Arrays.copyOf(contactX, numContacts * 2);
+                contactY = Arrays.copyOf(contactY, numContacts * 2);
+            }
+            contactX[numContacts] = x;
+            contactY[numContacts] = y;
+            contactNext[numContacts] = contactHead[e];
+            contactHead[e] = numContacts++;
+        }
+
+        /**
+         * Looks at the pieces of one region's boundary, split wherever
+         * it meets the other region's boundary.
+         *
+         * @param ofA Whether to look at region a's boundary (or b's).
+         * @param location The kind of piece to look for... OUTSIDE or
+         * INSIDE the other region.
+         * @param sameSide What counts for pieces running along the
+         * other region's boundary... if true, those with interior on
+         * the same side count; if false, those with interior on
+         * opposite sides count.
+         * @return True if any piece matches.
+         */
+        boolean anyPiece(boolean ofA, int location, boolean sameSide) {
+            int firstRing = (ofA ? 0 : numRingsA);
+            int lastRing = (ofA ? numRingsA : ringStart.length - 1);
+            PolyInt[] other = regions[ofA ? 1 : 0];
+            BoxInt box = other[0].boundingBox();
+            long[] along = new long[8];
+            for (int r = firstRing; r < lastRing; r++) {
+                // location of the previous piece... still valid while
+                // no contacts are passed
+                int current = -1;
+                for (int e = ringStart[r]; e < ringStart[r + 1]; e++) {
+                    if (sx[e] == ex[e] && sy[e] == ey[e]) continue;
+                    if (contactHead[e] < 0 && current >= 0 && current != BOUNDARY) {
+                        if (current == location) return true;
+                        continue;
+                    }
+                    // split the edge at its contact points, ordered
+                    // along the edge... distance goes above the contact
+                    // index
+                    int numAlong = 0;
+                    for (int c = contactHead[e]; c >= 0; c = contactNext[c]) {
+                        if (numAlong == along.length)
+                            along = Arrays.copyOf(along, numAlong * 2);
+                        along[numAlong++] = (distanceAlong(e, contactX[c], contactY[c]) << 31) | c;
+                    }
+                    Arrays.sort(along, 0, numAlong);
+                    int fromX = sx[e];
+                    int fromY = sy[e];
+                    for (int k = 0; k <= numAlong; k++) {
+                        int c = (k < numAlong ? (int) (along[k] & Integer.MAX_VALUE) : -1);
+                        int toX = (c < 0 ? ex[e] : contactX[c]);
+                        int toY = (c < 0 ? ey[e] : contactY[c]);
+                        if (toX == fromX && toY == fromY) continue;
+                        // test the piece's mid point, in doubled co-ordinates
+                        long mx = (long) fromX + toX;
+                        long my = (long) fromY + toY;
+                        current = (outsideBox(box, mx, my) ? OUTSIDE : locate(other, mx, my));
+                        if (current == BOUNDARY) {
+                            if (alongBoundary(e, r, other, mx, my) == sameSide) return true;
+                        } else if (current == location) {
+                            return true;
+                        }
+                        fromX = toX;
+                        fromY = toY;
+                    }
+                    // the end vertex is a contact if the next edge
+                    // starts with one... be safe, and look again
+                    if (contactHead[e] >= 0) current = -1;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return Distance of point (x, y) along edge e, measured along
+         * whichever axis the edge is longest in.
+         */
+        private long distanceAlong(int e, int x, int y) {
+            long dx = (long) ex[e] - sx[e];
+            long dy = (long) ey[e] - sy[e];
+            if (Math.abs(dx) >= Math.abs(dy))
+                return (dx > 0 ? (long) x - sx[e] : (long) sx[e] - x);
+            return (dy > 0 ? (long) y - sy[e] : (long) sy[e] - y);
+        }
+
+        /**
+         * For a piece of edge e (in ring r) whose mid point lies on the
+         * other region's boundary.
+         *
+         * @return True if the two regions have interior on the same
+         * side of the piece.
+         */
+        private boolean alongBoundary(int e, int r, PolyInt[] other, long mx, long my) {
+            int firstRing = (r < numRingsA ? numRingsA : 0);
+            for (int i = 0; i < other.length; i++) {
+                int r2 = firstRing + i;
+                for (int f = ringStart[r2]; f < ringStart[r2 + 1]; f++) {
+                    if (!Geom2DInt.onSegment(sx[f] * 2L, sy[f] * 2L, ex[f] * 2L, ey[f] * 2L, mx, my))
+                        continue;
+                    // the piece must run along f, as the boundaries don't cross
+                    long dot = ((long) ex[e] - sx[e]) * ((long) ex[f] - sx[f])
+                        + ((long) ey[e] - sy[e]) * ((long) ey[f] - sy[f]);
+                    return (dot > 0) == (ringSide[r] == ringSide[r2]);
+                }
+            }
+            return false;
+        }
+    }
+
+
+
+    /*---------------------------- HELPERS -----------------------------*/
+
+    private static boolean boxesOverlap(BoxInt a, BoxInt b) {
+        return a.left() <= b.right() && b.left() <= a.right()
+            && a.bottom() <= b.top() && b.bottom() <= a.top();
+    }
+
+    private static boolean boxesOverlapStrictly(BoxInt a, BoxInt b) {
+        return a.left() < b.right() && b.left() < a.right()
+            && a.bottom() < b.top() && b.bottom() < a.top();
+    }
+
+    /**
+     * @param x In doubled co-ordinates, as is y.
+     */
+    private static boolean outsideBox(BoxInt box, long x, long y) {
+        return x < box.left() * 2L || x > box.right() * 2L
+            || y < box.bottom() * 2L || y > box.top() * 2L;
+    }
+
+    /**
+     * Crossing-number test against all the rings of a region, as in
+     * SlabIndex.scan(), but for a point given in doubled co-ordinates,
+     * so that mid points of edges can be tested exactly.
+     *
+     * @return OUTSIDE, INSIDE or BOUNDARY.
+     */
+    private static int locate(PolyInt[] region, long px, long py) {
+        boolean inside = false;
+        for (PolyInt ring : region) {
+            int n = ring.numVertices();
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                long xi = ring.x(i) * 2L;
+                long yi = ring.y(i) * 2L;
+                long xj = ring.x(j) * 2L;
+                long yj = ring.y(j) * 2L;
+                if (Geom2DInt.onSegment(xj, yj, xi, yi, px, py))
+                    return BOUNDARY;
+                // half-open rule, so that vertices are only counted once
+                if ((yi > py) != (yj > py)) {
+                    int side = Geom2DInt.ccw(xj, yj, xi, yi, px, py);
+                    if ((side > 0) == (yi > yj)) inside = !inside;
+                }
+            }
+        }
+        return (inside ? INSIDE : OUTSIDE);
+    }
+
+}
@@ -0,0 +1,398 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+
+/**
+ * Finds the pairs of edges which meet (cross or touch), for EdgeSweep
+ * and PolyOverlap. Only edges with different owners are tested against
+ * each other.
+ *
+ * Edges are swept from left to right in order of their left-most x
+ * co-ordinate, and each new edge is tested, exactly (see
+ * Geom2DInt.segmentsIntersect()), against the edges which are still
+ * active (i.e. overlap it in x) and overlap it in y... that is, against
+ * the edges whose bounding boxes overlap its bounding box.
+ *
+ * The active edges are first just scanned one by one, which is fastest
+ * while most of them do overlap the new edge in y. Once the scan is
+ * mostly stepping past edges which are nowhere near (e.g. the long,
+ * side by side teeth of two interleaved combs), the active edges are
+ * moved into a segment tree over their y ranges, and from then on only
+ * the edges whose y range overlaps the new edge's are looked at. If
+ * there are only a few owners, each one gets a tree of its own, so
+ * that edges of the same owner are never looked at either. Edges which
+ * have fallen behind the sweep line are taken out as they are found.
+ *
+ * Each edge is stored in at most 2 log n nodes of a tree, so the cost
+ * is O(n log n) to sort and insert the edges, plus O(log^2 n) at most
+ * for each pair of edges whose bounding boxes overlap... O((n + b)
+ * log^2 n), where b is the number of those pairs. The scan only keeps
+ * going past SCAN_STEPS steps per edge while at least half of its steps
+ * find such a pair, so it never costs more than that. That's NOT an ordered sweep (Bentley-Ottmann),
+ * which costs O((n + k) log n) for k meetings: long sloping edges can
+ * have overlapping boxes without meeting. But b is close to k for the
+ * outlines that matter... short edges (e.g. traced tile maps), or long
+ * edges which mostly lie side by side (e.g. combs). And where edges are
+ * long and cross at all angles (e.g. random stars), k grows as n
+ * squared anyway.
+ */
+final class SegmentSweep {
+
+    /**
+     * Told about each pair of edges which meet... f was swept before e.
+     */
+    interface Meeting {
+
+        /**
+         * @return True to stop the sweep here.
+         */
+        boolean meet(int f, int e);
+    }
+
+    // the active edges are scanned one by one until the scan has taken
+    // more than this many steps per edge, more than half of which found
+    // nothing worth testing
+    private static final int SCAN_STEPS = 64;
+
+    // up to this many owners get a tree each... any more all share one
+    private static final int MAX_TREES = 8;
+
+    private final int[] sx;
+    private final int[] sy;
+    private final int[] ex;
+    private final int[] ey;
+    private final int[] owner;
+    private final Meeting meeting;
+
+    // edges in sweep order... position i is edge order[i], with
+    // right-most x maxX[i]
+    private final int[] order;
+    private final int[] maxX;
+
+    // the rest is only built if the trees are needed...
+
+    // position i has y range yVals[lo[i]] to yVals[hi[i]], and is
+    // listed in tree number tree[i]
+    private int[] lo;
+    private int[] hi;
+    private int[] tree;
+    private int numTrees;
+
+    // tested[j] is the position of the last edge which was tested
+    // against the edge at position j... an edge can be found in more
+    // than one node of a tree, but is only tested once
+    private int[] tested;
+
+    // segment trees over the y indices 0 to numYs - 1, in heap order
+    // (children of node k are 2k and 2k + 1), with the nodes of tree t
+    // at t * numNodes onwards. Each active edge is listed in the nodes
+    // which make up its y range, and count[k] is the number of entries
+    // in the subtree under node k
+    private int numYs;
+    private int numNodes;
+    private int[][] lists;
+    private int[] listSize;
+    private int[] count;
+
+    // edge being swept, and the start of the tree being visited
+    private int current;
+    private int currentEdge;
+    private int currentMinX;
+    private int base;
+
+    private SegmentSweep(int[] sx, int[] sy, int[] ex, int[] ey, int[] owner,
+                         int[] edges, int numEdges, Meeting meeting) {
+        this.sx = sx;
+        this.sy = sy;
+        this.ex = ex;
+        this.ey = ey;
+        this.owner = owner;
+        this.meeting = meeting;
+
+        // sort edges by left-most x... pack x above the edge index, which
+        // is never negative, so the longs sort in order of x
+        long[] keys = new long[numEdges];
+        for (int i = 0; i < numEdges; i++) {
+            int e = edges[i];
+            keys[i] = ((long) Math.min(sx[e], ex[e]) << 32) | e;
+        }
+        Arrays.sort(keys);
+
+        order = new int[numEdges];
+        maxX = new int[numEdges];
+        for (int i = 0; i < numEdges; i++) {
+            int e = (int) keys[i];
+            order[i] = e;
+            maxX[i] = Math.max(sx[e], ex[e]);
+        }
+    }
+
+    /**
+     * Sweeps edges[0] to edges[numEdges - 1], where edge e runs from
+     * (sx[e], sy[e]) to (ex[e], ey[e]) and belongs to owner[e].
+     */
+    static void sweep(int[] sx, int[] sy, int[] ex, int[] ey, int[] owner,
+                      int[] edges, int numEdges, Meeting meeting) {
+        if (numEdges < 2) return;
+        new SegmentSweep(sx, sy, ex, ey, owner, edges, numEdges, meeting).run();
+    }
+
+    private void run() {
+        // positions of the edges whose x range still overlaps the sweep
+        // line... expired edges are removed lazily, while scanning
+        int[] active = new int[16];
+        int numActive = 0;
+
+        // steps which found nothing to test... edges of the same owner
+        // only count if the trees would skip them
+        boolean ownTrees = (countOwners() <= MAX_TREES);
+        long steps = 0;
+        long wasted = 0;
+
+        for (int i = 0; i < order.length; i++) {
+            if (steps > (long) SCAN_STEPS * order.length && wasted * 2 > steps) {
+                // move the active edges into the trees, and carry on
+                // with those
+                buildTrees(ownTrees);
+                for (int k = 0; k < numActive; k++) {
+                    current = active[k];
+                    base = tree[current] * numNodes;
+                    insert(1, 0, numYs - 1, lo[current], hi[current]);
+                }
+                runTrees(i);
+                return;
+            }
+            int e = order[i];
+            int minX = Math.min(sx[e], ex[e]);
+            int minY = Math.min(sy[e], ey[e]);
+            int maxY = Math.max(sy[e], ey[e]);
+            int k = 0;
+            while (k < numActive) {
+                int j = active[k];
+                if (maxX[j] < minX) {
+                    // behind the sweep line - swap-remove it
+                    active[k] = active[--numActive];
+                    continue;
+                }
+                k++;
+                steps++;
+                int f = order[j];
+                if (Math.max(sy[f], ey[f]) < minY || Math.min(sy[f], ey[f]) > maxY) {
+                    wasted++;
+                } else if (owner[f] == owner[e]) {
+                    if (ownTrees) wasted++;
+                } else if (Geom2DInt.segmentsIntersect(sx[e], sy[e], ex[e], ey[e],
+                                                       sx[f], sy[f], ex[f], ey[f], true) &&
+                           meeting.meet(f, e)) {
+                    return;
+                }
+            }
+            if (numActive == active.length)
+                active = Arrays.copyOf(active, numActive * 2);
+            active[numActive++] = i;
+        }
+    }
+
+    /**
+     * @return The number of distinct owners, counting no further than
+     * MAX_TREES + 1.
+     */
+    private int countOwners() {
+        int[] seen = new int[MAX_TREES + 1];
+        int numSeen = 0;
+        for (int e : order) {
+            int i = 0;
+            while (i < numSeen && seen[i] != owner[e]) i++;
+            if (i == numSeen) {
+                if (numSeen == seen.length) break;
+                seen[numSeen++] = owner[e];
+            }
+        }
+        return numSeen;
+    }
+
+    /**
+     * @param ownTrees True for one tree per owner.
+     */
+    private void buildTrees(boolean ownTrees) {
+        int numEdges = order.length;
+
+        // distinct y co-ordinates of the edge end points
+        int[] yVals = new int[2 * numEdges];
+        for (int i = 0; i < numEdges; i++) {
+            yVals[2 * i] = sy[order[i]];
+            yVals[2 * i + 1] = ey[order[i]];
+        }
+        Arrays.sort(yVals);
+        int m = 0;
+        for (int i = 0; i < yVals.length; i++)
+            if (i == 0 || yVals[i] != yVals[i - 1])
+                yVals[m++] = yVals[i];
+        numYs = m;
+
+        lo = new int[numEdges];
+        hi = new int[numEdges];
+        for (int i = 0; i < numEdges; i++) {
+            int e = order[i];
+            lo[i] = Arrays.binarySearch(yVals, 0, m, Math.min(sy[e], ey[e]));
+            hi[i] = Arrays.binarySearch(yVals, 0, m, Math.max(sy[e], ey[e]));
+        }
+
+        tree = new int[numEdges];
+        numTrees = 1;
+        if (ownTrees) {
+            int[] treeOwner = new int[MAX_TREES];
+            numTrees = 0;
+            for (int i = 0; i < numEdges; i++) {
+                int t = 0;
+                while (t < numTrees && treeOwner[t] != owner[order[i]]) t++;
+                if (t == numTrees) treeOwner[numTrees++] = owner[order[i]];
+                tree[i] = t;
+            }
+        }
+
+        tested = new int[numEdges];
+        Arrays.fill(tested, -1);
+
+        numNodes = 4 * m;
+        lists = new int[numTrees * numNodes][];
+        listSize = new int[numTrees * numNodes];
+        count = new int[numTrees * numNodes];
+    }
+
+    /**
+     * Sweeps from position first on, using the trees.
+     */
+    private void runTrees(int first) {
+        for (int i = first; i < order.length; i++) {
+            current = i;
+            currentEdge = order[i];
+            currentMinX = Math.min(sx[currentEdge], ex[currentEdge]);
+            for (int t = 0; t < numTrees; t++) {
+                // a tree of its own only holds edges it needn't meet
+                if (t == tree[i] && numTrees > 1) continue;
+                base = t * numNodes;
+                if (query(1, 0, numYs - 1, lo[i], hi[i])) return;
+            }
+            base = tree[i] * numNodes;
+            insert(1, 0, numYs - 1, lo[i], hi[i]);
+        }
+    }
+
+    /**
+     * Tests the current edge against every active edge listed in the
+     * subtree under node k (covering y indices from to to) whose y range
+     * overlaps qlo to qhi.
+     *
+     * @return True to stop the sweep.
+     */
+    private boolean query(int k, int from, int to, int qlo, int qhi) {
+        if (count[base + k] == 0 || to < qlo || from > qhi) return false;
+        // every edge listed here covers from to to, so it overlaps the
+        // query range
+        if (scan(k)) return true;
+        if (from < to) {
+            int mid = (from + to) >>> 1;
+            if (qlo <= from && to <= qhi) {
+                // ...and so does every edge below here
+                if (queryAll(2 * k, from, mid)) return true;
+                if (queryAll(2 * k + 1, mid + 1, to)) return true;
+            } else {
+                if (query(2 * k, from, mid, qlo, qhi)) return true;
+                if (query(2 * k + 1, mid + 1, to, qlo, qhi)) return true;
+            }
+        }
+        recount(k, from, to);
+        return false;
+    }
+
+    /**
+     * Tests the current edge against every active edge listed in the
+     * subtree under node k (covering y indices from to to).
+     *
+     * @return True to stop the sweep.
+     */
+    private boolean queryAll(int k, int from, int to) {
+        if (count[base + k] == 0) return false;
+        if (scan(k)) return true;
+        if (from < to) {
+            int mid = (from + to) >>> 1;
+            if (queryAll(2 * k, from, mid)) return true;
+            if (queryAll(2 * k + 1, mid + 1, to)) return true;
+        }
+        recount(k, from, to);
+        return false;
+    }
+
+    /**
+     * Tests the current edge against the active edges listed in node k,
+     * and drops any which have fallen behind the sweep line.
+     *
+     * @return True to stop the sweep.
+     */
+    private boolean scan(int k) {
+        int[] list = lists[base + k];
+        int n = listSize[base + k];
+        int e = currentEdge;
+        int i = 0;
+        while (i < n) {
+            int j = list[i];
+            if (maxX[j] < currentMinX) {
+                // behind the sweep line - swap-remove it
+                list[i] = list[--n];
+                continue;
+            }
+            i++;
+            if (tested[j] == current) continue;
+            tested[j] = current;
+            int f = order[j];
+            if (owner[f] != owner[e] &&
+                Geom2DInt.segmentsIntersect(sx[e], sy[e], ex[e], ey[e],
+                                            sx[f], sy[f], ex[f], ey[f], true) &&
+                meeting.meet(f, e))
+                return true;
+        }
+        listSize[base + k] = n;
+        return false;
+    }
+
+    private void recount(int k, int from, int to) {
+        count[base + k] = listSize[base + k] +
+            (from < to ? count[base + 2 * k] + count[base + 2 * k + 1] : 0);
+    }
+
+    /**
+     * Lists the current edge in the nodes under node k (covering y
+     * indices from to to) which make up its y range, qlo to qhi.
+     */
+    private void insert(int k, int from, int to, int qlo, int qhi) {
+        if (to < qlo || from > qhi) return;
+        if (qlo <= from && to <= qhi) {
+            int n = listSize[base + k];
+            int[] list = lists[base + k];
+            if (list == null)
+                list = lists[base + k] = new int[4];
+            else if (n == list.length)
+                list = lists[base + k] = Arrays.copyOf(list, n * 2);
+            list[n] = current;
+            listSize[base + k] = n + 1;
+            count[base + k]++;
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        insert(2 * k, from, mid, qlo, qhi);
+        insert(2 * k + 1, mid + 1, to, qlo, qhi);
+        recount(k, from, to);
+    }
+
+    /**
+     * @return 0 to n - 1, for sweeping all of the edges.
+     */
+    static int[] allEdges(int n) {
+        int[] edges = new int[n];
+        for (int e = 0; e < n; e++)
+            edges[e] = e;
+        return edges;
+    }
+
+}
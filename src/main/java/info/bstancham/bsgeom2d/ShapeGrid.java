@@ -0,0 +1,105 @@
+package info.bstancham.bsgeom2d;
+
+/**
+ * Uniform grid over the bounding boxes of a set of shapes, for finding
+ * the few shapes which might contain a point without looking at all of
+ * them.
+ *
+ * Each cell lists every shape whose bounding box overlaps it, so a
+ * point only needs to be tested against the shapes in its own
+ * cell. The grid has about one cell per shape, but gets coarser if
+ * large shapes would make the cell lists too long.
+ */
+final class ShapeGrid {
+
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    /**
+     * Make the grid coarser if the cell lists would need more than this
+     * many entries per shape.
+     */
+    private static final int MAX_ENTRIES_PER_SHAPE = 16;
+
+    private final int left;
+    private final int bottom;
+    private final long cellWidth;
+    private final long cellHeight;
+    private final int cols;
+    private final int rows;
+
+    // shapes overlapping cell c are shapeIds[cellStart[c]] to
+    // shapeIds[cellStart[c + 1] - 1], in their original order
+    private final int[] cellStart;
+    private final int[] shapeIds;
+
+    ShapeGrid(BoxInt[] boxes, BoxInt bounds) {
+        left = bounds.left();
+        bottom = bounds.bottom();
+        long width  = (long) bounds.right() - bounds.left() + 1;
+        long height = (long) bounds.top() - bounds.bottom() + 1;
+        int side = (int) Math.min(MAX_CELLS_PER_SIDE, Math.ceil(Math.sqrt(boxes.length)));
+        // halve the resolution until the cell lists are a sensible size
+        while (side > 1 && countEntries(boxes, side, width, height) >
+               (long) MAX_ENTRIES_PER_SHAPE * boxes.length)
+            side /= 2;
+        cols = (int) Math.min(side, width);
+        rows = (int) Math.min(side, height);
+        cellWidth  = (width + cols - 1) / cols;
+        cellHeight = (height + rows - 1) / rows;
+
+        // count, then fill
+        cellStart = new int[cols * rows + 1];
+        for (BoxInt b : boxes)
+            for (int r = row(b.bottom()); r <= row(b.top()); r++)
+                for (int c = col(b.left()); c <= col(b.right()); c++)
+                    cellStart[r * cols + c + 1]++;
+        for (int i = 0; i < cols * rows; i++)
+            cellStart[i + 1] += cellStart[i];
+        shapeIds = new int[cellStart[cols * rows]];
+        int[] fill = new int[cols * rows];
+        for (int id = 0; id < boxes.length; id++) {
+            BoxInt b = boxes[id];
+            for (int r = row(b.bottom()); r <= row(b.top()); r++) {
+                for (int c = col(b.left()); c <= col(b.right()); c++) {
+                    int cell = r * cols + c;
+                    shapeIds[cellStart[cell] + fill[cell]++] = id;
+                }
+            }
+        }
+    }
+
+    private long countEntries(BoxInt[] boxes, int side, long width, long height) {
+        long cw = (width + side - 1) / side;
+        long ch = (height + side - 1) / side;
+        long total = 0;
+        for (BoxInt b : boxes)
+            total += ((b.right() - (long) left) / cw - (b.left() - (long) left) / cw + 1)
+                * ((b.top() - (long) bottom) / ch - (b.bottom() - (long) bottom) / ch + 1);
+        return total;
+    }
+
+    private int col(int x) { return (int) ((x - (long) left) / cellWidth); }
+
+    private int row(int y) { return (int) ((y - (long) bottom) / cellHeight); }
+
+    /**
+     * @return The cell containing point (x, y), or -1 if it is outside
+     * the grid (and so outside all of the shapes).
+     */
+    int cell(int x, int y) {
+        if (x < left || y < bottom) return -1;
+        long c = (x - (long) left) / cellWidth;
+        long r = (y - (long) bottom) / cellHeight;
+        if (c >= cols || r >= rows) return -1;
+        return (int) r * cols + (int) c;
+    }
+
+    int numCells() { return cols * rows; }
+
+    int start(int cell) { return cellStart[cell]; }
+
+    int end(int cell) { return cellStart[cell + 1]; }
+
+    int shapeId(int index) { return shapeIds[index]; }
+
+}
@@ -1,8 +1,11 @@
 package info.bstancham.bsgeom2d;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * Immutable data type representing a group of two-dimensional shapes
@@ -32,6 +35,8 @@ public final class ShapeGroupInt implements Iterable<ShapeInt> {
     private BoxInt bounds = null;
     private PointInt[] vertices = null;
     private LineInt[] edges = null;
+    private ShapeGrid grid = null;
+    private EdgeBuffer edgeBuffer = null;
 
     public ShapeGroupInt(PolyInt outline) {
         this(new ShapeInt(outline));
@@ -88,6 +93,17 @@ public final class ShapeGroupInt implements Iterable<ShapeInt> {
         return out;
     }
 
+    /**
+     * @return All of the edges in this shape-group, packed into primitive
+     * arrays, in the same order as edge(). Built on the first call, and
+     * cached.
+     */
+    public EdgeBuffer edgeBuffer() {
+        if (edgeBuffer == null)
+            edgeBuffer = new EdgeBuffer(this);
+        return edgeBuffer;
+    }
+
     /**
      * Must remain private, or immutability of class would be broken!
      */
@@ -171,9 +187,9 @@ public final class ShapeGroupInt implements Iterable<ShapeInt> {
                 if (s.boundingBox().bottom() < bottom)
                     bottom = s.boundingBox().bottom();
                 if (s.boundingBox().right() > right)
-                    right = s.boundingBox().left();
+                    right = s.boundingBox().right();
                 if (s.boundingBox().top() > top)
-                    top = s.boundingBox().left();
+                    top = s.boundingBox().top();
             }
             bounds = new BoxInt(left, bottom, right, top);
         }
@@ -183,14 +199,170 @@ public final class ShapeGroupInt implements Iterable<ShapeInt> {
     public boolean contains(PointInt p) { return contains(p, true); }
 
     public boolean contains(PointInt p, boolean includeEdges) {
+        return contains(p.x(), p.y(), includeEdges);
+    }
+
+    public boolean contains(int x, int y) { return contains(x, y, true); }
+
+    public boolean contains(int x, int y, boolean includeEdges) {
         for (ShapeInt s : shapes)
-            if (s.contains(p, includeEdges))
+            if (s.contains(x, y, includeEdges))
                 return true;
         return false;
     }
 
 
 
+    /*------------------------- BULK CONTAINS --------------------------*/
+
+    /**
+     * Points are classified in blocks of this size... this is also the
+     * unit of work which containsParallel() shares out.
+     */
+    private static final int CONTAINS_BLOCK_SIZE = 1024;
+
+    /**
+     * Below this many points, containsParallel() doesn't bother
+     * splitting the work up.
+     */
+    private static final int PARALLEL_MIN_POINTS = 16 * CONTAINS_BLOCK_SIZE;
+
+    /**
+     * With fewer shapes than this, checking all of their bounding boxes
+     * is quicker than using the grid.
+     */
+    private static final int GRID_MIN_SHAPES = 8;
+
+    /**
+     * @return An array where element i is true if the point (xs[i],
+     * ys[i]) is in the shape-group, including edges.
+     */
+    public boolean[] contains(int[] xs, int[] ys) {
+        boolean[] result = new boolean[xs.length];
+        contains(xs, ys, true, result);
+        return result;
+    }
+
+    /**
+     * Bulk version of contains(int, int, boolean), for classifying lots
+     * of points at once... creates no objects per point.
+     *
+     * Shares work across the whole batch: the first bulk query builds a
+     * grid of the shapes' bounding boxes (kept for later queries), so
+     * each point is only tested against the few shapes near it, and
+     * each polygon's own point-location index is built once and then
+     * reused.
+     *
+     * @param result Element i is set to true if the point (xs[i],
+     * ys[i]) is in the shape-group, and false if not. Must be at least
+     * as long as xs.
+     * @throws IllegalArgumentException if the co-ordinate arrays are not
+     * the same length, or if result is too short.
+     */
+    public void contains(int[] xs, int[] ys, boolean includeEdges, boolean[] result) {
+        checkBulkArgs(xs, ys, result.length);
+        ShapeGrid g = fetchGrid();
+        for (int from = 0; from < xs.length; from += CONTAINS_BLOCK_SIZE)
+            containsBlock(g, xs, ys, includeEdges, result, 0, from,
+                          Math.min(from + CONTAINS_BLOCK_SIZE, xs.length));
+    }
+
+    /**
+     * Same as contains(int[], int[], boolean, boolean[]), but for large
+     * batches the blocks are shared out between cores (using the common
+     * fork-join pool).
+     */
+    public void containsParallel(int[] xs, int[] ys, boolean includeEdges, boolean[] result) {
+        checkBulkArgs(xs, ys, result.length);
+        if (xs.length < PARALLEL_MIN_POINTS) {
+            contains(xs, ys, includeEdges, result);
+            return;
+        }
+        // indexes are built on the first query, so make sure they all
+        // exist before the threads start, rather than each thread
+        // building its own
+        ShapeGrid g = fetchGrid();
+        for (ShapeInt s : shapes)
+            s.buildIndex();
+        int numBlocks = (xs.length + CONTAINS_BLOCK_SIZE - 1) / CONTAINS_BLOCK_SIZE;
+        IntStream.range(0, numBlocks).parallel().forEach(b -> {
+                int from = b * CONTAINS_BLOCK_SIZE;
+                containsBlock(g, xs, ys, includeEdges, result, 0, from,
+                              Math.min(from + CONTAINS_BLOCK_SIZE, xs.length));
+            });
+    }
+
+    /**
+     * Same as contains(int[], int[], boolean, boolean[]), but gives the
+     * result as a BitSet, with bit i set if point i is in the
+     * shape-group.
+     */
+    public BitSet containsBitSet(int[] xs, int[] ys, boolean includeEdges) {
+        checkBulkArgs(xs, ys, xs.length);
+        ShapeGrid g = fetchGrid();
+        BitSet bits = new BitSet(xs.length);
+        boolean[] block = new boolean[CONTAINS_BLOCK_SIZE];
+        for (int from = 0; from < xs.length; from += CONTAINS_BLOCK_SIZE) {
+            int to = Math.min(from + CONTAINS_BLOCK_SIZE, xs.length);
+            containsBlock(g, xs, ys, includeEdges, block, from, from, to);
+            for (int i = from; i < to; i++)
+                if (block[i - from]) bits.set(i);
+        }
+        return bits;
+    }
+
+    static void checkBulkArgs(int[] xs, int[] ys, int resultLength) {
+        if (xs.length != ys.length)
+            throw new IllegalArgumentException("x and y co-ordinate arrays must be the same length " +
+                                               "---> xs.length=" + xs.length + " ys.length=" + ys.length);
+        if (resultLength < xs.length)
+            throw new IllegalArgumentException("result array too short ---> result.length=" +
+                                               resultLength + " num points=" + xs.length);
+    }
+
+    /**
+     * @return The grid of shape bounding boxes, or null if there are
+     * too few shapes for it to be worth having.
+     */
+    private ShapeGrid fetchGrid() {
+        if (grid == null && shapes.length >= GRID_MIN_SHAPES) {
+            BoxInt[] boxes = new BoxInt[shapes.length];
+            for (int i = 0; i < shapes.length; i++)
+                boxes[i] = shapes[i].boundingBox();
+            grid = new ShapeGrid(boxes, boundingBox());
+        }
+        return grid;
+    }
+
+    /**
+     * Classifies points from (inclusive) to (exclusive), putting the
+     * result for point i in out[i - offset].
+     */
+    private void containsBlock(ShapeGrid g, int[] xs, int[] ys, boolean includeEdges,
+                               boolean[] out, int offset, int from, int to) {
+        if (g == null) {
+            // few shapes, so test each one against the whole block at
+            // once (see PolyInt.locate())
+            Arrays.fill(out, from - offset, to - offset, false);
+            byte[] block = new byte[to - from];
+            for (ShapeInt s : shapes)
+                s.markContained(xs, ys, includeEdges, out, offset, from, to, block);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            int x = xs[i];
+            int y = ys[i];
+            boolean found = false;
+            int cell = g.cell(x, y);
+            if (cell >= 0)
+                for (int k = g.start(cell); k < g.end(cell) && !found; k++)
+                    found = shapes[g.shapeId(k)].contains(x, y, includeEdges);
+            out[i - offset] = found;
+        }
+    }
+
+
+
     /*------------------------ TRANSFORMATIONS -------------------------*/
 
     public ShapeGroupInt translate(int x, int y) {
@@ -265,40 +437,107 @@ public final class ShapeGroupInt implements Iterable<ShapeInt> {
     /*------------------------- TRIANGULATION --------------------------*/
 
     public TriInt[] triangulate() {
-        List<TriInt> triangles = new ArrayList<>();
+        TriInt[][] parts = new TriInt[shapes.length][];
+        int total = 0;
+        for (int i = 0; i < shapes.length; i++) {
+            parts[i] = shapes[i].triangulate();
+            total += parts[i].length;
+        }
+        TriInt[] out = new TriInt[total];
+        int offset = 0;
+        for (TriInt[] part : parts) {
+            System.arraycopy(part, 0, out, offset, part.length);
+            offset += part.length;
+        }
+        return out;
+    }
+
+    /**
+     * Same triangles as triangulate(), but written into sink as an
+     * indexed mesh, one sub-shape after another (see
+     * ShapeInt.triangulate(TriangleSink)).
+     *
+     * @return The number of triangles added.
+     */
+    public int triangulate(TriangleSink sink) {
+        int count = 0;
         for (ShapeInt s : shapes)
-            for (TriInt t : s.triangulate())
-                triangles.add(t);
-        return new TriInt[triangles.size()];
+            count += s.triangulate(sink);
+        return count;
     }
 
 
 
     /*-------------------- BOOLEAN TRANSFORMATIONS ---------------------*/
 
+    /**
+     * Performs the four possible boolean operations on a pair of
+     * shape-groups, covering every sub-shape and every hole (see
+     * PolyInt.BooleanTransformation).
+     *
+     * Sub-shapes whose bounding box doesn't overlap any sub-shape in the
+     * other group can't be affected by it, so they skip the clipping
+     * altogether, and are just copied into the union and subtraction
+     * results. The rest are clipped together, in a single pass.
+     *
+     * WARNING! inputs must be WELL-FORMED shape-groups... the
+     * constructor throws IllegalStateException if the results can't be
+     * assembled (see PolyClipper).
+     */
     public static class BooleanTransformation {
 
         private ShapeGroupInt subtraction1 = null;
         private ShapeGroupInt subtraction2 = null;
         private ShapeGroupInt intersection = null;
         private ShapeGroupInt union = null;
-        private PolyInt.BooleanTransformation polyBool;
 
         public BooleanTransformation(ShapeGroupInt group1, ShapeGroupInt group2) {
+            // sort sub-shapes into those which might meet the other group,
+            // and those which can't
+            List<ShapeInt> clip1 = new ArrayList<>();
+            List<ShapeInt> clip2 = new ArrayList<>();
+            List<ShapeInt> apart1 = new ArrayList<>();
+            List<ShapeInt> apart2 = new ArrayList<>();
+            boolean[] overlaps2 = new boolean[group2.shapes.length];
+            for (ShapeInt s1 : group1.shapes) {
+                boolean overlaps = false;
+                for (int j = 0; j < group2.shapes.length; j++) {
+                    if (boxesOverlap(s1.boundingBox(), group2.shapes[j].boundingBox())) {
+                        overlaps = true;
+                        overlaps2[j] = true;
+                    }
+                }
+                (overlaps ? clip1 : apart1).add(s1);
+            }
+            for (int j = 0; j < group2.shapes.length; j++)
+                (overlaps2[j] ? clip2 : apart2).add(group2.shapes[j]);
+
+            List<ShapeInt> sub1  = new ArrayList<>(apart1);
+            List<ShapeInt> sub2  = new ArrayList<>(apart2);
+            List<ShapeInt> inter = new ArrayList<>();
+            List<ShapeInt> uni   = new ArrayList<>(apart1);
+            uni.addAll(apart2);
+            if (!clip1.isEmpty()) {
+                PolyClipper clipper = new PolyClipper(PolyClipper.rings(clip1),
+                                                      PolyClipper.rings(clip2));
+                sub1.addAll(Arrays.asList(clipper.shapes(PolyClipper.SUBTRACTION1)));
+                sub2.addAll(Arrays.asList(clipper.shapes(PolyClipper.SUBTRACTION2)));
+                inter.addAll(Arrays.asList(clipper.shapes(PolyClipper.INTERSECTION)));
+                uni.addAll(Arrays.asList(clipper.shapes(PolyClipper.UNION)));
+            }
+            subtraction1 = toSG(sub1);
+            subtraction2 = toSG(sub2);
+            intersection = toSG(inter);
+            union        = toSG(uni);
+        }
 
-            polyBool = new PolyInt.BooleanTransformation(group1.shapes[0].outline(),
-                                                         group2.shapes[0].outline());
-
-            subtraction1 = toSG(polyBool.subtraction1());
-            subtraction2 = toSG(polyBool.subtraction2());
-            intersection = toSG(polyBool.intersection());
-            union        = toSG(polyBool.union());
+        private static boolean boxesOverlap(BoxInt a, BoxInt b) {
+            return a.left() <= b.right() && b.left() <= a.right()
+                && a.bottom() <= b.top() && b.bottom() <= a.top();
         }
 
-        private ShapeGroupInt toSG(PolyInt[] polys) {
-            if (polys.length < 1) return new ShapeGroupInt(new ShapeInt[] {});
-            // else
-            return new ShapeGroupInt(polys[0]);
+        private static ShapeGroupInt toSG(List<ShapeInt> shapes) {
+            return new ShapeGroupInt(shapes.toArray(new ShapeInt[shapes.size()]));
         }
 
         public ShapeGroupInt subtraction1() { return subtraction1; }
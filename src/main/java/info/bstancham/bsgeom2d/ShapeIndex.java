@@ -0,0 +1,405 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable spatial index over the bounding boxes of a collection of
+ * shape-groups (or of plain boxes), for finding which of them contain
+ * a point, or overlap a box, without scanning all of them.
+ *
+ * This is a static R-tree, bulk loaded using Sort-Tile-Recursive
+ * packing: boxes are sorted into vertical slices by the x co-ordinate
+ * of their centre, and then into runs by y within each slice, and each
+ * run becomes a node. The same is done again with the nodes, until
+ * only the root is left. Every node is full (apart from the last in
+ * each level), so the tree is as shallow as it can be, and nodes
+ * overlap very little.
+ *
+ * Nodes are stored in flat int arrays, and queries write shape indices
+ * into a caller-supplied array, so no objects are created per query.
+ * Queries are safe to run from several threads at once. The
+ * point-location index of every polygon, which findContaining() uses
+ * and which is otherwise built on the first query, is built by the
+ * constructor, so that the threads don't race to build it.
+ */
+public final class ShapeIndex {
+
+    /**
+     * Maximum number of children per node... no more than 32, as
+     * nearest() keeps track of children in an int bit mask.
+     */
+    private static final int NODE_SIZE = 16;
+
+    // the indexed shape-groups (null if built from boxes)
+    private final ShapeGroupInt[] groups;
+
+    // item bounding boxes, in the original order... empty items have
+    // left > right, so they never match anything
+    private final int[] itemLeft;
+    private final int[] itemBottom;
+    private final int[] itemRight;
+    private final int[] itemTop;
+
+    // nodes, leaves first and root last... children of leaf node k are
+    // items itemOrder[childStart[k]] to itemOrder[childEnd[k] - 1], and
+    // children of other nodes are nodes childStart[k] to childEnd[k] - 1
+    private final int numLeaves;
+    private final int[] nodeLeft;
+    private final int[] nodeBottom;
+    private final int[] nodeRight;
+    private final int[] nodeTop;
+    private final int[] childStart;
+    private final int[] childEnd;
+    private final int[] itemOrder;
+
+    /**
+     * @param groups Empty groups are allowed, but never match anything.
+     */
+    public ShapeIndex(ShapeGroupInt[] groups) {
+        this(groups.clone(), boxes(groups));
+    }
+
+    public ShapeIndex(Collection<ShapeGroupInt> groups) {
+        this(groups.toArray(new ShapeGroupInt[groups.size()]));
+    }
+
+    /**
+     * Index over plain boxes... findContaining() isn't available, as
+     * there are no shapes to test.
+     */
+    public ShapeIndex(BoxInt[] boxes) {
+        this(null, boxes);
+    }
+
+    private ShapeIndex(ShapeGroupInt[] groups, BoxInt[] boxes) {
+        this.groups = groups;
+        // PolyInt builds its index on the first query, so do it now,
+        // rather than in every query thread at once
+        if (groups != null)
+            for (ShapeGroupInt g : groups)
+                for (ShapeInt s : g)
+                    s.buildIndex();
+        int n = boxes.length;
+        if (n >= 1 << 30)
+            throw new IllegalArgumentException("too many shapes for index: " + n);
+        itemLeft   = new int[n];
+        itemBottom = new int[n];
+        itemRight  = new int[n];
+        itemTop    = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (boxes[i] == null) {
+                itemLeft[i]   = itemBottom[i] = Integer.MAX_VALUE;
+                itemRight[i]  = itemTop[i]    = Integer.MIN_VALUE;
+            } else {
+                itemLeft[i]   = boxes[i].left();
+                itemBottom[i] = boxes[i].bottom();
+                itemRight[i]  = boxes[i].right();
+                itemTop[i]    = boxes[i].top();
+            }
+        }
+
+        // leaf level - pack the items
+        itemOrder = strOrder(itemLeft, itemBottom, itemRight, itemTop, identity(n));
+        int[][] level = packLevel(itemLeft, itemBottom, itemRight, itemTop, itemOrder);
+        numLeaves = level[0].length;
+
+        // upper levels - pack the nodes of the level below, until only
+        // the root is left
+        int[][][] levels = new int[64][][];
+        int numLevels = 0;
+        levels[numLevels++] = level;
+        while (level[0].length > 1) {
+            int[] order = strOrder(level[0], level[1], level[2], level[3],
+                                   identity(level[0].length));
+            // move the nodes into their new order, so that each parent's
+            // children are next to each other
+            for (int k = 0; k < level.length; k++)
+                level[k] = permute(level[k], order);
+            level = packLevel(level[0], level[1], level[2], level[3], identity(order.length));
+            levels[numLevels++] = level;
+        }
+
+        // join the levels together, with child references adjusted to
+        // point into the joined arrays
+        int numNodes = 0;
+        for (int l = 0; l < numLevels; l++)
+            numNodes += levels[l][0].length;
+        nodeLeft   = new int[numNodes];
+        nodeBottom = new int[numNodes];
+        nodeRight  = new int[numNodes];
+        nodeTop    = new int[numNodes];
+        childStart = new int[numNodes];
+        childEnd   = new int[numNodes];
+        int base = 0;
+        int childBase = 0;
+        for (int l = 0; l < numLevels; l++) {
+            int[][] lv = levels[l];
+            int count = lv[0].length;
+            System.arraycopy(lv[0], 0, nodeLeft,   base, count);
+            System.arraycopy(lv[1], 0, nodeBottom, base, count);
+            System.arraycopy(lv[2], 0, nodeRight,  base, count);
+            System.arraycopy(lv[3], 0, nodeTop,    base, count);
+            for (int i = 0; i < count; i++) {
+                childStart[base + i] = lv[4][i] + childBase;
+                childEnd[base + i]   = lv[5][i] + childBase;
+            }
+            // children of the next level up are nodes in this one (leaf
+            // children are items, so they don't need adjusting)
+            childBase = base;
+            base += count;
+        }
+    }
+
+    private static BoxInt[] boxes(ShapeGroupInt[] groups) {
+        BoxInt[] out = new BoxInt[groups.length];
+        for (int i = 0; i < groups.length; i++)
+            out[i] = (groups[i].isEmpty() ? null : groups[i].boundingBox());
+        return out;
+    }
+
+    private static int[] identity(int n) {
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++)
+            out[i] = i;
+        return out;
+    }
+
+    private static int[] permute(int[] values, int[] order) {
+        int[] out = new int[order.length];
+        for (int i = 0; i < order.length; i++)
+            out[i] = values[order[i]];
+        return out;
+    }
+
+
+
+    /*---------------------------- PACKING -----------------------------*/
+
+    /**
+     * Sort-Tile-Recursive ordering of the given entries... afterwards,
+     * each consecutive run of NODE_SIZE entries should make a compact
+     * node.
+     */
+    private static int[] strOrder(int[] l, int[] b, int[] r, int[] t, int[] ids) {
+        int n = ids.length;
+        sortByCentre(l, r, ids, 0, n);
+        int numNodes = (n + NODE_SIZE - 1) / NODE_SIZE;
+        int numSlices = (int) Math.ceil(Math.sqrt(numNodes));
+        int sliceSize = numSlices * NODE_SIZE;
+        for (int from = 0; from < n; from += sliceSize)
+            sortByCentre(b, t, ids, from, Math.min(from + sliceSize, n));
+        return ids;
+    }
+
+    /**
+     * Sorts ids from (inclusive) to (exclusive) by the centre of their
+     * extent along one axis... centres are compared doubled (lo + hi),
+     * so that no rounding is needed. Empty entries go last.
+     */
+    private static void sortByCentre(int[] lo, int[] hi, int[] ids, int from, int to) {
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            int id = ids[i];
+            long centre = (lo[id] > hi[id] ? (1L << 33) - 1
+                           : (long) lo[id] + hi[id] + (1L << 32));
+            // 33 bits of centre, 30 bits of id
+            keys[i - from] = (centre << 30) | id;
+        }
+        Arrays.sort(keys);
+        for (int i = from; i < to; i++)
+            ids[i] = (int) (keys[i - from] & ((1 << 30) - 1));
+    }
+
+    /**
+     * Makes one node from each run of NODE_SIZE entries, in the given
+     * order.
+     *
+     * @return Node arrays: left, bottom, right, top, child start, child
+     * end... child references are positions in order.
+     */
+    private static int[][] packLevel(int[] l, int[] b, int[] r, int[] t, int[] order) {
+        int n = order.length;
+        int count = (n + NODE_SIZE - 1) / NODE_SIZE;
+        int[][] out = new int[6][count];
+        for (int k = 0; k < count; k++) {
+            int from = k * NODE_SIZE;
+            int to = Math.min(from + NODE_SIZE, n);
+            int left = Integer.MAX_VALUE, bottom = Integer.MAX_VALUE;
+            int right = Integer.MIN_VALUE, top = Integer.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                int id = order[i];
+                if (l[id] > r[id]) continue;
+                left   = Math.min(left,   l[id]);
+                bottom = Math.min(bottom, b[id]);
+                right  = Math.max(right,  r[id]);
+                top    = Math.max(top,    t[id]);
+            }
+            out[0][k] = left;
+            out[1][k] = bottom;
+            out[2][k] = right;
+            out[3][k] = top;
+            out[4][k] = from;
+            out[5][k] = to;
+        }
+        return out;
+    }
+
+
+
+    /*---------------------------- QUERIES -----------------------------*/
+
+    public int numShapes() { return itemLeft.length; }
+
+    private int root() { return nodeLeft.length - 1; }
+
+    /**
+     * Finds all shapes whose bounding box contains the point (x, y),
+     * including on the edge.
+     *
+     * @param out Indices of matching shapes are written here, up to
+     * out.length of them.
+     * @return The total number of matching shapes... if this is more
+     * than out.length, some weren't written, and the query should be
+     * repeated with a bigger array.
+     */
+    public int searchPoint(int x, int y, int[] out) {
+        return searchBox(x, y, x, y, out);
+    }
+
+    /**
+     * Finds all shapes whose bounding box overlaps the given box
+     * (including touching edges). See searchPoint() for how results are
+     * given.
+     */
+    public int searchBox(int left, int bottom, int right, int top, int[] out) {
+        if (nodeLeft.length == 0) return 0;
+        return searchBox(root(), left, bottom, right, top, out, 0);
+    }
+
+    public int searchBox(BoxInt box, int[] out) {
+        return searchBox(box.left(), box.bottom(), box.right(), box.top(), out);
+    }
+
+    private int searchBox(int node, int left, int bottom, int right, int top,
+                          int[] out, int count) {
+        if (nodeLeft[node] > right || nodeRight[node] < left ||
+            nodeBottom[node] > top || nodeTop[node] < bottom) return count;
+        if (node < numLeaves) {
+            for (int i = childStart[node]; i < childEnd[node]; i++) {
+                int id = itemOrder[i];
+                if (itemLeft[id] > right || itemRight[id] < left ||
+                    itemBottom[id] > top || itemTop[id] < bottom) continue;
+                if (count < out.length) out[count] = id;
+                count++;
+            }
+        } else {
+            for (int c = childStart[node]; c < childEnd[node]; c++)
+                count = searchBox(c, left, bottom, right, top, out, count);
+        }
+        return count;
+    }
+
+    /**
+     * @return Index of a shape-group which contains the point (x, y)
+     * (including edges), or -1 if there isn't one. Bounding boxes are
+     * checked first, so only the few shapes near the point are tested
+     * exactly.
+     * @throws UnsupportedOperationException if the index was built
+     * from plain boxes.
+     */
+    public int findContaining(int x, int y) {
+        if (groups == null)
+            throw new UnsupportedOperationException("index was built from boxes, not shapes");
+        if (nodeLeft.length == 0) return -1;
+        return findContaining(root(), x, y);
+    }
+
+    private int findContaining(int node, int x, int y) {
+        if (nodeLeft[node] > x || nodeRight[node] < x ||
+            nodeBottom[node] > y || nodeTop[node] < y) return -1;
+        if (node < numLeaves) {
+            for (int i = childStart[node]; i < childEnd[node]; i++) {
+                int id = itemOrder[i];
+                if (itemLeft[id] > x || itemRight[id] < x ||
+                    itemBottom[id] > y || itemTop[id] < y) continue;
+                if (groups[id].contains(x, y)) return id;
+            }
+        } else {
+            for (int c = childStart[node]; c < childEnd[node]; c++) {
+                int found = findContaining(c, x, y);
+                if (found >= 0) return found;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Index of the shape whose bounding box is nearest to the
+     * point (x, y) (zero distance if the point is inside it), or -1 if
+     * there are no non-empty shapes. If several are equally near, any
+     * one of them may be returned.
+     */
+    public int nearest(int x, int y) {
+        if (nodeLeft.length == 0) return -1;
+        return nearest(root(), x, y, -1);
+    }
+
+    /**
+     * Branch and bound... nodes further away than the best shape found
+     * so far are skipped.
+     */
+    private int nearest(int node, int x, int y, int best) {
+        double bestDist = (best < 0 ? Double.POSITIVE_INFINITY
+                           : distSq(itemLeft[best], itemBottom[best],
+                                    itemRight[best], itemTop[best], x, y));
+        if (distSq(nodeLeft[node], nodeBottom[node],
+                   nodeRight[node], nodeTop[node], x, y) >= bestDist) return best;
+        if (node < numLeaves) {
+            for (int i = childStart[node]; i < childEnd[node]; i++) {
+                int id = itemOrder[i];
+                double d = distSq(itemLeft[id], itemBottom[id], itemRight[id], itemTop[id], x, y);
+                if (d < bestDist) {
+                    best = id;
+                    bestDist = d;
+                }
+            }
+        } else {
+            // visit children nearest first, so that the rest can usually
+            // be skipped... visited children are marked in a bit mask
+            int first = childStart[node];
+            int count = childEnd[node] - first;
+            int visited = 0;
+            for (int k = 0; k < count; k++) {
+                int pick = -1;
+                double pickDist = Double.POSITIVE_INFINITY;
+                for (int j = 0; j < count; j++) {
+                    if ((visited & (1 << j)) != 0) continue;
+                    int c = first + j;
+                    double d = distSq(nodeLeft[c], nodeBottom[c], nodeRight[c], nodeTop[c], x, y);
+                    if (d < pickDist) {
+                        pick = j;
+                        pickDist = d;
+                    }
+                }
+                if (pick < 0 || pickDist >= bestDist) break;
+                visited |= 1 << pick;
+                best = nearest(first + pick, x, y, best);
+                bestDist = distSq(itemLeft[best], itemBottom[best], itemRight[best], itemTop[best], x, y);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return Squared distance from the point to the box, or infinity
+     * for an empty box.
+     */
+    private static double distSq(int left, int bottom, int right, int top, int x, int y) {
+        if (left > right) return Double.POSITIVE_INFINITY;
+        double dx = Math.max(0, Math.max((long) left - x, (long) x - right));
+        double dy = Math.max(0, Math.max((long) bottom - y, (long) y - top));
+        return dx * dx + dy * dy;
+    }
+
+}
@@ -1,6 +1,7 @@
 package info.bstancham.bsgeom2d;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -25,6 +26,7 @@ public final class ShapeInt implements Iterable<PolyInt> {
     // values will be cached once they have been calculated for the first time
     private PointInt[] vertices = null;
     private LineInt[] edges = null;
+    private EdgeBuffer edgeBuffer = null;
 
 
     /**
@@ -93,6 +95,17 @@ public final class ShapeInt implements Iterable<PolyInt> {
         return out;
     }
 
+    /**
+     * @return All of the edges in this shape, packed into primitive
+     * arrays, in the same order as edge(). Built on the first call, and
+     * cached.
+     */
+    public EdgeBuffer edgeBuffer() {
+        if (edgeBuffer == null)
+            edgeBuffer = new EdgeBuffer(this);
+        return edgeBuffer;
+    }
+
     /**
      * Fetches the cached array of all of the vertices in this shape.
      * Builds it if it doesn't already exist.
@@ -177,15 +190,122 @@ public final class ShapeInt implements Iterable<PolyInt> {
     public boolean contains(PointInt p) { return contains(p, true); }
 
     public boolean contains(PointInt p, boolean includeEdges) {
-        boolean outlineContains = outline().contains(p, includeEdges);
+        return contains(p.x(), p.y(), includeEdges);
+    }
+
+    public boolean contains(int x, int y) { return contains(x, y, true); }
+
+    public boolean contains(int x, int y, boolean includeEdges) {
+        boolean outlineContains = outline().contains(x, y, includeEdges);
         if (outlineContains)
             // is point in a hole?
             for (int i = 1; i < polygons.length; i++)
-                if (polygons[i].contains(p, !includeEdges))
+                if (polygons[i].contains(x, y, !includeEdges))
                     return false;
         return outlineContains;
     }
 
+    /**
+     * @return An array where element i is true if the point (xs[i],
+     * ys[i]) is in the shape, including edges.
+     */
+    public boolean[] contains(int[] xs, int[] ys) {
+        boolean[] result = new boolean[xs.length];
+        contains(xs, ys, true, result);
+        return result;
+    }
+
+    /**
+     * Bulk version of contains(int, int, boolean)... see
+     * PolyInt.contains(int[], int[], boolean, boolean[]).
+     *
+     * @throws IllegalArgumentException if the co-ordinate arrays are not
+     * the same length, or if result is too short.
+     */
+    public void contains(int[] xs, int[] ys, boolean includeEdges, boolean[] result) {
+        ShapeGroupInt.checkBulkArgs(xs, ys, result.length);
+        byte[] block = new byte[Math.min(PolyInt.LOCATE_BLOCK_SIZE, xs.length)];
+        for (int from = 0; from < xs.length; from += PolyInt.LOCATE_BLOCK_SIZE) {
+            int to = Math.min(from + PolyInt.LOCATE_BLOCK_SIZE, xs.length);
+            Arrays.fill(result, from, to, false);
+            markContained(xs, ys, includeEdges, result, 0, from, to, block);
+        }
+    }
+
+    /**
+     * Sets out[i - offset] to true for each point i, from (inclusive) to
+     * (exclusive), which is in the shape... other elements are left
+     * alone. Gives the same answers as contains(int, int, boolean).
+     *
+     * @param block Scratch space, with room for (to - from) values.
+     */
+    void markContained(int[] xs, int[] ys, boolean includeEdges,
+                       boolean[] out, int offset, int from, int to, byte[] block) {
+        polygons[0].locate(xs, ys, from, to, block);
+        if (polygons.length == 1) {
+            for (int i = from; i < to; i++)
+                if (PolyInt.isIn(block[i - from], includeEdges))
+                    out[i - offset] = true;
+            return;
+        }
+        boolean[] in = new boolean[to - from];
+        boolean any = false;
+        for (int k = 0; k < in.length; k++) {
+            in[k] = PolyInt.isIn(block[k], includeEdges);
+            any |= in[k];
+        }
+        if (!any) return;
+        // is point in a hole?
+        for (int h = 1; h < polygons.length; h++) {
+            polygons[h].locate(xs, ys, from, to, block);
+            for (int k = 0; k < in.length; k++)
+                if (PolyInt.isIn(block[k], !includeEdges))
+                    in[k] = false;
+        }
+        for (int k = 0; k < in.length; k++)
+            if (in[k]) out[from + k - offset] = true;
+    }
+
+    /**
+     * @return True if the shapes share any point at all, including if
+     * they only touch at an edge or a vertex. Holes are not part of a
+     * shape, but their edges are.
+     */
+    public boolean intersects(ShapeInt s) {
+        return PolyOverlap.intersects(polygons, s.polygons);
+    }
+
+    /**
+     * @return True if the shapes meet, but only along their edges i.e.
+     * they share no area.
+     */
+    public boolean touches(ShapeInt s) {
+        return PolyOverlap.intersects(polygons, s.polygons)
+            && !PolyOverlap.interiorsOverlap(polygons, s.polygons);
+    }
+
+    /**
+     * @return True if every point of s is inside this shape, or on its
+     * edges... so s must not overlap any holes.
+     */
+    public boolean contains(ShapeInt s) {
+        return PolyOverlap.contains(polygons, s.polygons);
+    }
+
+    /**
+     * @return True if the shapes have no point in common.
+     */
+    public boolean disjoint(ShapeInt s) { return !intersects(s); }
+
+    /**
+     * Builds the point-location indexes for all polygons now, rather
+     * than on the first query (see PolyInt.buildIndex()).
+     */
+    void buildIndex() {
+        for (PolyInt p : polygons)
+            p.buildIndex();
+    }
+
 
 
     /*----------------------------- TESTS ------------------------------*/
@@ -277,8 +397,106 @@ public final class ShapeInt implements Iterable<PolyInt> {
 
     /*------------------------- TRIANGULATION --------------------------*/
 
+    /**
+     * Triangulates the shape, including holes.
+     *
+     * Holes are bridged into the outline, so that the whole shape can
+     * be triangulated as a single polygon (see EarClipper).
+     */
     public TriInt[] triangulate() {
-        return outline().getTriangulation();
+        int[] coords = triangleCoords();
+        TriInt[] out = new TriInt[coords.length / 6];
+        for (int i = 0, k = 0; i < out.length; i++, k += 6)
+            out[i] = new TriInt(coords[k],     coords[k + 1],
+                                coords[k + 2], coords[k + 3],
+                                coords[k + 4], coords[k + 5]);
+        return out;
+    }
+
+    /**
+     * Same as triangulate(), but gives the triangles packed into a flat
+     * array of co-ordinates, six per triangle (ax, ay, bx, by, cx, cy),
+     * so no objects are created per triangle.
+     */
+    int[] triangleCoords() {
+        PolyInt outline = outline();
+        if (!isPerforated() && outline.isConvex()) {
+            // simple fan, same as PolyInt.getTriangulationSimpleConvex()
+            int[] out = new int[(outline.numVertices() - 2) * 6];
+            for (int i = 1, k = 0; k < out.length; i++, k += 6) {
+                out[k]     = outline.x(0);     out[k + 1] = outline.y(0);
+                out[k + 2] = outline.x(i);     out[k + 3] = outline.y(i);
+                out[k + 4] = outline.x(i + 1); out[k + 5] = outline.y(i + 1);
+            }
+            return out;
+        }
+        int n = countVertices();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int[] indices = earClip(xs, ys);
+        int[] out = new int[indices.length * 2];
+        for (int i = 0; i < indices.length; i++) {
+            out[i * 2]     = xs[indices[i]];
+            out[i * 2 + 1] = ys[indices[i]];
+        }
+        return out;
+    }
+
+    /**
+     * Same triangles as triangulate(), but written into sink as an
+     * indexed mesh, so that no objects are created per triangle.
+     *
+     * Adds all numVertices() vertices (outline first, then holes), then
+     * at most numVertices() + 2 * numHoles() - 2 triangles.
+     *
+     * @return The number of triangles added.
+     */
+    public int triangulate(TriangleSink sink) {
+        PolyInt outline = outline();
+        if (!isPerforated() && outline.isConvex())
+            return outline.triangulate(sink);
+        int n = countVertices();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int[] indices = earClip(xs, ys);
+        int base = sink.vertex(xs[0], ys[0]);
+        for (int i = 1; i < xs.length; i++)
+            sink.vertex(xs[i], ys[i]);
+        for (int k = 0; k < indices.length; k += 3)
+            sink.triangle(base + indices[k], base + indices[k + 1], base + indices[k + 2]);
+        return indices.length / 3;
+    }
+
+    /**
+     * @return Same as numVertices(), but added up from the polygons,
+     * without making (and caching) a PointInt for every vertex.
+     */
+    private int countVertices() {
+        int n = 0;
+        for (PolyInt p : polygons)
+            n += p.numVertices();
+        return n;
+    }
+
+    /**
+     * Packs all co-ordinates into a single pair of arrays (outline
+     * first, then holes) and triangulates them (see EarClipper).
+     *
+     * @param xs Filled in... must have room for countVertices().
+     * @return Triangles as indices into xs and ys, three per triangle.
+     */
+    private int[] earClip(int[] xs, int[] ys) {
+        int[] holeStarts = new int[numHoles()];
+        int offset = 0;
+        for (int i = 0; i < polygons.length; i++) {
+            if (i > 0) holeStarts[i - 1] = offset;
+            for (int j = 0; j < polygons[i].numVertices(); j++) {
+                xs[offset] = polygons[i].x(j);
+                ys[offset] = polygons[i].y(j);
+                offset++;
+            }
+        }
+        return EarClipper.triangulate(xs, ys, holeStarts);
     }
 
 }
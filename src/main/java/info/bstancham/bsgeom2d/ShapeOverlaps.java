@@ -0,0 +1,204 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Finds every pair of shapes which overlap, out of a large collection,
+ * without testing every shape against every other one.
+ *
+ * This works in two phases. The broad phase puts the shapes' bounding
+ * boxes into a uniform grid (see ShapeGrid), and only pairs which share
+ * a cell have their boxes compared. Each pair is only looked at in one
+ * cell... the one containing the bottom-left corner of the overlap of
+ * their boxes... so no pair is found twice. The narrow phase then does
+ * an exact test on each candidate pair (see ShapeInt.intersects()).
+ *
+ * Shapes count as overlapping if they share any point at all,
+ * including if they only touch at an edge or a vertex. Likewise, boxes
+ * which only touch count as overlapping.
+ *
+ * Pairs are given as indices into the input, with the smaller index
+ * first, sorted in order of first index, then second.
+ */
+public final class ShapeOverlaps {
+
+    // pair i is (first[i], second[i])
+    private final int[] first;
+    private final int[] second;
+
+    /**
+     * Exact test: finds the pairs of shape-groups which really overlap.
+     *
+     * @param groups Empty groups are allowed, but never overlap
+     * anything.
+     */
+    public ShapeOverlaps(ShapeGroupInt[] groups) {
+        if (groups == null)
+            throw new NullPointerException("null argument given to constructor");
+        BoxInt[] boxes = new BoxInt[groups.length];
+        for (int i = 0; i < groups.length; i++)
+            if (!groups[i].isEmpty())
+                boxes[i] = groups[i].boundingBox();
+        long[] pairs = candidatePairs(boxes);
+
+        // narrow phase
+        int count = 0;
+        for (long pair : pairs) {
+            if (intersect(groups[(int) (pair >>> 32)], groups[(int) pair]))
+                pairs[count++] = pair;
+        }
+        first = new int[count];
+        second = new int[count];
+        unpack(pairs, count);
+    }
+
+    public ShapeOverlaps(Collection<ShapeGroupInt> groups) {
+        this(groups.toArray(new ShapeGroupInt[groups.size()]));
+    }
+
+    /**
+     * Broad phase only: finds the pairs of boxes which overlap... e.g.
+     * to run a different narrow phase on.
+     *
+     * @param boxes Null elements are allowed, but never overlap
+     * anything.
+     */
+    public ShapeOverlaps(BoxInt[] boxes) {
+        if (boxes == null)
+            throw new NullPointerException("null argument given to constructor");
+        long[] pairs = candidatePairs(boxes);
+        first = new int[pairs.length];
+        second = new int[pairs.length];
+        unpack(pairs, pairs.length);
+    }
+
+    private void unpack(long[] pairs, int count) {
+        for (int i = 0; i < count; i++) {
+            first[i]  = (int) (pairs[i] >>> 32);
+            second[i] = (int) pairs[i];
+        }
+    }
+
+
+
+    /*-------------------------- BROAD PHASE ---------------------------*/
+
+    /**
+     * @return Every pair of overlapping boxes, packed into longs (lower
+     * index in the high half), in sorted order.
+     */
+    private static long[] candidatePairs(BoxInt[] boxes) {
+        // the grid only takes the non-null boxes
+        int n = 0;
+        for (BoxInt b : boxes)
+            if (b != null) n++;
+        if (n < 2) return new long[0];
+        BoxInt[] packed = new BoxInt[n];
+        int[] ids = new int[n];
+        int left = Integer.MAX_VALUE;
+        int bottom = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int top = Integer.MIN_VALUE;
+        for (int i = 0, j = 0; i < boxes.length; i++) {
+            BoxInt b = boxes[i];
+            if (b == null) continue;
+            packed[j] = b;
+            ids[j++] = i;
+            left   = Math.min(left, b.left());
+            bottom = Math.min(bottom, b.bottom());
+            right  = Math.max(right, b.right());
+            top    = Math.max(top, b.top());
+        }
+        ShapeGrid grid = new ShapeGrid(packed, new BoxInt(left, bottom, right, top));
+
+        // copy the bounds into flat arrays, to keep the inner loop tight
+        int[] ls = new int[n];
+        int[] bs = new int[n];
+        int[] rs = new int[n];
+        int[] ts = new int[n];
+        for (int i = 0; i < n; i++) {
+            ls[i] = packed[i].left();
+            bs[i] = packed[i].bottom();
+            rs[i] = packed[i].right();
+            ts[i] = packed[i].top();
+        }
+
+        long[] pairs = new long[Math.max(16, n)];
+        int count = 0;
+        for (int cell = 0; cell < grid.numCells(); cell++) {
+            int end = grid.end(cell);
+            for (int i = grid.start(cell); i < end; i++) {
+                int a = grid.shapeId(i);
+                for (int j = i + 1; j < end; j++) {
+                    int b = grid.shapeId(j);
+                    if (ls[a] > rs[b] || ls[b] > rs[a] || bs[a] > ts[b] || bs[b] > ts[a])
+                        continue;
+                    // only count the pair in the cell where their overlap starts
+                    if (grid.cell(Math.max(ls[a], ls[b]), Math.max(bs[a], bs[b])) != cell)
+                        continue;
+                    if (count == pairs.length)
+                        pairs = Arrays.copyOf(pairs, count * 2);
+                    int idA = ids[a];
+                    int idB = ids[b];
+                    // cell lists are in input order, so idA < idB
+                    pairs[count++] = ((long) idA << 32) | idB;
+                }
+            }
+        }
+        pairs = Arrays.copyOf(pairs, count);
+        Arrays.sort(pairs);
+        return pairs;
+    }
+
+
+
+    /*-------------------------- NARROW PHASE --------------------------*/
+
+    private static boolean intersect(ShapeGroupInt a, ShapeGroupInt b) {
+        // OPTIMIZATION: the broad phase has already compared the boxes
+        if (a.numSubShapes() == 1 && b.numSubShapes() == 1)
+            return a.subShape(0).intersects(b.subShape(0));
+        for (ShapeInt sa : a) {
+            for (ShapeInt sb : b) {
+                if (boxesOverlap(sa.boundingBox(), sb.boundingBox()) && sa.intersects(sb))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean boxesOverlap(BoxInt a, BoxInt b) {
+        return a.left() <= b.right() && b.left() <= a.right()
+            && a.bottom() <= b.top() && b.bottom() <= a.top();
+    }
+
+
+
+    /*--------------------------- ACCESSORS ----------------------------*/
+
+    public int numPairs() { return first.length; }
+
+    /**
+     * @return Index of the first shape in the pair... always smaller
+     * than second(pair).
+     */
+    public int first(int pair) { return first[pair]; }
+
+    public int second(int pair) { return second[pair]; }
+
+    /**
+     * @return All of the pairs, packed into a single array as (first,
+     * second, first, second...). To maintain immutability, a new array
+     * is created each time the method is called.
+     */
+    public int[] getPairs() {
+        int[] out = new int[first.length * 2];
+        for (int i = 0; i < first.length; i++) {
+            out[i * 2]     = first[i];
+            out[i * 2 + 1] = second[i];
+        }
+        return out;
+    }
+
+}
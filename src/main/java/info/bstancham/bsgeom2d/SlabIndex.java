@@ -0,0 +1,333 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+
+/**
+ * Slab decomposition of the edges of a polygon, for answering
+ * point-in-polygon queries in O(log n) time.
+ *
+ * The plane is cut into horizontal slabs at every distinct vertex
+ * y co-ordinate. No vertex lies strictly inside a slab, so in a
+ * polygon without self-intersections the edges crossing a slab never
+ * cross each other there, and can be sorted from left to right. A
+ * query is then two binary searches: one to find the slab, and one to
+ * count the edges to the left of the point. An odd count means the
+ * point is inside.
+ *
+ * All tests are exact (see Geom2DInt.ccw()).
+ *
+ * The index only works for polygons whose edges do not cross or
+ * overlap. This is checked while building, and if the check fails, or
+ * if the index would use too much memory, locate() falls back to
+ * scan().
+ *
+ * Immutable once built... every field is final, so an index can be
+ * shared between threads however it was handed over.
+ */
+final class SlabIndex {
+
+    static final int OUTSIDE  = 0;
+    static final int INSIDE   = 1;
+    static final int BOUNDARY = 2;
+
+    /**
+     * Bail out if the slabs would need more than this many entries per
+     * vertex... e.g. comb shapes, where every slab is crossed by most
+     * of the edges.
+     */
+    private static final int MAX_ENTRIES_PER_VERTEX = 64;
+
+    // polygon co-ordinates - shared, never modified
+    private final int[] xs;
+    private final int[] ys;
+
+    // sorted distinct vertex y co-ordinates - slab i lies between
+    // slabYs[i] and slabYs[i + 1]
+    private final int[] slabYs;
+
+    // edges crossing slab i, sorted left to right, are
+    // slabEdges[slabStart[i]] to slabEdges[slabStart[i + 1] - 1]
+    private final int[] slabStart;
+    private final int[] slabEdges;
+
+    // horizontal edges, sorted by y, then by left-most x
+    private final int[] hEdges;
+
+    // all of the above are null if not valid
+    private final boolean valid;
+
+    SlabIndex(int[] xs, int[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        int[] yList = distinctYs();
+        int[][] slabs = buildSlabs(yList);
+        int[] horizontals = (slabs == null ? null : buildHorizontals());
+        valid = (horizontals != null);
+        slabYs    = (valid ? yList : null);
+        slabStart = (valid ? slabs[0] : null);
+        slabEdges = (valid ? slabs[1] : null);
+        hEdges    = horizontals;
+    }
+
+    boolean isValid() { return valid; }
+
+
+
+    /*---------------------------- QUERIES -----------------------------*/
+
+    /**
+     * @return OUTSIDE, INSIDE or BOUNDARY.
+     */
+    int locate(int px, int py) {
+        if (!valid) return scan(xs, ys, px, py);
+        if (onHorizontalEdge(px, py)) return BOUNDARY;
+        int numYs = slabYs.length;
+        if (py < slabYs[0] || py > slabYs[numYs - 1]) return OUTSIDE;
+        // slab whose lower bound is the largest y <= py
+        int s = Arrays.binarySearch(slabYs, py);
+        if (s < 0) s = -s - 2;
+        // SPECIAL CASE: point lies on a slab boundary... edges which end
+        // here from below don't belong to the slab above
+        if (slabYs[s] == py && s > 0
+            && searchSlab(s - 1, px, py) == BOUNDARY) return BOUNDARY;
+        if (s >= numYs - 1) return OUTSIDE;
+        return searchSlab(s, px, py);
+    }
+
+    private int searchSlab(int s, int px, int py) {
+        // find the first edge which the point is not strictly to the
+        // right of
+        int lo = slabStart[s];
+        int hi = slabStart[s + 1];
+        int first = lo;
+        int end = hi;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (side(slabEdges[mid], px, py) < 0) lo = mid + 1;
+            else                                 hi = mid;
+        }
+        if (lo < end && side(slabEdges[lo], px, py) == 0) return BOUNDARY;
+        // odd number of edges to the left means inside
+        return ((lo - first) % 2 == 1 ? INSIDE : OUTSIDE);
+    }
+
+    private boolean onHorizontalEdge(int px, int py) {
+        // last horizontal edge at or before (py, px)
+        int lo = 0;
+        int hi = hEdges.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int e = hEdges[mid];
+            if (ys[e] < py || (ys[e] == py && minX(e) <= px)) lo = mid + 1;
+            else                                               hi = mid;
+        }
+        if (lo == 0) return false;
+        int e = hEdges[lo - 1];
+        return ys[e] == py && maxX(e) >= px;
+    }
+
+    /**
+     * Plain crossing-number test, checking every edge. Works for any
+     * polygon, including self-intersecting ones (using the even-odd
+     * rule).
+     *
+     * @return OUTSIDE, INSIDE or BOUNDARY.
+     */
+    static int scan(int[] xs, int[] ys, int px, int py) {
+        boolean inside = false;
+        int n = xs.length;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if (Geom2DInt.onSegment(xs[j], ys[j], xs[i], ys[i], px, py))
+                return BOUNDARY;
+            // half-open rule, so that vertices are only counted once
+            if ((ys[i] > py) != (ys[j] > py)) {
+                // edge crosses the horizontal line through the point...
+                // ... does it cross to the right of the point?
+                int side = Geom2DInt.ccw(xs[j], ys[j], xs[i], ys[i], px, py);
+                if ((side > 0) == (ys[i] > ys[j])) inside = !inside;
+            }
+        }
+        return (inside ? INSIDE : OUTSIDE);
+    }
+
+
+
+    /*--------------------------- EDGE HELPERS -------------------------*/
+
+    private int next(int e) { return (e + 1 < xs.length ? e + 1 : 0); }
+
+    private int minX(int e) { return Math.min(xs[e], xs[next(e)]); }
+    private int maxX(int e) { return Math.max(xs[e], xs[next(e)]); }
+
+    private int lower(int e) { return (ys[e] < ys[next(e)] ? e : next(e)); }
+    private int upper(int e) { return (ys[e] < ys[next(e)] ? next(e) : e); }
+
+    /**
+     * @return Positive if point is to the left of the edge (with the
+     * edge pointing upwards), negative if to the right, zero if on the
+     * line.
+     */
+    private int side(int e, long px, long py) {
+        int lo = lower(e);
+        int up = upper(e);
+        return Geom2DInt.ccw(xs[lo], ys[lo], xs[up], ys[up], px, py);
+    }
+
+    /**
+     * Orders two edges which both cross the same slab.
+     *
+     * @return Negative if e lies left of f throughout the slab,
+     * positive if right, zero if the edges cross or are collinear.
+     */
+    private int compareInSlab(int e, int f) {
+        int fLo = lower(f);
+        int fUp = upper(f);
+        int o1 = side(e, xs[fLo], ys[fLo]);
+        int o2 = side(e, xs[fUp], ys[fUp]);
+        if (o1 <= 0 && o2 <= 0 && (o1 != 0 || o2 != 0)) return -1;
+        if (o1 >= 0 && o2 >= 0 && (o1 != 0 || o2 != 0)) return 1;
+        // f straddles the line through e... try it the other way round
+        int eLo = lower(e);
+        int eUp = upper(e);
+        int o3 = side(f, xs[eLo], ys[eLo]);
+        int o4 = side(f, xs[eUp], ys[eUp]);
+        if (o3 >= 0 && o4 >= 0 && (o3 != 0 || o4 != 0)) return -1;
+        if (o3 <= 0 && o4 <= 0 && (o3 != 0 || o4 != 0)) return 1;
+        return 0;
+    }
+
+
+
+    /*---------------------------- BUILDING ----------------------------*/
+
+    /**
+     * @return The distinct vertex y co-ordinates, sorted.
+     */
+    private int[] distinctYs() {
+        int[] sorted = ys.clone();
+        Arrays.sort(sorted);
+        int numYs = 0;
+        for (int i = 0; i < sorted.length; i++)
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                sorted[numYs++] = sorted[i];
+        return Arrays.copyOf(sorted, numYs);
+    }
+
+    /**
+     * @return The slab start offsets and the edges in each slab, or null
+     * if the edges cross, or the slabs would be too big.
+     */
+    private int[][] buildSlabs(int[] slabYs) {
+        int n = xs.length;
+        int numYs = slabYs.length;
+
+        // count the edges crossing each slab... use a difference array
+        // so that long edges cost no more than short ones
+        int numSlabs = Math.max(numYs - 1, 0);
+        int[] counts = new int[numSlabs + 1];
+        int[] firstSlab = new int[n];
+        int[] lastSlab = new int[n];
+        long total = 0;
+        for (int e = 0; e < n; e++) {
+            firstSlab[e] = Arrays.binarySearch(slabYs, ys[lower(e)]);
+            lastSlab[e] = Arrays.binarySearch(slabYs, ys[upper(e)]);
+            counts[firstSlab[e]]++;
+            counts[lastSlab[e]]--;
+            total += lastSlab[e] - firstSlab[e];
+        }
+        if (total > (long) MAX_ENTRIES_PER_VERTEX * n)
+            return null;
+
+        // turn the counts into start offsets
+        int[] slabStart = new int[numSlabs + 1];
+        int running = 0;
+        int offset = 0;
+        for (int s = 0; s < numSlabs; s++) {
+            running += counts[s];
+            slabStart[s] = offset;
+            offset += running;
+        }
+        slabStart[numSlabs] = offset;
+
+        // fill the slabs
+        int[] slabEdges = new int[offset];
+        int[] fill = Arrays.copyOf(slabStart, numSlabs);
+        for (int e = 0; e < n; e++)
+            for (int s = firstSlab[e]; s < lastSlab[e]; s++)
+                slabEdges[fill[s]++] = e;
+
+        // sort each slab left to right, and check that it really is in
+        // order i.e. that no edges cross
+        int[] temp = new int[offset];
+        for (int s = 0; s < numSlabs; s++) {
+            sortSlab(slabEdges, slabStart[s], slabStart[s + 1], temp);
+            for (int i = slabStart[s] + 1; i < slabStart[s + 1]; i++)
+                if (compareInSlab(slabEdges[i - 1], slabEdges[i]) >= 0)
+                    return null;
+        }
+        return new int[][] { slabStart, slabEdges };
+    }
+
+    /**
+     * Merge sort, rather than Arrays.sort() with a Comparator... no
+     * boxing, and no exception if the polygon is invalid and the
+     * comparison turns out not to be transitive.
+     */
+    private void sortSlab(int[] slabEdges, int from, int to, int[] temp) {
+        if (to - from < 2) return;
+        int mid = (from + to) >>> 1;
+        sortSlab(slabEdges, from, mid, temp);
+        sortSlab(slabEdges, mid, to, temp);
+        if (compareInSlab(slabEdges[mid - 1], slabEdges[mid]) < 0) return;
+        System.arraycopy(slabEdges, from, temp, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && compareInSlab(temp[i], temp[j]) <= 0))
+                slabEdges[k] = temp[i++];
+            else
+                slabEdges[k] = temp[j++];
+        }
+    }
+
+    /**
+     * Packs y and left-most x into a single long which sorts the same
+     * way as (y, x) pairs.
+     */
+    private long horizontalKey(int e) {
+        return ((long) ys[e] << 32) | ((minX(e) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return The horizontal edges, sorted, or null if any of them
+     * overlap.
+     */
+    private int[] buildHorizontals() {
+        int count = 0;
+        for (int e = 0; e < xs.length; e++)
+            if (ys[e] == ys[next(e)]) count++;
+        long[] keys = new long[count];
+        int k = 0;
+        for (int e = 0; e < xs.length; e++)
+            if (ys[e] == ys[next(e)]) keys[k++] = horizontalKey(e);
+        Arrays.sort(keys);
+        // keys must be unique, otherwise some edges overlap
+        for (int i = 1; i < count; i++) {
+            if (keys[i] == keys[i - 1])
+                return null;
+        }
+        int[] hEdges = new int[count];
+        for (int e = 0; e < xs.length; e++)
+            if (ys[e] == ys[next(e)])
+                hEdges[Arrays.binarySearch(keys, horizontalKey(e))] = e;
+        // overlapping horizontal edges would break the binary search
+        for (int i = 1; i < count; i++) {
+            int a = hEdges[i - 1];
+            int b = hEdges[i];
+            if (ys[a] == ys[b] && maxX(a) > minX(b))
+                return null;
+        }
+        return hEdges;
+    }
+
+}
@@ -0,0 +1,247 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable tiled shape with no fixed bounds, for worlds which are big
+ * but mostly empty.
+ *
+ * The tiles are split into square chunks of CHUNK_DIM tiles, each one a
+ * TiledShape lined up on the chunk grid, held in a map keyed by chunk
+ * co-ordinates. Chunks with no tiles are left out altogether... so
+ * memory, and the time taken by the boolean operations, getLines() and
+ * triangulation(), depend on how many chunks have something in them,
+ * not on the size of the world.
+ *
+ * Chunks are immutable, so the result of a boolean operation shares
+ * every chunk which it doesn't change with the shapes it was made from
+ * (cached triangulations included).
+ *
+ * Tile co-ordinates are the same as for TiledShape.getTileAt()... tile
+ * (x, y) is the square from (2x, 2y) to (2x + 2, 2y + 2).
+ */
+public final class SparseTiledShape {
+
+    /**
+     * Width (and height) of a chunk, in tiles.
+     */
+    static final int CHUNK_DIM = 32;
+
+    private final Map<Long, TiledShape> chunks;
+
+    // values to be cached after calculated
+    private TriInt[] triangles = null;
+    private ShapeGroupInt outlines = null;
+
+    /**
+     * Makes the union of the given shapes, which can be any size and
+     * anywhere... or none, for an empty shape.
+     */
+    public SparseTiledShape(TiledShape ... shapes) {
+        chunks = new HashMap<>();
+        for (TiledShape shape : shapes) {
+            if (shape == null)
+                throw new NullPointerException("null argument given to constructor");
+            addChunks(chunks, shape);
+        }
+    }
+
+    private SparseTiledShape(Map<Long, TiledShape> chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * Unions shape into the chunks it overlaps.
+     */
+    private static void addChunks(Map<Long, TiledShape> chunks, TiledShape shape) {
+        int x = shape.position().x();
+        int y = shape.position().y();
+        int dim = shape.dimension();
+        int left = chunkCoord(x);
+        int right = chunkCoord((int) Math.min((long) x + dim - 1, Integer.MAX_VALUE));
+        int bottom = chunkCoord(y);
+        int top = chunkCoord((int) Math.min((long) y + dim - 1, Integer.MAX_VALUE));
+        for (int cy = bottom; cy <= top; cy++) {
+            for (int cx = left; cx <= right; cx++) {
+                long key = key(cx, cy);
+                TiledShape chunk = chunks.get(key);
+                if (chunk == null) chunk = TiledShape.blank(CHUNK_DIM, chunkPosition(cx, cy));
+                chunk = chunk.union(shape);
+                if (!chunk.isEmpty()) chunks.put(key, chunk);
+            }
+        }
+    }
+
+    private static int chunkCoord(int tileCoord) {
+        return Math.floorDiv(tileCoord, CHUNK_DIM);
+    }
+
+    private static PointInt chunkPosition(int cx, int cy) {
+        return new PointInt(cx * CHUNK_DIM, cy * CHUNK_DIM);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return Number of chunks which have some tiles in them.
+     */
+    public int numChunks() { return chunks.size(); }
+
+    public boolean isEmpty() { return chunks.isEmpty(); }
+
+    /**
+     * @return The tile at the given (tile) co-ordinates... EMPTY if
+     * there isn't one.
+     */
+    public Tile getTileAt(int x, int y) {
+        TiledShape chunk = chunks.get(key(chunkCoord(x), chunkCoord(y)));
+        if (chunk == null) return TiledShape.EMPTY;
+        return chunk.getTileAt(x, y);
+    }
+
+    /**
+     * Moving by a multiple of CHUNK_DIM just re-keys the chunks...
+     * otherwise every chunk is split across the chunks it lands in.
+     */
+    public SparseTiledShape translate(int x, int y) {
+        Map<Long, TiledShape> moved = new HashMap<>();
+        if (x % CHUNK_DIM == 0 && y % CHUNK_DIM == 0) {
+            int dx = x / CHUNK_DIM;
+            int dy = y / CHUNK_DIM;
+            for (TiledShape chunk : chunks.values()) {
+                PointInt p = chunk.position();
+                moved.put(key(chunkCoord(p.x()) + dx, chunkCoord(p.y()) + dy),
+                          chunk.translate(x, y));
+            }
+        } else {
+            for (TiledShape chunk : chunks.values())
+                addChunks(moved, chunk.translate(x, y));
+        }
+        return new SparseTiledShape(moved);
+    }
+
+
+
+    /*------------------------ BOOLEAN OPERATIONS ------------------------*/
+
+    public SparseTiledShape subtract(SparseTiledShape shape) {
+        Map<Long, TiledShape> out = new HashMap<>();
+        for (Map.Entry<Long, TiledShape> e : chunks.entrySet()) {
+            TiledShape other = shape.chunks.get(e.getKey());
+            if (other == null)
+                out.put(e.getKey(), e.getValue());
+            else
+                putIfNotEmpty(out, e.getKey(), e.getValue().subtract(other));
+        }
+        return new SparseTiledShape(out);
+    }
+
+    public SparseTiledShape intersect(SparseTiledShape shape) {
+        // only chunks in both can have anything left
+        SparseTiledShape small = (chunks.size() <= shape.chunks.size() ? this : shape);
+        SparseTiledShape big = (small == this ? shape : this);
+        Map<Long, TiledShape> out = new HashMap<>();
+        for (Map.Entry<Long, TiledShape> e : small.chunks.entrySet()) {
+            TiledShape other = big.chunks.get(e.getKey());
+            if (other != null)
+                putIfNotEmpty(out, e.getKey(), e.getValue().intersect(other));
+        }
+        return new SparseTiledShape(out);
+    }
+
+    public SparseTiledShape union(SparseTiledShape shape) {
+        Map<Long, TiledShape> out = new HashMap<>(chunks);
+        for (Map.Entry<Long, TiledShape> e : shape.chunks.entrySet())
+            out.merge(e.getKey(), e.getValue(), TiledShape::union);
+        return new SparseTiledShape(out);
+    }
+
+    private static void putIfNotEmpty(Map<Long, TiledShape> map, long key, TiledShape chunk) {
+        if (!chunk.isEmpty()) map.put(key, chunk);
+    }
+
+
+
+    /*--------------------------- GEOMETRY ----------------------------*/
+
+    /**
+     * @return All of the lines in this shape... not in winding order.
+     * Same as TiledShape.getLines(), so edges between two tiles (even in
+     * different chunks) are left out.
+     */
+    public LineInt[] getLines() {
+        List<LineInt> edges = new ArrayList<>();
+        for (TiledShape chunk : chunks.values()) {
+            int cx = chunkCoord(chunk.position().x());
+            int cy = chunkCoord(chunk.position().y());
+            chunk.addLines(edges,
+                           chunks.get(key(cx - 1, cy)),
+                           chunks.get(key(cx + 1, cy)),
+                           chunks.get(key(cx, cy + 1)),
+                           chunks.get(key(cx, cy - 1)));
+        }
+        return edges.toArray(new LineInt[edges.size()]);
+    }
+
+    /**
+     * Same as TiledShape.outlines()... shapes which cross from one
+     * chunk to another come out whole. The rings are the same as for
+     * one TiledShape with the same tiles, though the shapes may come
+     * out in a different order, and each ring may start from a
+     * different vertex.
+     */
+    public ShapeGroupInt outlines() {
+        if (outlines == null) {
+            TileTracer tracer = new TileTracer();
+            for (TiledShape chunk : chunks.values()) {
+                int cx = chunkCoord(chunk.position().x());
+                int cy = chunkCoord(chunk.position().y());
+                chunk.addOutlineEdges(tracer,
+                                      chunks.get(key(cx - 1, cy)),
+                                      chunks.get(key(cx + 1, cy)),
+                                      chunks.get(key(cx, cy + 1)),
+                                      chunks.get(key(cx, cy - 1)));
+            }
+            outlines = tracer.result();
+        }
+        return outlines;
+    }
+
+    /**
+     * @return The triangles of all the chunks, in no particular order.
+     */
+    public TriInt[] triangulation() {
+        if (triangles == null) {
+            int count = 0;
+            for (TiledShape chunk : chunks.values())
+                count += chunk.triangulation().length;
+            triangles = new TriInt[count];
+            int i = 0;
+            for (TiledShape chunk : chunks.values()) {
+                TriInt[] tris = chunk.triangulation();
+                System.arraycopy(tris, 0, triangles, i, tris.length);
+                i += tris.length;
+            }
+        }
+        return triangles;
+    }
+
+    /**
+     * Same triangles as triangulation(), written into sink (see
+     * TiledShape.triangulate()).
+     *
+     * @return The number of triangles added.
+     */
+    public int triangulate(TriangleSink sink) {
+        int count = 0;
+        for (TiledShape chunk : chunks.values())
+            count += chunk.triangulate(sink);
+        return count;
+    }
+
+}
@@ -1,5 +1,7 @@
 package info.bstancham.bsgeom2d;
 
+import java.util.Arrays;
+
 /**
  * Immutable data type representing a square tile which can have a limited number of
  * shapes based on which of the four edges exist.<br/>
@@ -41,6 +43,15 @@ public class Tile {
     private final int numEdges;
     private final boolean oddNumEdges;
 
+    // corners of each facet, three per facet, as offsets into the
+    // vertices added by addFacets()
+    private static final int BL = 0;
+    private static final int BR = 1;
+    private static final int TR = 2;
+    private static final int TL = 3;
+    private static final int C  = 4;
+    private final int[] facetCorners;
+
     public Tile(boolean top, boolean bot, boolean left, boolean right) {
         this.top = top;
         this.bot = bot;
@@ -48,6 +59,39 @@ public class Tile {
         this.right = right;
         this.numEdges = countNumEdges();
         this.oddNumEdges = (numEdges % 2 == 0 ? false : true);
+        this.facetCorners = findFacetCorners();
+    }
+
+    // one shared instance of each of the 16 combinations of edges, for
+    // of()... tiles are immutable, so a tiled map never needs more
+    private static final Tile[] CANONICAL = new Tile[16];
+    static {
+        for (int i = 0; i < CANONICAL.length; i++)
+            CANONICAL[i] = new Tile((i & 1) != 0, (i & 2) != 0, (i & 4) != 0, (i & 8) != 0);
+    }
+
+    /**
+     * @return The shared tile with the given edges, rather than a new
+     * one (flyweight)... subtract(), intersect() and union() use this,
+     * so large tiled shapes don't need an object per tile.
+     */
+    public static Tile of(boolean top, boolean bot, boolean left, boolean right) {
+        return CANONICAL[code(top, bot, left, right)];
+    }
+
+    /**
+     * @return The shared tile for a 4-bit code (see code()).
+     */
+    static Tile of(int code) { return CANONICAL[code]; }
+
+    /**
+     * @return The edges packed into 4 bits: top, bot, left and right,
+     * from the lowest bit up... as stored by TiledShape.
+     */
+    int code() { return code(top, bot, left, right); }
+
+    private static int code(boolean top, boolean bot, boolean left, boolean right) {
+        return (top ? 1 : 0) | (bot ? 2 : 0) | (left ? 4 : 0) | (right ? 8 : 0);
     }
 
     private int countNumEdges() {
@@ -61,9 +105,18 @@ public class Tile {
 
     public int numEdges() { return numEdges; }
 
-    public int numFacets() {
-        return (oddNumEdges ? numEdges : numEdges / 2);
-    }
+    /**
+     * @return Number of triangles in getFacets()... none for a tile
+     * with only two opposite edges, which has no area.
+     */
+    public int numFacets() { return facetCorners.length / 3; }
+
+    /**
+     * @return Corners of each facet, three per facet, counter-clockwise:
+     * 0 to 3 are bottom-left, bottom-right, top-right and top-left, 4 is
+     * the centre... as used by addFacets().
+     */
+    int[] facetCorners() { return facetCorners.clone(); }
 
     public TriInt[] getFacets() {
         if (numEdges == 0) return new TriInt[0];
@@ -100,25 +153,80 @@ public class Tile {
         return 0;
     }
 
+    /**
+     * Writes the facets into sink as an indexed mesh, for a tile whose
+     * bottom-left corner is at (x, y)... the same triangles as
+     * getFacets(), but no objects are created.
+     *
+     * Adds four vertices for the corners (bottom-left, bottom-right,
+     * top-right, top-left), plus the centre if it's needed, or none at
+     * all if there are no facets.
+     *
+     * @return The number of triangles added.
+     */
+    public int addFacets(TriangleSink sink, int x, int y) {
+        if (facetCorners.length == 0) return 0;
+        int base = sink.vertex(x, y);
+        sink.vertex(x + 2, y);
+        sink.vertex(x + 2, y + 2);
+        sink.vertex(x,     y + 2);
+        if (oddNumEdges) sink.vertex(x + 1, y + 1);
+        for (int k = 0; k < facetCorners.length; k += 3)
+            sink.triangle(base + facetCorners[k],
+                          base + facetCorners[k + 1],
+                          base + facetCorners[k + 2]);
+        return facetCorners.length / 3;
+    }
+
+    /**
+     * Same facets, in the same order, as getFacets().
+     */
+    private int[] findFacetCorners() {
+        int[] corners = new int[12];
+        int n = 0;
+        if (numEdges == 4) {
+            n = put(corners, n, TL, BL, TR);
+            n = put(corners, n, BR, TR, BL);
+        } else if (oddNumEdges) {
+            if (top)   n = put(corners, n, C, TR, TL);
+            if (bot)   n = put(corners, n, C, BL, BR);
+            if (left)  n = put(corners, n, C, TL, BL);
+            if (right) n = put(corners, n, C, BR, TR);
+        } else {
+            if (top && left)  n = put(corners, n, TL, BL, TR);
+            if (top && right) n = put(corners, n, TR, TL, BR);
+            if (bot && left)  n = put(corners, n, BL, BR, TL);
+            if (bot && right) n = put(corners, n, BR, TR, BL);
+        }
+        return Arrays.copyOf(corners, n);
+    }
+
+    private static int put(int[] corners, int n, int a, int b, int c) {
+        corners[n] = a;
+        corners[n + 1] = b;
+        corners[n + 2] = c;
+        return n + 3;
+    }
+
     public Tile subtract(Tile tile) {
-        return new Tile(subtract(top, tile.top),
-                              subtract(bot, tile.bot),
-                              subtract(left, tile.left),
-                              subtract(right, tile.right));
+        return of(subtract(top, tile.top),
+                  subtract(bot, tile.bot),
+                  subtract(left, tile.left),
+                  subtract(right, tile.right));
     }
 
     public Tile intersect(Tile tile) {
-        return new Tile(top && tile.top,
-                        bot && tile.bot,
-                        left && tile.left,
-                        right && tile.right);
+        return of(top && tile.top,
+                  bot && tile.bot,
+                  left && tile.left,
+                  right && tile.right);
     }
 
     public Tile union(Tile tile) {
-        return new Tile(top || tile.top,
-                        bot || tile.bot,
-                        left || tile.left,
-                        right || tile.right);
+        return of(top || tile.top,
+                  bot || tile.bot,
+                  left || tile.left,
+                  right || tile.right);
     }
 
     private boolean subtract(boolean b1, boolean b2) {
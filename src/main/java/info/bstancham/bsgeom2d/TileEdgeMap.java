@@ -77,31 +77,31 @@ public class TileEdgeMap {
     }
 
     public void subtractAbove(Tile aboveMe) {
-        tile = new Tile((aboveMe.bot ? false : tile.top),
-                        tile.bot,
-                        tile.left,
-                        tile.right);
+        tile = Tile.of((aboveMe.bot ? false : tile.top),
+                       tile.bot,
+                       tile.left,
+                       tile.right);
     }
 
     public void subtractBelow(Tile belowMe) {
-        tile = new Tile(tile.top,
-                        (belowMe.top ? false : tile.bot),
-                        tile.left,
-                        tile.right);
+        tile = Tile.of(tile.top,
+                       (belowMe.top ? false : tile.bot),
+                       tile.left,
+                       tile.right);
     }
 
     public void subtractLeft(Tile leftOfMe) {
-        tile = new Tile(tile.top,
-                        tile.bot,
-                        (leftOfMe.right ? false : tile.left),
-                        tile.right);
+        tile = Tile.of(tile.top,
+                       tile.bot,
+                       (leftOfMe.right ? false : tile.left),
+                       tile.right);
     }
 
     public void subtractRight(Tile rightOfMe) {
-        tile = new Tile(tile.top,
-                        tile.bot,
-                        tile.left,
-                        (rightOfMe.left ? false : tile.right));
+        tile = Tile.of(tile.top,
+                       tile.bot,
+                       tile.left,
+                       (rightOfMe.left ? false : tile.right));
     }
 
 }
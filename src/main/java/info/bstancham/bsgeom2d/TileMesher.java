@@ -0,0 +1,190 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Meshes a TiledShape with far fewer triangles than its per-tile facets,
+ * for TiledShape.mergedTriangulation().
+ *
+ * Each row is split into strips: a run of SQUARE tiles, with a
+ * half-square diagonal tile on either end if there is one there. A
+ * strip is a trapezoid, with its top and bottom along the tile edges,
+ * and straight or 45 degree ends. Strips are then stacked upwards while
+ * they line up exactly with the one below and their ends carry on at
+ * the same slope, so a solid block becomes one rectangle, and a block
+ * with a straight diagonal edge one trapezoid... two triangles either
+ * way, however many tiles it covers.
+ *
+ * Any other tiles (one or three edges) just get their own facets.
+ *
+ * Covers exactly the same area as the facets, with no overlaps, but
+ * triangles meet at T-junctions where their edges don't line up.
+ */
+final class TileMesher {
+
+    // the only two-edge tiles which can go on the end of a strip
+    private static final int BOT_RIGHT = 2 | 8;
+    private static final int TOP_RIGHT = 1 | 8;
+    private static final int BOT_LEFT  = 2 | 4;
+    private static final int TOP_LEFT  = 1 | 4;
+    private static final int SQUARE    = 15;
+
+    // trapezoids are int[] { bottom y, bottom left x, bottom right x,
+    // top y, top left x, top right x, left slope, right slope }, where
+    // the slopes are the change in x per row
+    private static final int Y0 = 0;
+    private static final int BL = 1;
+    private static final int BR = 2;
+    private static final int Y1 = 3;
+    private static final int TL = 4;
+    private static final int TR = 5;
+    private static final int SL = 6;
+    private static final int SR = 7;
+
+    private TileMesher() {}
+
+    /**
+     * Adds the triangles for shape to sink.
+     *
+     * @return Number of triangles added.
+     */
+    static int mesh(TiledShape shape, TriangleSink sink) {
+        int dim = shape.dimension();
+        int x = 2 * shape.position().x();
+        int y = 2 * shape.position().y();
+        int count = 0;
+        List<int[]> open = new ArrayList<>();
+        List<int[]> next = new ArrayList<>();
+        for (int r = dim - 1; r >= 0; r--) {
+            int y0 = y + 2 * (dim - 1 - r);
+            // strips come out left to right, and so do the open
+            // trapezoids, so they can be matched up in one pass
+            int k = 0;
+            int c = 0;
+            while (c < dim) {
+                int code = shape.code(c, r);
+                int start = c;
+                int leftCap = 0;
+                int rightCap = 0;
+                if (code == BOT_RIGHT || code == TOP_RIGHT) {
+                    leftCap = code;
+                    c++;
+                }
+                while (c < dim && shape.code(c, r) == SQUARE)
+                    c++;
+                if (c < dim && (shape.code(c, r) == BOT_LEFT || shape.code(c, r) == TOP_LEFT)) {
+                    rightCap = shape.code(c, r);
+                    c++;
+                }
+                if (c == start) {
+                    // not part of a strip
+                    count += Tile.of(code).addFacets(sink, x + 2 * c, y0);
+                    c++;
+                    continue;
+                }
+                int xs = x + 2 * start;
+                int xe = x + 2 * c;
+                int[] strip = {
+                    y0,
+                    xs + (leftCap == TOP_RIGHT ? 2 : 0),
+                    xe - (rightCap == TOP_LEFT ? 2 : 0),
+                    y0 + 2,
+                    xs + (leftCap == BOT_RIGHT ? 2 : 0),
+                    xe - (rightCap == BOT_LEFT ? 2 : 0),
+                    0,
+                    0
+                };
+                strip[SL] = strip[TL] - strip[BL];
+                strip[SR] = strip[TR] - strip[BR];
+                // close any open trapezoids which end before this strip
+                while (k < open.size() && open.get(k)[TL] < strip[BL])
+                    count += emit(open.get(k++), sink);
+                int[] t = (k < open.size() ? open.get(k) : null);
+                if (t != null && t[Y1] == y0 && t[TL] == strip[BL] && t[TR] == strip[BR] &&
+                    t[SL] == strip[SL] && t[SR] == strip[SR]) {
+                    t[Y1] = strip[Y1];
+                    t[TL] = strip[TL];
+                    t[TR] = strip[TR];
+                    next.add(t);
+                    k++;
+                } else {
+                    next.add(strip);
+                }
+            }
+            while (k < open.size())
+                count += emit(open.get(k++), sink);
+            List<int[]> swap = open;
+            open = next;
+            next = swap;
+            next.clear();
+        }
+        for (int[] t : open)
+            count += emit(t, sink);
+        return count;
+    }
+
+    /**
+     * Adds the trapezoid as one or two triangles, counter-clockwise.
+     *
+     * @return Number of triangles added.
+     */
+    private static int emit(int[] t, TriangleSink sink) {
+        if (t[BR] == t[BL]) {
+            int a = sink.vertex(t[BL], t[Y0]);
+            sink.vertex(t[TR], t[Y1]);
+            sink.vertex(t[TL], t[Y1]);
+            sink.triangle(a, a + 1, a + 2);
+            return 1;
+        }
+        if (t[TR] == t[TL]) {
+            int a = sink.vertex(t[BL], t[Y0]);
+            sink.vertex(t[BR], t[Y0]);
+            sink.vertex(t[TL], t[Y1]);
+            sink.triangle(a, a + 1, a + 2);
+            return 1;
+        }
+        int a = sink.vertex(t[BL], t[Y0]);
+        sink.vertex(t[BR], t[Y0]);
+        sink.vertex(t[TR], t[Y1]);
+        sink.vertex(t[TL], t[Y1]);
+        sink.triangle(a, a + 1, a + 2);
+        sink.triangle(a, a + 2, a + 3);
+        return 2;
+    }
+
+    /**
+     * Collects triangles from mesh() as TriInts.
+     */
+    static final class TriCollector implements TriangleSink {
+
+        private int[] xs = new int[64];
+        private int[] ys = new int[64];
+        private int numVertices = 0;
+        private final List<TriInt> triangles = new ArrayList<>();
+
+        @Override
+        public int vertex(int x, int y) {
+            if (numVertices == xs.length) {
+                xs = Arrays.copyOf(xs, numVertices * 2);
+                ys = Arrays.copyOf(ys, numVertices * 2);
+            }
+            xs[numVertices] = x;
+            ys[numVertices] = y;
+            return numVertices++;
+        }
+
+        @Override
+        public void triangle(int a, int b, int c) {
+            triangles.add(new TriInt(PointInt.of(xs[a], ys[a]),
+                                     PointInt.of(xs[b], ys[b]),
+                                     PointInt.of(xs[c], ys[c])));
+        }
+
+        TriInt[] toArray() {
+            return triangles.toArray(new TriInt[triangles.size()]);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Packed list of items (triangles or lines) which each belong to one
+ * tile, for TiledShapeMesh... a tile's items can be replaced in O(1),
+ * and the list stays packed, with no gaps, by moving the last item into
+ * any hole left behind.
+ *
+ * Every slot which gets a new or moved item, or is left empty off the
+ * end when the list shrinks, is marked dirty, so that anything
+ * mirroring the list (e.g. a vertex buffer) only needs to copy those
+ * slots again.
+ */
+final class TileSlots<T> {
+
+    private final int maxPerTile;
+    private Object[] items;
+    private int[] owner;        // tile of the item in each slot
+    private final int[] slots;  // slot of each of a tile's items
+    private final byte[] count; // number of items for each tile
+    private int size = 0;
+    private final BitSet dirty = new BitSet();
+
+    TileSlots(int numTiles, int maxPerTile) {
+        this.maxPerTile = maxPerTile;
+        this.items = new Object[Math.max(16, numTiles)];
+        this.owner = new int[items.length];
+        this.slots = new int[numTiles * maxPerTile];
+        this.count = new byte[numTiles];
+    }
+
+    int size() { return size; }
+
+    @SuppressWarnings("unchecked")
+    T get(int slot) { return (T) items[slot]; }
+
+    /**
+     * Removes the tile's items and adds the new ones (at most
+     * maxPerTile of them).
+     */
+    void replace(int tile, T[] newItems) {
+        if (newItems.length > maxPerTile)
+            throw new IllegalArgumentException("too many items for one tile ---> " + newItems.length);
+        // remove one at a time, from the end, so that the tile's own
+        // slots are kept up to date if its items are the ones moved
+        while (count[tile] > 0) {
+            int k = --count[tile];
+            int hole = slots[tile * maxPerTile + k];
+            int last = --size;
+            if (hole != last) {
+                items[hole] = items[last];
+                int o = owner[last];
+                owner[hole] = o;
+                int base = o * maxPerTile;
+                for (int j = 0; j < count[o]; j++) {
+                    if (slots[base + j] == last) {
+                        slots[base + j] = hole;
+                        break;
+                    }
+                }
+                dirty.set(hole);
+            }
+            // the list is one shorter, so the old last slot has changed
+            // too, even if nothing goes back in it
+            items[last] = null;
+            dirty.set(last);
+        }
+        for (T item : newItems) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, 2 * size);
+                owner = Arrays.copyOf(owner, 2 * size);
+            }
+            items[size] = item;
+            owner[size] = tile;
+            slots[tile * maxPerTile + count[tile]] = size;
+            count[tile]++;
+            dirty.set(size);
+            size++;
+        }
+    }
+
+    /**
+     * @return Slots changed since the last call... some may now be past
+     * the end of the list.
+     */
+    BitSet takeDirty() {
+        BitSet copy = (BitSet) dirty.clone();
+        dirty.clear();
+        return copy;
+    }
+
+    void toArray(T[] out) {
+        System.arraycopy(items, 0, out, 0, size);
+    }
+
+}
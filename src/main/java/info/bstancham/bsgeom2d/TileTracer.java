@@ -0,0 +1,140 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+
+/**
+ * Traces the boundary of a tiled shape, for TiledShape.outlines() and
+ * SparseTiledShape.outlines().
+ *
+ * Works one tile at a time, like marching squares: each tile adds the
+ * edges of its facets which aren't covered by another facet, either in
+ * the same tile or in the neighbour across a side. The facets are all
+ * counter-clockwise, so every boundary edge has the inside of the shape
+ * on its left, and chaining them together (see PolyClipper.EdgeChainer)
+ * gives counter-clockwise outlines and clockwise holes. Runs of
+ * collinear edges are then merged, so a straight wall is one edge
+ * however many tiles long.
+ */
+final class TileTracer {
+
+    // tile sides, as bits in SIDES
+    private static final int TOP   = 1;
+    private static final int BOT   = 2;
+    private static final int LEFT  = 4;
+    private static final int RIGHT = 8;
+
+    // corner co-ordinates in a tile, in the order used by
+    // Tile.facetCorners()
+    private static final int[] CORNER_X = { 0, 2, 2, 0, 1 };
+    private static final int[] CORNER_Y = { 0, 0, 2, 2, 1 };
+
+    // for each tile code: facet edges which aren't shared with another
+    // facet of the same tile, as from, to pairs of corners...
+    private static final int[][] EDGES = new int[16][];
+    // ... the side each one lies along (or 0)...
+    private static final int[][] EDGE_SIDES = new int[16][];
+    // ... and all of the sides which are covered
+    private static final int[] SIDES = new int[16];
+
+    static {
+        for (int code = 0; code < 16; code++) {
+            int[] corners = Tile.of(code).facetCorners();
+            int[] edges = new int[corners.length * 2];
+            int[] sides = new int[corners.length];
+            int n = 0;
+            for (int k = 0; k < corners.length; k++) {
+                int from = corners[k];
+                int to = corners[k % 3 == 2 ? k - 2 : k + 1];
+                if (hasEdge(corners, to, from)) continue;
+                edges[2 * n] = from;
+                edges[2 * n + 1] = to;
+                sides[n] = side(from, to);
+                SIDES[code] |= sides[n];
+                n++;
+            }
+            EDGES[code] = Arrays.copyOf(edges, 2 * n);
+            EDGE_SIDES[code] = Arrays.copyOf(sides, n);
+        }
+    }
+
+    private static boolean hasEdge(int[] corners, int from, int to) {
+        for (int k = 0; k < corners.length; k++)
+            if (corners[k] == from && corners[k % 3 == 2 ? k - 2 : k + 1] == to) return true;
+        return false;
+    }
+
+    /**
+     * @return The side from -> to lies along (with the tile on its
+     * left), or 0 if it's an internal edge.
+     */
+    private static int side(int from, int to) {
+        if (from == 2 && to == 3) return TOP;
+        if (from == 0 && to == 1) return BOT;
+        if (from == 3 && to == 0) return LEFT;
+        if (from == 1 && to == 2) return RIGHT;
+        return 0;
+    }
+
+    private final PolyClipper.EdgeChainer chainer = new PolyClipper.EdgeChainer();
+
+    /**
+     * Adds the boundary edges of the tile at (x, y), which has the
+     * given neighbours... tile (x, y) is the square from (2x, 2y) to
+     * (2x + 2, 2y + 2), as in TiledShape.
+     */
+    void addTile(int x, int y, Tile tile, Tile left, Tile right, Tile above, Tile below) {
+        int code = tile.code();
+        int[] edges = EDGES[code];
+        if (edges.length == 0) return;
+        // sides covered by neighbours
+        int covered = 0;
+        if ((SIDES[above.code()] & BOT) != 0)   covered |= TOP;
+        if ((SIDES[below.code()] & TOP) != 0)   covered |= BOT;
+        if ((SIDES[left.code()]  & RIGHT) != 0) covered |= LEFT;
+        if ((SIDES[right.code()] & LEFT) != 0)  covered |= RIGHT;
+        int[] sides = EDGE_SIDES[code];
+        int ox = 2 * x;
+        int oy = 2 * y;
+        for (int k = 0; k < sides.length; k++) {
+            if ((sides[k] & covered) != 0) continue;
+            int from = edges[2 * k];
+            int to = edges[2 * k + 1];
+            chainer.add(ox + CORNER_X[from], oy + CORNER_Y[from],
+                        ox + CORNER_X[to], oy + CORNER_Y[to]);
+        }
+    }
+
+    /**
+     * @return The outlines and holes traced from all the tiles added.
+     */
+    ShapeGroupInt result() {
+        PolyInt[] rings = chainer.chain();
+        for (int i = 0; i < rings.length; i++)
+            rings[i] = mergeCollinear(rings[i]);
+        return new ShapeGroupInt(PolyClipper.toShapes(rings));
+    }
+
+    /**
+     * @return The polygon without any vertices which are in line with
+     * their neighbours... chained edges never double back, so these are
+     * all in the middle of a straight run.
+     */
+    static PolyInt mergeCollinear(PolyInt poly) {
+        int n = poly.numVertices();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int len = 0;
+        for (int i = 0; i < n; i++) {
+            int prev = (i + n - 1) % n;
+            int next = (i + 1) % n;
+            if (Geom2DInt.ccw(poly.x(prev), poly.y(prev), poly.x(i), poly.y(i),
+                              poly.x(next), poly.y(next)) == 0)
+                continue;
+            xs[len] = poly.x(i);
+            ys[len++] = poly.y(i);
+        }
+        if (len == n) return poly;
+        return new PolyInt(Arrays.copyOf(xs, len), Arrays.copyOf(ys, len));
+    }
+
+}
@@ -5,15 +5,21 @@ import java.util.List;
 
 /**
  * Immutable data type which represents a shape made out of square tiles.
+ *
+ * Tiles are stored packed, 4 bits each (see Tile.code()), 16 to a
+ * long, with each row starting on a new long. So subtract(),
+ * intersect() and union() combine 16 tiles at a time with a single
+ * bitwise operation, and the other shape's rows only need shifting
+ * into line, however far apart the two shapes are.
  */
 public class TiledShape {
 
-    public static final Tile EMPTY    = new Tile(false, false, false, false);
-    public static final Tile SQUARE   = new Tile(true,  true,  true,  true);
-    public static final Tile TOPLEFT  = new Tile(false, true,  false, true);
-    public static final Tile TOPRIGHT = new Tile(false, true,  true,  false);
-    public static final Tile BOTLEFT  = new Tile(true,  false, false, true);
-    public static final Tile BOTRIGHT = new Tile(true,  false, true,  false);
+    public static final Tile EMPTY    = Tile.of(false, false, false, false);
+    public static final Tile SQUARE   = Tile.of(true,  true,  true,  true);
+    public static final Tile TOPLEFT  = Tile.of(false, true,  false, true);
+    public static final Tile TOPRIGHT = Tile.of(false, true,  true,  false);
+    public static final Tile BOTLEFT  = Tile.of(true,  false, false, true);
+    public static final Tile BOTRIGHT = Tile.of(true,  false, true,  false);
 
     private static final char CODE_EMPTY    = '.';
     private static final char CODE_SQUARE   = 'x';
@@ -22,17 +28,28 @@ public class TiledShape {
     private static final char CODE_BOTLEFT  = 'e';
     private static final char CODE_BOTRIGHT = 'i';
 
+    private static final int BITS_PER_TILE = 4;
+    private static final int TILES_PER_WORD = 64 / BITS_PER_TILE;
+
     private final int dim;
 
     /**
      * ... bottom left corner of the bounding box...
      */
     private final PointInt pos;
-    private final Tile[] tiles;
     private final int unitSize = 2;
 
+    // tile codes, row by row from the top - row r is words
+    // r * wordsPerRow to (r + 1) * wordsPerRow - 1, with column c in
+    // bits 4 * (c % 16) and up of word c / 16. Bits past the end of a
+    // row are always zero.
+    private final long[] bits;
+    private final int wordsPerRow;
+
     // values to be cached after calculated
     private TriInt[] triangles = null;
+    private TriInt[] merged = null;
+    private ShapeGroupInt outlines = null;
 
     public TiledShape(int dimension, char[] symbols) {
         this(dimension, toTileArray(symbols));
@@ -42,10 +59,46 @@ public class TiledShape {
         this(dimension, tiles, new PointInt(0, 0));
     }
 
+    /**
+     * @param tiles Row by row, starting from the top.
+     * @throws IllegalArgumentException if there aren't dimension *
+     * dimension tiles.
+     */
     public TiledShape(int dimension, Tile[] tiles, PointInt position) {
+        if (tiles.length != dimension * dimension)
+            throw new IllegalArgumentException("need dimension^2 tiles ---> dimension=" + dimension +
+                                               " tiles.length=" + tiles.length);
         this.dim = dimension;
-        this.tiles = tiles;
         this.pos = position;
+        this.wordsPerRow = wordsPerRow(dimension);
+        this.bits = new long[dimension * wordsPerRow];
+        for (int i = 0; i < tiles.length; i++) {
+            int col = i % dim;
+            bits[(i / dim) * wordsPerRow + col / TILES_PER_WORD]
+                |= (long) tiles[i].code() << shift(col);
+        }
+    }
+
+    private TiledShape(int dimension, long[] bits, PointInt position) {
+        this.dim = dimension;
+        this.pos = position;
+        this.wordsPerRow = wordsPerRow(dimension);
+        this.bits = bits;
+    }
+
+    /**
+     * @return A shape with no tiles.
+     */
+    static TiledShape blank(int dimension, PointInt position) {
+        return new TiledShape(dimension, new long[dimension * wordsPerRow(dimension)], position);
+    }
+
+    private static int wordsPerRow(int dimension) {
+        return (dimension + TILES_PER_WORD - 1) / TILES_PER_WORD;
+    }
+
+    private static int shift(int col) {
+        return (col % TILES_PER_WORD) * BITS_PER_TILE;
     }
 
     private static Tile[] toTileArray(char[] symbols) {
@@ -70,8 +123,34 @@ public class TiledShape {
 
     public PointInt position() { return pos; }
 
+    /**
+     * Just moves the position... tiles are shared with the original.
+     */
     public TiledShape translate(int x, int y) {
-        return new TiledShape(dim, tiles, pos.sum(x, y));
+        return new TiledShape(dim, bits, pos.sum(x, y));
+    }
+
+    /**
+     * @return The tile at index i, counting row by row from the top.
+     */
+    private Tile tile(int i) { return Tile.of(code(i % dim, i / dim)); }
+
+    /**
+     * @return True if every tile is EMPTY.
+     */
+    boolean isEmpty() {
+        for (long word : bits)
+            if (word != 0) return false;
+        return true;
+    }
+
+    /**
+     * @return Code of the tile in the given column and row (from the
+     * top)... see Tile.code().
+     */
+    int code(int col, int row) {
+        long word = bits[row * wordsPerRow + col / TILES_PER_WORD];
+        return (int) (word >>> shift(col)) & 0xF;
     }
 
     // public Iterator<Tile> iterator() {
@@ -88,14 +167,14 @@ public class TiledShape {
         PointInt unitPos = pos.multiply(unitSize, unitSize);
         if (triangles == null) {
             int count = 0;
-            for (Tile t : tiles)
-                count += t.numFacets();
+            for (int i = 0; i < dim * dim; i++)
+                count += tile(i).numFacets();
             triangles = new TriInt[count];
             int i = 0;
             int x = 0;
             int y = dim - 1;
-            for (Tile t : tiles) {
-                for (TriInt facet : t.getFacets()) {
+            for (int t = 0; t < dim * dim; t++) {
+                for (TriInt facet : tile(t).getFacets()) {
                     triangles[i] = facet.translate(unitPos.sum(x * unitSize,
                                                                y * unitSize));
                     i++;
@@ -110,28 +189,120 @@ public class TiledShape {
         return triangles;
     }
 
-    public TiledShape subtract(TiledShape shape) {
-        Tile[] newTiles = new Tile[tiles.length];
-        for (int i = 0; i < tiles.length; i++)
-            newTiles[i] = tiles[i].subtract(shape.getTileAt(xCoord(i),
-                                                            yCoord(i)));
-        return new TiledShape(dim, newTiles, pos);
+    /**
+     * Same triangles as triangulation(), but written into sink as an
+     * indexed mesh, so that no objects are created per triangle (see
+     * Tile.addFacets())... at most five vertices and four triangles per
+     * tile.
+     *
+     * @return The number of triangles added.
+     */
+    public int triangulate(TriangleSink sink) {
+        int count = 0;
+        int x = 0;
+        int y = dim - 1;
+        for (int i = 0; i < dim * dim; i++) {
+            count += tile(i).addFacets(sink, (pos.x() + x) * unitSize, (pos.y() + y) * unitSize);
+            x++;
+            if (x >= dim) {
+                x = 0;
+                y--;
+            }
+        }
+        return count;
     }
 
-    public TiledShape intersect(TiledShape shape) {
-        Tile[] newTiles = new Tile[tiles.length];
-        for (int i = 0; i < tiles.length; i++)
-            newTiles[i] = tiles[i].intersect(shape.getTileAt(xCoord(i),
-                                                            yCoord(i)));
-        return new TiledShape(dim, newTiles, pos);
+    /**
+     * Covers exactly the same area as triangulation(), but with runs of
+     * whole tiles, and the diagonal tiles at their ends, merged into as
+     * few triangles as possible (see TileMesher)... a solid rectangle of
+     * tiles is just two.
+     */
+    public TriInt[] mergedTriangulation() {
+        if (merged == null) {
+            TileMesher.TriCollector tris = new TileMesher.TriCollector();
+            TileMesher.mesh(this, tris);
+            merged = tris.toArray();
+        }
+        return merged;
     }
 
-    public TiledShape union(TiledShape shape) {
-        Tile[] newTiles = new Tile[tiles.length];
-        for (int i = 0; i < tiles.length; i++)
-            newTiles[i] = tiles[i].union(shape.getTileAt(xCoord(i),
-                                                         yCoord(i)));
-        return new TiledShape(dim, newTiles, pos);
+    /**
+     * Same triangles as mergedTriangulation(), written into sink.
+     *
+     * @return The number of triangles added.
+     */
+    public int triangulateMerged(TriangleSink sink) {
+        return TileMesher.mesh(this, sink);
+    }
+
+    public TiledShape subtract(TiledShape shape) { return combine(shape, SUBTRACT); }
+
+    public TiledShape intersect(TiledShape shape) { return combine(shape, INTERSECT); }
+
+    public TiledShape union(TiledShape shape) { return combine(shape, UNION); }
+
+    private static final int SUBTRACT  = 0;
+    private static final int INTERSECT = 1;
+    private static final int UNION     = 2;
+
+    /**
+     * Same as combining each tile with the tile at the same place in
+     * the other shape (see Tile.subtract() etc.), or EMPTY where the
+     * other shape has no tile, but a whole word of tiles at a time.
+     *
+     * @return A new shape, with the same dimension and position as
+     * this one.
+     */
+    private TiledShape combine(TiledShape shape, int op) {
+        long[] out = new long[bits.length];
+        // column c here is column c + dx in the other shape
+        long dx = (long) pos.x() - shape.pos.x();
+        long tailMask = tailMask();
+        for (int r = 0; r < dim; r++) {
+            // row r here is row r2 in the other shape
+            long r2 = (long) shape.dim - 1 - ((long) pos.y() + dim - 1 - r - shape.pos.y());
+            boolean overlaps = (r2 >= 0 && r2 < shape.dim);
+            int start = r * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long a = bits[start + w];
+                long b = 0;
+                if (overlaps)
+                    b = shape.window((int) r2, ((long) w * TILES_PER_WORD + dx) * BITS_PER_TILE);
+                if      (op == SUBTRACT)  out[start + w] = a & ~b;
+                else if (op == INTERSECT) out[start + w] = a & b;
+                else                      out[start + w] = a | b;
+            }
+            // don't let the other shape's tiles leak into the padding
+            out[start + wordsPerRow - 1] &= tailMask;
+        }
+        return new TiledShape(dim, out, pos);
+    }
+
+    /**
+     * @return 64 bits of a row, starting at the given bit (which may be
+     * outside the row, in which case those bits are zero).
+     */
+    private long window(int row, long bitOffset) {
+        long word = Math.floorDiv(bitOffset, 64);
+        int s = Math.floorMod(bitOffset, 64);
+        long lo = rowWord(row, word);
+        if (s == 0) return lo;
+        return (lo >>> s) | (rowWord(row, word + 1) << (64 - s));
+    }
+
+    private long rowWord(int row, long word) {
+        if (word < 0 || word >= wordsPerRow) return 0;
+        return bits[row * wordsPerRow + (int) word];
+    }
+
+    /**
+     * @return Mask of the bits in the last word of a row which hold
+     * tiles.
+     */
+    private long tailMask() {
+        int used = dim - (wordsPerRow - 1) * TILES_PER_WORD;
+        return (used == TILES_PER_WORD ? -1L : (1L << (used * BITS_PER_TILE)) - 1);
     }
 
     private int xCoord(int i) {
@@ -142,36 +313,40 @@ public class TiledShape {
         return pos.y() + (dim - 1) - (i / dim);
     }
 
-    private Tile getTileAt(int x, int y) {
+    /**
+     * @return The tile at the given (tile) co-ordinates, or EMPTY if
+     * they're outside the shape.
+     */
+    Tile getTileAt(int x, int y) {
         int xp = x - pos.x();
         int yp = y - pos.y();
         if (xp < 0 || yp < 0 ||
             xp >= dim || yp >= dim) return EMPTY;
-        // int yAdjust = (dim * dim) - 1;
-        int yAdjust = dim - 1 - yp;
-        // return tiles[(yAdjust - (yp * dim)) + xp];
-        return tiles[(yAdjust * dim) + xp];
+        return Tile.of(code(xp, dim - 1 - yp));
     }
 
-    private Tile tileLeft(int i) {
-        if (i % dim <= 0) return EMPTY;
-        return tiles[i - 1];
+    /**
+     * The neighbour shapes are the ones touching each side, with the same
+     * dimension... or null for none.
+     */
+    private Tile tileLeft(int i, TiledShape left) {
+        if (i % dim > 0) return tile(i - 1);
+        return (left == null ? EMPTY : left.tile(i + dim - 1));
     }
 
-    private Tile tileRight(int i) {
-        if (i % dim >= dim - 1) return EMPTY;
-        return tiles[i + 1];
+    private Tile tileRight(int i, TiledShape right) {
+        if (i % dim < dim - 1) return tile(i + 1);
+        return (right == null ? EMPTY : right.tile(i - dim + 1));
     }
 
-    private Tile tileAbove(int i) {
-        if (i < dim) return EMPTY;
-        return tiles[i - dim];
+    private Tile tileAbove(int i, TiledShape above) {
+        if (i >= dim) return tile(i - dim);
+        return (above == null ? EMPTY : above.tile(i + (dim * dim) - dim));
     }
 
-    private Tile tileBelow(int i) {
-        // if (i >= (dim * dim) - dim - 1) return EMPTY;
-        if (i >= (dim * dim) - dim) return EMPTY;
-        return tiles[i + dim];
+    private Tile tileBelow(int i, TiledShape below) {
+        if (i < (dim * dim) - dim) return tile(i + dim);
+        return (below == null ? EMPTY : below.tile(i - (dim * dim) + dim));
     }
 
     /**
@@ -179,19 +354,57 @@ public class TiledShape {
      */
     public LineInt[] getLines() {
         List<LineInt> edges = new ArrayList<>();
+        addLines(edges, null, null, null, null);
+        return edges.toArray(new LineInt[edges.size()]);
+    }
+
+    /**
+     * The boundary of the triangulation, traced into closed polygons,
+     * with runs of collinear edges merged into one (see TileTracer)...
+     * unlike getLines(), which also has the lines between the facets
+     * of three-sided tiles.
+     *
+     * @return Counter-clockwise outlines, each with its clockwise holes.
+     */
+    public ShapeGroupInt outlines() {
+        if (outlines == null) {
+            TileTracer tracer = new TileTracer();
+            addOutlineEdges(tracer, null, null, null, null);
+            outlines = tracer.result();
+        }
+        return outlines;
+    }
 
+    /**
+     * Same as addLines(), but adds the boundary edges to tracer.
+     */
+    void addOutlineEdges(TileTracer tracer, TiledShape left, TiledShape right,
+                         TiledShape above, TiledShape below) {
+        for (int i = 0; i < dim * dim; i++) {
+            if (code(i % dim, i / dim) == 0) continue;
+            tracer.addTile(xCoord(i), yCoord(i), tile(i),
+                           tileLeft(i, left), tileRight(i, right),
+                           tileAbove(i, above), tileBelow(i, below));
+        }
+    }
+
+    /**
+     * Adds the lines of this shape to edges, as if it were part of a
+     * bigger shape along with the given neighbours (same dimension, or
+     * null), so that edges shared with them are left out.
+     */
+    void addLines(List<LineInt> edges, TiledShape left, TiledShape right,
+                  TiledShape above, TiledShape below) {
         // compare each tile with all it's neighbors, and subtract edges
-        for (int i = 0; i < tiles.length; i++) {
-            TileEdgeMap tem = new TileEdgeMap(tiles[i]);
-            tem.subtractLeft(tileLeft(i));
-            tem.subtractRight(tileRight(i));
-            tem.subtractAbove(tileAbove(i));
-            tem.subtractBelow(tileBelow(i));
+        for (int i = 0; i < dim * dim; i++) {
+            TileEdgeMap tem = new TileEdgeMap(tile(i));
+            tem.subtractLeft(tileLeft(i, left));
+            tem.subtractRight(tileRight(i, right));
+            tem.subtractAbove(tileAbove(i, above));
+            tem.subtractBelow(tileBelow(i, below));
             for (LineInt ln : tem.getEdges())
                 edges.add(ln.translate(xCoord(i) * unitSize, yCoord(i) * unitSize));
         }
-
-        return edges.toArray(new LineInt[edges.size()]);
     }
 
 }
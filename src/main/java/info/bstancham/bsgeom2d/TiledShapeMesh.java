@@ -0,0 +1,237 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.BitSet;
+
+/**
+ * Editable version of a TiledShape, which keeps its triangulation and
+ * lines up to date as tiles are changed, rather than working them all
+ * out again.
+ *
+ * A tile's facets only depend on the tile itself, and its lines only on
+ * the tile and its four neighbours (see TiledShape.getLines()). So
+ * setting one tile re-makes the facets of that tile and the lines of
+ * at most five, and patches them into the mesh... O(1), however big
+ * the shape.
+ *
+ * The triangles and lines are kept packed, in no particular order, and
+ * a slot may be reused for a different tile's triangle when something
+ * is removed. takeDirtyTriangles() and takeDirtyLines() say which slots
+ * have changed, so that e.g. a vertex buffer can be patched too.
+ *
+ * NOT immutable, and not thread-safe... use toTiledShape() to get an
+ * immutable copy.
+ */
+public class TiledShapeMesh {
+
+    private static final int MAX_FACETS = 4;
+    // four sides, plus internal edges
+    private static final int MAX_LINES = 8;
+
+    private final int dim;
+    private final PointInt pos;
+    private final int unitSize = 2;
+
+    // row by row from the top, as in TiledShape
+    private final byte[] codes;
+
+    private final TileSlots<TriInt> triangles;
+    private final TileSlots<LineInt> lines;
+
+    public TiledShapeMesh(TiledShape shape) {
+        if (shape == null)
+            throw new NullPointerException("null argument given to constructor");
+        dim = shape.dimension();
+        pos = shape.position();
+        codes = new byte[dim * dim];
+        for (int i = 0; i < codes.length; i++)
+            codes[i] = (byte) shape.getTileAt(xCoord(i), yCoord(i)).code();
+        triangles = new TileSlots<>(codes.length, MAX_FACETS);
+        lines = new TileSlots<>(codes.length, MAX_LINES);
+        for (int i = 0; i < codes.length; i++) {
+            updateFacets(i);
+            updateLines(i);
+        }
+        // nothing has changed yet
+        triangles.takeDirty();
+        lines.takeDirty();
+    }
+
+    public int dimension() { return dim; }
+
+    public PointInt position() { return pos; }
+
+    /**
+     * @return An immutable copy of the current tiles.
+     */
+    public TiledShape toTiledShape() {
+        Tile[] tiles = new Tile[codes.length];
+        for (int i = 0; i < codes.length; i++)
+            tiles[i] = tile(i);
+        return new TiledShape(dim, tiles, pos);
+    }
+
+    private Tile tile(int i) { return Tile.of(codes[i]); }
+
+    private int xCoord(int i) {
+        return pos.x() + (i % dim);
+    }
+
+    private int yCoord(int i) {
+        return pos.y() + (dim - 1) - (i / dim);
+    }
+
+    /**
+     * @return Index of the tile at the given (tile) co-ordinates, or -1
+     * if they're outside the shape.
+     */
+    private int index(int x, int y) {
+        long xp = (long) x - pos.x();
+        long yp = (long) y - pos.y();
+        if (xp < 0 || yp < 0 ||
+            xp >= dim || yp >= dim) return -1;
+        return (int) ((dim - 1 - yp) * dim + xp);
+    }
+
+    /**
+     * @return The tile at the given (tile) co-ordinates, or EMPTY if
+     * they're outside the shape.
+     */
+    public Tile getTileAt(int x, int y) {
+        int i = index(x, y);
+        return (i < 0 ? TiledShape.EMPTY : tile(i));
+    }
+
+
+
+    /*----------------------------- EDITING -----------------------------*/
+
+    /**
+     * Changes one tile, and patches the triangles and lines.
+     *
+     * @throws IllegalArgumentException if (x, y) is outside the shape.
+     */
+    public void setTile(int x, int y, Tile tile) {
+        if (tile == null)
+            throw new NullPointerException("null tile");
+        int i = index(x, y);
+        if (i < 0)
+            throw new IllegalArgumentException("tile outside shape ---> (" + x + ", " + y + ")");
+        set(i, tile.code());
+    }
+
+    /**
+     * Same as TiledShape.subtract(), but in place... only the tiles
+     * which actually change are re-meshed.
+     */
+    public void subtract(TiledShape shape) {
+        for (int i = 0; i < codes.length; i++) {
+            int other = shape.getTileAt(xCoord(i), yCoord(i)).code();
+            set(i, codes[i] & ~other);
+        }
+    }
+
+    /**
+     * Same as TiledShape.intersect(), but in place.
+     */
+    public void intersect(TiledShape shape) {
+        for (int i = 0; i < codes.length; i++) {
+            int other = shape.getTileAt(xCoord(i), yCoord(i)).code();
+            set(i, codes[i] & other);
+        }
+    }
+
+    /**
+     * Same as TiledShape.union(), but in place.
+     */
+    public void union(TiledShape shape) {
+        for (int i = 0; i < codes.length; i++) {
+            int other = shape.getTileAt(xCoord(i), yCoord(i)).code();
+            set(i, codes[i] | other);
+        }
+    }
+
+    private void set(int i, int code) {
+        if (codes[i] == code) return;
+        codes[i] = (byte) code;
+        updateFacets(i);
+        updateLines(i);
+        int col = i % dim;
+        if (col > 0)                updateLines(i - 1);
+        if (col < dim - 1)          updateLines(i + 1);
+        if (i >= dim)               updateLines(i - dim);
+        if (i < codes.length - dim) updateLines(i + dim);
+    }
+
+    private void updateFacets(int i) {
+        TriInt[] facets = tile(i).getFacets();
+        int x = xCoord(i) * unitSize;
+        int y = yCoord(i) * unitSize;
+        for (int k = 0; k < facets.length; k++)
+            facets[k] = facets[k].translate(x, y);
+        triangles.replace(i, facets);
+    }
+
+    /**
+     * Same as TiledShape.addLines(), for one tile.
+     */
+    private void updateLines(int i) {
+        int col = i % dim;
+        TileEdgeMap tem = new TileEdgeMap(tile(i));
+        tem.subtractLeft(col > 0 ? tile(i - 1) : TiledShape.EMPTY);
+        tem.subtractRight(col < dim - 1 ? tile(i + 1) : TiledShape.EMPTY);
+        tem.subtractAbove(i >= dim ? tile(i - dim) : TiledShape.EMPTY);
+        tem.subtractBelow(i < codes.length - dim ? tile(i + dim) : TiledShape.EMPTY);
+        LineInt[] edges = tem.getEdges();
+        int x = xCoord(i) * unitSize;
+        int y = yCoord(i) * unitSize;
+        for (int k = 0; k < edges.length; k++)
+            edges[k] = edges[k].translate(x, y);
+        lines.replace(i, edges);
+    }
+
+
+
+    /*------------------------------ MESH -------------------------------*/
+
+    public int numTriangles() { return triangles.size(); }
+
+    /**
+     * @return The triangle in the given slot (from 0 to
+     * numTriangles() - 1).
+     */
+    public TriInt triangle(int slot) { return triangles.get(slot); }
+
+    /**
+     * @return The same triangles as TiledShape.triangulation() would
+     * give, but not in the same order.
+     */
+    public TriInt[] triangulation() {
+        TriInt[] out = new TriInt[triangles.size()];
+        triangles.toArray(out);
+        return out;
+    }
+
+    /**
+     * @return Slots whose triangle has changed since the last call
+     * (none, when the mesh is first made)... including any which are
+     * now past numTriangles().
+     */
+    public BitSet takeDirtyTriangles() { return triangles.takeDirty(); }
+
+    public int numLines() { return lines.size(); }
+
+    public LineInt line(int slot) { return lines.get(slot); }
+
+    /**
+     * @return The same lines as TiledShape.getLines() would give, but
+     * not in the same order.
+     */
+    public LineInt[] getLines() {
+        LineInt[] out = new LineInt[lines.size()];
+        lines.toArray(out);
+        return out;
+    }
+
+    public BitSet takeDirtyLines() { return lines.takeDirty(); }
+
+}
@@ -11,9 +11,9 @@ public final class TriInt {
     private PointInt c;
 
     public TriInt(int ax, int ay, int bx, int by, int cx, int cy) {
-        this(new PointInt(ax, ay),
-             new PointInt(bx, by),
-             new PointInt(cx, cy));
+        this(PointInt.of(ax, ay),
+             PointInt.of(bx, by),
+             PointInt.of(cx, cy));
     }
 
     public TriInt(PointInt a, PointInt b, PointInt c) {
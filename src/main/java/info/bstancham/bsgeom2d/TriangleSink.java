@@ -0,0 +1,32 @@
+package info.bstancham.bsgeom2d;
+
+/**
+ * Receives the output of a triangulation as an indexed mesh: vertices
+ * first, then triangles which refer to them by index... so no TriInt
+ * objects need to be created (see e.g. PolyInt.triangulate(TriangleSink)).
+ *
+ * Vertices must be numbered in the order they are added, one after
+ * another, as triangulators rely on this: each one adds all the
+ * vertices for a polygon (or tile) and then refers to them as the index
+ * of the first one plus an offset.
+ *
+ * Triangles are given in the same winding order as the input polygon
+ * or outline.
+ */
+public interface TriangleSink {
+
+    /**
+     * Adds a vertex.
+     *
+     * @return Index of the new vertex... one more than the previous
+     * one.
+     */
+    int vertex(int x, int y);
+
+    /**
+     * Adds a triangle, as the indices of three vertices which have
+     * already been added.
+     */
+    void triangle(int a, int b, int c);
+
+}
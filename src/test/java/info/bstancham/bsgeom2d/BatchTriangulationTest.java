@@ -0,0 +1,76 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchTriangulationTest {
+
+    private ShapeGroupInt[] groups() {
+        Util.setSeed(23);
+        return new ShapeGroupInt[] {
+            // convex
+            new ShapeGroupInt(Util.rect(0, 0, 10, 10)),
+            // empty
+            new ShapeGroupInt(new ShapeInt[0]),
+            // several shapes, one with holes
+            new ShapeGroupInt(new ShapeInt[] {
+                    new ShapeInt(Util.rect(0, 0, 30, 30),
+                                 Util.rect(5, 5, 5, 5).reverseVertexOrder(),
+                                 Util.rect(15, 15, 5, 5).reverseVertexOrder()),
+                    new ShapeInt(Util.randStarPolyInt(200)),
+                    new ShapeInt(Util.rect(100, 0, 10, 10))
+                }),
+            // non-convex
+            new ShapeGroupInt(Util.randStarPolyInt(1000))
+        };
+    }
+
+    private void checkMatchesGroups(ShapeGroupInt[] groups, BatchTriangulation batch, String msg) {
+        assertEquals(groups.length, batch.numGroups(), msg + " - num groups");
+        int total = 0;
+        for (int g = 0; g < groups.length; g++) {
+            TriInt[] expected = groups[g].triangulate();
+            assertEquals(total, batch.groupStart(g), msg + " - group " + g + " start");
+            assertEquals(expected.length, batch.groupEnd(g) - batch.groupStart(g),
+                         msg + " - group " + g + " num triangles");
+            for (int i = 0; i < expected.length; i++)
+                checkTriangle(expected[i], batch, total + i, msg + " - group " + g + " triangle " + i);
+            total += expected.length;
+        }
+        assertEquals(total, batch.numTriangles(), msg + " - total triangles");
+        assertEquals(total * 6, batch.getCoords().length, msg + " - num co-ordinates");
+    }
+
+    private void checkTriangle(TriInt expected, BatchTriangulation batch, int index, String msg) {
+        assertEquals(expected.a(), new PointInt(batch.x(index, 0), batch.y(index, 0)), msg + " - corner a");
+        assertEquals(expected.b(), new PointInt(batch.x(index, 1), batch.y(index, 1)), msg + " - corner b");
+        assertEquals(expected.c(), new PointInt(batch.x(index, 2), batch.y(index, 2)), msg + " - corner c");
+    }
+
+    @Test
+    public void testMatchesShapeGroupTriangulation() {
+        ShapeGroupInt[] groups = groups();
+        checkMatchesGroups(groups, new BatchTriangulation(groups), "common pool");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            checkMatchesGroups(groups, new BatchTriangulation(groups, pool), "two threads");
+        } finally {
+            pool.shutdown();
+        }
+        checkMatchesGroups(new ShapeGroupInt[0], new BatchTriangulation(new ShapeGroupInt[0]),
+                           "no groups");
+    }
+
+    @Test
+    public void testCoordinateAccess() {
+        BatchTriangulation batch =
+            new BatchTriangulation(new ShapeGroupInt[] { new ShapeGroupInt(Util.rect(0, 0, 10, 20)) });
+        int[] buffer = new int[8];
+        batch.copyCoords(1, 2, buffer, 2);
+        assertEquals(batch.x(1, 0), buffer[2], "copied x");
+        assertEquals(batch.y(1, 2), buffer[7], "copied y");
+        checkTriangle(batch.triangle(1), batch, 1, "triangle accessor");
+    }
+
+}
@@ -0,0 +1,90 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DynamicShapeIndexTest {
+
+    private static BoxInt moved(BoxInt b, int dx, int dy) {
+        return new BoxInt(b.left() + dx, b.bottom() + dy, b.right() + dx, b.top() + dy);
+    }
+
+    private static void checkQueries(DynamicShapeIndex index, BoxInt[] boxes, Random rand, String msg) {
+        int[] out = new int[boxes.length];
+        for (int q = 0; q < 50; q++) {
+            int left = rand.nextInt(11000) - 500;
+            int bottom = rand.nextInt(11000) - 500;
+            int right = left + rand.nextInt(1000);
+            int top = bottom + rand.nextInt(1000);
+            int count = index.searchBox(left, bottom, right, top, out);
+            int[] found = Arrays.copyOf(out, count);
+            Arrays.sort(found);
+            int[] expected = new int[boxes.length];
+            int numExpected = 0;
+            for (int i = 0; i < boxes.length; i++) {
+                BoxInt b = boxes[i];
+                if (b != null && b.left() <= right && b.right() >= left &&
+                    b.bottom() <= top && b.top() >= bottom)
+                    expected[numExpected++] = i;
+            }
+            assertArrayEquals(Arrays.copyOf(expected, numExpected), found, msg + " - query " + q);
+        }
+    }
+
+    @Test
+    public void testInsertMoveRemove() {
+        Random rand = new Random(17);
+        int n = 2000;
+        BoxInt[] boxes = new BoxInt[n];
+        DynamicShapeIndex index = new DynamicShapeIndex();
+        for (int i = 0; i < n; i++) {
+            boxes[i] = Util.randBoxInt(rand, 0, 10000, 300);
+            index.put(i, boxes[i]);
+        }
+        assertEquals(n, index.size(), "size after inserting");
+        checkQueries(index, boxes, rand, "after inserting");
+        // balanced... a perfectly balanced tree would have height 11
+        assertTrue(index.height() <= 22, "height " + index.height());
+
+        // lots of small moves, and some big jumps
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < n; i++) {
+                boxes[i] = (rand.nextInt(10) == 0 ? Util.randBoxInt(rand, 0, 10000, 300)
+                            : moved(boxes[i], rand.nextInt(21) - 10, rand.nextInt(21) - 10));
+                index.put(i, boxes[i]);
+            }
+            checkQueries(index, boxes, rand, "after moving, round " + round);
+        }
+
+        for (int i = 0; i < n; i += 2) {
+            assertTrue(index.remove(i), "removing " + i);
+            boxes[i] = null;
+        }
+        assertFalse(index.remove(0), "already removed");
+        assertFalse(index.contains(0), "no longer contains removed id");
+        assertEquals(n / 2, index.size(), "size after removing");
+        checkQueries(index, boxes, rand, "after removing");
+        assertTrue(index.height() <= 20, "height after removing " + index.height());
+    }
+
+    @Test
+    public void testShapes() {
+        DynamicShapeIndex index = new DynamicShapeIndex();
+        PolyInt square = new PolyInt(new int[] { 0, 10, 10, 0 }, new int[] { 0, 0, 10, 10 });
+        index.put(3, new ShapeGroupInt(square));
+        int[] out = new int[4];
+        assertEquals(1, index.searchPoint(5, 5, out), "found shape");
+        assertEquals(3, out[0], "id of shape");
+        index.put(3, new ShapeGroupInt(square.translate(100, 0)));
+        assertEquals(0, index.searchPoint(5, 5, out), "shape has moved away");
+        assertEquals(0, index.searchPoint(11, 5, out), "fat box doesn't count");
+        index.put(3, new ShapeGroupInt(new ShapeInt[0]));
+        assertEquals(0, index.size(), "empty shape is removed");
+        assertEquals(-1, index.height(), "empty tree");
+        assertThrows(IllegalArgumentException.class, () -> index.put(-1, square.boundingBox()),
+                     "negative id");
+    }
+
+}
@@ -0,0 +1,127 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EdgeBufferTest {
+
+    private ShapeGroupInt randomGroup() {
+        ShapeInt[] shapes = new ShapeInt[5];
+        for (int i = 0; i < shapes.length; i++) {
+            PolyInt outline = Util.randStarPolyInt(20 + i * 30).translate(i * 2000, 0);
+            if (i % 2 == 0) {
+                shapes[i] = new ShapeInt(outline);
+            } else {
+                // small hole around the star's centre
+                PolyInt hole = new PolyInt(new int[] { -1, -1, 1,  1 },
+                                           new int[] { -1, 1,  1, -1 });
+                shapes[i] = new ShapeInt(outline, hole.translate(i * 2000, 0));
+            }
+        }
+        return new ShapeGroupInt(shapes);
+    }
+
+    @Test
+    public void testMatchesLines() {
+        Util.setSeed(3);
+        ShapeGroupInt group = randomGroup();
+        EdgeBuffer buf = group.edgeBuffer();
+        assertSame(buf, group.edgeBuffer(), "cached");
+        assertEquals(group.numEdges(), buf.numEdges(), "num edges");
+        assertEquals(7, buf.numRings(), "num rings");
+        double[] lengths = buf.lengths();
+        double total = 0;
+        for (int i = 0; i < buf.numEdges(); i++) {
+            LineInt ln = group.edge(i);
+            assertEquals(ln, buf.edge(i), "edge " + i);
+            assertEquals(ln.boundingBox().left(), buf.left(i), "edge " + i + " - left");
+            assertEquals(ln.boundingBox().bottom(), buf.bottom(i), "edge " + i + " - bottom");
+            assertEquals(ln.boundingBox().right(), buf.right(i), "edge " + i + " - right");
+            assertEquals(ln.boundingBox().top(), buf.top(i), "edge " + i + " - top");
+            assertEquals(ln.length(), lengths[i], 1e-9, "edge " + i + " - length");
+            total += ln.length();
+        }
+        assertEquals(total, buf.totalLength(), 1e-6, "total length");
+        // each ring is a closed loop
+        for (int r = 0; r < buf.numRings(); r++) {
+            int last = buf.ringEnd(r) - 1;
+            assertEquals(buf.startX(buf.ringStart(r)), buf.endX(last), "ring " + r + " closed");
+            assertEquals(buf.startY(buf.ringStart(r)), buf.endY(last), "ring " + r + " closed");
+        }
+        BoxInt box = group.boundingBox();
+        assertEquals(box.left(), buf.boundingBox().left(), "bounding box");
+        assertEquals(box.top(), buf.boundingBox().top(), "bounding box");
+    }
+
+    @Test
+    public void testIntersecting() {
+        Util.setSeed(4);
+        ShapeGroupInt group = randomGroup();
+        EdgeBuffer buf = new EdgeBuffer(group);
+        Random rand = new Random(4);
+        int[] out = new int[buf.numEdges()];
+        int[] small = new int[2];
+        int[][] scratches = { new int[1], new int[7], new int[EdgeBuffer.BLOCK_SIZE], new int[buf.numEdges() + 5] };
+        for (int k = 0; k < 500; k++) {
+            int x1 = rand.nextInt(10000) - 1000;
+            int y1 = rand.nextInt(2000) - 1000;
+            int x2 = x1 + rand.nextInt(3000) - 1500;
+            int y2 = y1 + rand.nextInt(3000) - 1500;
+            boolean inclusive = (k % 2 == 0);
+            int count = buf.intersecting(x1, y1, x2, y2, inclusive, out);
+            int expected = 0;
+            for (int i = 0; i < group.numEdges(); i++) {
+                LineInt ln = group.edge(i);
+                if (Geom2DInt.segmentsIntersect(ln.startX(), ln.startY(), ln.endX(), ln.endY(),
+                                                x1, y1, x2, y2, inclusive)) {
+                    assertEquals(i, out[expected], "segment " + k + " - edge order");
+                    expected++;
+                }
+            }
+            assertEquals(expected, count, "segment " + k + " - count");
+            assertEquals(expected > 0, buf.intersectsAny(x1, y1, x2, y2, inclusive),
+                         "segment " + k + " - any");
+            assertEquals(expected, buf.intersecting(x1, y1, x2, y2, inclusive, small),
+                         "segment " + k + " - count with short output");
+            // reused scratch arrays, of a few awkward lengths
+            for (int[] scratch : scratches) {
+                assertEquals(expected, buf.intersecting(x1, y1, x2, y2, inclusive, small, scratch),
+                             "segment " + k + " - count with scratch " + scratch.length);
+                assertEquals(expected > 0, buf.intersectsAny(x1, y1, x2, y2, inclusive, scratch),
+                             "segment " + k + " - any with scratch " + scratch.length);
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                     () -> buf.intersectsAny(0, 0, 1, 1, true, new int[0]), "empty scratch");
+    }
+
+    @Test
+    public void testBoundingBox() {
+        Util.setSeed(6);
+        ShapeGroupInt group = randomGroup();
+        BoxInt expected = group.boundingBox();
+        BoxInt box = new EdgeBuffer(group).boundingBox();
+        assertEquals(expected.left(),   box.left(),   "left");
+        assertEquals(expected.bottom(), box.bottom(), "bottom");
+        assertEquals(expected.right(),  box.right(),  "right");
+        assertEquals(expected.top(),    box.top(),    "top");
+    }
+
+    @Test
+    public void testSearchBox() {
+        Util.setSeed(5);
+        ShapeGroupInt group = randomGroup();
+        EdgeBuffer buf = group.edgeBuffer();
+        int[] out = new int[buf.numEdges()];
+        int count = buf.searchBox(0, 0, 500, 500, out);
+        int expected = 0;
+        for (int i = 0; i < buf.numEdges(); i++) {
+            BoxInt b = group.edge(i).boundingBox();
+            if (b.left() <= 500 && b.right() >= 0 && b.bottom() <= 500 && b.top() >= 0)
+                assertEquals(i, out[expected++], "edge order");
+        }
+        assertEquals(expected, count, "count");
+    }
+
+}
@@ -0,0 +1,119 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EdgeSweepTest {
+
+    @Test
+    public void testCrossingSquares() {
+        EdgeSweep sweep = new EdgeSweep(Util.square(0, 0, 10), Util.square(5, 5, 10));
+        assertEquals(2, sweep.numCrossings(), "num crossings");
+        PolyInt split1 = sweep.split(0);
+        PolyInt split2 = sweep.split(1);
+        assertEquals(6, split1.numVertices(), "first square - num vertices");
+        assertEquals(6, split2.numVertices(), "second square - num vertices");
+        assertEquals(new PolyInt(new PointInt( 0,  0),
+                                 new PointInt(10,  0),
+                                 new PointInt(10,  5),
+                                 new PointInt(10, 10),
+                                 new PointInt( 5, 10),
+                                 new PointInt( 0, 10)),
+                     split1, "first square - split points in order");
+    }
+
+    @Test
+    public void testNoCrossings() {
+        PolyInt a = Util.square(0, 0, 10);
+        PolyInt b = Util.square(2, 2, 5);
+        EdgeSweep sweep = new EdgeSweep(a, b, Util.square(20, 0, 10));
+        assertEquals(0, sweep.numCrossings(), "num crossings");
+        assertEquals(a, sweep.split(0), "unchanged");
+        assertEquals(b, sweep.split(1), "unchanged");
+    }
+
+    @Test
+    public void testNegativeCoords() {
+        // edges either side of x = 0 must still be swept in order
+        EdgeSweep sweep = new EdgeSweep(Util.square(-5, -5, 10), Util.square(0, 0, 10));
+        assertEquals(2, sweep.numCrossings(), "num crossings");
+        assertEquals(6, sweep.split(0).numVertices(), "first square - num vertices");
+    }
+
+    @Test
+    public void testSharedEdge() {
+        // squares side by side, second one shifted up so that the
+        // shared edges overlap part way
+        EdgeSweep sweep = new EdgeSweep(Util.square(0, 0, 10), Util.square(10, 4, 10));
+        PolyInt split1 = sweep.split(0);
+        PolyInt split2 = sweep.split(1);
+        assertEquals(5, split1.numVertices(), "first square - num vertices");
+        assertEquals(5, split2.numVertices(), "second square - num vertices");
+        assertEquals(10, split1.x(2), "first square - split at corner of second");
+        assertEquals(4, split1.y(2), "first square - split at corner of second");
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random rand = new Random(3);
+        for (int trial = 0; trial < 20; trial++) {
+            PolyInt[] polys = new PolyInt[3];
+            for (int p = 0; p < polys.length; p++) {
+                int n = 3 + rand.nextInt(40);
+                int[] xs = new int[n];
+                int[] ys = new int[n];
+                for (int i = 0; i < n; i++) {
+                    xs[i] = rand.nextInt(100);
+                    ys[i] = rand.nextInt(100);
+                }
+                polys[p] = new PolyInt(xs, ys);
+            }
+            int expected = 0;
+            for (int p = 0; p < polys.length; p++)
+                for (int q = p + 1; q < polys.length; q++)
+                    for (LineInt a : polys[p].getEdges())
+                        for (LineInt b : polys[q].getEdges())
+                            if (a.intersectsLineSegment(b)) expected++;
+            assertEquals(expected, new EdgeSweep(polys).numCrossings(),
+                         "trial " + trial + " - num crossings");
+        }
+    }
+
+    @Test
+    public void testPassesThrough() {
+        // pixel (5, 5) is the square from (4.5, 4.5) to (5.5, 5.5)
+        assertTrue(EdgeSweep.passesThrough(0, 0, 10, 11, 5, 5), "through the middle");
+        assertTrue(EdgeSweep.passesThrough(0, 4, 10, 5, 5, 5), "through the bottom half");
+        assertFalse(EdgeSweep.passesThrough(0, 6, 10, 6, 5, 5), "above");
+        assertFalse(EdgeSweep.passesThrough(0, 5, 4, 5, 5, 5), "stops short");
+        // along a diagonal through two corners
+        assertTrue(EdgeSweep.passesThrough(0, 10, 10, 0, 5, 5), "through the top left and bottom right corners");
+        // touching one corner only... the bottom left one is in the
+        // pixel, the others belong to the neighbours
+        assertTrue(EdgeSweep.passesThrough(0, 9, 9, 0, 5, 5), "touches the bottom left corner");
+        assertFalse(EdgeSweep.passesThrough(2, 1, 8, 7, 5, 5), "touches the bottom right corner");
+        assertFalse(EdgeSweep.passesThrough(0, 1, 8, 9, 5, 5), "touches the top left corner");
+    }
+
+    @Test
+    public void testSnapRounding() {
+        // the sloping edge on the left crosses the square at points which
+        // aren't whole numbers, so the edges get snap rounded... the long
+        // edge across the top passes within half a unit of the square's
+        // corner at (10, 10), without touching it, so it gets split
+        // there too
+        PolyInt a = Util.square(0, 0, 10);
+        PolyInt b = new PolyInt(new int[] { 0, 3, 21 }, new int[] { 20, -2, 0 });
+        EdgeSweep sweep = new EdgeSweep(a, b);
+        assertTrue(sweep.isRounded(), "crossing points rounded");
+        PolyInt split = sweep.split(1);
+        boolean found = false;
+        for (int i = 0; i < split.numVertices(); i++)
+            if (split.x(i) == 10 && split.y(i) == 10) found = true;
+        assertTrue(found, "split at the square's corner");
+        assertEquals(6, sweep.split(0).numVertices(), "square split at both rounded crossings");
+        assertEquals(6, split.numVertices(), "triangle split at both crossings and the corner");
+    }
+
+}
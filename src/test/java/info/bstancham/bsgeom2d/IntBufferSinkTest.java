@@ -0,0 +1,113 @@
+package info.bstancham.bsgeom2d;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntBufferSinkTest {
+
+    /**
+     * Checks that the mesh in the buffers has the same triangles, in the
+     * same order, as expected.
+     */
+    private void checkMesh(TriInt[] expected, IntBuffer vertices, IntBuffer indices,
+                           int numTriangles, String msg) {
+        assertEquals(expected.length, numTriangles, msg + " - num triangles");
+        for (int t = 0; t < expected.length; t++) {
+            PointInt[] corners = new PointInt[3];
+            for (int k = 0; k < 3; k++) {
+                int v = indices.get(t * 3 + k);
+                corners[k] = new PointInt(vertices.get(v * 2), vertices.get(v * 2 + 1));
+            }
+            assertEquals(expected[t].a(), corners[0], msg + " - triangle " + t + " a");
+            assertEquals(expected[t].b(), corners[1], msg + " - triangle " + t + " b");
+            assertEquals(expected[t].c(), corners[2], msg + " - triangle " + t + " c");
+        }
+    }
+
+    @Test
+    public void testPolygons() {
+        Util.setSeed(31);
+        PolyInt[] polys = new PolyInt[] {
+            Util.rect(0, 0, 10, 10), Util.randStarPolyInt(5), Util.randStarPolyInt(300)
+        };
+        for (PolyInt p : polys) {
+            IntBuffer vertices = IntBuffer.allocate(p.numVertices() * 2);
+            IntBuffer indices = IntBuffer.allocate((p.numVertices() - 2) * 3);
+            IntBufferSink sink = new IntBufferSink(vertices, indices);
+            int count = p.triangulate(sink);
+            assertEquals(count, sink.numTriangles(), "count returned");
+            assertEquals(p.numVertices(), sink.numVertices(), "num vertices");
+            checkMesh(p.getTriangulation(), vertices, indices, count, p.numVertices() + " vertices");
+        }
+    }
+
+    @Test
+    public void testShapeGroups() {
+        Util.setSeed(32);
+        ShapeGroupInt group = new ShapeGroupInt(new ShapeInt[] {
+                new ShapeInt(Util.rect(0, 0, 30, 30),
+                             Util.rect(5, 5, 5, 5).reverseVertexOrder(),
+                             Util.rect(15, 15, 5, 5).reverseVertexOrder()),
+                new ShapeInt(Util.randStarPolyInt(200).translate(100, 0)),
+                new ShapeInt(Util.rect(-100, 0, 10, 10))
+            });
+        IntBuffer vertices = IntBuffer.allocate(group.numVertices() * 2);
+        IntBuffer indices = IntBuffer.allocate((group.numVertices() + 2 * 2) * 3);
+        IntBufferSink sink = new IntBufferSink(vertices, indices);
+        int count = group.triangulate(sink);
+        assertEquals(group.numVertices(), sink.numVertices(), "num vertices");
+        checkMesh(group.triangulate(), vertices, indices, count, "group");
+    }
+
+    @Test
+    public void testTiledShape() {
+        char[] symbols = ("x..r" +
+                          "xxxx" +
+                          "l.ie" +
+                          ".xx.").toCharArray();
+        TiledShape tiled = new TiledShape(4, symbols).translate(3, -2);
+        IntBuffer vertices = IntBuffer.allocate(16 * 5 * 2);
+        IntBuffer indices = IntBuffer.allocate(16 * 4 * 3);
+        IntBufferSink sink = new IntBufferSink(vertices, indices);
+        int count = tiled.triangulate(sink);
+        checkMesh(tiled.triangulation(), vertices, indices, count, "tiled shape");
+        // four corners for each non-empty tile
+        assertEquals(4 * 11, sink.numVertices(), "num vertices");
+    }
+
+    @Test
+    public void testDirectByteBuffer() {
+        Util.setSeed(33);
+        PolyInt p = Util.randStarPolyInt(50);
+        ByteBuffer[] buffers = IntBufferSink.allocateDirect(p.numVertices(), p.numVertices() - 2);
+        assertTrue(buffers[0].isDirect(), "direct");
+        assertEquals(ByteOrder.nativeOrder(), buffers[1].order(), "native order");
+        IntBufferSink sink = IntBufferSink.of(buffers[0], buffers[1]);
+        int count = p.triangulate(sink);
+        assertEquals(p.numVertices() * 8, sink.vertexBytes(), "vertex bytes");
+        assertEquals(count * 12, sink.indexBytes(), "index bytes");
+        assertEquals(0, buffers[0].position(), "byte buffer position not moved");
+        // read back through the byte buffers
+        IntBuffer vertices = IntBuffer.allocate(p.numVertices() * 2);
+        IntBuffer indices = IntBuffer.allocate(count * 3);
+        for (int i = 0; i < vertices.capacity(); i++)
+            vertices.put(i, buffers[0].getInt(i * 4));
+        for (int i = 0; i < indices.capacity(); i++)
+            indices.put(i, buffers[1].getInt(i * 4));
+        checkMesh(p.getTriangulation(), vertices, indices, count, "direct");
+    }
+
+    @Test
+    public void testTooSmall() {
+        PolyInt p = Util.rect(0, 0, 10, 10);
+        IntBufferSink sink = new IntBufferSink(IntBuffer.allocate(8), IntBuffer.allocate(3));
+        assertThrows(BufferOverflowException.class, () -> p.triangulate(sink), "index buffer full");
+        assertThrows(NullPointerException.class, () -> new IntBufferSink(null, IntBuffer.allocate(3)),
+                     "null buffer");
+    }
+
+}
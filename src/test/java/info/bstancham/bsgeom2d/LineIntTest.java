@@ -233,6 +233,45 @@ public class LineIntTest {
 
     }
 
+    @Test
+    public void testIntersectsLineSegment() {
+        LineInt base = new LineInt(0, 0, 10, 10);
+        // crossing
+        LineInt crossing = new LineInt(0, 10, 10, 0);
+        assertTrue(base.intersectsLineSegment(crossing), "crossing segments");
+        assertTrue(base.intersectsLineSegmentExcludeTouching(crossing), "crossing segments, exclude touching");
+        // end point of one touches the other
+        LineInt tJunction = new LineInt(5, 5, 10, 0);
+        assertTrue(base.intersectsLineSegment(tJunction), "T-junction");
+        assertFalse(base.intersectsLineSegmentExcludeTouching(tJunction), "T-junction, exclude touching");
+        LineInt sharedEnd = new LineInt(10, 10, 20, 0);
+        assertTrue(base.intersectsLineSegment(sharedEnd), "shared end point");
+        assertFalse(base.intersectsLineSegmentExcludeTouching(sharedEnd), "shared end point, exclude touching");
+        // parallel and collinear
+        assertFalse(base.intersectsLineSegment(new LineInt(1, 0, 11, 10)), "parallel, not collinear");
+        assertFalse(base.intersectsLineSegment(new LineInt(11, 11, 20, 20)), "collinear, disjoint");
+        LineInt collinearTouch = new LineInt(10, 10, 20, 20);
+        assertTrue(base.intersectsLineSegment(collinearTouch), "collinear, touching");
+        assertFalse(base.intersectsLineSegmentExcludeTouching(collinearTouch), "collinear, touching, exclude touching");
+        LineInt overlap = new LineInt(5, 5, 20, 20);
+        assertTrue(base.intersectsLineSegment(overlap), "collinear, overlapping");
+        assertTrue(base.intersectsLineSegmentExcludeTouching(overlap), "collinear, overlapping, exclude touching");
+        assertTrue(base.intersectsLineSegmentExcludeTouching(new LineInt(0, 0, 3, 3)),
+                   "collinear, section sharing an end point, exclude touching");
+        assertTrue(lvertical.intersectsLineSegmentExcludeTouching(lvertical.reverse()),
+                   "vertical line against itself, reversed");
+        // symmetry
+        assertEquals(lrand1.intersectsLineSegment(lrand2), lrand2.intersectsLineSegment(lrand1),
+                     "symmetry of intersection test");
+        // co-ordinates large enough to overflow a 64-bit cross product
+        int max = Integer.MAX_VALUE;
+        int min = Integer.MIN_VALUE;
+        LineInt bigDiag = new LineInt(min, min, max, max);
+        assertTrue(bigDiag.intersectsLineSegment(new LineInt(min, max, max, min)), "huge crossing segments");
+        assertFalse(bigDiag.intersectsLineSegment(new LineInt(min + 1, min, max, max - 1)),
+                    "huge, nearly collinear segments");
+    }
+
     @Test
     public void testIntersectionInt() {
 
@@ -0,0 +1,203 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The vector kernel is only tested if the JVM running the tests has
+ * the incubator module (the gradle build adds it)... otherwise both
+ * kernels are the scalar one, and this just checks the bulk methods.
+ */
+public class PointKernelTest {
+
+    private final Random rand = new Random(5);
+
+    /**
+     * @return Random points in and around the polygon, plus all its
+     * vertices, edge mid-points and points level with vertices, so
+     * that plenty of them are on the boundary.
+     */
+    private int[][] testPoints(PolyInt p, int numRandom) {
+        BoxInt box = p.boundingBox();
+        int n = p.numVertices();
+        int total = numRandom + 4 * n;
+        int[] xs = new int[total];
+        int[] ys = new int[total];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            int next = (i + 1) % n;
+            xs[k] = p.x(i);
+            ys[k++] = p.y(i);
+            xs[k] = (int) Math.floorDiv((long) p.x(i) + p.x(next), 2);
+            ys[k++] = (int) Math.floorDiv((long) p.y(i) + p.y(next), 2);
+            xs[k] = between(box.left() - 1, box.right() + 1);
+            ys[k++] = p.y(i);
+            xs[k] = between((long) p.x(i) - 1, (long) p.x(i) + 1);
+            ys[k++] = p.y(i);
+        }
+        while (k < total) {
+            xs[k] = between(box.left() - 10, box.right() + 10);
+            ys[k++] = between(box.bottom() - 10, box.top() + 10);
+        }
+        return new int[][] { xs, ys };
+    }
+
+    /**
+     * @return Random int from lo to hi inclusive, clamped to the range
+     * of int.
+     */
+    private int between(long lo, long hi) {
+        long v = lo + (long) (rand.nextDouble() * (hi - lo + 1));
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
+
+    /**
+     * @return Random orthogonal polygon on a coarse grid: a histogram
+     * of columns, so there are lots of horizontal edges and collinear
+     * vertices.
+     */
+    private PolyInt randHistogram(int columns) {
+        int[] xs = new int[2 * columns + 2];
+        int[] ys = new int[2 * columns + 2];
+        int k = 0;
+        xs[k] = 0;
+        ys[k++] = 0;
+        for (int c = columns - 1; c >= 0; c--) {
+            // right to left along the top, so the outline is CCW
+            int h = 10 * (1 + rand.nextInt(5));
+            xs[k] = 10 * (c + 1);
+            ys[k++] = h;
+            xs[k] = 10 * c;
+            ys[k++] = h;
+        }
+        xs[k] = 0;
+        ys[k++] = 0;
+        // first vertex is the bottom-right corner
+        xs[0] = 10 * columns;
+        return new PolyInt(xs, ys);
+    }
+
+    private void checkAgainstSingle(PolyInt p, String msg) {
+        int[][] pts = testPoints(p, 500);
+        int[] xs = pts[0];
+        int[] ys = pts[1];
+        int[] polyXs = new int[p.numVertices()];
+        int[] polyYs = new int[p.numVertices()];
+        for (int i = 0; i < p.numVertices(); i++) {
+            polyXs[i] = p.x(i);
+            polyYs[i] = p.y(i);
+        }
+        byte[] scalar = new byte[xs.length];
+        byte[] best = new byte[xs.length];
+        PointKernel.scalar().locate(polyXs, polyYs, p.boundingBox(), xs, ys, 0, xs.length, scalar);
+        PointKernel.get().locate(polyXs, polyYs, p.boundingBox(), xs, ys, 0, xs.length, best);
+        boolean[] withEdges = p.contains(xs, ys);
+        boolean[] noEdges = new boolean[xs.length];
+        p.contains(xs, ys, false, noEdges);
+        for (int i = 0; i < xs.length; i++) {
+            String m = msg + " point " + i + " (" + xs[i] + ", " + ys[i] + ")";
+            if (PointKernel.inRange(p.boundingBox()))
+                assertEquals(scalar[i], best[i], m + " - " + PointKernel.get().name() + " vs scalar");
+            assertEquals(p.contains(xs[i], ys[i], true), withEdges[i], m + " - including edges");
+            assertEquals(p.contains(xs[i], ys[i], false), noEdges[i], m + " - excluding edges");
+        }
+    }
+
+    @Test
+    public void testStarPolygons() {
+        Util.setSeed(11);
+        for (int n = 3; n < 80; n++)
+            checkAgainstSingle(Util.randStarPolyInt(n), "star " + n);
+    }
+
+    @Test
+    public void testOrthogonalPolygons() {
+        for (int c = 1; c < 40; c++)
+            checkAgainstSingle(randHistogram(c), "histogram " + c);
+    }
+
+    @Test
+    public void testLargeCoordinates() {
+        // too big for the vector kernel... bulk contains must fall back
+        int big = Integer.MAX_VALUE - 10;
+        PolyInt huge = new PolyInt(new int[] { -big, big, 0 },
+                                   new int[] { -big, -big, big });
+        assertFalse(PointKernel.inRange(huge.boundingBox()), "huge polygon out of range");
+        checkAgainstSingle(huge, "huge");
+        // in range, but with points far away, which overflow in the
+        // kernel
+        PolyInt tri = new PolyInt(new int[] { -PointKernel.MAX_COORD, PointKernel.MAX_COORD, 0 },
+                                  new int[] { -PointKernel.MAX_COORD, -PointKernel.MAX_COORD,
+                                              PointKernel.MAX_COORD });
+        assertTrue(PointKernel.inRange(tri.boundingBox()), "big triangle in range");
+        checkAgainstSingle(tri, "big triangle");
+        int[] xs = new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+                               Integer.MIN_VALUE, 0, 0, PointKernel.MAX_COORD, 1, 2, 3 };
+        int[] ys = new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 0,
+                               Integer.MIN_VALUE, 0, -PointKernel.MAX_COORD, -PointKernel.MAX_COORD,
+                               1, 2, 3 };
+        boolean[] result = tri.contains(xs, ys);
+        for (int i = 0; i < xs.length; i++)
+            assertEquals(tri.contains(xs[i], ys[i]), result[i], "far point " + i);
+    }
+
+    @Test
+    public void testShapes() {
+        Util.setSeed(12);
+        PolyInt hole1 = new PolyInt(new int[] { -20, -20, 20, 20 },
+                                    new int[] { -20, 20, 20, -20 });
+        PolyInt hole2 = hole1.translate(60, 0);
+        ShapeInt[] shapes = new ShapeInt[12];
+        for (int i = 0; i < shapes.length; i++) {
+            PolyInt outline = Util.randStarPolyInt(5 + 7 * i);
+            shapes[i] = (i % 3 == 0 ?
+                         new ShapeInt(outline, hole1, hole2) :
+                         new ShapeInt(outline)).translate(i * 300, 0);
+        }
+        int n = 20000;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rand.nextInt(5000) - 1200;
+            ys[i] = rand.nextInt(2400) - 1200;
+            // ... with some exactly on hole edges
+            if (i % 10 == 0) {
+                xs[i] = 300 * rand.nextInt(12) - 20 + rand.nextInt(41);
+                ys[i] = (rand.nextBoolean() ? 20 : -20);
+            }
+        }
+        for (boolean edges : new boolean[] { true, false }) {
+            for (ShapeInt s : shapes) {
+                boolean[] result = new boolean[n];
+                s.contains(xs, ys, edges, result);
+                for (int i = 0; i < n; i++)
+                    assertEquals(s.contains(xs[i], ys[i], edges), result[i],
+                                 "shape point " + i + " edges=" + edges);
+            }
+            // few shapes (no grid) and lots of shapes (grid)
+            for (int count : new int[] { 3, shapes.length }) {
+                ShapeInt[] some = new ShapeInt[count];
+                System.arraycopy(shapes, 0, some, 0, count);
+                ShapeGroupInt group = new ShapeGroupInt(some);
+                boolean[] result = new boolean[n];
+                group.contains(xs, ys, edges, result);
+                for (int i = 0; i < n; i++)
+                    assertEquals(group.contains(xs[i], ys[i], edges), result[i],
+                                 count + " shapes point " + i + " edges=" + edges);
+            }
+        }
+    }
+
+    @Test
+    public void testBadArgs() {
+        PolyInt p = Util.randStarPolyInt(5);
+        assertThrows(IllegalArgumentException.class,
+                     () -> p.contains(new int[3], new int[2]), "arrays differ");
+        assertThrows(IllegalArgumentException.class,
+                     () -> p.contains(new int[3], new int[3], true, new boolean[2]),
+                     "result too short");
+        assertEquals(0, p.contains(new int[0], new int[0]).length, "no points");
+    }
+
+}
@@ -0,0 +1,123 @@
+package info.bstancham.bsgeom2d;
+
+import java.nio.IntBuffer;
+import java.util.IdentityHashMap;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointPoolTest {
+
+    @Test
+    public void testGetAndIntern() {
+        PointPool pool = new PointPool(100);
+        assertEquals(128, pool.capacity(), "capacity rounded up");
+        PointInt p = pool.get(3, -7);
+        assertEquals(new PointInt(3, -7), p, "co-ordinates");
+        assertSame(p, pool.get(3, -7), "same point again");
+        assertSame(p, pool.intern(new PointInt(3, -7)), "intern finds pooled point");
+        PointInt q = new PointInt(8, 9);
+        assertSame(q, pool.intern(q), "intern adds new point");
+        assertSame(q, pool.get(8, 9), "get finds interned point");
+        assertEquals(2, pool.size(), "size");
+        pool.clear();
+        assertEquals(0, pool.size(), "cleared");
+        assertNotSame(p, pool.get(3, -7), "new point after clear");
+        assertThrows(IllegalArgumentException.class, () -> new PointPool(0), "zero capacity");
+    }
+
+    @Test
+    public void testBounded() {
+        PointPool pool = new PointPool(64);
+        // far more points than will fit
+        for (int x = -200; x < 200; x++) {
+            for (int y = -200; y < 200; y++) {
+                PointInt p = pool.get(x, y);
+                assertEquals(x, p.x(), "x");
+                assertEquals(y, p.y(), "y");
+            }
+        }
+        assertTrue(pool.size() <= pool.capacity(), "never holds more than capacity");
+        // ... but a lattice which does fit is fully shared
+        pool.clear();
+        PointInt[] first = new PointInt[16];
+        for (int i = 0; i < 16; i++)
+            first[i] = pool.get(i % 4, i / 4);
+        int same = 0;
+        for (int i = 0; i < 16; i++)
+            if (pool.get(i % 4, i / 4) == first[i]) same++;
+        assertTrue(same >= 14, "small lattice mostly shared (" + same + "/16)");
+    }
+
+    @Test
+    public void testDefaultPool() {
+        PointInt p = new PointInt(1, 2);
+        assertNull(PointPool.getDefault(), "off by default");
+        assertNotSame(p.sum(1, 1), p.sum(1, 1), "no pool - new points");
+        PointPool pool = new PointPool();
+        PointPool.setDefault(pool);
+        try {
+            assertSame(p.sum(1, 1), PointInt.of(2, 3), "sum uses pool");
+            assertSame(p.multiply(2, 2), p.sum(1, 2), "multiply uses pool");
+            assertSame(p.reflectX(0), p.invert().reflectY(0), "reflections use pool");
+            PolyInt poly = new PolyInt(new int[] { 0, 4, 4, 0 }, new int[] { 0, 0, 4, 4 });
+            assertSame(poly.vertex(2), poly.translate(2, 2).vertex(0).sum(2, 2), "vertices use pool");
+
+            // adjacent tiles share corners, so a tiled map only needs one
+            // point per lattice point
+            TiledShape tiled = new TiledShape(8, "xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx"
+                                              .toCharArray());
+            IdentityHashMap<PointInt, Boolean> distinct = new IdentityHashMap<>();
+            for (TriInt t : tiled.triangulation()) {
+                distinct.put(t.a(), true);
+                distinct.put(t.b(), true);
+                distinct.put(t.c(), true);
+            }
+            assertEquals(9 * 9, distinct.size(), "one object per lattice point");
+        } finally {
+            PointPool.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testFlatTriangulationMakesNoPoints() {
+        // outline with a hole, so the shape isn't just fanned
+        ShapeInt shape = new ShapeInt(new PolyInt(new int[] { 0, 30, 30,  0 }, new int[] { 0,  0, 30, 30 }),
+                                      new PolyInt(new int[] { 10, 10, 20, 20 }, new int[] { 10, 20, 20, 10 }));
+        PointPool pool = new PointPool();
+        PointPool.setDefault(pool);
+        try {
+            shape.triangleCoords();
+            shape.triangulate(new IntBufferSink(IntBuffer.allocate(16), IntBuffer.allocate(48)));
+            assertEquals(0, pool.size(), "no points made");
+        } finally {
+            PointPool.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testThreads() {
+        PointPool pool = new PointPool(256);
+        IntStream.range(0, 64).parallel().forEach(t -> {
+                for (int i = 0; i < 20000; i++) {
+                    int x = (i * 7 + t) % 50;
+                    int y = (i * 13) % 50;
+                    PointInt p = pool.get(x, y);
+                    if (p.x() != x || p.y() != y)
+                        throw new AssertionError("wrong point " + p + " for (" + x + ", " + y + ")");
+                }
+            });
+        assertTrue(pool.size() <= pool.capacity(), "bounded");
+    }
+
+    @Test
+    public void testCanonicalTiles() {
+        assertSame(TiledShape.SQUARE, Tile.of(true, true, true, true), "shared square");
+        assertSame(TiledShape.EMPTY, TiledShape.SQUARE.subtract(TiledShape.SQUARE), "shared empty");
+        assertSame(TiledShape.TOPLEFT,
+                   TiledShape.SQUARE.intersect(TiledShape.TOPLEFT), "intersection shared");
+        assertSame(TiledShape.SQUARE,
+                   TiledShape.TOPLEFT.union(TiledShape.BOTRIGHT), "union shared");
+    }
+
+}
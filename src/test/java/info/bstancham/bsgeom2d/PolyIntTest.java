@@ -2,6 +2,7 @@ package info.bstancham.bsgeom2d;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,6 +59,374 @@ public class PolyIntTest {
         assertEquals(quad1, quad1Mod, "self, with one modified vertex");
     }
 
+    @Test
+    public void testPackedCoordinates() {
+        int[] xs = new int[] { 1, 9, -4, -2 };
+        int[] ys = new int[] { -2, -3, 12, -8 };
+        PolyInt packed = new PolyInt(xs, ys);
+        assertEquals(quad1, packed, "built from co-ordinate arrays");
+        assertEquals(-4, packed.x(2), "x co-ordinate accessor");
+        assertEquals(12, packed.y(2), "y co-ordinate accessor");
+        // input arrays are copied, so the polygon stays immutable
+        xs[0] = 100;
+        ys[0] = 100;
+        assertEquals(quad1, packed, "input arrays modified after construction");
+        // output arrays are copies too
+        packed.getXCoords()[1] = 100;
+        assertEquals(9, packed.x(1), "output array modified");
+        assertThrows(IllegalArgumentException.class,
+                     () -> new PolyInt(new int[] { 1, 2, 3 }, new int[] { 1, 2 }),
+                     "mismatched co-ordinate arrays");
+    }
+
+    @Test
+    public void testContainsPoint() {
+        assertTrue(poly1.contains(new PointInt(10, 5)), "point inside");
+        assertTrue(poly1.contains(10, 5, false), "point inside, excluding edges");
+        assertFalse(poly1.contains(new PointInt(4, 14)), "point inside bounding box, outside polygon");
+        assertFalse(poly1.contains(40, 5), "point outside bounding box");
+        assertTrue(poly1.contains(new PointInt(5, 0)), "point on edge");
+        assertFalse(poly1.contains(new PointInt(5, 0), false), "point on edge, excluding edges");
+        assertTrue(poly1.contains(16, 6), "point on vertex");
+        assertFalse(poly1.contains(16, 6, false), "point on vertex, excluding edges");
+        assertTrue(poly1.contains(new PointInt(30, 35)), "point on top edge");
+    }
+
+    @Test
+    public void testContainsPointThreads() {
+        // a fresh polygon each round, so that the threads all race to
+        // build its point-location index on their first query
+        Util.setSeed(3);
+        for (int round = 0; round < 20; round++) {
+            PolyInt poly = Util.randStarPolyInt(500);
+            int[] xs = poly.getXCoords();
+            int[] ys = poly.getYCoords();
+            boolean[] wrong = new boolean[16];
+            IntStream.range(0, wrong.length).parallel().forEach(t -> {
+                    Random rand = new Random(t);
+                    for (int i = 0; i < 2000; i++) {
+                        int x = rand.nextInt(2000) - 1000;
+                        int y = rand.nextInt(2000) - 1000;
+                        boolean expected = SlabIndex.scan(xs, ys, x, y) != SlabIndex.OUTSIDE;
+                        if (poly.contains(x, y) != expected) wrong[t] = true;
+                    }
+                });
+            for (int t = 0; t < wrong.length; t++)
+                assertFalse(wrong[t], "round " + round + ", thread " + t);
+        }
+    }
+
+    @Test
+    public void testContainsPointLargePolygon() {
+        // comb shape, big enough to use the slab index - teeth pointing
+        // up, with sloping sides
+        int teeth = 12;
+        int n = teeth * 4 + 2;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int i = 0;
+        for (int t = 0; t < teeth; t++) {
+            xs[i] = t * 10;     ys[i++] = 10;
+            xs[i] = t * 10 + 2; ys[i++] = 30 + t;
+            xs[i] = t * 10 + 6; ys[i++] = 30 + t;
+            xs[i] = t * 10 + 8; ys[i++] = 10;
+        }
+        xs[i] = teeth * 10; ys[i++] = 0;
+        xs[i] = 0;          ys[i++] = 0;
+        PolyInt comb = new PolyInt(xs, ys);
+        assertTrue(comb.contains(4, 20), "inside first tooth");
+        assertFalse(comb.contains(9, 20), "between teeth");
+        assertTrue(comb.contains(5, 10), "inside, level with a vertex");
+        assertTrue(comb.contains(1, 20), "on sloping edge");
+        assertFalse(comb.contains(1, 20, false), "on sloping edge, excluding edges");
+        assertTrue(comb.contains(9, 10), "on horizontal edge");
+        assertTrue(comb.contains(12, 30), "on vertex");
+        // compare against a plain scan of the edges
+        for (int x = -1; x <= teeth * 10 + 1; x++) {
+            for (int y = -1; y <= teeth + 31; y++) {
+                int expected = SlabIndex.scan(xs, ys, x, y);
+                assertEquals(expected != SlabIndex.OUTSIDE, comb.contains(x, y),
+                             "contains(" + x + ", " + y + ")");
+                assertEquals(expected == SlabIndex.INSIDE, comb.contains(x, y, false),
+                             "contains(" + x + ", " + y + ", false)");
+            }
+        }
+    }
+
+    /**
+     * @return Twice the signed area of a polygon.
+     */
+    private static long doubleArea(int[] xs, int[] ys) {
+        long sum = 0;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++)
+            sum += (long) xs[j] * ys[i] - (long) xs[i] * ys[j];
+        return sum;
+    }
+
+    private static long doubleArea(TriInt t) {
+        return doubleArea(new int[] { t.a().x(), t.b().x(), t.c().x() },
+                          new int[] { t.a().y(), t.b().y(), t.c().y() });
+    }
+
+    private void checkTriangulation(PolyInt poly, String msg) {
+        TriInt[] tris = poly.getTriangulationEarClipping();
+        assertEquals(poly.numVertices() - 2, tris.length, msg + " - num triangles");
+        long polyArea = doubleArea(poly.getXCoords(), poly.getYCoords());
+        long sum = 0;
+        for (TriInt t : tris) {
+            long area = doubleArea(t);
+            assertTrue(polyArea > 0 ? area >= 0 : area <= 0,
+                       msg + " - triangle winds same way as polygon: " + t);
+            sum += area;
+        }
+        assertEquals(polyArea, sum, msg + " - total area");
+    }
+
+    @Test
+    public void testTriangulationEarClipping() {
+        checkTriangulation(poly1, "poly1");
+        checkTriangulation(poly1.reverseVertexOrder(), "poly1 reversed");
+        // big spiky star-shaped polygon - uses the grid ear test
+        Random rand = new Random(7);
+        int n = 2000;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            double angle = Math.PI * 2 * i / n;
+            int radius = 10000 + rand.nextInt(10000);
+            xs[i] = (int) Math.round(Math.cos(angle) * radius);
+            ys[i] = (int) Math.round(Math.sin(angle) * radius);
+        }
+        checkTriangulation(new PolyInt(xs, ys), "star");
+    }
+
+    @Test
+    public void testWindingOrder() {
+        assertEquals(PolyInt.WindingOrder.COUNTER_CLOCKWISE, poly1.windingOrder(), "poly1");
+        assertEquals(PolyInt.WindingOrder.CLOCKWISE, poly1.reverseVertexOrder().windingOrder(),
+                     "poly1 reversed");
+        PolyInt figureEight = new PolyInt(new int[] { 0, 10, 10,  0 },
+                                          new int[] { 0, 10,  0, 10 });
+        assertEquals(PolyInt.WindingOrder.INVALID, figureEight.windingOrder(), "figure of eight");
+        PolyInt repeated = new PolyInt(new int[] { 0, 10, 10, 10 },
+                                       new int[] { 0,  0, 10, 10 });
+        assertEquals(PolyInt.WindingOrder.INVALID, repeated.windingOrder(), "repeated vertex");
+        // should always agree with the sum of angles... except where
+        // there's a reversal, which angleTurned() isn't consistent about
+        Random rand = new Random(11);
+        for (int trial = 0; trial < 200; trial++) {
+            int n = 3 + rand.nextInt(12);
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = rand.nextInt(20);
+                ys[i] = rand.nextInt(20);
+            }
+            PolyInt p = new PolyInt(xs, ys);
+            if (hasCollinearVertex(p)) continue;
+            double turns = p.sumOfAngles() / Geom2D.FULL_TURN;
+            assertEquals(Math.round(turns), Geom2DInt.turningNumber(xs, ys),
+                         "trial " + trial + " - turning number");
+        }
+    }
+
+    private static boolean hasCollinearVertex(PolyInt p) {
+        int n = p.numVertices();
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            int k = (i + 2) % n;
+            if (Geom2DInt.ccw(p.x(i), p.y(i), p.x(j), p.y(j), p.x(k), p.y(k)) == 0)
+                return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void testIsConvex() {
+        assertTrue(Util.square(0, 0, 10).isConvex(), "square");
+        assertFalse(Util.square(0, 0, 10).reverseVertexOrder().isConvex(), "square, clockwise");
+        assertFalse(poly1.isConvex(), "poly1");
+        PolyInt pentagram = new PolyInt(new int[] { 0, 6, -10, 10, -6 },
+                                        new int[] { 10, -8, 3, 3, -8 });
+        assertFalse(pentagram.isConvex(), "pentagram - all left turns, but goes round twice");
+        PolyInt collinear = new PolyInt(new int[] { 0, 5, 10, 10, 0 },
+                                        new int[] { 0, 0,  0, 10, 10 });
+        assertFalse(collinear.isConvex(), "collinear vertex");
+    }
+
+    private static long totalDoubleArea(PolyInt[] polys) {
+        long sum = 0;
+        for (PolyInt p : polys)
+            sum += doubleArea(p.getXCoords(), p.getYCoords());
+        return sum;
+    }
+
+    private void checkBoolean(PolyInt a, PolyInt b, int numUnion, long union,
+                              int numInter, long inter, int numSub1, long sub1,
+                              int numSub2, long sub2, String msg) {
+        PolyInt.BooleanTransformation bool = new PolyInt.BooleanTransformation(a, b);
+        assertEquals(numUnion, bool.union().length,        msg + " - union, num polygons");
+        assertEquals(numInter, bool.intersection().length, msg + " - intersection, num polygons");
+        assertEquals(numSub1,  bool.subtraction1().length, msg + " - subtraction 1, num polygons");
+        assertEquals(numSub2,  bool.subtraction2().length, msg + " - subtraction 2, num polygons");
+        assertEquals(union, totalDoubleArea(bool.union()),        msg + " - union, area");
+        assertEquals(inter, totalDoubleArea(bool.intersection()), msg + " - intersection, area");
+        assertEquals(sub1,  totalDoubleArea(bool.subtraction1()), msg + " - subtraction 1, area");
+        assertEquals(sub2,  totalDoubleArea(bool.subtraction2()), msg + " - subtraction 2, area");
+    }
+
+    @Test
+    public void testBooleanTransformation() {
+        // all areas doubled
+        checkBoolean(Util.square(0, 0, 10), Util.square(5, 5, 10),
+                     1, 350, 1, 50, 1, 150, 1, 150, "overlapping squares");
+        checkBoolean(Util.square(0, 0, 10), Util.square(20, 0, 10),
+                     2, 400, 0, 0, 1, 200, 1, 200, "separate squares");
+        checkBoolean(Util.square(0, 0, 10), Util.square(2, 2, 5),
+                     1, 200, 1, 50, 2, 150, 0, 0, "one inside the other");
+        checkBoolean(Util.square(0, 0, 10), Util.square(10, 4, 10),
+                     1, 400, 0, 0, 1, 200, 1, 200, "sharing part of an edge");
+        checkBoolean(Util.square(0, 0, 10), Util.square(0, 0, 10),
+                     1, 200, 1, 200, 0, 0, 0, 0, "same square");
+        checkBoolean(Util.square(0, 0, 10), Util.square(10, 10, 10),
+                     2, 400, 0, 0, 1, 200, 1, 200, "touching at a corner");
+        checkBoolean(Util.square(0, 0, 10), Util.square(0, 0, 10).reverseVertexOrder(),
+                     1, 200, 1, 200, 0, 0, 0, 0, "clockwise input");
+        // cross shape, from two bars
+        checkBoolean(new PolyInt(new int[] { 0, 30, 30,  0 }, new int[] { 10, 10, 20, 20 }),
+                     new PolyInt(new int[] { 10, 20, 20, 10 }, new int[] { 0, 0, 30, 30 }),
+                     1, 1000, 1, 200, 2, 400, 2, 400, "cross");
+        // union of a U shape and a bar across the top leaves a hole
+        PolyInt u = new PolyInt(new int[] { 0, 30, 30, 20, 20, 10, 10,  0 },
+                                new int[] { 0,  0, 30, 30, 10, 10, 30, 30 });
+        PolyInt bar = new PolyInt(new int[] { 0, 30, 30,  0 },
+                                  new int[] { 25, 25, 35, 35 });
+        PolyInt[] union = u.union(bar);
+        assertEquals(2, union.length, "U shape and bar - outline and hole");
+        assertEquals(2 * (30 * 35 - 10 * 15), totalDoubleArea(union), "U shape and bar - area");
+        // rounding one of the crossing points makes two edges overlap...
+        // areas change slightly, but only by a fraction of a unit per
+        // crossing point
+        PolyInt a = new PolyInt(new int[] { 19, 12,  5, -1, -8, -7,  -6,   4,  15 },
+                                new int[] {  0,  8, 12,  8,  4, -3, -15, -10, -10 });
+        PolyInt b = new PolyInt(new int[] { 12,  8, -7, -10,  -6,   9 },
+                                new int[] {  0, 13, 12,   0, -11, -15 });
+        PolyInt.BooleanTransformation bool = new PolyInt.BooleanTransformation(a, b);
+        long inter = totalDoubleArea(bool.intersection());
+        long sub1 = totalDoubleArea(bool.subtraction1());
+        long sub2 = totalDoubleArea(bool.subtraction2());
+        assertEquals(totalDoubleArea(bool.union()), sub1 + sub2 + inter,
+                     "rounded crossing points - union is both subtractions plus intersection");
+        assertTrue(Math.abs(sub1 + inter - totalDoubleArea(new PolyInt[] { a })) <= 8,
+                   "rounded crossing points - first polygon area");
+        assertTrue(Math.abs(sub2 + inter - totalDoubleArea(new PolyInt[] { b })) <= 8,
+                   "rounded crossing points - second polygon area");
+        // rounding used to leave zero-width spikes here, and the union
+        // came out empty
+        a = new PolyInt(new int[] { 24, 12,  6, 0, -4, -13, -21, -22, -5,   0,   8,  16 },
+                        new int[] {  0,  7, 10, 8,  7,   7,   0, -12, -8, -25, -13, -10 });
+        b = new PolyInt(new int[] { 38, 41, 40, 31, 32, 25, 18, 17, 20,  6,  3, 11, 17, 20, 25, 31, 36, 42, 41 },
+                        new int[] { 17, 22, 28, 25, 41, 24, 35, 27, 20, 20, 13,  9,  7,  2, 10, -3,  2,  5, 12 });
+        checkAreaIdentities(a, b, "thin overlap");
+        assertTrue(totalDoubleArea(a.union(b)) > 0, "thin overlap - union not empty");
+    }
+
+    /**
+     * Checks that union = subtraction1 + subtraction2 + intersection
+     * exactly, and that the subtractions plus the intersection give back
+     * the two polygons... within what rounding the crossing points can
+     * shift. Snap rounding keeps every edge within half a unit (on the
+     * diagonal) of where it was, so that's at most 0.71 units of area
+     * per unit of perimeter.
+     */
+    private void checkAreaIdentities(PolyInt a, PolyInt b, String msg) {
+        PolyInt.BooleanTransformation bool = new PolyInt.BooleanTransformation(a, b);
+        long union = totalDoubleArea(bool.union());
+        long inter = totalDoubleArea(bool.intersection());
+        long sub1 = totalDoubleArea(bool.subtraction1());
+        long sub2 = totalDoubleArea(bool.subtraction2());
+        assertEquals(union, sub1 + sub2 + inter, msg + " - union is both subtractions plus intersection");
+        assertTrue(Math.abs(sub1 + inter - totalDoubleArea(new PolyInt[] { a })) <= 1.5 * perimeter(a),
+                   msg + " - first polygon area");
+        assertTrue(Math.abs(sub2 + inter - totalDoubleArea(new PolyInt[] { b })) <= 1.5 * perimeter(b),
+                   msg + " - second polygon area");
+    }
+
+    private static double perimeter(PolyInt p) {
+        double sum = 0;
+        for (LineInt e : p.getEdges())
+            sum += e.length();
+        return sum;
+    }
+
+    /**
+     * @return The star polygon scaled down by the given factor, or null
+     * if rounding has made it touch or cross itself.
+     */
+    private static PolyInt shrinkStar(PolyInt p, int factor) {
+        int n = p.numVertices();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = p.x(i) / factor;
+            ys[i] = p.y(i) / factor;
+        }
+        // still a star if every edge turns counter-clockwise around the
+        // origin, and they go round exactly once
+        double turn = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            if ((long) xs[i] * ys[j] - (long) ys[i] * xs[j] <= 0) return null;
+            turn += Math.atan2((long) xs[i] * ys[j] - (long) ys[i] * xs[j],
+                               (long) xs[i] * xs[j] + (long) ys[i] * ys[j]);
+        }
+        if (Math.abs(turn - 2 * Math.PI) > 1e-6) return null;
+        return new PolyInt(xs, ys);
+    }
+
+    @Test
+    public void testBooleanTransformationRandom() {
+        Util.setSeed(7);
+        // big and small co-ordinates... the smaller they are, the more
+        // crossing points get rounded onto other edges
+        int[] factors = { 1, 10, 30 };
+        for (int k = 0; k < 3000; k++) {
+            int factor = factors[k % factors.length];
+            PolyInt a = shrinkStar(Util.randStarPolyInt(12), factor);
+            PolyInt b = shrinkStar(Util.randStarPolyInt(12), factor);
+            if (a == null || b == null) continue;
+            b = b.translate(Util.randInt() / (2 * factor), Util.randInt() / (2 * factor));
+            checkAreaIdentities(a, b, "random stars " + k);
+        }
+    }
+
+    @Test
+    public void testBooleanTransformationRounded() {
+        // the sloping edge crosses the square at points which aren't
+        // whole numbers, so the edges get snap rounded
+        PolyInt sq = Util.square(0, 0, 10);
+        PolyInt tri = new PolyInt(new int[] { 0, 3, 21 }, new int[] { 20, -2, 0 });
+        assertTrue(new PolyClipper(sq, tri).isRounded(), "square and triangle - rounded");
+        checkAreaIdentities(sq, tri, "square and triangle");
+        // tiny random stars... nearly every pair gets rounded, and each
+        // operation must either come out whole or throw, never lose
+        // rings along the way
+        Util.setSeed(11);
+        int numRounded = 0;
+        for (int k = 0; k < 1000; k++) {
+            PolyInt a = shrinkStar(Util.randStarPolyInt(12), 50);
+            PolyInt b = shrinkStar(Util.randStarPolyInt(12), 50);
+            if (a == null || b == null) continue;
+            b = b.translate(Util.randInt() / 100, Util.randInt() / 100);
+            PolyClipper clipper = new PolyClipper(a, b);
+            if (clipper.isRounded()) numRounded++;
+            for (int op = PolyClipper.UNION; op <= PolyClipper.SUBTRACTION2; op++)
+                clipper.shapes(op);
+            checkAreaIdentities(a, b, "tiny random stars " + k);
+        }
+        assertTrue(numRounded > 100, "tiny random stars - rounded path taken");
+    }
+
     @Test
     public void testContainsLine() {
         assertFalse(poly1.contains(outsidePoly1Bounds), "outside of bounding box");
@@ -0,0 +1,145 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolyOverlapTest {
+
+    private static final int GRID = 8;
+
+    /**
+     * @return A random orthogonal shape, with all co-ordinates even...
+     * a skyline of columns, a rectangle, or a frame with a hole.
+     */
+    private ShapeInt randomShape(Random rand) {
+        int x = rand.nextInt(GRID - 1);
+        int y = rand.nextInt(GRID - 1);
+        int w = 1 + rand.nextInt(GRID - x);
+        int h = 1 + rand.nextInt(GRID - y);
+        int kind = rand.nextInt(3);
+        if (kind == 0 || w < 3 || h < 3) {
+            if (kind != 0 || h < 2) return new ShapeInt(Util.rect(x * 2, y * 2, w * 2, h * 2));
+            // skyline... column heights change at every step, so there
+            // are no collinear vertices
+            int[] heights = new int[w];
+            for (int i = 0; i < w; i++) {
+                do {
+                    heights[i] = 1 + rand.nextInt(h);
+                } while (i > 0 && heights[i] == heights[i - 1]);
+            }
+            int[] xs = new int[2 * w + 2];
+            int[] ys = new int[2 * w + 2];
+            int n = 0;
+            xs[n] = x; ys[n++] = y;
+            xs[n] = x + w; ys[n++] = y;
+            for (int i = w - 1; i >= 0; i--) {
+                xs[n] = x + i + 1; ys[n++] = y + heights[i];
+                xs[n] = x + i;     ys[n++] = y + heights[i];
+            }
+            for (int i = 0; i < n; i++) {
+                xs[i] *= 2;
+                ys[i] *= 2;
+            }
+            return new ShapeInt(new PolyInt(xs, ys));
+        }
+        // frame with a hole somewhere inside it
+        int hx = x + 1 + rand.nextInt(w - 2);
+        int hy = y + 1 + rand.nextInt(h - 2);
+        int hw = 1 + rand.nextInt(x + w - 1 - hx);
+        int hh = 1 + rand.nextInt(y + h - 1 - hy);
+        return new ShapeInt(Util.rect(x * 2, y * 2, w * 2, h * 2),
+                            Util.rect(hx * 2, hy * 2, hw * 2, hh * 2).reverseVertexOrder());
+    }
+
+    /**
+     * Works out how a and b relate by testing every lattice point, and
+     * every cell centre (all co-ordinates are even, so cell centres
+     * have odd co-ordinates).
+     *
+     * @return {intersects, interiors overlap, a contains b}
+     */
+    private boolean[] reference(ShapeInt a, ShapeInt b) {
+        boolean intersects = false;
+        boolean overlap = false;
+        boolean contains = true;
+        for (int x = -GRID; x <= GRID; x++) {
+            for (int y = -GRID; y <= GRID; y++) {
+                boolean inA = a.contains(x, y, true);
+                boolean inB = b.contains(x, y, true);
+                if (x % 2 == 0 && y % 2 == 0) {
+                    if (inA && inB) intersects = true;
+                } else if (x % 2 != 0 && y % 2 != 0) {
+                    if (inA && inB) overlap = true;
+                    if (inB && !inA) contains = false;
+                }
+            }
+        }
+        return new boolean[] { intersects, overlap, contains };
+    }
+
+    @Test
+    public void testOrthogonalShapes() {
+        Random rand = new Random(16);
+        for (int i = 0; i < 4000; i++) {
+            // centred on the origin, so that co-ordinates change sign
+            ShapeInt a = randomShape(rand).translate(-GRID, -GRID);
+            ShapeInt b = (i % 10 == 0 ? a : randomShape(rand).translate(-GRID, -GRID));
+            boolean[] ref = reference(a, b);
+            String msg = "shapes " + i;
+            assertEquals(ref[0], a.intersects(b), msg + " - intersects");
+            assertEquals(ref[0], b.intersects(a), msg + " - intersects (swapped)");
+            assertEquals(!ref[0], a.disjoint(b), msg + " - disjoint");
+            assertEquals(ref[0] && !ref[1], a.touches(b), msg + " - touches");
+            assertEquals(ref[0] && !ref[1], b.touches(a), msg + " - touches (swapped)");
+            assertEquals(ref[2], a.contains(b), msg + " - contains");
+            if (!a.isPerforated() && !b.isPerforated())
+                assertEquals(ref[2], a.outline().contains(b.outline()), msg + " - contains polygon");
+        }
+    }
+
+    @Test
+    public void testConvex() {
+        PolyInt square = Util.rect(0, 0, 10, 10);
+        PolyInt diamond = new PolyInt(new int[] { 15, 20, 15, 10 },
+                                      new int[] { 0,  5,  10, 5  });
+        PolyInt triangle = new PolyInt(new int[] { 2, 8, 5 },
+                                       new int[] { 2, 2, 8 });
+        assertTrue(square.isConvex() && diamond.isConvex(), "both convex");
+        // diamond's left corner touches the square's right edge
+        assertTrue(square.touches(diamond), "touch at a vertex");
+        assertTrue(square.intersects(diamond), "touching counts as intersecting");
+        assertTrue(diamond.touches(square), "touch at a vertex (swapped)");
+        assertTrue(square.disjoint(diamond.translate(1, 0)), "small gap");
+        assertFalse(square.touches(diamond.translate(-1, 0)), "overlapping slightly");
+        assertTrue(square.intersects(diamond.translate(-1, 0)), "overlapping slightly");
+        // apart, but each one is on the other's edge line
+        assertTrue(square.disjoint(Util.rect(11, 10, 5, 5)), "diagonal gap");
+        assertTrue(square.touches(Util.rect(10, 10, 5, 5)), "corners touch");
+        assertTrue(square.contains(triangle), "triangle inside");
+        assertFalse(triangle.contains(square), "square not inside");
+        assertTrue(square.contains(square), "contains itself");
+        assertFalse(square.contains(diamond.translate(-5, 0)), "sticking out");
+    }
+
+    @Test
+    public void testNonConvex() {
+        // U shape, and a block sitting in the gap, touching both arms
+        PolyInt u = new PolyInt(new int[] { 0, 30, 30, 20, 20, 10, 10, 0  },
+                                new int[] { 0, 0,  30, 30, 10, 10, 30, 30 });
+        PolyInt block = Util.rect(10, 10, 10, 30);
+        assertTrue(u.touches(block), "block in the gap");
+        assertFalse(u.contains(block), "block in the gap");
+        assertTrue(u.intersects(block.translate(1, 0)), "block overlapping an arm");
+        assertFalse(u.touches(block.translate(1, 0)), "block overlapping an arm");
+        assertTrue(u.disjoint(Util.rect(12, 12, 6, 6)), "floating in the gap");
+        assertTrue(u.contains(Util.rect(1, 1, 28, 8)), "inside the base");
+        // a triangle whose tip pokes through the base of the U from
+        // below, crossing it only at the U's vertex-free bottom edge
+        PolyInt spike = new PolyInt(new int[] { 14, 16, 15 },
+                                    new int[] { -5, -5, 5  });
+        assertTrue(u.intersects(spike), "spike");
+        assertFalse(u.touches(spike), "spike");
+    }
+
+}
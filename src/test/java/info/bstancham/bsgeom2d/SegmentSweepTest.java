@@ -0,0 +1,143 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentSweepTest {
+
+    /**
+     * @return Every pair of edges with different owners which meet, as
+     * "lower upper" strings, sorted.
+     */
+    private static List<String> bruteForce(int[] sx, int[] sy, int[] ex, int[] ey, int[] owner) {
+        List<String> out = new ArrayList<>();
+        for (int e = 0; e < sx.length; e++)
+            for (int f = e + 1; f < sx.length; f++)
+                if (owner[e] != owner[f] &&
+                    Geom2DInt.segmentsIntersect(sx[e], sy[e], ex[e], ey[e],
+                                                sx[f], sy[f], ex[f], ey[f], true))
+                    out.add(e + " " + f);
+        Collections.sort(out);
+        return out;
+    }
+
+    private static List<String> swept(int[] sx, int[] sy, int[] ex, int[] ey, int[] owner) {
+        List<String> out = new ArrayList<>();
+        SegmentSweep.sweep(sx, sy, ex, ey, owner, SegmentSweep.allEdges(sx.length), sx.length,
+                           (f, e) -> {
+                               out.add(Math.min(e, f) + " " + Math.max(e, f));
+                               return false;
+                           });
+        Collections.sort(out);
+        return out;
+    }
+
+    @Test
+    public void testRandomEdges() {
+        // small co-ordinates, so that plenty of edges touch, overlap, or
+        // are horizontal or vertical... and a few long ones
+        Random rand = new Random(6);
+        for (int trial = 0; trial < 300; trial++) {
+            int n = 2 + rand.nextInt(80);
+            int range = (trial % 3 == 0 ? 1000 : 12);
+            int[] sx = new int[n];
+            int[] sy = new int[n];
+            int[] ex = new int[n];
+            int[] ey = new int[n];
+            int[] owner = new int[n];
+            for (int e = 0; e < n; e++) {
+                sx[e] = rand.nextInt(range) - range / 2;
+                sy[e] = rand.nextInt(range) - range / 2;
+                ex[e] = (rand.nextInt(4) == 0 ? sx[e] : rand.nextInt(range) - range / 2);
+                ey[e] = (rand.nextInt(4) == 0 ? sy[e] : rand.nextInt(range) - range / 2);
+                owner[e] = rand.nextInt(3);
+            }
+            assertEquals(bruteForce(sx, sy, ex, ey, owner), swept(sx, sy, ex, ey, owner),
+                         "trial " + trial);
+        }
+    }
+
+    @Test
+    public void testLongEdges() {
+        // long, nearly horizontal edges stacked up in y, crossed by a few
+        // steep ones... enough that the sweep moves on to the trees,
+        // with two owners (a tree each) or lots (sharing one)
+        Random rand = new Random(7);
+        for (int trial = 0; trial < 20; trial++) {
+            int n = 400 + rand.nextInt(200);
+            int numOwners = (trial % 2 == 0 ? 2 : 20);
+            int[] sx = new int[n];
+            int[] sy = new int[n];
+            int[] ex = new int[n];
+            int[] ey = new int[n];
+            int[] owner = new int[n];
+            for (int e = 0; e < n; e++) {
+                int y = rand.nextInt(4 * n);
+                if (rand.nextInt(10) == 0) {
+                    sx[e] = rand.nextInt(10000);
+                    sy[e] = y;
+                    ex[e] = sx[e] + rand.nextInt(21) - 10;
+                    ey[e] = y + rand.nextInt(200);
+                } else {
+                    sx[e] = rand.nextInt(100);
+                    sy[e] = y;
+                    ex[e] = 10000 - rand.nextInt(100);
+                    ey[e] = y + rand.nextInt(5) - 2;
+                }
+                owner[e] = rand.nextInt(numOwners);
+            }
+            List<String> expected = bruteForce(sx, sy, ex, ey, owner);
+            assertEquals(expected, swept(sx, sy, ex, ey, owner), "trial " + trial);
+            int[] calls = new int[1];
+            SegmentSweep.sweep(sx, sy, ex, ey, owner, SegmentSweep.allEdges(n), n, (f, e) -> {
+                    calls[0]++;
+                    return true;
+                });
+            assertEquals(Math.min(expected.size(), 1), calls[0], "trial " + trial + " stopped");
+        }
+    }
+
+    @Test
+    public void testSubset() {
+        // only the edges listed are swept
+        int[] sx = { 0, 0, 5 };
+        int[] sy = { 0, 10, -5 };
+        int[] ex = { 10, 10, 5 };
+        int[] ey = { 10, 0, 15 };
+        int[] owner = { 0, 1, 2 };
+        List<String> out = new ArrayList<>();
+        SegmentSweep.sweep(sx, sy, ex, ey, owner, new int[] { 0, 2 }, 2, (f, e) -> {
+                out.add(Math.min(e, f) + " " + Math.max(e, f));
+                return false;
+            });
+        assertEquals(List.of("0 2"), out);
+    }
+
+    @Test
+    public void testStop() {
+        // a fan of edges all through the origin... stops at the first
+        int n = 20;
+        int[] sx = new int[n];
+        int[] sy = new int[n];
+        int[] ex = new int[n];
+        int[] ey = new int[n];
+        int[] owner = SegmentSweep.allEdges(n);
+        for (int e = 0; e < n; e++) {
+            sx[e] = -10;
+            sy[e] = e - 10;
+            ex[e] = 10;
+            ey[e] = 10 - e;
+        }
+        int[] calls = new int[1];
+        SegmentSweep.sweep(sx, sy, ex, ey, owner, SegmentSweep.allEdges(n), n, (f, e) -> {
+                calls[0]++;
+                return true;
+            });
+        assertEquals(1, calls[0], "stopped after the first meeting");
+    }
+
+}
@@ -0,0 +1,204 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShapeGroupIntTest {
+
+    /**
+     * @return Twice the area of the group... holes are clockwise, so
+     * they count as negative.
+     */
+    private long doubleArea(ShapeGroupInt group) {
+        long sum = 0;
+        for (ShapeInt s : group) {
+            for (PolyInt p : s) {
+                for (int i = 0, j = p.numVertices() - 1; i < p.numVertices(); j = i++)
+                    sum += (long) p.x(j) * p.y(i) - (long) p.x(i) * p.y(j);
+            }
+        }
+        return sum;
+    }
+
+    private int numHoles(ShapeGroupInt group) {
+        int count = 0;
+        for (ShapeInt s : group)
+            count += s.numHoles();
+        return count;
+    }
+
+    @Test
+    public void testBooleanTransformation() {
+        // square with a hole, plus a separate square
+        ShapeGroupInt group1 = new ShapeGroupInt(new ShapeInt[] {
+                new ShapeInt(Util.rect(0, 0, 30, 30), Util.rect(10, 10, 10, 10).reverseVertexOrder()),
+                new ShapeInt(Util.rect(100, 0, 10, 10))
+            });
+        // bar across the hole, plus a separate square
+        ShapeGroupInt group2 = new ShapeGroupInt(new ShapeInt[] {
+                new ShapeInt(Util.rect(5, 12, 20, 6)),
+                new ShapeInt(Util.rect(200, 0, 10, 10))
+            });
+        ShapeGroupInt.BooleanTransformation bool =
+            new ShapeGroupInt.BooleanTransformation(group1, group2);
+
+        // bar splits the hole in two
+        assertEquals(3, bool.union().numSubShapes(), "union - num shapes");
+        assertEquals(2, numHoles(bool.union()), "union - num holes");
+        assertEquals(2 * 1060, doubleArea(bool.union()), "union - area");
+
+        // ends of the bar, either side of the hole
+        assertEquals(2, bool.intersection().numSubShapes(), "intersection - num shapes");
+        assertEquals(2 * 60, doubleArea(bool.intersection()), "intersection - area");
+
+        // bar joins the hole
+        assertEquals(2, bool.subtraction1().numSubShapes(), "subtraction 1 - num shapes");
+        assertEquals(1, numHoles(bool.subtraction1()), "subtraction 1 - num holes");
+        assertEquals(2 * 840, doubleArea(bool.subtraction1()), "subtraction 1 - area");
+
+        // part of the bar inside the hole
+        assertEquals(2, bool.subtraction2().numSubShapes(), "subtraction 2 - num shapes");
+        assertEquals(2 * 160, doubleArea(bool.subtraction2()), "subtraction 2 - area");
+    }
+
+    @Test
+    public void testBooleanTransformationRounded() {
+        // sloping edges cross the outline and the hole at points which
+        // aren't whole numbers, so the edges get snap rounded
+        ShapeGroupInt group1 = new ShapeGroupInt(
+                new ShapeInt(Util.rect(0, 0, 30, 30), Util.rect(10, 10, 10, 10).reverseVertexOrder()));
+        ShapeGroupInt group2 = new ShapeGroupInt(new PolyInt(new int[] { -3, 7, 41 },
+                                                             new int[] { 25, -4, 14 }));
+        assertTrue(new PolyClipper(PolyClipper.rings(Arrays.asList(group1.subShape(0))),
+                                   PolyClipper.rings(Arrays.asList(group2.subShape(0))))
+                   .isRounded(), "rounded");
+        ShapeGroupInt.BooleanTransformation bool =
+            new ShapeGroupInt.BooleanTransformation(group1, group2);
+        assertEquals(doubleArea(bool.union()),
+                     doubleArea(bool.subtraction1()) + doubleArea(bool.subtraction2())
+                     + doubleArea(bool.intersection()),
+                     "union is both subtractions plus intersection");
+        assertTrue(doubleArea(bool.intersection()) > 0, "intersection not empty");
+    }
+
+    @Test
+    public void testHoleWithoutOutline() {
+        // a clockwise ring on its own can't be put into any shape... it
+        // used to be dropped without a trace
+        PolyInt hole = Util.rect(0, 0, 10, 10).reverseVertexOrder();
+        assertThrows(IllegalStateException.class,
+                     () -> PolyClipper.toShapes(new PolyInt[] { Util.rect(20, 0, 10, 10), hole }),
+                     "hole outside the only outline");
+    }
+
+    @Test
+    public void testBooleanTransformationNoOverlap() {
+        ShapeGroupInt group1 = new ShapeGroupInt(Util.rect(0, 0, 10, 10));
+        ShapeGroupInt group2 = new ShapeGroupInt(Util.rect(20, 0, 10, 10));
+        ShapeGroupInt.BooleanTransformation bool =
+            new ShapeGroupInt.BooleanTransformation(group1, group2);
+        assertEquals(2, bool.union().numSubShapes(), "union - num shapes");
+        assertTrue(bool.intersection().isEmpty(), "intersection is empty");
+        assertSame(group1.subShape(0), bool.subtraction1().subShape(0),
+                   "subtraction 1 - shape passed straight through");
+    }
+
+    @Test
+    public void testBooleanTransformationSubShapeOrder() {
+        // two squares which touch at a corner, and a triangle which
+        // starts at that corner and goes into the upper square
+        ShapeInt lower = new ShapeInt(Util.rect(0, 0, 10, 10));
+        ShapeInt upper = new ShapeInt(Util.rect(10, 10, 10, 10));
+        ShapeGroupInt tri = new ShapeGroupInt(new PolyInt(new int[] { 10, 18, 12 },
+                                                          new int[] { 10, 12, 18 }));
+        ShapeGroupInt[] orders = new ShapeGroupInt[] {
+            new ShapeGroupInt(new ShapeInt[] { lower, upper }),
+            new ShapeGroupInt(new ShapeInt[] { upper, lower })
+        };
+        for (ShapeGroupInt squares : orders) {
+            ShapeGroupInt.BooleanTransformation bool =
+                new ShapeGroupInt.BooleanTransformation(tri, squares);
+            assertEquals(2 * 30, doubleArea(bool.intersection()), "intersection - area");
+            assertEquals(0, doubleArea(bool.subtraction1()), "subtraction 1 - area");
+            assertEquals(2 * 170, doubleArea(bool.subtraction2()), "subtraction 2 - area");
+            assertEquals(2 * 200, doubleArea(bool.union()), "union - area");
+        }
+    }
+
+    @Test
+    public void testBoundingBox() {
+        ShapeGroupInt group = new ShapeGroupInt(new ShapeInt[] {
+                new ShapeInt(Util.rect(0, 0, 10, 10)),
+                new ShapeInt(Util.rect(50, 20, 10, 30))
+            });
+        BoxInt box = group.boundingBox();
+        assertEquals(0,  box.left(),   "left");
+        assertEquals(0,  box.bottom(), "bottom");
+        assertEquals(60, box.right(),  "right");
+        assertEquals(50, box.top(),    "top");
+    }
+
+    @Test
+    public void testBulkContains() {
+        // square with a hole, a square inside the hole, and one off to
+        // the side
+        ShapeGroupInt group = new ShapeGroupInt(new ShapeInt[] {
+                new ShapeInt(Util.rect(0, 0, 30, 30), Util.rect(10, 10, 10, 10).reverseVertexOrder()),
+                new ShapeInt(Util.rect(13, 13, 4, 4)),
+                new ShapeInt(Util.rect(100, 0, 10, 10))
+            });
+        Random rand = new Random(5);
+        int n = 50000;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rand.nextInt(130) - 10;
+            ys[i] = rand.nextInt(50) - 10;
+        }
+        boolean[] inclusive = group.contains(xs, ys);
+        boolean[] exclusive = new boolean[n];
+        group.contains(xs, ys, false, exclusive);
+        boolean[] parallel = new boolean[n];
+        group.containsParallel(xs, ys, true, parallel);
+        BitSet bits = group.containsBitSet(xs, ys, false);
+        for (int i = 0; i < n; i++) {
+            String msg = "point (" + xs[i] + ", " + ys[i] + ")";
+            assertEquals(group.contains(xs[i], ys[i], true), inclusive[i], msg + " - including edges");
+            assertEquals(group.contains(xs[i], ys[i], false), exclusive[i], msg + " - excluding edges");
+            assertEquals(inclusive[i], parallel[i], msg + " - parallel");
+            assertEquals(exclusive[i], bits.get(i), msg + " - bit set");
+        }
+        assertTrue(group.contains(15, 15), "inside square in hole");
+        assertFalse(group.contains(11, 11), "inside hole");
+        assertThrows(IllegalArgumentException.class,
+                     () -> group.contains(xs, new int[n - 1]), "mismatched arrays");
+    }
+
+    @Test
+    public void testBulkContainsManyShapes() {
+        // enough shapes to use the grid... frame with a big hole, and a
+        // grid of squares inside the hole
+        ShapeInt[] shapes = new ShapeInt[65];
+        shapes[0] = new ShapeInt(Util.rect(0, 0, 1000, 1000), Util.rect(100, 100, 800, 800).reverseVertexOrder());
+        for (int i = 0; i < 64; i++)
+            shapes[i + 1] = new ShapeInt(Util.rect(110 + (i % 8) * 100, 110 + (i / 8) * 100,
+                                                   20 + i, 50));
+        ShapeGroupInt group = new ShapeGroupInt(shapes);
+        Random rand = new Random(9);
+        int n = 20000;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = rand.nextInt(1100) - 50;
+            ys[i] = rand.nextInt(1100) - 50;
+        }
+        boolean[] bulk = group.contains(xs, ys);
+        for (int i = 0; i < n; i++)
+            assertEquals(group.contains(xs[i], ys[i]), bulk[i],
+                         "point (" + xs[i] + ", " + ys[i] + ")");
+    }
+
+}
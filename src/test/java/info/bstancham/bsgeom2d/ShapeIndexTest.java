@@ -0,0 +1,129 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShapeIndexTest {
+
+    private static boolean overlaps(BoxInt b, int left, int bottom, int right, int top) {
+        return b.left() <= right && b.right() >= left && b.bottom() <= top && b.top() >= bottom;
+    }
+
+    private static double distSq(BoxInt b, int x, int y) {
+        double dx = Math.max(0, Math.max(b.left() - x, x - b.right()));
+        double dy = Math.max(0, Math.max(b.bottom() - y, y - b.top()));
+        return dx * dx + dy * dy;
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random rand = new Random(13);
+        for (int n : new int[] { 1, 15, 17, 300, 5000 }) {
+            BoxInt[] boxes = new BoxInt[n];
+            for (int i = 0; i < n; i++)
+                boxes[i] = Util.randBoxInt(rand, 0, 10000, 300);
+            ShapeIndex index = new ShapeIndex(boxes);
+            int[] out = new int[n];
+            for (int q = 0; q < 200; q++) {
+                int left = rand.nextInt(11000) - 500;
+                int bottom = rand.nextInt(11000) - 500;
+                int right = left + rand.nextInt(500);
+                int top = bottom + rand.nextInt(500);
+                String msg = "n=" + n + " query " + q;
+
+                int count = index.searchBox(left, bottom, right, top, out);
+                int[] found = Arrays.copyOf(out, count);
+                Arrays.sort(found);
+                int[] expected = new int[n];
+                int numExpected = 0;
+                for (int i = 0; i < n; i++)
+                    if (overlaps(boxes[i], left, bottom, right, top)) expected[numExpected++] = i;
+                assertArrayEquals(Arrays.copyOf(expected, numExpected), found, msg + " - box");
+
+                count = index.searchPoint(left, bottom, out);
+                numExpected = 0;
+                for (int i = 0; i < n; i++)
+                    if (overlaps(boxes[i], left, bottom, left, bottom)) numExpected++;
+                assertEquals(numExpected, count, msg + " - point");
+
+                double best = Double.POSITIVE_INFINITY;
+                for (BoxInt b : boxes)
+                    best = Math.min(best, distSq(b, left, bottom));
+                assertEquals(best, distSq(boxes[index.nearest(left, bottom)], left, bottom),
+                             msg + " - nearest");
+            }
+        }
+    }
+
+    @Test
+    public void testSmallOutputArray() {
+        BoxInt[] boxes = new BoxInt[40];
+        Arrays.fill(boxes, new BoxInt(0, 0, 10, 10));
+        ShapeIndex index = new ShapeIndex(boxes);
+        int[] out = new int[5];
+        assertEquals(40, index.searchPoint(5, 5, out), "total count, even though array is full");
+    }
+
+    @Test
+    public void testFindContaining() {
+        // triangles, so bounding boxes overlap but the shapes don't
+        ShapeGroupInt[] groups = new ShapeGroupInt[] {
+            new ShapeGroupInt(new PolyInt(new int[] { 0, 10, 0 }, new int[] { 0, 0, 10 })),
+            new ShapeGroupInt(new ShapeInt[0]),
+            new ShapeGroupInt(new PolyInt(new int[] { 10, 10, 1 }, new int[] { 1, 10, 10 }))
+        };
+        ShapeIndex index = new ShapeIndex(groups);
+        assertEquals(0, index.findContaining(2, 2), "lower left triangle");
+        assertEquals(2, index.findContaining(8, 8), "upper right triangle");
+        assertEquals(-1, index.findContaining(20, 20), "outside everything");
+        assertEquals(-1, new ShapeIndex(new BoxInt[0]).nearest(0, 0), "empty index");
+        assertThrows(UnsupportedOperationException.class,
+                     () -> new ShapeIndex(new BoxInt[0]).findContaining(0, 0),
+                     "index of boxes has no shapes");
+    }
+
+    @Test
+    public void testFindContainingThreads() {
+        // big enough polygons that each one has a point-location index,
+        // spread out on a grid so that only neighbours overlap
+        Util.setSeed(13);
+        PolyInt[] polys = new PolyInt[64];
+        for (int i = 0; i < polys.length; i++)
+            polys[i] = Util.randStarPolyInt(40).translate((i % 8) * 1500, (i / 8) * 1500);
+        ShapeGroupInt[] groups = new ShapeGroupInt[polys.length];
+        ShapeGroupInt[] copies = new ShapeGroupInt[polys.length];
+        for (int i = 0; i < polys.length; i++) {
+            groups[i] = new ShapeGroupInt(polys[i]);
+            copies[i] = new ShapeGroupInt(new PolyInt(polys[i].getVertices()));
+        }
+        ShapeIndex index = new ShapeIndex(groups);
+        int[] found = new int[64 * 4000];
+        IntStream.range(0, 64).parallel().forEach(t -> {
+                Random rand = new Random(t);
+                for (int i = 0; i < 4000; i++) {
+                    int x = rand.nextInt(13000) - 1000;
+                    int y = rand.nextInt(13000) - 1000;
+                    found[t * 4000 + i] = index.findContaining(x, y);
+                }
+            });
+        // check against the copies, which no other thread has touched
+        for (int t = 0; t < 64; t++) {
+            Random rand = new Random(t);
+            for (int i = 0; i < 4000; i++) {
+                int x = rand.nextInt(13000) - 1000;
+                int y = rand.nextInt(13000) - 1000;
+                int id = found[t * 4000 + i];
+                if (id < 0) {
+                    for (ShapeGroupInt g : copies)
+                        assertFalse(g.contains(x, y), "missed (" + x + ", " + y + ")");
+                } else {
+                    assertTrue(copies[id].contains(x, y), "wrong shape for (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+}
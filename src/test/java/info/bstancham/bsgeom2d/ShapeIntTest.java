@@ -0,0 +1,81 @@
+package info.bstancham.bsgeom2d;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShapeIntTest {
+
+    /**
+     * Square outline, perforated by a grid of square holes.
+     */
+    private ShapeInt perforatedSquare(int holesPerRow) {
+        PolyInt[] polys = new PolyInt[holesPerRow * holesPerRow + 1];
+        polys[0] = Util.square(0, 0, holesPerRow * 10 + 10);
+        int i = 1;
+        for (int row = 0; row < holesPerRow; row++)
+            for (int col = 0; col < holesPerRow; col++)
+                polys[i++] = Util.square(col * 10 + 10, row * 10 + 10, 5).reverseVertexOrder();
+        return new ShapeInt(polys);
+    }
+
+    private long doubleArea(TriInt t) {
+        return (long) (t.b().x() - t.a().x()) * (t.c().y() - t.a().y())
+            - (long) (t.c().x() - t.a().x()) * (t.b().y() - t.a().y());
+    }
+
+    @Test
+    public void testTriangulateWithHoles() {
+        for (int holesPerRow : new int[] { 1, 3, 20 }) {
+            ShapeInt shape = perforatedSquare(holesPerRow);
+            TriInt[] tris = shape.triangulate();
+            int numHoles = shape.numHoles();
+            String msg = numHoles + " holes";
+            // collinear vertices along the bridges may be dropped
+            assertTrue(tris.length <= shape.numVertices() + numHoles * 2 - 2,
+                       msg + " - num triangles");
+            long side = holesPerRow * 10 + 10;
+            long expectedArea = (side * side - numHoles * 25) * 2;
+            long area = 0;
+            for (TriInt t : tris) {
+                assertTrue(doubleArea(t) >= 0, msg + " - triangle is counter-clockwise: " + t);
+                area += doubleArea(t);
+            }
+            assertEquals(expectedArea, area, msg + " - total area");
+        }
+    }
+
+    @Test
+    public void testTriangulateBridgedHoles() {
+        // second hole gets bridged to the first, so the merged ring
+        // passes through some points twice
+        ShapeInt shape = new ShapeInt(
+            Util.square(0, 0, 100),
+            new PolyInt(new int[] { 29, 27, 17 }, new int[] { 50, 38, 45 }),
+            new PolyInt(new int[] { 55, 49, 50 }, new int[] { 67, 57, 65 }));
+        long expectedArea = 100 * 100 * 2;
+        for (int i = 0; i < shape.numHoles(); i++) {
+            PolyInt hole = shape.hole(i);
+            expectedArea -= Math.abs(doubleArea(new TriInt(hole.vertex(0), hole.vertex(1), hole.vertex(2))));
+        }
+        long area = 0;
+        for (TriInt t : shape.triangulate()) {
+            assertTrue(doubleArea(t) >= 0, "triangle is counter-clockwise: " + t);
+            area += doubleArea(t);
+        }
+        assertEquals(expectedArea, area, "total area");
+    }
+
+    @Test
+    public void testTriangulateShapeGroup() {
+        ShapeGroupInt group = new ShapeGroupInt(new ShapeInt[] {
+                perforatedSquare(2),
+                new ShapeInt(Util.square(100, 0, 10))
+            });
+        TriInt[] tris = group.triangulate();
+        assertEquals(perforatedSquare(2).triangulate().length + 2, tris.length,
+                     "num triangles");
+        for (TriInt t : tris)
+            assertNotNull(t, "no null triangles");
+    }
+
+}
@@ -0,0 +1,98 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShapeOverlapsTest {
+
+    private boolean boxesOverlap(BoxInt a, BoxInt b) {
+        return a.left() <= b.right() && b.left() <= a.right()
+            && a.bottom() <= b.top() && b.bottom() <= a.top();
+    }
+
+    /**
+     * Checks the pairs against a brute-force test of every pair.
+     */
+    private void checkBoxPairs(BoxInt[] boxes, ShapeOverlaps overlaps) {
+        int k = 0;
+        for (int i = 0; i < boxes.length; i++) {
+            for (int j = i + 1; j < boxes.length; j++) {
+                if (boxes[i] == null || boxes[j] == null || !boxesOverlap(boxes[i], boxes[j]))
+                    continue;
+                assertTrue(k < overlaps.numPairs(), "missing pair (" + i + ", " + j + ")");
+                assertEquals(i, overlaps.first(k), "pair " + k + " - first");
+                assertEquals(j, overlaps.second(k), "pair " + k + " - second");
+                k++;
+            }
+        }
+        assertEquals(k, overlaps.numPairs(), "num pairs");
+    }
+
+    @Test
+    public void testBroadPhase() {
+        Random rand = new Random(21);
+        // mostly small boxes, with a few big ones and some gaps
+        BoxInt[] boxes = new BoxInt[3000];
+        for (int i = 0; i < boxes.length; i++) {
+            if (i % 97 == 0) continue;
+            boxes[i] = Util.randBoxInt(rand, -50000, 100000, (i % 50 == 0 ? 20000 : 1000));
+        }
+        checkBoxPairs(boxes, new ShapeOverlaps(boxes));
+
+        // everything piled up on top of everything else
+        BoxInt[] piled = new BoxInt[200];
+        for (int i = 0; i < piled.length; i++)
+            piled[i] = Util.randBoxInt(rand, -5, 10, 10);
+        checkBoxPairs(piled, new ShapeOverlaps(piled));
+
+        assertEquals(0, new ShapeOverlaps(new BoxInt[0]).numPairs(), "no boxes");
+    }
+
+    @Test
+    public void testRectangles() {
+        // for rectangles, the exact test should agree with the boxes
+        Random rand = new Random(22);
+        BoxInt[] boxes = new BoxInt[1500];
+        ShapeGroupInt[] groups = new ShapeGroupInt[boxes.length];
+        for (int i = 0; i < boxes.length; i++) {
+            BoxInt b = Util.randBoxInt(rand, -2500, 5000, 200);
+            boxes[i] = new BoxInt(b.left(), b.bottom(), b.right() + 1, b.top() + 1);
+            groups[i] = new ShapeGroupInt(Util.rect(b.left(), b.bottom(),
+                                                    b.right() - b.left() + 1,
+                                                    b.top() - b.bottom() + 1));
+        }
+        checkBoxPairs(boxes, new ShapeOverlaps(groups));
+    }
+
+    @Test
+    public void testExact() {
+        // L shape, whose bounding box overlaps the square at (15, 15)
+        PolyInt ell = new PolyInt(new int[] { 0, 20, 20, 10, 10, 0  },
+                                  new int[] { 0, 0,  10, 10, 20, 20 });
+        ShapeGroupInt[] groups = new ShapeGroupInt[] {
+            new ShapeGroupInt(ell),                       // 0
+            new ShapeGroupInt(Util.rect(15, 15, 5, 5)),   // 1: in the L's notch
+            new ShapeGroupInt(Util.rect(20, 0, 5, 5)),    // 2: touches the L's edge
+            new ShapeGroupInt(Util.rect(25, 5, 5, 5)),    // 3: touches 2 at a corner
+            new ShapeGroupInt(new ShapeInt(Util.rect(100, 100, 50, 50),
+                                           Util.rect(110, 110, 30, 30).reverseVertexOrder())), // 4
+            new ShapeGroupInt(Util.rect(120, 120, 5, 5)), // 5: inside 4's hole
+            new ShapeGroupInt(Util.rect(102, 102, 5, 5)), // 6: inside 4's frame
+            new ShapeGroupInt(new ShapeInt[0]),           // 7: empty
+            new ShapeGroupInt(Util.rect(0, 0, 200, 200)), // 8: covers everything
+        };
+        ShapeOverlaps overlaps = new ShapeOverlaps(groups);
+        int[] expected = new int[] {
+            0, 2,  0, 8,
+            1, 8,
+            2, 3,  2, 8,
+            3, 8,
+            4, 6,  4, 8,
+            5, 8,
+            6, 8
+        };
+        assertArrayEquals(expected, overlaps.getPairs(), "pairs");
+    }
+
+}
@@ -0,0 +1,92 @@
+package info.bstancham.bsgeom2d;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseTiledShapeTest {
+
+    private final Random rand = new Random(22);
+
+    private static final Tile[] TILES = {
+        TiledShape.EMPTY, TiledShape.EMPTY, TiledShape.SQUARE, TiledShape.SQUARE,
+        TiledShape.TOPLEFT, TiledShape.TOPRIGHT, TiledShape.BOTLEFT, TiledShape.BOTRIGHT
+    };
+
+    private static void checkSame(TiledShape dense, SparseTiledShape sparse, String msg) {
+        int dim = dense.dimension();
+        PointInt pos = dense.position();
+        // a margin all round, which should be empty in both
+        for (int y = pos.y() - 3; y < pos.y() + dim + 3; y++)
+            for (int x = pos.x() - 3; x < pos.x() + dim + 3; x++)
+                assertSame(dense.getTileAt(x, y), sparse.getTileAt(x, y),
+                           msg + " tile (" + x + ", " + y + ")");
+    }
+
+    @Test
+    public void testMatchesDense() {
+        // crosses chunk boundaries, and negative co-ordinates
+        TiledShape a = Util.randTiledShape(rand, 70, -40, -33, TILES);
+        TiledShape b = Util.randTiledShape(rand, 50, -10, 5, TILES);
+        SparseTiledShape sa = new SparseTiledShape(a);
+        SparseTiledShape sb = new SparseTiledShape(b);
+        checkSame(a, sa, "a");
+        checkSame(b, sb, "b");
+        checkSame(a.subtract(b), sa.subtract(sb), "subtract");
+        checkSame(a.intersect(b), sa.intersect(sb), "intersect");
+        // a dense union is cut down to the first shape's square
+        TiledShape canvas = TiledShape.blank(100, new PointInt(-45, -40));
+        checkSame(canvas.union(a).union(b), sa.union(sb), "union");
+        assertEquals(Util.sorted(a.getLines()), Util.sorted(sa.getLines()), "lines");
+        assertEquals(Util.sorted(a.triangulation()), Util.sorted(sa.triangulation()), "triangles");
+        int n = a.dimension() * a.dimension();
+        IntBufferSink sink = new IntBufferSink(IntBuffer.allocate(10 * n), IntBuffer.allocate(12 * n));
+        assertEquals(a.triangulation().length, sa.triangulate(sink), "triangulate count");
+    }
+
+    @Test
+    public void testTranslate() {
+        TiledShape a = Util.randTiledShape(rand, 45, 3, -7, TILES);
+        SparseTiledShape sa = new SparseTiledShape(a);
+        int[][] moves = { { 0, 0 }, { 32, -64 }, { 5, 0 }, { -17, 33 }, { 1000001, -999999 } };
+        for (int[] m : moves) {
+            checkSame(a.translate(m[0], m[1]), sa.translate(m[0], m[1]),
+                      "moved " + m[0] + ", " + m[1]);
+            assertEquals(Util.sorted(a.translate(m[0], m[1]).getLines()),
+                         Util.sorted(sa.translate(m[0], m[1]).getLines()),
+                         "lines moved " + m[0] + ", " + m[1]);
+        }
+    }
+
+    @Test
+    public void testSparse() {
+        // two small islands a very long way apart
+        TiledShape island = Util.randTiledShape(rand, 8, 0, 0, TILES);
+        SparseTiledShape world = new SparseTiledShape(island.translate(-5000000, 12),
+                                                      island.translate(4000000, -3000000));
+        assertTrue(world.numChunks() <= 8, "only the chunks the islands touch");
+        checkSame(island.translate(-5000000, 12), world, "first island");
+        SparseTiledShape gone = world.subtract(world);
+        assertTrue(gone.isEmpty(), "empty chunks are dropped");
+        assertEquals(0, gone.getLines().length, "no lines");
+        assertEquals(0, new SparseTiledShape().numChunks(), "empty constructor");
+        assertEquals(0, world.intersect(new SparseTiledShape()).numChunks(), "intersect empty");
+        checkSame(island.translate(4000000, -3000000),
+                  world.union(new SparseTiledShape()), "union empty");
+    }
+
+    @Test
+    public void testSharedChunks() {
+        SparseTiledShape far = new SparseTiledShape(Util.randTiledShape(rand, 10, 1000, 1000, TILES));
+        SparseTiledShape near = new SparseTiledShape(Util.randTiledShape(rand, 10, 0, 0, TILES));
+        SparseTiledShape both = far.union(near);
+        assertEquals(2, both.numChunks(), "two chunks");
+        // the far chunk isn't touched by subtracting the near one
+        SparseTiledShape left = both.subtract(near);
+        assertEquals(Util.sorted(far.triangulation()), Util.sorted(left.triangulation()), "far chunk unchanged");
+        assertThrows(NullPointerException.class,
+                     () -> new SparseTiledShape((TiledShape) null), "null shape");
+    }
+
+}
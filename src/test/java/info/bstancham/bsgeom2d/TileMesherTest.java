@@ -0,0 +1,117 @@
+package info.bstancham.bsgeom2d;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TileMesherTest {
+
+    private final Random rand = new Random(25);
+
+    // sample points within a tile, in quarter units, which aren't on any
+    // facet edge (tile sides, diagonals or lines to the centre)
+    private static final int[][] SAMPLES = {
+        { 1, 2 }, { 2, 1 }, { 2, 3 }, { 3, 2 }, { 5, 6 }, { 6, 5 }, { 6, 7 }, { 7, 6 },
+        { 1, 6 }, { 6, 1 }, { 2, 5 }, { 5, 2 }, { 3, 6 }, { 6, 3 }, { 7, 2 }, { 2, 7 }
+    };
+
+    private static final Tile[] TERRAIN = {
+        TiledShape.EMPTY, TiledShape.SQUARE, TiledShape.SQUARE, TiledShape.SQUARE,
+        TiledShape.TOPLEFT, TiledShape.TOPRIGHT, TiledShape.BOTLEFT, TiledShape.BOTRIGHT
+    };
+
+    /**
+     * @return 2 if (x, y), in quarter units, is strictly inside t, 1 if
+     * it's on an edge, 0 if outside.
+     */
+    private static int locate(TriInt t, long x, long y) {
+        int a = Geom2DInt.ccw(4L * t.a().x(), 4L * t.a().y(), 4L * t.b().x(), 4L * t.b().y(), x, y);
+        int b = Geom2DInt.ccw(4L * t.b().x(), 4L * t.b().y(), 4L * t.c().x(), 4L * t.c().y(), x, y);
+        int c = Geom2DInt.ccw(4L * t.c().x(), 4L * t.c().y(), 4L * t.a().x(), 4L * t.a().y(), x, y);
+        if (a < 0 || b < 0 || c < 0) return 0;
+        return (a > 0 && b > 0 && c > 0 ? 2 : 1);
+    }
+
+    /**
+     * The merged triangles must have the same area as the facets, and
+     * cover every sample point which the facets do, without
+     * overlapping... the sample points are never on a facet edge, but
+     * may be on the long diagonal of a merged rectangle.
+     */
+    private static void checkCoverage(TiledShape shape, String msg) {
+        TriInt[] facets = shape.triangulation();
+        TriInt[] merged = shape.mergedTriangulation();
+        assertEquals(Util.area(facets), Util.area(merged), 1e-9, msg + " area");
+        int dim = shape.dimension();
+        for (int i = 0; i < dim * dim; i++) {
+            long tx = 8L * (shape.position().x() + i % dim);
+            long ty = 8L * (shape.position().y() + i / dim);
+            for (int[] s : SAMPLES) {
+                boolean inFacet = false;
+                for (TriInt t : facets)
+                    if (locate(t, tx + s[0], ty + s[1]) == 2) inFacet = true;
+                int strictly = 0;
+                boolean touched = false;
+                for (TriInt t : merged) {
+                    int loc = locate(t, tx + s[0], ty + s[1]);
+                    if (loc == 2) strictly++;
+                    if (loc > 0) touched = true;
+                }
+                String m = msg + " tile " + i + " sample " + s[0] + "," + s[1];
+                assertTrue(strictly <= 1, m + " - overlap");
+                assertEquals(inFacet, touched, m + " - coverage");
+            }
+        }
+        for (TriInt t : merged)
+            assertTrue(Geom2DInt.ccw(t.a(), t.b(), t.c()) > 0, msg + " counter-clockwise");
+    }
+
+    @Test
+    public void testRandomShapes() {
+        for (int trial = 0; trial < 30; trial++) {
+            checkCoverage(Util.randTiledShape(rand, 1 + rand.nextInt(12),
+                                              rand.nextInt(10) - 5, rand.nextInt(10) - 5),
+                          "any tiles " + trial);
+            checkCoverage(Util.randTiledShape(rand, 1 + rand.nextInt(12),
+                                              rand.nextInt(10) - 5, rand.nextInt(10) - 5, TERRAIN),
+                          "terrain " + trial);
+        }
+    }
+
+    @Test
+    public void testSolidBlock() {
+        Tile[] tiles = new Tile[100 * 100];
+        Arrays.fill(tiles, TiledShape.SQUARE);
+        TiledShape block = new TiledShape(100, tiles);
+        assertEquals(2, block.mergedTriangulation().length, "solid block is one rectangle");
+        assertEquals(20000, block.triangulation().length, "facets");
+        IntBufferSink sink = new IntBufferSink(IntBuffer.allocate(8), IntBuffer.allocate(6));
+        assertEquals(2, block.triangulateMerged(sink), "same through a sink");
+        assertEquals(4, sink.numVertices(), "four corners");
+    }
+
+    @Test
+    public void testSlope() {
+        // a right-angled triangle of tiles, with a 45 degree hypotenuse:
+        // each row is a diagonal tile followed by squares out to the
+        // right edge
+        int dim = 30;
+        Tile[] tiles = new Tile[dim * dim];
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                // row 0 is the top, and the narrowest
+                int first = dim - 1 - r;
+                Tile t = TiledShape.EMPTY;
+                if (c == first) t = TiledShape.TOPLEFT;
+                else if (c > first) t = TiledShape.SQUARE;
+                tiles[r * dim + c] = t;
+            }
+        }
+        TiledShape slope = new TiledShape(dim, tiles);
+        checkCoverage(slope, "slope");
+        assertEquals(1, slope.mergedTriangulation().length, "one big triangle");
+    }
+
+}
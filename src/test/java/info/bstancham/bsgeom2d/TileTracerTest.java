@@ -0,0 +1,192 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TileTracerTest {
+
+    private final Random rand = new Random(24);
+
+    private static TiledShape solid(int dim, int x, int y) {
+        Tile[] tiles = new Tile[dim * dim];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = TiledShape.SQUARE;
+        return new TiledShape(dim, tiles, new PointInt(x, y));
+    }
+
+    /**
+     * @return Total length of the triangle edges which aren't matched by
+     * the same edge the other way round in another triangle.
+     */
+    private static double perimeter(TriInt[] tris) {
+        Map<String, LineInt> edges = new HashMap<>();
+        for (TriInt t : tris) {
+            PointInt[] p = { t.a(), t.b(), t.c() };
+            for (int k = 0; k < 3; k++) {
+                PointInt from = p[k];
+                PointInt to = p[(k + 1) % 3];
+                String reverse = to + " " + from;
+                if (edges.containsKey(reverse))
+                    edges.remove(reverse);
+                else
+                    edges.put(from + " " + to, new LineInt(from, to));
+            }
+        }
+        double sum = 0;
+        for (LineInt ln : edges.values())
+            sum += ln.length();
+        return sum;
+    }
+
+    /**
+     * Outlines must be counter-clockwise, holes clockwise, and cover
+     * the same area as the triangles, with the same perimeter.
+     */
+    private static void checkOutlines(ShapeGroupInt group, TriInt[] tris, String msg) {
+        double area = 0;
+        double length = 0;
+        for (ShapeInt s : group) {
+            assertTrue(PolyClipper.doubleArea(s.outline()) > 0, msg + " outline counter-clockwise");
+            area += PolyClipper.doubleArea(s.outline());
+            for (int h = 0; h < s.numHoles(); h++) {
+                assertTrue(PolyClipper.doubleArea(s.hole(h)) < 0, msg + " hole clockwise");
+                area += PolyClipper.doubleArea(s.hole(h));
+            }
+            for (int e = 0; e < s.numEdges(); e++)
+                length += s.edge(e).length();
+        }
+        assertEquals(Util.area(tris), area, 1e-6, msg + " area");
+        assertEquals(perimeter(tris), length, 1e-6, msg + " perimeter");
+    }
+
+    @Test
+    public void testRandomShapes() {
+        for (int trial = 0; trial < 40; trial++) {
+            TiledShape shape = Util.randTiledShape(rand, 1 + rand.nextInt(20),
+                                                   rand.nextInt(20) - 10, rand.nextInt(20) - 10);
+            checkOutlines(shape.outlines(), shape.triangulation(), "trial " + trial);
+        }
+    }
+
+    @Test
+    public void testMergesStraightEdges() {
+        ShapeGroupInt block = solid(50, 3, -4).outlines();
+        assertEquals(1, block.numSubShapes(), "one shape");
+        assertEquals(4, block.subShape(0).outline().numVertices(), "square has four corners");
+        BoxInt box = block.boundingBox();
+        assertEquals(6, box.left(), "left");
+        assertEquals(-8, box.bottom(), "bottom");
+        assertEquals(106, box.right(), "right");
+        assertEquals(92, box.top(), "top");
+        // with a hole in the middle
+        ShapeGroupInt ring = solid(10, 0, 0).subtract(solid(4, 3, 3)).outlines();
+        assertEquals(1, ring.numSubShapes(), "one shape");
+        assertEquals(1, ring.subShape(0).numHoles(), "one hole");
+        assertEquals(4, ring.subShape(0).hole(0).numVertices(), "square hole");
+    }
+
+    @Test
+    public void testTouchingCorners() {
+        TiledShape diag = new TiledShape(2, new Tile[] { TiledShape.SQUARE, TiledShape.EMPTY,
+                                                         TiledShape.EMPTY, TiledShape.SQUARE });
+        ShapeGroupInt g = diag.outlines();
+        assertEquals(2, g.numSubShapes(), "separate squares");
+        for (ShapeInt s : g)
+            assertEquals(4, s.outline().numVertices(), "square");
+        assertEquals(0, solid(3, 0, 0).subtract(solid(3, 0, 0)).outlines().numSubShapes(), "empty");
+    }
+
+    @Test
+    public void testSparse() {
+        TiledShape a = Util.randTiledShape(rand, 70, -40, -33);
+        SparseTiledShape sa = new SparseTiledShape(a);
+        checkOutlines(sa.outlines(), a.triangulation(), "sparse");
+        assertEquals(a.outlines().numSubShapes(), sa.outlines().numSubShapes(), "same shapes");
+        // one big block across lots of chunks is still one rectangle
+        ShapeGroupInt big = new SparseTiledShape(solid(100, -50, -50)).outlines();
+        assertEquals(1, big.numSubShapes(), "one shape");
+        assertEquals(4, big.subShape(0).outline().numVertices(), "rectangle");
+    }
+
+    /**
+     * @return The rings of all the shapes, each written out from its
+     * smallest starting point, sorted... PolyInt.equals() can't be
+     * used, as it lines rings up at the first matching vertex, and a
+     * ring can pass through the same point twice.
+     */
+    private static List<String> rings(ShapeGroupInt group) {
+        List<String> out = new ArrayList<>();
+        for (ShapeInt s : group) {
+            for (PolyInt p : s) {
+                String best = null;
+                int n = p.numVertices();
+                for (int start = 0; start < n; start++) {
+                    StringBuilder sb = new StringBuilder();
+                    for (int i = 0; i < n; i++)
+                        sb.append(p.vertex((start + i) % n)).append(' ');
+                    if (best == null || sb.toString().compareTo(best) < 0)
+                        best = sb.toString();
+                }
+                out.add(best);
+            }
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    @Test
+    public void testSparseSameRings() {
+        // chunks add their edges in a different order from the dense
+        // shape, but the rings must come out the same
+        for (int trial = 0; trial < 300; trial++) {
+            TiledShape shape = Util.randTiledShape(rand, 1 + rand.nextInt(40),
+                                                   rand.nextInt(80) - 40, rand.nextInt(80) - 40);
+            assertEquals(rings(shape.outlines()), rings(new SparseTiledShape(shape).outlines()),
+                         "trial " + trial);
+        }
+    }
+
+    @Test
+    public void testPinchedHole() {
+        // rectangle, with a triangular hole touching its left side at
+        // (66, 0)... two edges in and two out there, and the sharpest
+        // left turns join the hole onto the outline, whatever order
+        // the edges come in
+        int[][] edges = {
+            { 66, 4, 66, 0 }, { 66, 0, 66, -2 }, { 66, -2, 72, -2 }, { 72, -2, 72, 4 },
+            { 72, 4, 66, 4 }, { 66, 0, 67, 1 }, { 67, 1, 68, 0 }, { 68, 0, 66, 0 }
+        };
+        PolyInt expected = new PolyInt(new int[] { 66, 66, 67, 68, 66, 66, 72, 72 },
+                                       new int[] {  4,  0,  1,  0,  0, -2, -2,  4 });
+        List<int[]> order = new ArrayList<>(List.of(edges));
+        Random shuffle = new Random(3);
+        for (int trial = 0; trial < 50; trial++) {
+            PolyClipper.EdgeChainer chainer = new PolyClipper.EdgeChainer();
+            for (int[] e : order)
+                chainer.add(e[0], e[1], e[2], e[3]);
+            PolyInt[] out = chainer.chain();
+            assertEquals(1, out.length, "trial " + trial + " - one ring");
+            ShapeGroupInt g = new ShapeGroupInt(new ShapeInt(out[0]));
+            assertEquals(rings(new ShapeGroupInt(new ShapeInt(expected))), rings(g),
+                         "trial " + trial + " - hole joined onto outline");
+            Collections.shuffle(order, shuffle);
+        }
+    }
+
+    @Test
+    public void testUnclosedEdges() {
+        // edges which don't join up are an error, not just left out
+        PolyClipper.EdgeChainer chainer = new PolyClipper.EdgeChainer();
+        chainer.add(0, 0, 2, 0);
+        chainer.add(2, 0, 2, 2);
+        chainer.add(2, 2, 0, 2);
+        assertThrows(IllegalStateException.class, () -> chainer.chain(), "open chain");
+    }
+
+}
@@ -0,0 +1,108 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiledShapeMeshTest {
+
+    private final Random rand = new Random(23);
+
+    /**
+     * Mesh must match a full re-mesh of the same tiles.
+     */
+    private static void checkMesh(TiledShapeMesh mesh, String msg) {
+        TiledShape shape = mesh.toTiledShape();
+        assertEquals(Util.sorted(shape.triangulation()), Util.sorted(mesh.triangulation()), msg + " triangles");
+        assertEquals(Util.sorted(shape.getLines()), Util.sorted(mesh.getLines()), msg + " lines");
+    }
+
+    @Test
+    public void testSetTile() {
+        TiledShape shape = Util.randTiledShape(rand, 12, -3, 5);
+        TiledShapeMesh mesh = new TiledShapeMesh(shape);
+        checkMesh(mesh, "initial");
+        for (int i = 0; i < 300; i++) {
+            int x = -3 + rand.nextInt(12);
+            int y = 5 + rand.nextInt(12);
+            Tile t = Tile.of(rand.nextInt(16));
+            mesh.setTile(x, y, t);
+            assertSame(t, mesh.getTileAt(x, y), "tile set");
+            checkMesh(mesh, "edit " + i);
+        }
+    }
+
+    @Test
+    public void testBooleanOps() {
+        TiledShape a = Util.randTiledShape(rand, 20, 0, 0);
+        TiledShape b = Util.randTiledShape(rand, 9, 7, -2);
+        TiledShapeMesh mesh = new TiledShapeMesh(a);
+        mesh.subtract(b);
+        assertEquals(Util.sorted(a.subtract(b).triangulation()), Util.sorted(mesh.triangulation()), "subtract");
+        checkMesh(mesh, "subtract");
+        mesh.union(b);
+        assertEquals(Util.sorted(a.subtract(b).union(b).getLines()), Util.sorted(mesh.getLines()), "union");
+        mesh.intersect(b.translate(5, 5));
+        assertEquals(Util.sorted(a.subtract(b).union(b).intersect(b.translate(5, 5)).getLines()),
+                     Util.sorted(mesh.getLines()), "intersect");
+    }
+
+    /**
+     * Copying just the dirty slots keeps a mirror of the mesh up to
+     * date.
+     */
+    @Test
+    public void testDirtySlots() {
+        TiledShapeMesh mesh = new TiledShapeMesh(Util.randTiledShape(rand, 16, 0, 0));
+        List<TriInt> tris = new ArrayList<>();
+        for (TriInt t : mesh.triangulation())
+            tris.add(t);
+        List<LineInt> lines = new ArrayList<>();
+        for (LineInt ln : mesh.getLines())
+            lines.add(ln);
+        assertTrue(mesh.takeDirtyTriangles().isEmpty(), "nothing dirty to start with");
+        for (int i = 0; i < 200; i++) {
+            mesh.setTile(rand.nextInt(16), rand.nextInt(16), Tile.of(rand.nextInt(16)));
+            BitSet dirty = mesh.takeDirtyTriangles();
+            // at most the tile's old and new facets
+            assertTrue(dirty.cardinality() <= 8, "only a few triangles dirty");
+            while (tris.size() < mesh.numTriangles()) tris.add(null);
+            while (tris.size() > mesh.numTriangles()) tris.remove(tris.size() - 1);
+            for (int s = dirty.nextSetBit(0); s >= 0 && s < tris.size(); s = dirty.nextSetBit(s + 1))
+                tris.set(s, mesh.triangle(s));
+            BitSet dirtyLines = mesh.takeDirtyLines();
+            while (lines.size() < mesh.numLines()) lines.add(null);
+            while (lines.size() > mesh.numLines()) lines.remove(lines.size() - 1);
+            for (int s = dirtyLines.nextSetBit(0); s >= 0 && s < lines.size(); s = dirtyLines.nextSetBit(s + 1))
+                lines.set(s, mesh.line(s));
+            assertEquals(Util.sorted(mesh.triangulation()), Util.sorted(tris.toArray()), "mirrored triangles " + i);
+            assertEquals(Util.sorted(mesh.getLines()), Util.sorted(lines.toArray()), "mirrored lines " + i);
+        }
+        // emptying a tile shrinks the list... the slots off the end are
+        // dirty too
+        mesh.setTile(5, 5, TiledShape.SQUARE);
+        mesh.takeDirtyTriangles();
+        int before = mesh.numTriangles();
+        mesh.setTile(5, 5, TiledShape.EMPTY);
+        BitSet dirty = mesh.takeDirtyTriangles();
+        assertEquals(before - 2, mesh.numTriangles(), "two fewer triangles");
+        for (int s = mesh.numTriangles(); s < before; s++)
+            assertTrue(dirty.get(s), "vacated slot " + s + " dirty");
+        mesh.setTile(3, 3, mesh.getTileAt(3, 3));
+        assertTrue(mesh.takeDirtyTriangles().isEmpty(), "no change, nothing dirty");
+    }
+
+    @Test
+    public void testBadArgs() {
+        TiledShapeMesh mesh = new TiledShapeMesh(Util.randTiledShape(rand, 4, 10, 10));
+        assertThrows(IllegalArgumentException.class,
+                     () -> mesh.setTile(9, 10, TiledShape.SQUARE), "outside");
+        assertThrows(NullPointerException.class,
+                     () -> mesh.setTile(10, 10, null), "null tile");
+        assertSame(TiledShape.EMPTY, mesh.getTileAt(14, 10), "outside is empty");
+    }
+
+}
@@ -0,0 +1,115 @@
+package info.bstancham.bsgeom2d;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiledShapeTest {
+
+    private final Random rand = new Random(21);
+
+    /**
+     * @return Random tiles, including ones with just two opposite
+     * edges, which have no facets.
+     */
+    private Tile[] randTiles(int dim) {
+        Tile[] tiles = new Tile[dim * dim];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = Tile.of(rand.nextInt(16));
+        return tiles;
+    }
+
+    /**
+     * Tile by tile, as the boolean operations used to be done.
+     */
+    private static Tile expected(Tile a, Tile b, int op) {
+        if (op == 0) return a.subtract(b);
+        if (op == 1) return a.intersect(b);
+        return a.union(b);
+    }
+
+    private static TiledShape apply(TiledShape a, TiledShape b, int op) {
+        if (op == 0) return a.subtract(b);
+        if (op == 1) return a.intersect(b);
+        return a.union(b);
+    }
+
+    private static void checkTiles(TiledShape s, Tile[] tiles, String msg) {
+        int dim = s.dimension();
+        PointInt pos = s.position();
+        for (int i = 0; i < tiles.length; i++) {
+            int x = pos.x() + i % dim;
+            int y = pos.y() + dim - 1 - i / dim;
+            assertSame(tiles[i], s.getTileAt(x, y), msg + " tile " + i);
+        }
+    }
+
+    @Test
+    public void testPacking() {
+        for (int dim : new int[] { 1, 3, 15, 16, 17, 33, 64 }) {
+            Tile[] tiles = randTiles(dim);
+            TiledShape s = new TiledShape(dim, tiles, new PointInt(-5, 7));
+            checkTiles(s, tiles, "dim " + dim);
+            assertSame(TiledShape.EMPTY, s.getTileAt(-6, 7), "left of shape");
+            assertSame(TiledShape.EMPTY, s.getTileAt(-5 + dim, 7), "right of shape");
+            assertSame(TiledShape.EMPTY, s.getTileAt(-5, 7 + dim), "above shape");
+            checkTiles(s.translate(100, -3), tiles, "translated dim " + dim);
+        }
+    }
+
+    @Test
+    public void testBooleanOps() {
+        int[] dims = { 1, 5, 16, 17, 40 };
+        for (int dimA : dims) {
+            for (int dimB : dims) {
+                for (int trial = 0; trial < 10; trial++) {
+                    Tile[] ta = randTiles(dimA);
+                    Tile[] tb = randTiles(dimB);
+                    TiledShape a = new TiledShape(dimA, ta,
+                                                  new PointInt(rand.nextInt(20) - 10,
+                                                               rand.nextInt(20) - 10));
+                    // sometimes well away, sometimes overlapping
+                    int spread = (trial == 0 ? 200 : dimA + dimB);
+                    TiledShape b = new TiledShape(dimB, tb)
+                        .translate(a.position().x() + rand.nextInt(2 * spread + 1) - spread,
+                                   a.position().y() + rand.nextInt(2 * spread + 1) - spread);
+                    for (int op = 0; op < 3; op++) {
+                        TiledShape result = apply(a, b, op);
+                        assertEquals(dimA, result.dimension(), "dimension");
+                        assertEquals(a.position(), result.position(), "position");
+                        Tile[] expected = new Tile[ta.length];
+                        for (int i = 0; i < ta.length; i++) {
+                            int x = a.position().x() + i % dimA;
+                            int y = a.position().y() + dimA - 1 - i / dimA;
+                            expected[i] = expected(ta[i], b.getTileAt(x, y), op);
+                        }
+                        checkTiles(result, expected,
+                                   "op " + op + " dims " + dimA + "/" + dimB + " trial " + trial);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOppositeEdgesHaveNoFacets() {
+        Tile topBot = Tile.of(true, true, false, false);
+        Tile leftRight = Tile.of(false, false, true, true);
+        assertEquals(0, topBot.numFacets(), "top and bottom");
+        assertEquals(0, leftRight.numFacets(), "left and right");
+        TiledShape s = new TiledShape(2, new Tile[] { topBot, TiledShape.SQUARE,
+                                                      leftRight, TiledShape.TOPLEFT });
+        TriInt[] tris = s.triangulation();
+        assertEquals(TiledShape.SQUARE.numFacets() + TiledShape.TOPLEFT.numFacets(),
+                     tris.length, "triangle count");
+        for (TriInt t : tris)
+            assertNotNull(t, "no null triangles");
+    }
+
+    @Test
+    public void testBadArgs() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new TiledShape(3, new Tile[8]), "too few tiles");
+    }
+
+}
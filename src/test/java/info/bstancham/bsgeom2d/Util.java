@@ -1,5 +1,9 @@
 package info.bstancham.bsgeom2d;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 
 public final class Util {
@@ -24,4 +28,152 @@ public final class Util {
         return new LineInt(randPointInt(), randPointInt());
     }
 
+    /**
+     * @return A counter-clockwise rectangle, with its bottom-left
+     * corner at (x, y).
+     */
+    public static PolyInt rect(int x, int y, int width, int height) {
+        return new PolyInt(new int[] { x, x + width, x + width, x          },
+                           new int[] { y, y,         y + height, y + height });
+    }
+
+    /**
+     * @return A counter-clockwise square, with its bottom-left corner at
+     * (x, y).
+     */
+    public static PolyInt square(int x, int y, int size) {
+        return rect(x, y, size, size);
+    }
+
+    /**
+     * Re-seeds the random generator, so that the same sequence of
+     * points, lines and polygons can be generated again (benchmarks rely
+     * on this).
+     */
+    public static void setSeed(long seed) {
+        rand = new Random(seed);
+    }
+
+    /**
+     * @return A random star-shaped polygon, with {@code n} vertices
+     * (or fewer, if some of them turn out to be duplicates) in
+     * counter-clockwise order around the origin.
+     *
+     * Vertices come from randPointInt(), sorted by angle. Points which
+     * share an angle with an earlier one are dropped, and the whole lot
+     * is thrown away and tried again if it doesn't go all the way round
+     * the origin, so that the outline never touches itself.
+     */
+    public static PolyInt randStarPolyInt(int n) {
+        if (n < 3)
+            throw new IllegalArgumentException("polygon needs at least 3 vertices (got " + n + ")");
+        while (true) {
+            PointInt[] pts = new PointInt[n];
+            int count = 0;
+            while (count < n) {
+                PointInt p = randPointInt();
+                if (p.x() != 0 || p.y() != 0)
+                    pts[count++] = p;
+            }
+            Arrays.sort(pts, (a, b) -> compareAngle(a, b));
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            int m = 0;
+            for (PointInt p : pts) {
+                if (m > 0 && compareAngle(new PointInt(xs[m - 1], ys[m - 1]), p) == 0)
+                    continue;
+                xs[m] = p.x();
+                ys[m] = p.y();
+                m++;
+            }
+            if (m >= 3 && surroundsOrigin(xs, ys, m))
+                return new PolyInt(Arrays.copyOf(xs, m), Arrays.copyOf(ys, m));
+        }
+    }
+
+    /**
+     * @return A random TiledShape, dim tiles across, positioned at
+     * (x, y), with each tile any one of the 16 possible tiles.
+     *
+     * Takes its own generator, so that each test can keep its own seed.
+     */
+    public static TiledShape randTiledShape(Random rand, int dim, int x, int y) {
+        return randTiledShape(rand, dim, x, y, null);
+    }
+
+    /**
+     * @param choices Tiles to pick from... picking the same tile more
+     * than once makes it more likely. If null, any tile can be picked.
+     */
+    public static TiledShape randTiledShape(Random rand, int dim, int x, int y, Tile[] choices) {
+        Tile[] tiles = new Tile[dim * dim];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = (choices == null ? Tile.of(rand.nextInt(16)) : choices[rand.nextInt(choices.length)]);
+        return new TiledShape(dim, tiles, new PointInt(x, y));
+    }
+
+    /**
+     * @return A random box, with its bottom-left corner somewhere in the
+     * square from (min, min) to (min + extent - 1, min + extent - 1),
+     * and less than maxSize across and up.
+     *
+     * Takes its own generator, so that each test can keep its own seed.
+     */
+    public static BoxInt randBoxInt(Random rand, int min, int extent, int maxSize) {
+        int x = min + rand.nextInt(extent);
+        int y = min + rand.nextInt(extent);
+        return new BoxInt(x, y, x + rand.nextInt(maxSize), y + rand.nextInt(maxSize));
+    }
+
+    /**
+     * @return Twice the total signed area of the triangles, as in
+     * PolyClipper.doubleArea()... for comparing with the shapes they
+     * were made from.
+     */
+    public static double area(TriInt[] tris) {
+        double sum = 0;
+        for (TriInt t : tris)
+            sum += PolyClipper.doubleArea(new PolyInt(t.a(), t.b(), t.c()));
+        return sum;
+    }
+
+    /**
+     * @return The items as strings, sorted... for comparing lines or
+     * triangles which may come out in any order.
+     */
+    public static List<String> sorted(Object[] items) {
+        List<String> list = new ArrayList<>();
+        for (Object o : items)
+            list.add(o.toString());
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Points sorted by angle only make a simple polygon if they go all
+     * the way around the origin, i.e. every step turns left of it.
+     */
+    private static boolean surroundsOrigin(int[] xs, int[] ys, int m) {
+        for (int i = 0, j = m - 1; i < m; j = i++)
+            if ((long) xs[j] * ys[i] - (long) ys[j] * xs[i] <= 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Orders points by their angle around the origin, starting from the
+     * positive x axis, without any trig.
+     */
+    private static int compareAngle(PointInt a, PointInt b) {
+        int ha = half(a);
+        int hb = half(b);
+        if (ha != hb) return Integer.compare(ha, hb);
+        long cross = (long) a.x() * b.y() - (long) a.y() * b.x();
+        return cross > 0 ? -1 : (cross < 0 ? 1 : 0);
+    }
+
+    private static int half(PointInt p) {
+        return (p.y() > 0 || (p.y() == 0 && p.x() > 0)) ? 0 : 1;
+    }
+
 }
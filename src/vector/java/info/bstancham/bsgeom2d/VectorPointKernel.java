@@ -0,0 +1,120 @@
+package info.bstancham.bsgeom2d;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * PointKernel using the Java Vector API... see PointKernel for when
+ * this gets used.
+ *
+ * Each lane holds a different point, and the edges are the outer loop,
+ * so every edge is loaded once per vector of points rather than once
+ * per point. The arithmetic is the same as SlabIndex.scan(): the half
+ * open rule for crossings, and exact cross products (in 64-bit lanes,
+ * which is why the polygon has to be within PointKernel.MAX_COORD).
+ *
+ * Lanes whose point is outside the polygon's bounding box may overflow,
+ * but they are OUTSIDE anyway, and their results are thrown away.
+ */
+final class VectorPointKernel extends PointKernel {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    // ints are loaded at half the width, so that there's one per long
+    private static final VectorSpecies<Integer> INTS =
+        VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    @Override
+    String name() { return "vector"; }
+
+    @Override
+    void locate(int[] xs, int[] ys, BoxInt box,
+                int[] pxs, int[] pys, int from, int to, byte[] out) {
+        int lanes = LONGS.length();
+        int i = from;
+        for (int upper = from + LONGS.loopBound(to - from); i < upper; i += lanes) {
+            LongVector px = load(pxs, i);
+            LongVector py = load(pys, i);
+            VectorMask<Long> inBox = px.compare(VectorOperators.GE, box.left())
+                .and(px.compare(VectorOperators.LE, box.right()))
+                .and(py.compare(VectorOperators.GE, box.bottom()))
+                .and(py.compare(VectorOperators.LE, box.top()));
+            long inside = 0;
+            long boundary = 0;
+            if (inBox.anyTrue()) {
+                LongVector result = classify(xs, ys, px, py);
+                inside = result.compare(VectorOperators.EQ, SlabIndex.INSIDE).toLong();
+                boundary = result.compare(VectorOperators.EQ, SlabIndex.BOUNDARY).toLong();
+            }
+            long boxBits = inBox.toLong();
+            for (int k = 0; k < lanes; k++) {
+                int loc = SlabIndex.OUTSIDE;
+                if ((boxBits >>> k & 1) != 0) {
+                    if ((boundary >>> k & 1) != 0)    loc = SlabIndex.BOUNDARY;
+                    else if ((inside >>> k & 1) != 0) loc = SlabIndex.INSIDE;
+                }
+                out[i + k - from] = (byte) loc;
+            }
+        }
+        // left-overs which don't fill a vector
+        scan(xs, ys, box, pxs, pys, i, to, out, i - from);
+    }
+
+    private static LongVector load(int[] a, int i) {
+        return (LongVector) IntVector.fromArray(INTS, a, i)
+            .convertShape(VectorOperators.I2L, LONGS, 0);
+    }
+
+    /**
+     * Same as SlabIndex.scan(), for every lane at once.
+     *
+     * @return OUTSIDE, INSIDE or BOUNDARY in each lane.
+     */
+    private static LongVector classify(int[] xs, int[] ys, LongVector px, LongVector py) {
+        LongVector parity = LongVector.zero(LONGS);
+        VectorMask<Long> boundary = LONGS.maskAll(false);
+        int n = xs.length;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            long xj = xs[j];
+            long yj = ys[j];
+            long xi = xs[i];
+            long yi = ys[i];
+            long bottom = Math.min(yi, yj);
+            long top = Math.max(yi, yj);
+            VectorMask<Long> inSlab = py.compare(VectorOperators.GE, bottom)
+                .and(py.compare(VectorOperators.LE, top));
+            // most edges are nowhere near most points
+            if (!inSlab.anyTrue()) continue;
+            LongVector cross = cross(xj, yj, xi, yi, px, py);
+            // on the edge?
+            VectorMask<Long> on = inSlab
+                .and(px.compare(VectorOperators.GE, Math.min(xi, xj)))
+                .and(px.compare(VectorOperators.LE, Math.max(xi, xj)))
+                .and(cross.compare(VectorOperators.EQ, 0));
+            boundary = boundary.or(on);
+            // half-open rule, so that vertices are only counted once...
+            // horizontal edges never count
+            if (yi == yj) continue;
+            VectorMask<Long> crosses = inSlab.and(py.compare(VectorOperators.LT, top));
+            // ... does it cross to the right of the point?
+            VectorMask<Long> right = (yi > yj ?
+                                      cross.compare(VectorOperators.GT, 0) :
+                                      cross.compare(VectorOperators.LE, 0));
+            parity = parity.lanewise(VectorOperators.XOR, 1, crosses.and(right));
+        }
+        return parity.blend(SlabIndex.BOUNDARY, boundary);
+    }
+
+    /**
+     * Cross product (b - a) x (p - a), as in Geom2DInt.ccw().
+     */
+    private static LongVector cross(long ax, long ay, long bx, long by,
+                                    LongVector px, LongVector py) {
+        return py.sub(ay).mul(bx - ax).sub(px.sub(ax).mul(by - ay));
+    }
+
+}